@@ -46,10 +46,44 @@ public class Const {
     /* UTC offset in milliseconds */
     public static final String PLATFORM_GNSS_UTC_OFFSET_PROPERTY = "esa.mo.nmf.platform.gnss.utc.offset";
     public static final String PLATFORM_GNSS_UTC_OFFSET_DEFAULT = "-18.000";
+    /* Step in seconds of the grid on which the orbit is propagated from the TLE. 0 propagates every query */
+    public static final String PLATFORM_GNSS_TLE_CACHE_STEP_PROPERTY = "esa.mo.nmf.platform.gnss.tle.cache.step";
+    public static final String PLATFORM_GNSS_TLE_CACHE_STEP_DEFAULT = "60";
+    /* Number of pictures of the Camera stream that can be taken, converted or published at the same time */
+    public static final String PLATFORM_CAMERA_STREAM_FRAMES_PROPERTY = "esa.mo.nmf.platform.camera.stream.frames";
+    public static final String PLATFORM_CAMERA_STREAM_FRAMES_DEFAULT = "2";
     public static final String ARCHIVE_GENERATE_EVENTS_PROPERTY = "esa.mo.com.impl.provider.ArchiveManager.generateevents";
     public static final String ARCHIVE_GENERATE_EVENTS_DEFAULT = "true";
+    /* Estimated memory in bytes for the decoded COM object bodies cache. 0 disables the cache */
+    public static final String ARCHIVE_DECODED_CACHE_SIZE_PROPERTY = "esa.nmf.archive.cache.decoded.size";
+    public static final String ARCHIVE_DECODED_CACHE_SIZE_DEFAULT = "4194304";
+    /* Fields of the COM object bodies evaluated in SQL by the Composite Filters. Format: area.service.version.number:field,field;... */
+    public static final String ARCHIVE_INDEXED_ATTRIBUTES_PROPERTY = "esa.nmf.archive.indexedattributes";
+    /* Retention in hours of the COM objects stored in time partitions. Format: area.service.version.number:hours;... */
+    public static final String ARCHIVE_RETENTION_PROPERTY = "esa.nmf.archive.retention";
+    /* Period in hours covered by each time partition of the COM Archive */
+    public static final String ARCHIVE_PARTITION_PERIOD_PROPERTY = "esa.nmf.archive.partition.period";
+    public static final String ARCHIVE_PARTITION_PERIOD_DEFAULT = "24";
     public static final String ARCHIVESYNC_CHUNK_SIZE_PROPERTY = "esa.nmf.archive.sync.chunk.size";
     public static final String ARCHIVESYNC_CHUNK_SIZE_DEFAULT = "200";
     public static final String ARCHIVESYNC_OBJECTS_LIMIT_PROPERTY = "esa.nmf.archive.sync.objects.limit";
     public static final String ARCHIVESYNC_OBJECTS_LIMIT_DEFAULT = "30000";
+    /* Number of the latest chunks of an archive sync kept on the provider side for retransmission */
+    public static final String ARCHIVESYNC_WINDOW_PROPERTY = "esa.nmf.archive.sync.window";
+    public static final String ARCHIVESYNC_WINDOW_DEFAULT = "2048";
+    /* Directory where the archive sync transfers are stored to be resumed. Empty to disable */
+    public static final String ARCHIVESYNC_TRANSFERS_DIR_PROPERTY = "esa.nmf.archive.sync.transfers.dir";
+    public static final String ARCHIVESYNC_TRANSFERS_DIR_DEFAULT = "comArchiveSync";
+    /* Hours after which an archive sync transfer that was not freed is deleted */
+    public static final String ARCHIVESYNC_TRANSFERS_RETENTION_PROPERTY = "esa.nmf.archive.sync.transfers.retention";
+    public static final String ARCHIVESYNC_TRANSFERS_RETENTION_DEFAULT = "72";
+    /* Number of worker threads of the timer shared by the periodic tasks of the services */
+    public static final String PERIODIC_TIMER_THREADS_PROPERTY = "esa.nmf.timer.threads";
+    public static final String PERIODIC_TIMER_THREADS_DEFAULT = "4";
+    /* Maximum number of worker threads of the shared timer, used while tasks are slow to complete */
+    public static final String PERIODIC_TIMER_MAX_THREADS_PROPERTY = "esa.nmf.timer.threads.max";
+    public static final String PERIODIC_TIMER_MAX_THREADS_DEFAULT = "32";
+    /* Tick in milliseconds of the shared timer. The tasks due within the same tick are run together */
+    public static final String PERIODIC_TIMER_TICK_PROPERTY = "esa.nmf.timer.tick";
+    public static final String PERIODIC_TIMER_TICK_DEFAULT = "10";
 }
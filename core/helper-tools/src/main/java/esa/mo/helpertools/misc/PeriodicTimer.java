@@ -0,0 +1,354 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.helpertools.misc;
+
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A hashed wheel timer for periodic tasks. A single thread advances the wheel
+ * at every tick and hands the tasks that are due to a bounded pool of workers,
+ * so the number of threads does not depend on the number of tasks. The tasks
+ * due within the same tick are run together.
+ *
+ * The due tasks are queued for the workers. The pool keeps a few workers and
+ * grows up to a maximum while the queue is not drained within a tick, so that
+ * a slow task does not delay the others. The tasks are run at a fixed rate. An
+ * occurrence is skipped when it is due only if the previous one of the same
+ * task has not completed yet, so a task is queued at most once and the
+ * occurrences never pile up.
+ */
+public final class PeriodicTimer {
+
+    private static final Logger LOGGER = Logger.getLogger(PeriodicTimer.class.getName());
+    private static final int WHEEL_SIZE = 512;
+
+    private final long tickNanos;
+    private final ArrayList<Task>[] wheel;
+    private final Queue<Task> pending = new ConcurrentLinkedQueue<>();
+    private final int threads;
+    private final int maxThreads;
+    private final ThreadPoolExecutor workers;
+    private final Thread ticker;
+    private final long startTime;
+    private volatile boolean shutdown = false;
+    private long tick = 0; // Only accessed by the ticker thread
+
+    /**
+     * Creates a timer with a fixed number of workers.
+     *
+     * @param name The name of the threads of the timer.
+     * @param tickDuration The duration of a tick.
+     * @param unit The unit of the tick duration.
+     * @param threads The number of worker threads.
+     * @throws java.lang.IllegalArgumentException If the tick duration or the
+     * number of threads is not positive.
+     */
+    public PeriodicTimer(final String name, final long tickDuration, final TimeUnit unit, final int threads)
+        throws IllegalArgumentException {
+        this(name, tickDuration, unit, threads, threads);
+    }
+
+    /**
+     * Creates a timer.
+     *
+     * @param name The name of the threads of the timer.
+     * @param tickDuration The duration of a tick.
+     * @param unit The unit of the tick duration.
+     * @param threads The number of worker threads kept when idle.
+     * @param maxThreads The maximum number of worker threads.
+     * @throws java.lang.IllegalArgumentException If the tick duration or the
+     * number of threads is not positive, or if maxThreads is lower than
+     * threads.
+     */
+    @SuppressWarnings("unchecked")
+    public PeriodicTimer(final String name, final long tickDuration, final TimeUnit unit, final int threads,
+        final int maxThreads) throws IllegalArgumentException {
+        if (tickDuration <= 0 || threads <= 0 || maxThreads < threads) {
+            throw new IllegalArgumentException("The tick duration and the number of threads must be positive, " +
+                "and maxThreads must not be lower than threads.");
+        }
+
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.threads = threads;
+        this.maxThreads = maxThreads;
+        this.wheel = (ArrayList<Task>[]) new ArrayList<?>[WHEEL_SIZE];
+
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+
+        final AtomicInteger count = new AtomicInteger();
+        // The pool only grows when the ticker raises its core size, see adjustWorkers()
+        this.workers = new ThreadPoolExecutor(threads, maxThreads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, name + "-worker-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        this.startTime = System.nanoTime();
+        this.ticker = new Thread(this::runTicker, name + "-ticker");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /**
+     * Returns the timer shared by the periodic tasks of the process. Its tick
+     * and number of threads are set with the properties
+     * {@link Const#PERIODIC_TIMER_TICK_PROPERTY},
+     * {@link Const#PERIODIC_TIMER_THREADS_PROPERTY} and
+     * {@link Const#PERIODIC_TIMER_MAX_THREADS_PROPERTY}.
+     *
+     * @return The shared timer.
+     */
+    public static PeriodicTimer getSharedInstance() {
+        return SharedInstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Schedules a task to be run periodically.
+     *
+     * @param command The command to run.
+     * @param startDelay The delay until the task is run for the first time.
+     * @param period The period between the starts of the task.
+     * @param unit The unit of the start delay and period.
+     * @return The scheduled task.
+     * @throws java.lang.IllegalArgumentException If command == null OR unit ==
+     * null OR the delay is negative OR the period is not positive.
+     */
+    public Task schedule(final Runnable command, final long startDelay, final long period, final TimeUnit unit)
+        throws IllegalArgumentException {
+        if (command == null || unit == null) {
+            throw new IllegalArgumentException("The provided command and unit must not be null.");
+        }
+        if (startDelay < 0 || period <= 0) {
+            throw new IllegalArgumentException("The delay must not be negative and the period must be positive.");
+        }
+        if (shutdown) {
+            throw new IllegalStateException("The timer was shut down.");
+        }
+
+        final Task task = new Task(command, System.nanoTime() - startTime + unit.toNanos(startDelay), unit.toNanos(
+            period));
+        pending.add(task);
+        return task;
+    }
+
+    /**
+     * Returns the maximum number of threads used by the timer, regardless of
+     * the number of tasks.
+     *
+     * @return The number of threads.
+     */
+    public int getNumberOfThreads() {
+        return maxThreads + 1;
+    }
+
+    /**
+     * Stops the timer. The tasks are not run anymore.
+     */
+    public void shutdown() {
+        shutdown = true;
+        LockSupport.unpark(ticker);
+        workers.shutdown();
+    }
+
+    private void runTicker() {
+        while (!shutdown) {
+            final long tickTime = (tick + 1) * tickNanos;
+
+            for (long sleep = tickTime - (System.nanoTime() - startTime); sleep > 0; sleep = tickTime - (System
+                .nanoTime() - startTime)) {
+                LockSupport.parkNanos(this, sleep);
+
+                if (shutdown) {
+                    return;
+                }
+            }
+
+            tick++;
+            transferPending();
+            adjustWorkers();
+            expire();
+        }
+    }
+
+    private void transferPending() {
+        for (Task task = pending.poll(); task != null; task = pending.poll()) {
+            if (!task.cancelled) {
+                add(task, Math.max(tick, deadlineTick(task.deadline)));
+            }
+        }
+    }
+
+    private void adjustWorkers() {
+        final int core = workers.getCorePoolSize();
+
+        if (!workers.getQueue().isEmpty()) {
+            // The tasks queued at the previous tick are still waiting for a worker
+            if (core < maxThreads) {
+                workers.setCorePoolSize(core + 1);
+            }
+        } else if (core > threads && workers.getActiveCount() < core) {
+            workers.setCorePoolSize(core - 1);
+        }
+    }
+
+    private void expire() {
+        final int index = (int) (tick % WHEEL_SIZE);
+        final ArrayList<Task> bucket = wheel[index];
+        wheel[index] = new ArrayList<>();
+
+        for (Task task : bucket) {
+            if (task.cancelled) {
+                continue;
+            }
+            if (task.deadlineTick > tick) {
+                wheel[index].add(task); // Due in a later turn of the wheel
+                continue;
+            }
+
+            // Skipped if the previous occurrence has not completed yet
+            if (task.busy.compareAndSet(false, true)) {
+                try {
+                    workers.execute(task::execute);
+                } catch (RejectedExecutionException ex) {
+                    // Only when the timer is being shut down
+                    task.busy.set(false);
+                    LOGGER.log(Level.FINE, "The timer was shut down, the periodic task is not run.", ex);
+                }
+            }
+
+            // The occurrences missed while the ticker was late are skipped
+            do {
+                task.deadline += task.periodNanos;
+            } while (deadlineTick(task.deadline) <= tick);
+
+            add(task, deadlineTick(task.deadline));
+        }
+    }
+
+    private void add(final Task task, final long deadlineTick) {
+        task.deadlineTick = deadlineTick;
+        wheel[(int) (deadlineTick % WHEEL_SIZE)].add(task);
+    }
+
+    private long deadlineTick(final long deadline) {
+        return (deadline + tickNanos - 1) / tickNanos;
+    }
+
+    /**
+     * A task scheduled on the timer.
+     */
+    public static final class Task {
+
+        private final Runnable command;
+        private final long periodNanos;
+        private final AtomicBoolean busy = new AtomicBoolean(false); // Handed to a worker and not completed
+        private volatile boolean cancelled = false;
+        private long deadline; // Only accessed by the ticker thread
+        private long deadlineTick; // Only accessed by the ticker thread
+
+        private Task(final Runnable command, final long deadline, final long periodNanos) {
+            this.command = command;
+            this.deadline = deadline;
+            this.periodNanos = periodNanos;
+        }
+
+        /**
+         * Cancels the task. An occurrence already running is not interrupted.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void execute() {
+            try {
+                if (!cancelled) {
+                    command.run();
+                }
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, "The periodic task failed.", ex);
+            } finally {
+                busy.set(false);
+            }
+        }
+    }
+
+    private static final class SharedInstanceHolder {
+
+        private static final PeriodicTimer INSTANCE = newSharedInstance();
+
+        private static PeriodicTimer newSharedInstance() {
+            long tick = getPositiveProperty(Const.PERIODIC_TIMER_TICK_PROPERTY, Const.PERIODIC_TIMER_TICK_DEFAULT);
+            int threads = (int) getPositiveProperty(Const.PERIODIC_TIMER_THREADS_PROPERTY,
+                Const.PERIODIC_TIMER_THREADS_DEFAULT);
+            int maxThreads = (int) getPositiveProperty(Const.PERIODIC_TIMER_MAX_THREADS_PROPERTY,
+                Const.PERIODIC_TIMER_MAX_THREADS_DEFAULT);
+
+            if (maxThreads < threads) {
+                LOGGER.log(Level.WARNING, Const.PERIODIC_TIMER_MAX_THREADS_PROPERTY + " is lower than " +
+                    Const.PERIODIC_TIMER_THREADS_PROPERTY + ". Using " + threads + " threads at most.");
+                maxThreads = threads;
+            }
+
+            return new PeriodicTimer("PeriodicTimer", tick, TimeUnit.MILLISECONDS, threads, maxThreads);
+        }
+
+        /**
+         * Reads a positive integer property. Invalid values are logged and the
+         * default value is used instead, so that a typo in the configuration
+         * does not prevent the shared timer from starting.
+         */
+        private static long getPositiveProperty(final String property, final String defaultValue) {
+            final String value = System.getProperty(property, defaultValue);
+
+            try {
+                final long parsed = Long.parseLong(value.trim());
+
+                if (parsed > 0 && parsed <= Integer.MAX_VALUE) {
+                    return parsed;
+                }
+            } catch (NumberFormatException ex) {
+                // Logged below
+            }
+
+            LOGGER.log(Level.WARNING, "Invalid value for " + property + ": " + value + ". Using the default: " +
+                defaultValue);
+            return Long.parseLong(defaultValue);
+        }
+    }
+}
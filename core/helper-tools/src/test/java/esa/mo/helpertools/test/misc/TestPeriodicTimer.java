@@ -0,0 +1,181 @@
+package esa.mo.helpertools.test.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Ignore;
+import org.junit.Test;
+import esa.mo.helpertools.misc.PeriodicTimer;
+
+public class TestPeriodicTimer {
+
+    private static final int TASKS = 10000;
+    private static final long PERIOD_MS = 100;
+    private static final long TIMEOUT_S = 10;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScheduleNullCommand() {
+        PeriodicTimer timer = new PeriodicTimer("test", 10, TimeUnit.MILLISECONDS, 1);
+        try {
+            timer.schedule(null, 0, 1, TimeUnit.SECONDS);
+        } finally {
+            timer.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScheduleZeroPeriod() {
+        PeriodicTimer timer = new PeriodicTimer("test", 10, TimeUnit.MILLISECONDS, 1);
+        try {
+            timer.schedule(() -> {
+            }, 0, 0, TimeUnit.MILLISECONDS);
+        } finally {
+            timer.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        PeriodicTimer timer = new PeriodicTimer("test", 10, TimeUnit.MILLISECONDS, 2);
+        AtomicInteger cancelled = new AtomicInteger();
+        PeriodicTimer.Task[] task = new PeriodicTimer.Task[1];
+        CountDownLatch scheduled = new CountDownLatch(1);
+
+        task[0] = timer.schedule(() -> {
+            awaitQuietly(scheduled);
+            if (cancelled.incrementAndGet() == 5) {
+                task[0].cancel();
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        scheduled.countDown();
+
+        // Another task keeps running long after the cancellation
+        CountDownLatch later = new CountDownLatch(20);
+        timer.schedule(later::countDown, 100, 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(later.await(TIMEOUT_S, TimeUnit.SECONDS));
+        timer.shutdown();
+        assertTrue(task[0].isCancelled());
+        assertEquals(5, cancelled.get());
+    }
+
+    @Test
+    public void testOverlappingRunsAreSkipped() throws InterruptedException {
+        PeriodicTimer timer = new PeriodicTimer("test", 10, TimeUnit.MILLISECONDS, 1, 2);
+        AtomicInteger slowRuns = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch others = new CountDownLatch(20);
+
+        timer.schedule(() -> {
+            slowRuns.incrementAndGet();
+            awaitQuietly(release);
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        // Runs on the other worker while the slow task holds the first one
+        timer.schedule(others::countDown, 0, 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(others.await(TIMEOUT_S, TimeUnit.SECONDS));
+        // The occurrences due while the slow task was running were skipped, not queued
+        assertEquals(1, slowRuns.get());
+
+        release.countDown();
+        CountDownLatch again = new CountDownLatch(1);
+        timer.schedule(() -> {
+            if (slowRuns.get() > 1) {
+                again.countDown();
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        assertTrue(again.await(TIMEOUT_S, TimeUnit.SECONDS));
+        timer.shutdown();
+    }
+
+    @Test
+    public void testSamePeriodTasksAllRun() throws InterruptedException {
+        // Far more due tasks per tick than workers: none of them may be dropped
+        PeriodicTimer timer = new PeriodicTimer("test", 10, TimeUnit.MILLISECONDS, 1, 2);
+        int runsPerTask = 10;
+        AtomicInteger[] runs = new AtomicInteger[TASKS];
+        CountDownLatch done = new CountDownLatch(TASKS);
+        List<PeriodicTimer.Task> tasks = new ArrayList<>(TASKS);
+
+        for (int i = 0; i < TASKS; i++) {
+            final AtomicInteger count = new AtomicInteger();
+            runs[i] = count;
+            tasks.add(timer.schedule(() -> {
+                if (count.incrementAndGet() == runsPerTask) {
+                    done.countDown();
+                }
+            }, 0, PERIOD_MS, TimeUnit.MILLISECONDS));
+        }
+
+        assertTrue(done.await(TIMEOUT_S, TimeUnit.SECONDS));
+
+        for (PeriodicTimer.Task task : tasks) {
+            task.cancel();
+        }
+        timer.shutdown();
+
+        // Every task ran in every period in which the others ran
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (AtomicInteger count : runs) {
+            min = Math.min(min, count.get());
+            max = Math.max(max, count.get());
+        }
+        assertTrue("Runs per task between " + min + " and " + max, max - min <= 1);
+    }
+
+    @Ignore("Manual test only")
+    @Test
+    public void testThreadCountAndJitter() throws InterruptedException {
+        PeriodicTimer timer = new PeriodicTimer("test", 10, TimeUnit.MILLISECONDS, 4);
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        AtomicLong maxLateness = new AtomicLong();
+        AtomicLong totalLateness = new AtomicLong();
+        AtomicInteger runs = new AtomicInteger();
+        List<PeriodicTimer.Task> tasks = new ArrayList<>(TASKS);
+
+        for (int i = 0; i < TASKS; i++) {
+            final long start = System.nanoTime();
+            final AtomicInteger occurrence = new AtomicInteger();
+            tasks.add(timer.schedule(() -> {
+                long expected = start + occurrence.getAndIncrement() * TimeUnit.MILLISECONDS.toNanos(PERIOD_MS);
+                long lateness = Math.max(0, System.nanoTime() - expected);
+                maxLateness.accumulateAndGet(lateness, Math::max);
+                totalLateness.addAndGet(lateness);
+                runs.incrementAndGet();
+            }, 0, PERIOD_MS, TimeUnit.MILLISECONDS));
+        }
+
+        Thread.sleep(20 * PERIOD_MS);
+        int threadsDuring = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        for (PeriodicTimer.Task task : tasks) {
+            task.cancel();
+        }
+        timer.shutdown();
+
+        long meanLatenessMs = TimeUnit.NANOSECONDS.toMillis(totalLateness.get() / runs.get());
+        System.out.println("Runs: " + runs.get() + ", mean lateness: " + meanLatenessMs + " ms, max lateness: " +
+            TimeUnit.NANOSECONDS.toMillis(maxLateness.get()) + " ms, threads: " + (threadsDuring - threadsBefore));
+
+        assertTrue(threadsDuring - threadsBefore <= timer.getNumberOfThreads());
+        assertTrue(runs.get() >= TASKS * 15);
+        assertTrue(meanLatenessMs < PERIOD_MS / 2);
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT_S, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -20,10 +20,11 @@
  */
 package esa.opssat.camera.processing;
 
-import ij.Debayer_Image;
 import ij.ImagePlus;
+import ij.ImageStack;
 import ij.io.FileInfo;
 import ij.io.FileOpener;
+import ij.plugin.RGBStackConverterOpt;
 import ij.process.ShortProcessor;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
@@ -36,6 +37,15 @@ import java.nio.ByteOrder;
  */
 public class OPSSATCameraDebayering {
 
+    /**
+     * The size of the frames of OPS-SAT's Camera.
+     */
+    public static final int WIDTH = 2048;
+    public static final int HEIGHT = 1944;
+
+    // The debayering buffers are reused by each thread
+    private static final ThreadLocal<TiledDebayering> DEBAYERING = ThreadLocal.withInitial(TiledDebayering::new);
+
     /**
      * The method converts a byte array coming from OPS-SAT's Camera using the
      * "Replication" algorithm and returns a BufferedImage.
@@ -62,10 +72,30 @@ public class OPSSATCameraDebayering {
      * @return
      */
     public static BufferedImage getDebayeredImage(byte[] data, int algorithm) {
+        return OPSSATCameraDebayering.getDebayeredImage(data, WIDTH, HEIGHT, algorithm);
+    }
+
+    /**
+     * The method converts a byte array with a raw frame of the given size
+     * using the selected algorithm and returns a BufferedImage. The frame is
+     * debayered in bands of rows, in parallel.
+     *
+     * @param data the 16-bit little-endian pixels of the frame
+     * @param width the width of the frame
+     * @param height the height of the frame
+     * @param algorithm the algorithm, see getDebayeredImage(byte[], int)
+     * @return the RGB image
+     */
+    public static BufferedImage getDebayeredImage(byte[] data, int width, int height, int algorithm) {
+        if (data.length != width * height * 2) {
+            throw new IllegalArgumentException("The frame has " + data.length + " bytes instead of " + width + "x" +
+                height + " 16-bit pixels");
+        }
+
         FileInfo fi = new FileInfo();
         fi.fileFormat = FileInfo.RAW;
-        fi.width = 2048;
-        fi.height = 1944;
+        fi.width = width;
+        fi.height = height;
 
         fi.offset = 0;
         fi.nImages = 1;
@@ -79,23 +109,27 @@ public class OPSSATCameraDebayering {
         ColorModel cm = fo.createColorModel(fi);
 
         // Convert the byte array to a shorts array
-        short[] shorts = new short[data.length / 2];
+        TiledDebayering debayering = DEBAYERING.get();
+        short[] shorts = debayering.getRawBuffer(width * height);
         ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(shorts);
 
         ShortProcessor processor = new ShortProcessor(fi.width, fi.height, shorts, cm);
         ImagePlus imp = new ImagePlus("", processor);
 
-        ImagePlus outImage = OPSSATCameraDebayering.processImage(imp, algorithm);
-        //        outImage.show();
+        short[][] planes = debayering.debayer(shorts, width, height, algorithm);
 
-        return outImage.getBufferedImage();
-    }
+        // Same conversion to RGB as Debayer_Image
+        ImageStack rgb = new ImageStack(width, height, processor.getColorModel());
+        rgb.addSlice("red", planes[0]);
+        rgb.addSlice("green", planes[1]);
+        rgb.addSlice("blue", planes[2]);
+        imp.setStack("RGB Stack", rgb);
+
+        RGBStackConverterOpt converter = new RGBStackConverterOpt();
+        converter.setImage(imp);
+        converter.run("");
 
-    private static ImagePlus processImage(ImagePlus imp, int algorithm) {
-        Debayer_Image debayeringFilter = new Debayer_Image();
-        debayeringFilter.setup(String.valueOf(algorithm), imp);
-        debayeringFilter.run(null);
-        return debayeringFilter.getImage();
+        return imp.getBufferedImage();
     }
 
 }
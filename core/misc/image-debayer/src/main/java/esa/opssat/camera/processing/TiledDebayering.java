@@ -0,0 +1,423 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.opssat.camera.processing;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Debayering of raw frames split in bands of rows that are decoded in
+ * parallel on a fork-join pool. The algorithms are the ones of Debayer_Image
+ * for the "R-G-R-G" row order, and the output is identical to theirs: every
+ * band runs the same passes over the pixels, but only keeps the values of
+ * its own rows. The neighbours above and below the band are read from the
+ * frame, or from the green plane once it is complete.
+ *
+ * The output planes are reused from one frame to the next, so an instance
+ * shall be used by one thread at a time.
+ */
+public final class TiledDebayering {
+
+    public static final int REPLICATION = 0;
+    public static final int BILINEAR = 1;
+    public static final int SMOOTH_HUE = 2;
+    public static final int ADAPTIVE_SMOOTH_HUE = 3;
+
+    private static final int MIN_BAND_ROWS = 16;
+    private static final int BANDS_PER_THREAD = 4;
+    private static final int MAX_VALUE = 65535;
+
+    private final ForkJoinPool pool;
+    private short[] raw = new short[0];
+    private short[][] planes = new short[3][0];
+
+    /**
+     * Creates a debayering running on the common fork-join pool.
+     */
+    public TiledDebayering() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a debayering running on the given pool.
+     *
+     * @param pool the pool decoding the bands
+     */
+    public TiledDebayering(final ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Gets a buffer for the raw frame, reused from one frame to the next.
+     *
+     * @param length the number of pixels of the frame
+     * @return the buffer
+     */
+    public short[] getRawBuffer(final int length) {
+        if (raw.length != length) {
+            raw = new short[length];
+        }
+        return raw;
+    }
+
+    /**
+     * Debayers a raw frame.
+     *
+     * The available algorithms are:
+     * 0: "Replication"
+     * 1: "Bilinear"
+     * 2: "Smooth Hue"
+     * 3: "Adaptive Smooth Hue"
+     *
+     * @param pixels the raw 16-bit pixels of the frame, row by row
+     * @param width the width of the frame
+     * @param height the height of the frame
+     * @param algorithm the algorithm
+     * @return the red, green and blue planes, valid until the next frame
+     */
+    public short[][] debayer(final short[] pixels, final int width, final int height, final int algorithm) {
+        if (width <= 0 || height <= 0 || pixels.length != width * height) {
+            throw new IllegalArgumentException("The frame has " + pixels.length + " pixels instead of " + width +
+                "x" + height);
+        }
+        if (planes[0].length != pixels.length) {
+            planes = new short[3][pixels.length];
+        }
+
+        final int bandRows = Math.max(MIN_BAND_ROWS, (height / (pool.getParallelism() * BANDS_PER_THREAD) + 1) &
+            ~1);
+        final Frame frame = new Frame(pixels, width, height, planes);
+
+        switch (algorithm) {
+            case REPLICATION:
+                pool.invoke(new BandTask(frame::replicate, 0, height, bandRows));
+                break;
+            case BILINEAR:
+                pool.invoke(new BandTask(frame::average, 0, height, bandRows));
+                break;
+            case SMOOTH_HUE:
+            case ADAPTIVE_SMOOTH_HUE:
+                // In Debayer_Image, the edge directed green values of the Adaptive Smooth Hue
+                // algorithm are always overwritten with the ones of the Smooth Hue algorithm
+                pool.invoke(new BandTask(frame::smoothGreen, 0, height, bandRows));
+                pool.invoke(new BandTask(frame::smoothColours, 0, height, bandRows));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown debayering algorithm: " + algorithm);
+        }
+
+        return planes;
+    }
+
+    private interface BandDecoder {
+
+        void decode(int from, int to);
+    }
+
+    /**
+     * Splits the rows in halves until they fit in a band.
+     */
+    private static final class BandTask extends RecursiveAction {
+
+        private final BandDecoder decoder;
+        private final int from;
+        private final int to;
+        private final int bandRows;
+
+        BandTask(final BandDecoder decoder, final int from, final int to, final int bandRows) {
+            this.decoder = decoder;
+            this.from = from;
+            this.to = to;
+            this.bandRows = bandRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= bandRows) {
+                decoder.decode(from, to);
+                return;
+            }
+            final int middle = from + (((to - from) / 2) & ~1);
+            invokeAll(new BandTask(decoder, from, middle, bandRows), new BandTask(decoder, middle, to, bandRows));
+        }
+    }
+
+    /**
+     * The passes of Debayer_Image over the rows [from, to) of a frame. As in
+     * Debayer_Image, the pixels outside the frame are read as 0, the values
+     * are clamped to 16 bits, and the red and blue output planes are filled
+     * from the even and odd pixels, named b and r.
+     */
+    private static final class Frame {
+
+        private final short[] ip;
+        private final int width;
+        private final int height;
+        private final short[] b; // red output
+        private final short[] g;
+        private final short[] r; // blue output
+
+        Frame(final short[] ip, final int width, final int height, final short[][] planes) {
+            this.ip = ip;
+            this.width = width;
+            this.height = height;
+            this.b = planes[0];
+            this.g = planes[1];
+            this.r = planes[2];
+        }
+
+        private int get(final short[] plane, final int x, final int y) {
+            if (x >= 0 && x < width && y >= 0 && y < height) {
+                return plane[y * width + x] & 0xffff;
+            }
+            return 0;
+        }
+
+        private void put(final short[] plane, final int from, final int to, final int x, final int y, int value) {
+            if (x >= 0 && x < width && y >= from && y < to) {
+                if (value > MAX_VALUE) {
+                    value = MAX_VALUE;
+                }
+                if (value < 0) {
+                    value = 0;
+                }
+                plane[y * width + x] = (short) value;
+            }
+        }
+
+        private void clear(final short[] plane, final int from, final int to) {
+            Arrays.fill(plane, from * width, to * width, (short) 0);
+        }
+
+        /**
+         * Gets the first row of a pass, starting at the given row, that can
+         * write in a band starting at from. The passes write up to the next
+         * row.
+         */
+        private static int firstRow(final int start, final int from) {
+            final int min = from - 1;
+            return (min <= start) ? start : min + ((min - start) & 1);
+        }
+
+        void replicate(final int from, final int to) {
+            clear(b, from, to);
+            clear(g, from, to);
+            clear(r, from, to);
+            int one;
+
+            for (int y = firstRow(0, from); y < to; y += 2) {
+                for (int x = 0; x < width; x += 2) {
+                    one = get(ip, x, y);
+                    put(b, from, to, x, y, one);
+                    put(b, from, to, x + 1, y, one);
+                    put(b, from, to, x, y + 1, one);
+                    put(b, from, to, x + 1, y + 1, one);
+                }
+            }
+
+            for (int y = firstRow(1, from); y < to; y += 2) {
+                for (int x = 1; x < width; x += 2) {
+                    one = get(ip, x, y);
+                    put(r, from, to, x, y, one);
+                    put(r, from, to, x + 1, y, one);
+                    put(r, from, to, x, y + 1, one);
+                    put(r, from, to, x + 1, y + 1, one);
+                }
+            }
+
+            for (int y = firstRow(0, from); y < to; y += 2) {
+                for (int x = 1; x < width; x += 2) {
+                    one = get(ip, x, y);
+                    put(g, from, to, x, y, one);
+                    put(g, from, to, x + 1, y, one);
+                }
+            }
+
+            for (int y = firstRow(1, from); y < to; y += 2) {
+                for (int x = 0; x < width; x += 2) {
+                    one = get(ip, x, y);
+                    put(g, from, to, x, y, one);
+                    put(g, from, to, x + 1, y, one);
+                }
+            }
+        }
+
+        void average(final int from, final int to) {
+            clear(b, from, to);
+            clear(g, from, to);
+            clear(r, from, to);
+            int one;
+            int two;
+            int three;
+            int four;
+
+            for (int y = firstRow(0, from); y < to; y += 2) {
+                for (int x = 0; x < width; x += 2) {
+                    one = get(ip, x, y);
+                    two = get(ip, x + 2, y);
+                    three = get(ip, x, y + 2);
+                    four = get(ip, x + 2, y + 2);
+
+                    put(b, from, to, x, y, one);
+                    put(b, from, to, x + 1, y, (one + two) / 2);
+                    put(b, from, to, x, y + 1, (one + three) / 2);
+                    put(b, from, to, x + 1, y + 1, (one + two + three + four) / 4);
+                }
+            }
+
+            for (int y = firstRow(1, from); y < to; y += 2) {
+                for (int x = 1; x < width; x += 2) {
+                    one = get(ip, x, y);
+                    two = get(ip, x + 2, y);
+                    three = get(ip, x, y + 2);
+                    four = get(ip, x + 2, y + 2);
+
+                    put(r, from, to, x, y, one);
+                    put(r, from, to, x + 1, y, (one + two) / 2);
+                    put(r, from, to, x, y + 1, (one + three) / 2);
+                    put(r, from, to, x + 1, y + 1, (one + two + three + four) / 4);
+                }
+            }
+
+            for (int y = firstRow(0, from); y < to; y += 2) {
+                for (int x = 1; x < width; x += 2) {
+                    one = get(ip, x, y);
+                    two = get(ip, x + 2, y);
+                    three = get(ip, x + 1, y + 1);
+                    four = get(ip, x + 1, y - 1);
+
+                    put(g, from, to, x, y, one);
+                    put(g, from, to, x + 1, y, (one + two + three + four) / 4);
+                }
+            }
+
+            for (int y = firstRow(1, from); y < to; y += 2) {
+                for (int x = 0; x < width; x += 2) {
+                    one = get(ip, x, y);
+                    two = get(ip, x + 2, y);
+                    three = get(ip, x + 1, y + 1);
+                    four = get(ip, x + 1, y - 1);
+
+                    put(g, from, to, x, y, one);
+                    put(g, from, to, x + 1, y, (one + two + three + four) / 4);
+                }
+            }
+        }
+
+        /**
+         * Solves the green pixels first, the red and blue ones need the green
+         * plane of the neighbouring bands.
+         */
+        void smoothGreen(final int from, final int to) {
+            clear(g, from, to);
+            double G1;
+            double G2;
+            double G3;
+            double G4;
+
+            for (int y = firstRow(0, from); y < to; y += 2) {
+                for (int x = 1; x < width; x += 2) {
+                    G1 = get(ip, x, y);
+                    G2 = get(ip, x + 2, y);
+                    G3 = get(ip, x + 1, y + 1);
+                    G4 = get(ip, x + 1, y - 1);
+
+                    put(g, from, to, x, y, (int) G1);
+                    if (y == 0) {
+                        put(g, from, to, x + 1, y, (int) ((G1 + G2 + G3) / 3));
+                    } else {
+                        put(g, from, to, x + 1, y, (int) ((G1 + G2 + G3 + G4) / 4));
+                    }
+                    if (x == 1) {
+                        put(g, from, to, x - 1, y, (int) ((G1 + G4 + get(ip, x - 1, y + 1)) / 3));
+                    }
+                }
+            }
+
+            for (int x = 0; x < width; x += 2) {
+                for (int y = firstRow(1, from); y < to; y += 2) {
+                    G1 = get(ip, x, y);
+                    G2 = get(ip, x + 2, y);
+                    G3 = get(ip, x + 1, y + 1);
+                    G4 = get(ip, x + 1, y - 1);
+
+                    put(g, from, to, x, y, (int) G1);
+                    if (x == 0) {
+                        put(g, from, to, x + 1, y, (int) ((G1 + G2 + G3) / 3));
+                    } else {
+                        put(g, from, to, x + 1, y, (int) ((G1 + G2 + G3 + G4) / 4));
+                    }
+                }
+            }
+
+            put(g, from, to, 0, 0, (get(ip, 0, 1) + get(ip, 1, 0)) / 2);
+        }
+
+        void smoothColours(final int from, final int to) {
+            clear(b, from, to);
+            clear(r, from, to);
+
+            for (int y = firstRow(0, from); y < to; y += 2) {
+                for (int x = 0; x < width; x += 2) {
+                    smoothHue(b, from, to, x, y);
+                }
+            }
+
+            for (int y = firstRow(1, from); y < to; y += 2) {
+                for (int x = 1; x < width; x += 2) {
+                    smoothHue(r, from, to, x, y);
+                }
+            }
+        }
+
+        private void smoothHue(final short[] plane, final int from, final int to, final int x, final int y) {
+            final double C1 = get(ip, x, y);
+            final double C2 = get(ip, x + 2, y);
+            final double C3 = get(ip, x, y + 2);
+            final double C4 = get(ip, x + 2, y + 2);
+            double G1 = get(g, x, y);
+            double G2 = get(g, x + 2, y);
+            double G3 = get(g, x, y + 2);
+            double G4 = get(g, x + 2, y + 2);
+            final double G5 = get(g, x + 1, y);
+            final double G6 = get(g, x, y + 1);
+            final double G9 = get(g, x + 1, y + 1);
+            if (G1 == 0) {
+                G1 = 1;
+            }
+            if (G2 == 0) {
+                G2 = 1;
+            }
+            if (G3 == 0) {
+                G3 = 1;
+            }
+            if (G4 == 0) {
+                G4 = 1;
+            }
+
+            put(plane, from, to, x, y, (int) (C1));
+            put(plane, from, to, x + 1, y, (int) ((G5 / 2 * ((C1 / G1) + (C2 / G2)))));
+            put(plane, from, to, x, y + 1, (int) ((G6 / 2 * ((C1 / G1) + (C3 / G3)))));
+            put(plane, from, to, x + 1, y + 1, (int) ((G9 / 4 * ((C1 / G1) + (C3 / G3) + (C2 / G2) + (C4 / G4)))));
+        }
+    }
+}
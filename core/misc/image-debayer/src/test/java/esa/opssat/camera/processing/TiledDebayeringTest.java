@@ -0,0 +1,162 @@
+package esa.opssat.camera.processing;
+
+import ij.Debayer_Image;
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.io.FileInfo;
+import ij.io.FileOpener;
+import ij.process.ShortProcessor;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Compares the tiled debayering with the algorithms of Debayer_Image, on
+ * synthetic Bayer patterns of several sizes.
+ */
+public class TiledDebayeringTest {
+
+    private static final String[] DECODERS = {"replicate_decode", "average_decode", "smooth_decode",
+        "adaptive_decode"};
+    private static final int[][] SIZES = {{1, 1}, {2, 2}, {31, 2}, {64, 1}, {37, 29}, {101, 67}, {256, 200}};
+    private static final int[][] IMAGE_SIZES = {{2, 2}, {37, 29}, {101, 67}, {256, 200}};
+
+    @Test
+    public void testSamePlanesAsDebayerImage() throws Exception {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final TiledDebayering debayering = new TiledDebayering(pool);
+        try {
+            for (int[] size : SIZES) {
+                for (int pattern = 0; pattern < 3; pattern++) {
+                    final short[] frame = newFrame(size[0], size[1], pattern);
+                    for (int algorithm = 0; algorithm < DECODERS.length; algorithm++) {
+                        final ImageStack expected = decode(frame.clone(), size[0], size[1], algorithm);
+                        final short[][] planes = debayering.debayer(frame, size[0], size[1], algorithm);
+                        final String message = DECODERS[algorithm] + " of " + size[0] + "x" + size[1] +
+                            ", pattern " + pattern;
+
+                        Assert.assertArrayEquals(message, (short[]) expected.getPixels(1), planes[0]);
+                        Assert.assertArrayEquals(message, (short[]) expected.getPixels(2), planes[1]);
+                        Assert.assertArrayEquals(message, (short[]) expected.getPixels(3), planes[2]);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSameImageAsDebayerImage() {
+        for (int[] size : IMAGE_SIZES) {
+            final byte[] data = toBytes(newFrame(size[0], size[1], 1));
+
+            for (int algorithm = 0; algorithm < DECODERS.length; algorithm++) {
+                final BufferedImage expected = debayerImage(data, size[0], size[1], algorithm);
+                final BufferedImage image = OPSSATCameraDebayering.getDebayeredImage(data, size[0], size[1],
+                    algorithm);
+
+                Assert.assertArrayEquals(DECODERS[algorithm] + " of " + size[0] + "x" + size[1], expected.getRGB(0,
+                    0, size[0], size[1], null, 0, size[0]), image.getRGB(0, 0, size[0], size[1], null, 0, size[0]));
+            }
+        }
+    }
+
+    @Test
+    @Ignore("Manual test only")
+    public void testFullFrameDebayering() {
+        final int width = OPSSATCameraDebayering.WIDTH;
+        final int height = OPSSATCameraDebayering.HEIGHT;
+        final byte[] data = toBytes(newFrame(width, height, 1));
+
+        for (int algorithm = 0; algorithm < DECODERS.length; algorithm++) {
+            long start = System.nanoTime();
+            final BufferedImage expected = debayerImage(data, width, height, algorithm);
+            final long imageJTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            final BufferedImage image = OPSSATCameraDebayering.getDebayeredImage(data, algorithm);
+            final long tiledTime = System.nanoTime() - start;
+
+            System.out.println(DECODERS[algorithm] + " of a " + width + "x" + height + " frame: " + imageJTime /
+                1000000 + " ms with Debayer_Image, " + tiledTime / 1000000 + " ms tiled");
+            Assert.assertArrayEquals(expected.getRGB(0, 0, width, height, null, 0, width), image.getRGB(0, 0, width,
+                height, null, 0, width));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongFrameSize() {
+        OPSSATCameraDebayering.getDebayeredImage(new byte[100], 10, 10, 0);
+    }
+
+    /**
+     * Creates a frame with the pattern: 0 random 16-bit noise, 1 a colour
+     * gradient in the R-G-R-G mosaic, 2 bright and dark blocks with zeros.
+     */
+    private static short[] newFrame(int width, int height, int pattern) {
+        final Random random = new Random(pattern);
+        final short[] frame = new short[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int value;
+                if (pattern == 0) {
+                    value = random.nextInt(65536);
+                } else if (pattern == 1) {
+                    final int colour = (x & 1) + (y & 1); // 0 and 2 red and blue, 1 green
+                    value = 1000 + colour * 9000 + (x * 20000) / width + (y * 15000) / height + random.nextInt(200);
+                } else {
+                    value = ((x / 8 + y / 8) % 2 == 0) ? 65535 - random.nextInt(100) : random.nextInt(3);
+                }
+                frame[y * width + x] = (short) value;
+            }
+        }
+        return frame;
+    }
+
+    private static byte[] toBytes(short[] frame) {
+        final ByteBuffer buffer = ByteBuffer.allocate(frame.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asShortBuffer().put(frame);
+        return buffer.array();
+    }
+
+    /**
+     * Decodes the frame with Debayer_Image, before its conversion to RGB.
+     */
+    private static ImageStack decode(short[] frame, int width, int height, int algorithm) throws Exception {
+        final Debayer_Image filter = new Debayer_Image();
+        filter.setup(String.valueOf(algorithm), new ImagePlus("", new ShortProcessor(width, height, frame, null)));
+        final Method decoder = Debayer_Image.class.getDeclaredMethod(DECODERS[algorithm], int.class);
+        decoder.setAccessible(true);
+        return (ImageStack) decoder.invoke(filter, 0); // "R-G-R-G"
+    }
+
+    /**
+     * Debayers the frame as OPSSATCameraDebayering did with Debayer_Image.
+     */
+    private static BufferedImage debayerImage(byte[] data, int width, int height, int algorithm) {
+        final FileInfo fi = new FileInfo();
+        fi.fileFormat = FileInfo.RAW;
+        fi.width = width;
+        fi.height = height;
+        fi.intelByteOrder = true;
+        fi.fileType = FileInfo.GRAY16_UNSIGNED;
+        final ColorModel cm = new FileOpener(fi).createColorModel(fi);
+
+        final short[] shorts = new short[data.length / 2];
+        ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(shorts);
+        final ImagePlus imp = new ImagePlus("", new ShortProcessor(width, height, shorts, cm));
+
+        final Debayer_Image filter = new Debayer_Image();
+        filter.setup(String.valueOf(algorithm), imp);
+        filter.run(null);
+        return filter.getImage().getBufferedImage();
+    }
+}
@@ -0,0 +1,651 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.archive.db;
+
+import esa.mo.com.impl.archive.entities.COMObjectEntity;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.ccsds.moims.mo.com.structures.ObjectType;
+import org.ccsds.moims.mo.mal.structures.IntegerList;
+
+/**
+ * Time partitions of the COM Archive. The objects of the object types with a
+ * retention policy are stored in tables covering a period of time, one set of
+ * tables per retention, instead of the main COMObjectEntity table. When the
+ * retention of a partition has elapsed, the whole table is dropped, which
+ * takes the same time regardless of the number of objects in it.
+ *
+ * The objects of the other object types stay in the main table. The queries
+ * are executed on the main table and on the partitions that can contain the
+ * requested object types and whose period overlaps the requested time window.
+ */
+public class ArchivePartitions {
+
+    private static final Logger LOGGER = Logger.getLogger(ArchivePartitions.class.getName());
+
+    public static final String MAIN_TABLE = "COMObjectEntity";
+
+    static final String FIELDS = "objectTypeId, domainId, objId, timestampArchiveDetails, providerURI, " +
+        "network, sourceLinkObjectTypeId, sourceLinkDomainId, sourceLinkObjId, relatedLink, objBody";
+
+    static final long NANOS_PER_HOUR = 3600L * 1000L * 1000L * 1000L;
+
+    private static final String PARTITION_PREFIX = MAIN_TABLE + "_r";
+
+    private static final String CREATE_PARTITIONS_TABLE = "CREATE TABLE IF NOT EXISTS ArchivePartition " +
+        "(name VARCHAR NOT NULL, retention BIGINT NOT NULL, periodStart BIGINT NOT NULL, " +
+        "periodEnd BIGINT NOT NULL, PRIMARY KEY (name))";
+    private static final String CREATE_PARTITION_TYPES_TABLE = "CREATE TABLE IF NOT EXISTS ArchivePartitionType " +
+        "(name VARCHAR NOT NULL, objectTypeId INTEGER NOT NULL, PRIMARY KEY (name, objectTypeId))";
+    private static final String SELECT_PARTITIONS = "SELECT name, retention, periodStart, periodEnd " +
+        "FROM ArchivePartition ORDER BY periodStart";
+    private static final String SELECT_PARTITION_TYPES = "SELECT name, objectTypeId FROM ArchivePartitionType";
+    private static final String INSERT_PARTITION = "INSERT INTO ArchivePartition " +
+        "(name, retention, periodStart, periodEnd) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_PARTITION_TYPE = "INSERT INTO ArchivePartitionType " +
+        "(name, objectTypeId) VALUES (?, ?)";
+    private static final String DELETE_PARTITION = "DELETE FROM ArchivePartition WHERE (name = ?)";
+    private static final String DELETE_PARTITION_TYPES = "DELETE FROM ArchivePartitionType WHERE (name = ?)";
+
+    // Retention in nanoseconds per object type id. It is replaced as a whole, never modified
+    private volatile Map<Integer, Long> retentions = Collections.emptyMap();
+
+    private volatile long period = 24 * NANOS_PER_HOUR;
+
+    // Only modified by the transactions executor. It is replaced as a whole,
+    // so that the reads can iterate it without locking
+    private volatile List<Partition> partitions = Collections.emptyList();
+
+    // Partitions created and object types added to partitions by the insert in
+    // progress. They are only published once its transaction is committed, so
+    // that the reads never use a table that does not exist yet. Only used by
+    // the transactions executor
+    private final List<Partition> created = new ArrayList<>();
+    private final Map<Partition, Set<Integer>> addedTypes = new HashMap<>();
+
+    // The reads hold the read lock while they use the partitions, so that they
+    // are not dropped under their feet
+    private final ReentrantReadWriteLock dropLock = new ReentrantReadWriteLock();
+
+    private String blobType = "BLOB";
+
+    /**
+     * Parses the configuration of the retention policies. The format is a
+     * list of entries separated by ';', each one being an object type
+     * (area.service.version.number) followed by ':' and the retention in
+     * hours. Example: "4.2.1.1:168". Invalid entries are logged and ignored.
+     *
+     * @param configuration The configuration. Can be null.
+     * @return The retention in hours per object type.
+     */
+    public static Map<ObjectType, Long> parseRetention(final String configuration) {
+        final Map<ObjectType, Long> out = new LinkedHashMap<>();
+
+        for (Map.Entry<ObjectType, List<String>> entry : IndexedAttributes.parseConfiguration(configuration)
+            .entrySet()) {
+            long hours = 0;
+
+            if (entry.getValue().size() == 1) {
+                try {
+                    hours = Long.parseLong(entry.getValue().get(0));
+                } catch (NumberFormatException ex) {
+                    hours = 0;
+                }
+            }
+
+            if (hours <= 0) {
+                LOGGER.log(Level.WARNING, "Invalid retention for the object type {0}: {1}", new Object[]{entry
+                    .getKey(), entry.getValue()});
+                continue;
+            }
+
+            out.put(entry.getKey(), hours);
+        }
+
+        return out;
+    }
+
+    /**
+     * Sets the retention policies and the period covered by each partition.
+     *
+     * @param hoursPerType The retention in hours per object type id.
+     * @param periodHours The period covered by each partition in hours.
+     */
+    public void setRetention(final Map<Integer, Long> hoursPerType, final long periodHours) {
+        final Map<Integer, Long> map = new HashMap<>();
+
+        for (Map.Entry<Integer, Long> entry : hoursPerType.entrySet()) {
+            map.put(entry.getKey(), entry.getValue() * NANOS_PER_HOUR);
+        }
+
+        this.period = Math.max(1, periodHours) * NANOS_PER_HOUR;
+        this.retentions = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Checks if there is any partition or any retention policy. If not, all
+     * the objects are in the main table.
+     *
+     * @return true if the partitions are in use.
+     */
+    public boolean isEnabled() {
+        return !this.retentions.isEmpty() || !this.partitions.isEmpty();
+    }
+
+    /**
+     * Creates the tables describing the partitions if they do not exist yet
+     * and loads the existing partitions.
+     *
+     * @param c The main connection.
+     * @param blobType The type of the column holding the object bodies.
+     * @throws SQLException If the partitions could not be loaded.
+     */
+    void init(final Connection c, final String blobType) throws SQLException {
+        this.blobType = blobType;
+        final Map<String, Partition> loaded = new LinkedHashMap<>();
+
+        try (Statement statement = c.createStatement()) {
+            statement.execute(CREATE_PARTITIONS_TABLE);
+            statement.execute(CREATE_PARTITION_TYPES_TABLE);
+
+            try (ResultSet rs = statement.executeQuery(SELECT_PARTITIONS)) {
+                while (rs.next()) {
+                    final String name = rs.getString(1);
+                    loaded.put(name, new Partition(name, rs.getLong(2), rs.getLong(3), rs.getLong(4)));
+                }
+            }
+
+            try (ResultSet rs = statement.executeQuery(SELECT_PARTITION_TYPES)) {
+                while (rs.next()) {
+                    final Partition partition = loaded.get(rs.getString(1));
+
+                    if (partition != null) {
+                        partition.objTypeIds.add(rs.getInt(2));
+                    }
+                }
+            }
+        }
+
+        this.partitions = Collections.unmodifiableList(new ArrayList<>(loaded.values()));
+
+        if (!loaded.isEmpty()) {
+            LOGGER.log(Level.INFO, "{0} COM Archive partitions loaded", loaded.size());
+        }
+    }
+
+    /**
+     * Returns the start of the period containing the timestamp.
+     *
+     * @param timestamp The timestamp in nanoseconds.
+     * @param period The period in nanoseconds.
+     * @return The start of the period.
+     */
+    static long periodStart(final long timestamp, final long period) {
+        return Math.floorDiv(Math.max(0, timestamp), period) * period;
+    }
+
+    /**
+     * Returns the name of the table of a partition.
+     *
+     * @param retention The retention of the partition in nanoseconds.
+     * @param start The start of the period of the partition in nanoseconds.
+     * @param end The end of the period of the partition in nanoseconds.
+     * @return The table name.
+     */
+    static String partitionName(final long retention, final long start, final long end) {
+        return PARTITION_PREFIX + (retention / NANOS_PER_HOUR) + "_" + (start / 1000000000L) + "_" + (end /
+            1000000000L);
+    }
+
+    /**
+     * Returns the source of a select on the given tables: the table itself if
+     * there is only one, or the union of all of them, aliased as the main
+     * table, so that the conditions, the ordering and the limits of the query
+     * apply to all the tables at once.
+     *
+     * @param tables The tables.
+     * @return The source of the select.
+     */
+    static String union(final List<String> tables) {
+        if (tables.size() == 1) {
+            return tables.get(0);
+        }
+
+        final StringBuilder source = new StringBuilder("(");
+
+        for (int i = 0; i < tables.size(); i++) {
+            if (i != 0) {
+                source.append(" UNION ALL ");
+            }
+            source.append("SELECT ").append(FIELDS).append(" FROM ").append(tables.get(i));
+        }
+
+        return source.append(") ").append(MAIN_TABLE).toString();
+    }
+
+    /**
+     * Returns the partitions that can contain objects of the object type.
+     *
+     * @param objTypeId The object type id.
+     * @return The partitions.
+     */
+    List<Partition> getPartitions(final Integer objTypeId) {
+        final List<Partition> out = new ArrayList<>();
+
+        for (Partition partition : this.partitions) {
+            if (partition.objTypeIds.contains(objTypeId)) {
+                out.add(partition);
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Returns the tables that can contain objects of the object type, the main
+     * table being the first one.
+     *
+     * @param objTypeId The object type id.
+     * @return The table names.
+     */
+    List<String> getTables(final Integer objTypeId) {
+        final List<String> tables = new ArrayList<>();
+        tables.add(MAIN_TABLE);
+
+        for (Partition partition : getPartitions(objTypeId)) {
+            tables.add(partition.name);
+        }
+
+        return tables;
+    }
+
+    /**
+     * Returns the tables that can contain objects of the object types within
+     * the time window, the main table being the first one.
+     *
+     * @param objTypeIds The object type ids. Null or empty for all of them.
+     * @param from The start of the time window in nanoseconds. Null if
+     * unbounded.
+     * @param to The end of the time window in nanoseconds. Null if unbounded.
+     * @return The table names.
+     */
+    List<String> getTables(final IntegerList objTypeIds, final Long from, final Long to) {
+        final List<String> tables = new ArrayList<>();
+        tables.add(MAIN_TABLE);
+
+        for (Partition partition : this.partitions) {
+            if (partition.overlaps(from, to) && partition.containsAny(objTypeIds)) {
+                tables.add(partition.name);
+            }
+        }
+
+        return tables;
+    }
+
+    /**
+     * Returns all the tables, the main table being the first one.
+     *
+     * @return The table names.
+     */
+    List<String> getAllTables() {
+        return getTables(null, null, null);
+    }
+
+    /**
+     * Returns the lock to be held by the reads while they use the tables of
+     * the partitions.
+     *
+     * @return The lock.
+     */
+    Lock getReadLock() {
+        return this.dropLock.readLock();
+    }
+
+    /**
+     * Returns the partition where the object must be stored, creating it if
+     * needed. Must be called from the transactions executor with the main
+     * connection acquired.
+     *
+     * @param c The main connection.
+     * @param obj The object.
+     * @return The partition, or null if the object is stored in the main
+     * table.
+     * @throws SQLException If the partition could not be created.
+     */
+    Partition getPartitionForInsert(final Connection c, final COMObjectEntity obj) throws SQLException {
+        final Long retention = this.retentions.get(obj.getObjectTypeId());
+
+        if (retention == null) {
+            return null;
+        }
+
+        final long timestamp = obj.getTimestamp().getValue();
+        Partition target = findPartition(this.partitions, retention, timestamp);
+
+        if (target == null) {
+            target = findPartition(this.created, retention, timestamp);
+        }
+
+        if (target == null) {
+            final long start = periodStart(timestamp, this.period);
+            target = createPartition(c, retention, start, start + this.period);
+        }
+
+        final Set<Integer> added = this.addedTypes.computeIfAbsent(target, p -> new HashSet<>());
+
+        if (!target.objTypeIds.contains(obj.getObjectTypeId()) && !added.contains(obj.getObjectTypeId())) {
+            try (PreparedStatement insert = c.prepareStatement(INSERT_PARTITION_TYPE)) {
+                insert.setString(1, target.name);
+                insert.setInt(2, obj.getObjectTypeId());
+                insert.executeUpdate();
+            }
+            added.add(obj.getObjectTypeId());
+        }
+
+        return target;
+    }
+
+    /**
+     * Publishes the partitions created and the object types added to the
+     * partitions by the insert in progress. Must be called from the
+     * transactions executor once its transaction is committed.
+     */
+    void publishPending() {
+        for (Map.Entry<Partition, Set<Integer>> entry : this.addedTypes.entrySet()) {
+            entry.getKey().objTypeIds.addAll(entry.getValue());
+        }
+
+        if (!this.created.isEmpty()) {
+            final List<Partition> list = new ArrayList<>(this.partitions);
+            list.addAll(this.created);
+            this.partitions = Collections.unmodifiableList(list);
+        }
+
+        this.created.clear();
+        this.addedTypes.clear();
+    }
+
+    /**
+     * Forgets the partitions created and the object types added to the
+     * partitions by the insert in progress. Must be called from the
+     * transactions executor once its transaction is rolled back.
+     */
+    void discardPending() {
+        for (Partition partition : this.created) {
+            partition.closeStatements();
+        }
+
+        this.created.clear();
+        this.addedTypes.clear();
+    }
+
+    private static Partition findPartition(final List<Partition> partitions, final long retention,
+        final long timestamp) {
+        for (Partition partition : partitions) {
+            if (partition.retention == retention && partition.start <= timestamp && timestamp < partition.end) {
+                return partition;
+            }
+        }
+
+        return null;
+    }
+
+    private Partition createPartition(final Connection c, final long retention, final long start, final long end)
+        throws SQLException {
+        final Partition partition = new Partition(partitionName(retention, start, end), retention, start, end);
+        LOGGER.log(Level.INFO, "Creating the COM Archive partition {0}", partition.name);
+
+        try (Statement statement = c.createStatement()) {
+            statement.execute(DatabaseBackend.createTableStatement(partition.name, this.blobType));
+            statement.execute("CREATE INDEX IF NOT EXISTS index_" + partition.name + "_related ON " +
+                partition.name + " (relatedLink)");
+            statement.execute("CREATE INDEX IF NOT EXISTS index_" + partition.name + "_timestampObjId ON " +
+                partition.name + " (timestampArchiveDetails, objId)");
+        }
+
+        try (PreparedStatement insert = c.prepareStatement(INSERT_PARTITION)) {
+            insert.setString(1, partition.name);
+            insert.setLong(2, retention);
+            insert.setLong(3, start);
+            insert.setLong(4, end);
+            insert.executeUpdate();
+        }
+
+        this.created.add(partition);
+
+        return partition;
+    }
+
+    /**
+     * Returns the highest object id of the object type and domain stored in
+     * the partitions.
+     *
+     * @param c The main connection.
+     * @param objTypeId The object type id.
+     * @param domainId The domain id.
+     * @return The highest object id, or 0 if there is none.
+     * @throws SQLException If the partitions could not be read.
+     */
+    public long selectMaxObjId(final Connection c, final Integer objTypeId, final Integer domainId) throws SQLException {
+        long max = 0;
+
+        for (Partition partition : getPartitions(objTypeId)) {
+            try (PreparedStatement select = c.prepareStatement(PreparedStatements.forTable(
+                PreparedStatements.SELECT_MAX_OBJ_ID, partition.name))) {
+                select.setInt(1, objTypeId);
+                select.setInt(2, domainId);
+
+                try (ResultSet rs = select.executeQuery()) {
+                    if (rs.next()) {
+                        final Long value = TransactionsProcessor.convert2Long(rs.getObject(1));
+                        max = (value == null) ? max : Math.max(max, value);
+                    }
+                }
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Returns the partitions whose retention has elapsed, i.e. all their
+     * objects are older than the retention of the partition.
+     *
+     * @param now The current time in nanoseconds.
+     * @return The expired partitions.
+     */
+    List<Partition> getExpired(final long now) {
+        final List<Partition> out = new ArrayList<>();
+
+        for (Partition partition : this.partitions) {
+            if (partition.end + partition.retention <= now) {
+                out.add(partition);
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Drops the expired partitions. Must be called from the transactions
+     * executor with the main connection acquired.
+     *
+     * @param c The main connection.
+     * @param now The current time in nanoseconds.
+     * @param indexedAttributes The indexed attributes of the objects.
+     * @return The number of partitions dropped.
+     * @throws SQLException If a partition could not be dropped.
+     */
+    int dropExpired(final Connection c, final long now, final IndexedAttributes indexedAttributes)
+        throws SQLException {
+        final List<Partition> expired = getExpired(now);
+
+        for (Partition partition : expired) {
+            LOGGER.log(Level.INFO, "Dropping the expired COM Archive partition {0}", partition.name);
+            drop(c, partition, indexedAttributes);
+        }
+
+        return expired.size();
+    }
+
+    /**
+     * Drops all the partitions. Must be called from the transactions executor
+     * with the main connection acquired.
+     *
+     * @param c The main connection.
+     * @throws SQLException If a partition could not be dropped.
+     */
+    public void dropAll(final Connection c) throws SQLException {
+        for (Partition partition : this.partitions) {
+            drop(c, partition, null);
+        }
+    }
+
+    private void drop(final Connection c, final Partition partition, final IndexedAttributes indexedAttributes)
+        throws SQLException {
+        this.dropLock.writeLock().lock();
+
+        try {
+            if (indexedAttributes != null) {
+                indexedAttributes.deleteTable(c, partition.name);
+            }
+
+            partition.closeStatements();
+
+            try (Statement statement = c.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS " + partition.name);
+            }
+
+            try (PreparedStatement deletePartition = c.prepareStatement(DELETE_PARTITION);
+                PreparedStatement deleteTypes = c.prepareStatement(DELETE_PARTITION_TYPES)) {
+                deletePartition.setString(1, partition.name);
+                deletePartition.executeUpdate();
+                deleteTypes.setString(1, partition.name);
+                deleteTypes.executeUpdate();
+            }
+
+            final List<Partition> list = new ArrayList<>(this.partitions);
+            list.remove(partition);
+            this.partitions = Collections.unmodifiableList(list);
+        } finally {
+            this.dropLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A partition, i.e. a table holding the objects of a retention whose
+     * timestamps are within a period.
+     */
+    static final class Partition {
+
+        final String name;
+        final long retention;
+        final long start;
+        final long end;
+        final Set<Integer> objTypeIds = ConcurrentHashMap.newKeySet();
+
+        // Statements of the main connection, prepared on first use
+        private PreparedStatement insert;
+        private PreparedStatement update;
+        private PreparedStatement delete;
+
+        Partition(final String name, final long retention, final long start, final long end) {
+            this.name = name;
+            this.retention = retention;
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean overlaps(final Long from, final Long to) {
+            return (from == null || this.end > from) && (to == null || this.start <= to);
+        }
+
+        boolean containsAny(final IntegerList ids) {
+            if (ids == null || ids.isEmpty()) {
+                return !this.objTypeIds.isEmpty();
+            }
+
+            for (Integer id : ids) {
+                if (this.objTypeIds.contains(id)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        PreparedStatement getInsert(final Connection c) throws SQLException {
+            if (this.insert == null) {
+                this.insert = c.prepareStatement(PreparedStatements.forTable(PreparedStatements.INSERT_COM_OBJECTS,
+                    this.name));
+            }
+            return this.insert;
+        }
+
+        PreparedStatement getUpdate(final Connection c) throws SQLException {
+            if (this.update == null) {
+                this.update = c.prepareStatement(PreparedStatements.forTable(PreparedStatements.UPDATE_COM_OBJECTS,
+                    this.name));
+            }
+            return this.update;
+        }
+
+        PreparedStatement getDelete(final Connection c) throws SQLException {
+            if (this.delete == null) {
+                this.delete = c.prepareStatement(PreparedStatements.forTable(PreparedStatements.DELETE_COM_OBJECTS,
+                    this.name));
+            }
+            return this.delete;
+        }
+
+        void closeStatements() {
+            for (PreparedStatement statement : new PreparedStatement[]{this.insert, this.update, this.delete}) {
+                if (statement != null) {
+                    try {
+                        statement.close();
+                    } catch (SQLException ex) {
+                        LOGGER.log(Level.FINE, null, ex);
+                    }
+                }
+            }
+
+            this.insert = null;
+            this.update = null;
+            this.delete = null;
+        }
+    }
+}
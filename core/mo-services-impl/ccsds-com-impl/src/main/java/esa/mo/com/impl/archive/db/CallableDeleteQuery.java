@@ -1,9 +1,9 @@
 package esa.mo.com.impl.archive.db;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.sql.Statement;
-import java.util.logging.Level;
+import java.util.List;
 import java.util.logging.Logger;
 
 import org.ccsds.moims.mo.com.archive.structures.ArchiveQuery;
@@ -20,21 +20,37 @@ public class CallableDeleteQuery extends CallableGenericQuery<Integer> {
     }
 
     @Override
-    protected Integer innerCall(String queryString) {
-        try {
-            Connection c = this.transactionsProcessor.dbBackend.getConnection();
-            Statement query = c.createStatement();
-            Integer result = query.executeUpdate(queryString);
-            return result;
-        } catch (SQLException ex) {
-            LOGGER.log(Level.SEVERE, null, ex);
+    protected Integer innerCall(PreparedStatement stmt) throws SQLException {
+        return stmt.executeUpdate();
+    }
+
+    @Override
+    protected List<String> getSources(List<String> tables) {
+        // A delete cannot be executed on a union, so each table is deleted separately
+        return tables;
+    }
+
+    @Override
+    protected Integer combine(Integer previous, Integer next) {
+        return previous + next;
+    }
+
+    @Override
+    protected void afterCall(Integer deleted, Connection c) throws SQLException {
+        if (deleted != null && deleted != 0) {
+            // The deleted objects are not known, so their indexed attributes are found by exclusion
+            this.transactionsProcessor.dbBackend.getIndexedAttributes().deleteOrphans(c);
         }
+    }
+
+    @Override
+    protected Integer failedResult() {
         return 0;
     }
 
     @Override
-    protected String assembleQueryPrefix(String fieldsList) {
-        return "DELETE FROM COMObjectEntity ";
+    protected String assembleQueryPrefix(String fieldsList, String source) {
+        return "DELETE FROM " + source + " ";
     }
 
 }
@@ -1,10 +1,17 @@
 package esa.mo.com.impl.archive.db;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.ccsds.moims.mo.com.archive.structures.ArchiveQuery;
+import org.ccsds.moims.mo.com.archive.structures.CompositeFilterSet;
+import org.ccsds.moims.mo.com.archive.structures.KeysetPaginationFilter;
 import org.ccsds.moims.mo.com.archive.structures.PaginationFilter;
 import org.ccsds.moims.mo.com.archive.structures.QueryFilter;
 import org.ccsds.moims.mo.mal.structures.IntegerList;
@@ -34,12 +41,81 @@ abstract class CallableGenericQuery<T> implements Callable<T> {
         this.filter = filter;
     }
 
-    protected abstract T innerCall(String queryString);
+    protected abstract T innerCall(PreparedStatement stmt) throws SQLException;
 
-    protected abstract String assembleQueryPrefix(String fieldsList);
+    protected abstract T failedResult();
 
-    @Override
-    public T call() {
+    /**
+     * Acquires the connection on which the query is executed. By default, it
+     * is the main connection of the database backend.
+     *
+     * @return The prepared statements of the connection.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    protected PreparedStatements acquireStatements() throws InterruptedException {
+        this.transactionsProcessor.dbBackend.getAvailability().acquire();
+        return this.transactionsProcessor.dbBackend.getPreparedStatements();
+    }
+
+    protected void releaseStatements(PreparedStatements statements) {
+        this.transactionsProcessor.dbBackend.getAvailability().release();
+    }
+
+    protected abstract String assembleQueryPrefix(String fieldsList, String source);
+
+    /**
+     * Returns the sources on which the query is executed, given the tables
+     * that can contain the requested objects. By default, the query is
+     * executed once on the union of the tables.
+     *
+     * @param tables The tables, the main table being the first one.
+     * @return The sources of the query.
+     */
+    protected List<String> getSources(List<String> tables) {
+        return Collections.singletonList(ArchivePartitions.union(tables));
+    }
+
+    /**
+     * Combines the results of the query executed on different sources.
+     *
+     * @param previous The result of the previous sources.
+     * @param next The result of the next source.
+     * @return The combined result.
+     */
+    protected T combine(T previous, T next) {
+        return next;
+    }
+
+    /**
+     * Called once the query was executed on all the sources, with the
+     * connection still acquired.
+     *
+     * @param result The result of the query.
+     * @param c The connection.
+     * @throws SQLException If the follow-up statements failed.
+     */
+    protected void afterCall(T result, Connection c) throws SQLException {
+    }
+
+    /**
+     * Whether the Composite Filters on indexed attributes can be evaluated in
+     * SQL. Only possible when the objects returned are filtered again in
+     * memory, which is not the case for the deletions.
+     *
+     * @return true if the Composite Filters can be pushed down.
+     */
+    protected boolean isCompositeFilterPushdownAllowed() {
+        return false;
+    }
+
+    /**
+     * Compiles the archive query into a parameterised statement. The values
+     * of the query are never concatenated into the SQL text.
+     *
+     * @param source The table, or the union of tables, to be queried.
+     * @return The compiled query.
+     */
+    CompiledQuery compileQuery(final String source) {
         final boolean relatedContainsWildcard = (archiveQuery.getRelated().equals((long) 0));
         final boolean startTimeContainsWildcard = (archiveQuery.getStartTime() == null);
         final boolean endTimeContainsWildcard = (archiveQuery.getEndTime() == null);
@@ -49,40 +125,52 @@ abstract class CallableGenericQuery<T> implements Callable<T> {
         final boolean sourceContainsWildcard = (archiveQuery.getSource() == null);
         boolean sourceObjIdContainsWildcard = true;
 
-        this.transactionsProcessor.dbBackend.createIndexesIfFirstTime();
-
         if (!sourceContainsWildcard) {
             sourceObjIdContainsWildcard = (archiveQuery.getSource().getKey().getInstId() == null || archiveQuery
                 .getSource().getKey().getInstId() == 0);
         }
 
-        // Generate the query string
-        String fieldsList = "objectTypeId, domainId, objId, timestampArchiveDetails, providerURI, " +
-            "network, sourceLinkObjectTypeId, sourceLinkDomainId, sourceLinkObjId, relatedLink, objBody";
-        String queryString = assembleQueryPrefix(fieldsList);
-
-        queryString += "WHERE ";
+        // Generate the query
+        CompiledQuery query = new CompiledQuery(assembleQueryPrefix(ArchivePartitions.FIELDS, source),
+            this.transactionsProcessor.dbBackend.isPostgres);
 
-        queryString += CallableGenericQuery.generateQueryStringFromLists("domainId", domainIds);
-        queryString += CallableGenericQuery.generateQueryStringFromLists("objectTypeId", objTypeIds);
+        query.addIn("domainId", domainIds, "INTEGER");
+        query.addIn("objectTypeId", objTypeIds, "INTEGER");
 
-        queryString += (relatedContainsWildcard) ? "" : "relatedLink=" + archiveQuery.getRelated() + " AND ";
-        queryString += (startTimeContainsWildcard) ? "" : "timestampArchiveDetails>=" + archiveQuery.getStartTime()
-            .getValue() + " AND ";
-        queryString += (endTimeContainsWildcard) ? "" : "timestampArchiveDetails<=" + archiveQuery.getEndTime()
-            .getValue() + " AND ";
-        queryString += (providerURIContainsWildcard) ? "" : "providerURI=" + providerURIId + " AND ";
-        queryString += (networkContainsWildcard) ? "" : "network=" + networkId + " AND ";
+        if (!relatedContainsWildcard) {
+            query.addEqual("relatedLink", archiveQuery.getRelated());
+        }
+        if (!startTimeContainsWildcard) {
+            query.addCondition("timestampArchiveDetails>=?", archiveQuery.getStartTime().getValue());
+        }
+        if (!endTimeContainsWildcard) {
+            query.addCondition("timestampArchiveDetails<=?", archiveQuery.getEndTime().getValue());
+        }
+        if (!providerURIContainsWildcard) {
+            query.addEqual("providerURI", providerURIId);
+        }
+        if (!networkContainsWildcard) {
+            query.addEqual("network", networkId);
+        }
 
         if (!sourceContainsWildcard) {
-            queryString += CallableGenericQuery.generateQueryStringFromLists("sourceLinkObjectTypeId", sourceLink
-                .getObjectTypeIds());
-            queryString += CallableGenericQuery.generateQueryStringFromLists("sourceLinkDomainId", sourceLink
-                .getDomainIds());
-            queryString += (sourceObjIdContainsWildcard) ? "" : "sourceLinkObjId=" + sourceLink.getObjId() + " AND ";
+            query.addIn("sourceLinkObjectTypeId", sourceLink.getObjectTypeIds(), "INTEGER");
+            query.addIn("sourceLinkDomainId", sourceLink.getDomainIds(), "INTEGER");
+
+            if (!sourceObjIdContainsWildcard) {
+                query.addEqual("sourceLinkObjId", sourceLink.getObjId());
+            }
+        }
+
+        if (filter instanceof CompositeFilterSet && isCompositeFilterPushdownAllowed()) {
+            this.transactionsProcessor.dbBackend.getIndexedAttributes().addConditions(query, objTypeIds,
+                (CompositeFilterSet) filter);
         }
 
-        queryString = queryString.substring(0, queryString.length() - 4);
+        String sortOrder = "ASC ";
+        if (archiveQuery.getSortOrder() != null) {
+            sortOrder = (archiveQuery.getSortOrder()) ? "ASC " : "DESC ";
+        }
 
         // A dedicated PaginationFilter for this particular COM Archive implementation
         // was created and implemented
@@ -92,48 +180,82 @@ abstract class CallableGenericQuery<T> implements Callable<T> {
 
                 // Double check if the filter fields are really not null
                 if (pfilter.getLimit() != null && pfilter.getOffset() != null) {
-                    String sortOrder = "ASC ";
-                    if (archiveQuery.getSortOrder() != null) {
-                        sortOrder = (archiveQuery.getSortOrder()) ? "ASC " : "DESC ";
+                    query.append(" ORDER BY timestampArchiveDetails " + sortOrder + "LIMIT ? OFFSET ?", pfilter
+                        .getLimit().getValue(), pfilter.getOffset().getValue());
+                }
+            }
+
+            // The keyset pagination continues after the last (timestamp, objId) seen, so
+            // the database seeks in the timestamp index instead of rescanning the skipped rows
+            if (filter instanceof KeysetPaginationFilter) {
+                KeysetPaginationFilter kfilter = (KeysetPaginationFilter) filter;
+
+                if (kfilter.getLimit() != null) {
+                    if (kfilter.getLastTimestamp() != null && kfilter.getLastObjId() != null) {
+                        String comparison = ("ASC ".equals(sortOrder)) ? ">" : "<";
+                        query.addCondition("(timestampArchiveDetails, objId) " + comparison + " (?, ?)", kfilter
+                            .getLastTimestamp().getValue(), kfilter.getLastObjId());
                     }
 
-                    queryString += "ORDER BY timestampArchiveDetails " + sortOrder + "LIMIT " + pfilter.getLimit()
-                        .getValue() + " OFFSET " + pfilter.getOffset().getValue();
+                    query.append(" ORDER BY timestampArchiveDetails " + sortOrder.trim() + ", objId " + sortOrder +
+                        "LIMIT ?", kfilter.getLimit().getValue());
                 }
             }
         }
 
+        return query;
+    }
+
+    /**
+     * Returns the tables that can contain the objects matching the query.
+     *
+     * @return The tables, the main table being the first one.
+     */
+    List<String> getTables() {
+        final Long from = (archiveQuery.getStartTime() == null) ? null : archiveQuery.getStartTime().getValue();
+        final Long to = (archiveQuery.getEndTime() == null) ? null : archiveQuery.getEndTime().getValue();
+        return this.transactionsProcessor.dbBackend.getPartitions().getTables(objTypeIds, from, to);
+    }
+
+    @Override
+    public T call() {
+        PreparedStatements statements;
         try {
-            this.transactionsProcessor.dbBackend.getAvailability().acquire();
+            statements = acquireStatements();
         } catch (InterruptedException ex) {
             LOGGER.log(Level.SEVERE, null, ex);
+            Thread.currentThread().interrupt();
+            return null;
         }
 
-        T ret = innerCall(queryString);
-        this.transactionsProcessor.dbBackend.getAvailability().release();
-        return ret;
-        // return perObjs;
-    }
+        // Acquired after the statements, in the same order as the partition drops
+        this.transactionsProcessor.dbBackend.getPartitions().getReadLock().lock();
+        CompiledQuery query = null;
 
-    public static String generateQueryStringFromLists(final String field, final IntegerList list) {
-        if (list.isEmpty()) {
-            return "";
-        }
+        try {
+            if (statements == this.transactionsProcessor.dbBackend.getPreparedStatements()) {
+                this.transactionsProcessor.dbBackend.createIndexesIfFirstTime();
+            }
 
-        if (list.size() == 1) {
-            return field + "=" + list.get(0) + " AND ";
-        }
+            T result = null;
 
-        StringBuilder stringForWildcards = new StringBuilder("(");
+            for (String source : getSources(getTables())) {
+                query = compileQuery(source);
+                PreparedStatement stmt = statements.getQueryStatement(query.getSql());
+                query.bind(statements.getConnection(), stmt);
+                final T next = innerCall(stmt);
+                result = (result == null) ? next : combine(result, next);
+            }
 
-        for (Integer id : list) {
-            stringForWildcards.append(field).append("=").append(id).append(" OR ");
+            afterCall(result, statements.getConnection());
+            return result;
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Could not execute the query: " + ((query == null) ? null : query.getSql()), ex);
+            return failedResult();
+        } finally {
+            this.transactionsProcessor.dbBackend.getPartitions().getReadLock().unlock();
+            releaseStatements(statements);
         }
-
-        // Remove the " OR " par of it!
-        stringForWildcards = new StringBuilder(stringForWildcards.substring(0, stringForWildcards.length() - 4));
-
-        return stringForWildcards + ") AND ";
     }
 
-}
\ No newline at end of file
+}
@@ -24,29 +24,40 @@ final class CallableGetAllCOMObjectIds implements Callable<LongList> {
 
     @Override
     public LongList call() {
+        PreparedStatements statements;
         try {
-            this.transactionsProcessor.dbBackend.getAvailability().acquire();
+            statements = this.transactionsProcessor.dbBackend.acquireReadStatements();
         } catch (InterruptedException ex) {
             TransactionsProcessor.LOGGER.log(Level.SEVERE, null, ex);
+            Thread.currentThread().interrupt();
+            return null;
         }
 
         LongList objIds = new LongList();
+        ArchivePartitions partitions = this.transactionsProcessor.dbBackend.getPartitions();
+        partitions.getReadLock().lock();
 
         try {
-            PreparedStatement stmt = this.transactionsProcessor.dbBackend.getPreparedStatements()
-                .getSelectAllCOMObjects();
-            stmt.setInt(1, objTypeId);
-            stmt.setInt(2, domainId);
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                objIds.add(TransactionsProcessor.convert2Long(rs.getObject(1)));
+            for (String table : partitions.getTables(objTypeId)) {
+                PreparedStatement stmt = ArchivePartitions.MAIN_TABLE.equals(table) ? statements
+                    .getSelectAllCOMObjects() : statements.getQueryStatement(PreparedStatements.forTable(
+                        PreparedStatements.SELECT_ALL_COM_OBJECT_IDS, table));
+                stmt.setInt(1, objTypeId);
+                stmt.setInt(2, domainId);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        objIds.add(TransactionsProcessor.convert2Long(rs.getObject(1)));
+                    }
+                }
             }
         } catch (SQLException ex) {
             TransactionsProcessor.LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            partitions.getReadLock().unlock();
+            this.transactionsProcessor.dbBackend.releaseReadStatements(statements);
         }
 
-        this.transactionsProcessor.dbBackend.getAvailability().release();
         return objIds;
     }
 }
\ No newline at end of file
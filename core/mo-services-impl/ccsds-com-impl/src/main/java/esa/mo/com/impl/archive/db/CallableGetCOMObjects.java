@@ -1,6 +1,5 @@
 package esa.mo.com.impl.archive.db;
 
-import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -9,7 +8,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
 
 import org.ccsds.moims.mo.mal.structures.LongList;
 
@@ -17,11 +15,7 @@ import esa.mo.com.impl.archive.entities.COMObjectEntity;
 
 final class CallableGetCOMObjects implements Callable<List<COMObjectEntity>> {
 
-    // for sqlite. %s will be replaced with proper ids.
-    private final static String SELECT_COM_OBJECTS = "SELECT objectTypeId, domainId, objId, " +
-        "timestampArchiveDetails, providerURI, network, sourceLinkObjectTypeId, " +
-        "sourceLinkDomainId, sourceLinkObjId, relatedLink, objBody " + "FROM COMObjectEntity " +
-        "WHERE ((objectTypeId = %s) AND (domainId = %s) AND (objId in (%s)))";
+    private final static String SELECT_COM_OBJECTS = "SELECT " + ArchivePartitions.FIELDS + " FROM ";
     private final TransactionsProcessor transactionsProcessor;
     private final LongList ids;
     private final Integer domainId;
@@ -37,45 +31,52 @@ final class CallableGetCOMObjects implements Callable<List<COMObjectEntity>> {
 
     @Override
     public List<COMObjectEntity> call() {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        PreparedStatements statements;
         try {
-            this.transactionsProcessor.dbBackend.getAvailability().acquire();
+            statements = this.transactionsProcessor.dbBackend.acquireReadStatements();
         } catch (InterruptedException ex) {
             TransactionsProcessor.LOGGER.log(Level.SEVERE, null, ex);
+            Thread.currentThread().interrupt();
+            return null;
         }
 
         List<COMObjectEntity> perObjs = new ArrayList<>();
-        Connection c = this.transactionsProcessor.dbBackend.getConnection();
+        Connection c = statements.getConnection();
+        ArchivePartitions partitions = this.transactionsProcessor.dbBackend.getPartitions();
+        partitions.getReadLock().lock();
 
         try {
-            ResultSet rs;
-            if (this.transactionsProcessor.dbBackend.isPostgres) {
-                // Array-bind is supported in Postgres
-                PreparedStatement stmt = this.transactionsProcessor.dbBackend.getPreparedStatements()
-                    .getSelectCOMObjects();
-                Array idsArray = c.createArrayOf("BIGINT", ids.toArray());
-                stmt.setInt(1, objTypeId);
-                stmt.setInt(2, domainId);
-                stmt.setArray(3, idsArray);
-                rs = stmt.executeQuery();
-            } else {
-                String parameters = ids.stream().map(Object::toString).collect(Collectors.joining(", "));
-                String query = String.format(SELECT_COM_OBJECTS, objTypeId.toString(), domainId.toString(), parameters);
-                rs = c.createStatement().executeQuery(query);
-            }
+            // Ids are bound as an array on Postgres and as chunked IN lists on SQLite
+            CompiledQuery query = new CompiledQuery(SELECT_COM_OBJECTS + ArchivePartitions.union(partitions
+                .getTables(objTypeId)) + " ", this.transactionsProcessor.dbBackend.isPostgres);
+            query.addEqual("objectTypeId", objTypeId);
+            query.addEqual("domainId", domainId);
+            query.addIn("objId", ids, "BIGINT");
+
+            PreparedStatement stmt = statements.getQueryStatement(query.getSql());
+            query.bind(c, stmt);
 
-            while (rs.next()) {
-                perObjs.add(new COMObjectEntity((Integer) rs.getObject(1), (Integer) rs.getObject(2),
-                    TransactionsProcessor.convert2Long(rs.getObject(3)), TransactionsProcessor.convert2Long(rs
-                        .getObject(4)), (Integer) rs.getObject(5), (Integer) rs.getObject(6), new SourceLinkContainer(
-                            (Integer) rs.getObject(7), (Integer) rs.getObject(8), TransactionsProcessor.convert2Long(rs
-                                .getObject(9))), TransactionsProcessor.convert2Long(rs.getObject(10)), (byte[]) rs
-                                    .getObject(11)));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    perObjs.add(new COMObjectEntity((Integer) rs.getObject(1), (Integer) rs.getObject(2),
+                        TransactionsProcessor.convert2Long(rs.getObject(3)), TransactionsProcessor.convert2Long(rs
+                            .getObject(4)), (Integer) rs.getObject(5), (Integer) rs.getObject(6),
+                        new SourceLinkContainer((Integer) rs.getObject(7), (Integer) rs.getObject(8),
+                            TransactionsProcessor.convert2Long(rs.getObject(9))), TransactionsProcessor.convert2Long(
+                                rs.getObject(10)), (byte[]) rs.getObject(11)));
+                }
             }
         } catch (SQLException ex) {
             TransactionsProcessor.LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            partitions.getReadLock().unlock();
+            this.transactionsProcessor.dbBackend.releaseReadStatements(statements);
         }
 
-        this.transactionsProcessor.dbBackend.getAvailability().release();
         return perObjs;
     }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package esa.mo.com.impl.archive.db;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+
+import org.ccsds.moims.mo.mal.structures.LongList;
+
+import esa.mo.com.impl.archive.entities.COMObjectEntity;
+
+/**
+ * Selects, in a single query, the newest COM Object of an object type for
+ * each related link. The newest object is the one with the latest archive
+ * timestamp, the highest object instance identifier breaking the ties.
+ */
+final class CallableGetLatestCOMObjects implements Callable<List<COMObjectEntity>> {
+
+    private final static String SELECT_LATEST_COM_OBJECTS = "SELECT " + ArchivePartitions.FIELDS + " FROM (SELECT " +
+        ArchivePartitions.FIELDS + ", ROW_NUMBER() OVER (PARTITION BY relatedLink " +
+        "ORDER BY timestampArchiveDetails DESC, objId DESC) AS latestRank FROM ";
+    private final TransactionsProcessor transactionsProcessor;
+    private final LongList relatedIds;
+    private final Integer domainId;
+    private final Integer objTypeId;
+
+    CallableGetLatestCOMObjects(TransactionsProcessor transactionsProcessor, LongList relatedIds, Integer domainId,
+        Integer objTypeId) {
+        this.transactionsProcessor = transactionsProcessor;
+        this.relatedIds = relatedIds;
+        this.domainId = domainId;
+        this.objTypeId = objTypeId;
+    }
+
+    @Override
+    public List<COMObjectEntity> call() {
+        if (relatedIds != null && relatedIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        PreparedStatements statements;
+        try {
+            statements = this.transactionsProcessor.dbBackend.acquireReadStatements();
+        } catch (InterruptedException ex) {
+            TransactionsProcessor.LOGGER.log(Level.SEVERE, null, ex);
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        List<COMObjectEntity> perObjs = new ArrayList<>();
+        ArchivePartitions partitions = this.transactionsProcessor.dbBackend.getPartitions();
+        partitions.getReadLock().lock();
+        CompiledQuery query = null;
+
+        try {
+            // A null list of related links selects the newest object of every related link
+            query = new CompiledQuery(SELECT_LATEST_COM_OBJECTS + ArchivePartitions.union(partitions.getTables(
+                objTypeId)) + " ", this.transactionsProcessor.dbBackend.isPostgres);
+            query.addEqual("objectTypeId", objTypeId);
+            query.addEqual("domainId", domainId);
+            query.addIn("relatedLink", relatedIds, "BIGINT");
+            query.append(") latest WHERE latestRank=1");
+
+            PreparedStatement stmt = statements.getQueryStatement(query.getSql());
+            query.bind(statements.getConnection(), stmt);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    perObjs.add(new COMObjectEntity((Integer) rs.getObject(1), (Integer) rs.getObject(2),
+                        TransactionsProcessor.convert2Long(rs.getObject(3)), TransactionsProcessor.convert2Long(rs
+                            .getObject(4)), (Integer) rs.getObject(5), (Integer) rs.getObject(6),
+                        new SourceLinkContainer((Integer) rs.getObject(7), (Integer) rs.getObject(8),
+                            TransactionsProcessor.convert2Long(rs.getObject(9))), TransactionsProcessor.convert2Long(
+                                rs.getObject(10)), (byte[]) rs.getObject(11)));
+                }
+            }
+        } catch (SQLException ex) {
+            TransactionsProcessor.LOGGER.log(Level.SEVERE, "Could not execute the query: " + ((query == null) ? null
+                : query.getSql()), ex);
+        } finally {
+            partitions.getReadLock().unlock();
+            this.transactionsProcessor.dbBackend.releaseReadStatements(statements);
+        }
+
+        return perObjs;
+    }
+}
@@ -1,11 +1,9 @@
 package esa.mo.com.impl.archive.db;
 
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.logging.Level;
 
 import org.ccsds.moims.mo.com.archive.structures.ArchiveQuery;
 import org.ccsds.moims.mo.com.archive.structures.QueryFilter;
@@ -22,13 +20,21 @@ public class CallableSelectQuery extends CallableGenericQuery<ArrayList<COMObjec
     }
 
     @Override
-    protected ArrayList<COMObjectEntity> innerCall(String queryString) {
+    protected PreparedStatements acquireStatements() throws InterruptedException {
+        return this.transactionsProcessor.dbBackend.acquireReadStatements();
+    }
+
+    @Override
+    protected void releaseStatements(PreparedStatements statements) {
+        this.transactionsProcessor.dbBackend.releaseReadStatements(statements);
+    }
+
+    @Override
+    protected ArrayList<COMObjectEntity> innerCall(PreparedStatement stmt) throws SQLException {
         ArrayList<COMObjectEntity> perObjs = new ArrayList<>();
-        try {
-            Connection c = this.transactionsProcessor.dbBackend.getConnection();
-            Statement query = c.createStatement();
-            ResultSet rs = query.executeQuery(queryString);
 
+        // The result set is closed so that no read transaction is left open on the connection
+        try (ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
                 perObjs.add(new COMObjectEntity((Integer) rs.getObject(1), (Integer) rs.getObject(2),
                     TransactionsProcessor.convert2Long(rs.getObject(3)), TransactionsProcessor.convert2Long(rs
@@ -37,15 +43,23 @@ public class CallableSelectQuery extends CallableGenericQuery<ArrayList<COMObjec
                                 .getObject(9))), TransactionsProcessor.convert2Long(rs.getObject(10)), (byte[]) rs
                                     .getObject(11)));
             }
-        } catch (SQLException ex) {
-            TransactionsProcessor.LOGGER.log(Level.SEVERE, null, ex);
         }
         return perObjs;
     }
 
     @Override
-    protected String assembleQueryPrefix(String fieldsList) {
-        return "SELECT " + fieldsList + " FROM COMObjectEntity ";
+    protected ArrayList<COMObjectEntity> failedResult() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    protected boolean isCompositeFilterPushdownAllowed() {
+        return true;
+    }
+
+    @Override
+    protected String assembleQueryPrefix(String fieldsList, String source) {
+        return "SELECT " + fieldsList + " FROM " + source + " ";
     }
 
 }
@@ -0,0 +1,206 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.archive.db;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A parameterised SQL statement together with the values to be bound to it.
+ * The statement text only depends on the shape of the query (which fields are
+ * constrained and the bucketed sizes of the id lists), so it can be prepared
+ * once and cached per connection in PreparedStatements.
+ *
+ * Lists of ids are bound as arrays on Postgres. On SQLite, they are split in
+ * chunks of IN (?, ...) lists whose sizes are rounded up to the next power of
+ * two, by repeating the last id, to keep the number of shapes small.
+ */
+final class CompiledQuery {
+
+    static final int MAX_IN_LIST_CHUNK = 256;
+
+    private final boolean isPostgres;
+    private final StringBuilder sql;
+    private final List<Object> parameters = new ArrayList<>();
+    private boolean hasConditions = false;
+
+    CompiledQuery(final String prefix, final boolean isPostgres) {
+        this.sql = new StringBuilder(prefix);
+        this.isPostgres = isPostgres;
+    }
+
+    /**
+     * Adds the condition "field = value" to the WHERE clause.
+     *
+     * @param field The field name.
+     * @param value The value to be bound.
+     */
+    void addEqual(final String field, final Object value) {
+        addCondition(field + "=?", value);
+    }
+
+    /**
+     * Adds a condition to the WHERE clause.
+     *
+     * @param condition The condition with one placeholder per value.
+     * @param values The values to be bound.
+     */
+    void addCondition(final String condition, final Object... values) {
+        appendConditionSeparator();
+        sql.append(condition);
+
+        for (Object value : values) {
+            parameters.add(value);
+        }
+    }
+
+    /**
+     * Adds the condition "field in list" to the WHERE clause. Empty lists do
+     * not constrain the field.
+     *
+     * @param field The field name.
+     * @param values The values.
+     * @param sqlType The SQL type name of the values, used for array binding.
+     */
+    void addIn(final String field, final List<? extends Number> values, final String sqlType) {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+
+        if (values.size() == 1) {
+            addEqual(field, values.get(0));
+            return;
+        }
+
+        appendConditionSeparator();
+
+        if (isPostgres) {
+            sql.append(field).append(" = ANY(?)");
+            parameters.add(new ArrayParameter(sqlType, values.toArray()));
+            return;
+        }
+
+        final int chunks = (values.size() + MAX_IN_LIST_CHUNK - 1) / MAX_IN_LIST_CHUNK;
+
+        if (chunks > 1) {
+            sql.append("(");
+        }
+
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            final int from = chunk * MAX_IN_LIST_CHUNK;
+            final int to = Math.min(from + MAX_IN_LIST_CHUNK, values.size());
+            final int bucket = bucketSize(to - from);
+
+            if (chunk != 0) {
+                sql.append(" OR ");
+            }
+
+            sql.append(field).append(" IN (");
+
+            for (int i = 0; i < bucket; i++) {
+                sql.append((i == 0) ? "?" : ", ?");
+                // Pad the bucket with the last value of the chunk
+                parameters.add(values.get(Math.min(from + i, to - 1)));
+            }
+
+            sql.append(")");
+        }
+
+        if (chunks > 1) {
+            sql.append(")");
+        }
+    }
+
+    /**
+     * Appends text that does not belong to the WHERE clause, such as ORDER BY
+     * or LIMIT, together with its parameters.
+     *
+     * @param text The text to be appended.
+     * @param values The values to be bound to the placeholders of the text.
+     */
+    void append(final String text, final Object... values) {
+        sql.append(text);
+
+        for (Object value : values) {
+            parameters.add(value);
+        }
+    }
+
+    String getSql() {
+        return sql.toString();
+    }
+
+    List<Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Binds the parameters of this query to a statement prepared from
+     * getSql().
+     *
+     * @param c The connection of the statement.
+     * @param stmt The prepared statement.
+     * @throws SQLException If the parameters could not be bound.
+     */
+    void bind(final Connection c, final PreparedStatement stmt) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            final Object value = parameters.get(i);
+
+            if (value instanceof ArrayParameter) {
+                final ArrayParameter array = (ArrayParameter) value;
+                final Array sqlArray = c.createArrayOf(array.sqlType, array.values);
+                stmt.setArray(i + 1, sqlArray);
+            } else {
+                stmt.setObject(i + 1, value);
+            }
+        }
+    }
+
+    private void appendConditionSeparator() {
+        sql.append(hasConditions ? " AND " : "WHERE ");
+        hasConditions = true;
+    }
+
+    static int bucketSize(final int size) {
+        int bucket = 1;
+
+        while (bucket < size) {
+            bucket <<= 1;
+        }
+
+        return bucket;
+    }
+
+    private static class ArrayParameter {
+
+        private final String sqlType;
+        private final Object[] values;
+
+        ArrayParameter(final String sqlType, final Object[] values) {
+            this.sqlType = sqlType;
+            this.values = values;
+        }
+    }
+}
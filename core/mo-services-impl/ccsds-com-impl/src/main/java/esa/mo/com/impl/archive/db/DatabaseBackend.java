@@ -21,16 +21,21 @@
 package esa.mo.com.impl.archive.db;
 
 import esa.mo.com.impl.provider.ArchiveManager;
+import esa.mo.helpertools.misc.Const;
 
 import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.sqlite.SQLiteConfig;
 
 /**
  * The class that bridges the COM Archive logic to the actual database backend.
@@ -48,6 +53,17 @@ public class DatabaseBackend {
 
     private static final String MEMORY_DB_OPTION = ":memory:";
 
+    /**
+     * Number of read-only connections used to serve the archive reads. The pool
+     * is disabled by default. Enabling it on SQLite permanently switches the
+     * database file to WAL mode, which adds the -wal and -shm files next to it.
+     */
+    private static final String READ_POOL_SIZE_PROPERTY = "esa.nmf.archive.persistence.jdbc.readpool.size";
+
+    private static final int READ_POOL_SIZE_DEFAULT = 0;
+
+    private static final int READ_BUSY_TIMEOUT_MS = 5000;
+
     // true for fairness, because we want FIFO
     private final Semaphore availability = new Semaphore(0, true);
 
@@ -61,13 +77,28 @@ public class DatabaseBackend {
 
     private Connection serverConnection;
 
-    private boolean indexCreated = false;
+    private volatile boolean indexCreated = false;
 
     public boolean isPostgres = false;
 
+    // Time partitions of the object types with a retention policy
+    private final ArchivePartitions partitions = new ArchivePartitions();
+
+    // Denormalised fields of the object bodies used to evaluate the Composite Filters in SQL
+    private final IndexedAttributes indexedAttributes = new IndexedAttributes(partitions);
+
+    // True if the free pages are released with PRAGMA incremental_vacuum instead of a full VACUUM
+    private boolean incrementalVacuum = false;
+
     // Prepared statements storage for currently active connection
     private PreparedStatements preparedStatements;
 
+    private final int readPoolSize;
+
+    // Read-only connections (with their own prepared statements) used by the
+    // concurrent read path. Null if the read pool is disabled or stopped.
+    private volatile BlockingQueue<PreparedStatements> readPool;
+
     public DatabaseBackend() {
         String url = System.getProperty("esa.nmf.archive.persistence.jdbc.url");
 
@@ -105,6 +136,18 @@ public class DatabaseBackend {
 
         String pass = System.getProperty("esa.nmf.archive.persistence.jdbc.password");
         this.password = (null != pass && !"".equals(pass)) ? pass : null;
+
+        int poolSize = READ_POOL_SIZE_DEFAULT;
+        String poolSizeProp = System.getProperty(READ_POOL_SIZE_PROPERTY);
+        if (null != poolSizeProp && !"".equals(poolSizeProp)) {
+            try {
+                poolSize = Integer.parseInt(poolSizeProp);
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Invalid value for " + READ_POOL_SIZE_PROPERTY + ": " + poolSizeProp +
+                    ". Using the default: " + READ_POOL_SIZE_DEFAULT);
+            }
+        }
+        this.readPoolSize = Math.max(0, poolSize);
     }
 
     public Semaphore getAvailability() {
@@ -115,10 +158,110 @@ public class DatabaseBackend {
         return serverConnection;
     }
 
+    public IndexedAttributes getIndexedAttributes() {
+        return indexedAttributes;
+    }
+
+    public ArchivePartitions getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * Checks if the free pages of the database file can be released
+     * incrementally, i.e. without rewriting the whole file.
+     *
+     * @return True if the incremental vacuum is enabled.
+     */
+    public boolean isIncrementalVacuum() {
+        return incrementalVacuum;
+    }
+
     public PreparedStatements getPreparedStatements() {
         return preparedStatements;
     }
 
+    /**
+     * Checks if the reads can be executed on the pool of read-only connections,
+     * concurrently with the writes.
+     *
+     * @return True if the read pool is available.
+     */
+    public boolean isReadPoolEnabled() {
+        return readPool != null;
+    }
+
+    public int getReadPoolSize() {
+        return (readPool == null) ? 0 : readPoolSize;
+    }
+
+    /**
+     * Closes the connections of the read pool. The reads acquired afterwards
+     * share the main connection.
+     */
+    public void stopReadPool() {
+        final BlockingQueue<PreparedStatements> pool = readPool;
+
+        if (pool == null) {
+            return;
+        }
+
+        readPool = null;
+
+        for (PreparedStatements statements : pool) {
+            closeReadConnection(statements);
+        }
+        pool.clear();
+    }
+
+    private static void closeReadConnection(final PreparedStatements statements) {
+        try {
+            statements.getConnection().close();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.FINE, null, ex);
+        }
+    }
+
+    /**
+     * Acquires the prepared statements of a connection to be used for reading.
+     * If the read pool is enabled, a read-only connection is taken from the
+     * pool, otherwise the main connection is locked and returned.
+     *
+     * @return The prepared statements of the connection to be used for
+     * reading.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public PreparedStatements acquireReadStatements() throws InterruptedException {
+        final BlockingQueue<PreparedStatements> pool = readPool;
+
+        if (pool == null) {
+            availability.acquire();
+            return preparedStatements;
+        }
+
+        return pool.take();
+    }
+
+    /**
+     * Returns the prepared statements previously acquired with
+     * acquireReadStatements.
+     *
+     * @param statements The prepared statements to be released.
+     */
+    public void releaseReadStatements(final PreparedStatements statements) {
+        if (statements == preparedStatements) {
+            availability.release();
+        } else if (statements != null) {
+            final BlockingQueue<PreparedStatements> pool = readPool;
+
+            if (pool != null) {
+                pool.offer(statements);
+            } else {
+                // Released after the read pool was stopped
+                closeReadConnection(statements);
+            }
+        }
+    }
+
     /**
      * Starts the database backend by starting the Database Driver, check if a
      * migration to the new tables is needed, and creates the main COM Objects
@@ -143,15 +286,18 @@ public class DatabaseBackend {
                 isPostgres = true;
             }
             Statement query = serverConnection.createStatement();
-            query.execute(
-                "CREATE TABLE IF NOT EXISTS COMObjectEntity (objectTypeId INTEGER NOT NULL, objId BIGINT NOT NULL, domainId INTEGER NOT NULL, network INTEGER, objBody " +
-                    blobType +
-                    ", providerURI INTEGER, relatedLink BIGINT, sourceLinkDomainId INTEGER, sourceLinkObjId BIGINT, sourceLinkObjectTypeId INTEGER, timestampArchiveDetails BIGINT, PRIMARY KEY (objectTypeId, objId, domainId))");
-            ;
+            query.execute(createTableStatement(ArchivePartitions.MAIN_TABLE, blobType));
+            IndexedAttributes.createTables(serverConnection);
+            partitions.init(serverConnection, blobType);
         } catch (SQLException ex) {
             Logger.getLogger(DatabaseBackend.class.getName()).log(Level.SEVERE, null, ex);
         }
 
+        if (!isPostgres && !ArchivePartitions.parseRetention(System.getProperty(Const.ARCHIVE_RETENTION_PROPERTY))
+            .isEmpty()) {
+            enableIncrementalVacuum();
+        }
+
         preparedStatements = new PreparedStatements(serverConnection);
         try {
             preparedStatements.init(isPostgres);
@@ -160,6 +306,112 @@ public class DatabaseBackend {
             System.exit(0);
         }
 
+        startReadPool();
+    }
+
+    /**
+     * Returns the statement creating a table of COM Objects. Used for the main
+     * table and for the time partitions.
+     *
+     * @param table The table name.
+     * @param blobType The type of the column holding the object bodies.
+     * @return The SQL statement.
+     */
+    static String createTableStatement(final String table, final String blobType) {
+        return "CREATE TABLE IF NOT EXISTS " + table +
+            " (objectTypeId INTEGER NOT NULL, objId BIGINT NOT NULL, domainId INTEGER NOT NULL, network INTEGER, objBody " +
+            blobType +
+            ", providerURI INTEGER, relatedLink BIGINT, sourceLinkDomainId INTEGER, sourceLinkObjId BIGINT, sourceLinkObjectTypeId INTEGER, timestampArchiveDetails BIGINT, PRIMARY KEY (objectTypeId, objId, domainId))";
+    }
+
+    /**
+     * Switches the SQLite database to the incremental auto vacuum, so that the
+     * space freed by the dropped partitions and the removed objects can be
+     * released without rewriting the whole file. Switching an existing
+     * database requires one last full VACUUM.
+     */
+    private void enableIncrementalVacuum() {
+        if (url.contains(MEMORY_DB_OPTION) || url.contains("mode=memory")) {
+            return;
+        }
+
+        try (Statement statement = serverConnection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("PRAGMA auto_vacuum")) {
+                // 2 is INCREMENTAL
+                if (rs.next() && rs.getInt(1) == 2) {
+                    incrementalVacuum = true;
+                    return;
+                }
+            }
+
+            LOGGER.log(Level.INFO, "Switching the COM Archive to incremental vacuum. This is done only once...");
+            statement.execute("PRAGMA auto_vacuum=INCREMENTAL");
+            statement.execute("VACUUM");
+            incrementalVacuum = true;
+        } catch (SQLException ex) {
+            LOGGER.log(Level.WARNING, "Could not switch the COM Archive to incremental vacuum", ex);
+        }
+    }
+
+    /**
+     * Opens the pool of read-only connections. For SQLite, the database is
+     * switched to WAL mode so that readers do not block the writer and vice
+     * versa. The switch is persistent: the database file stays in WAL mode
+     * even if the pool is disabled again later. The pool is not available for in-memory databases because each
+     * connection would see its own database.
+     */
+    private void startReadPool() {
+        if (readPoolSize == 0) {
+            LOGGER.log(Level.INFO, "COM Archive read pool disabled");
+            return;
+        }
+
+        final boolean isSQLite = jdbcDriver.equals(DRIVER_CLASS_NAME);
+
+        if (isSQLite && (url.contains(MEMORY_DB_OPTION) || url.contains("mode=memory"))) {
+            LOGGER.log(Level.INFO, "In-memory COM Archive - reads will share the main connection");
+            return;
+        }
+
+        BlockingQueue<PreparedStatements> pool = new ArrayBlockingQueue<>(readPoolSize);
+
+        try {
+            if (isSQLite) {
+                LOGGER.log(Level.WARNING, "Switching the COM Archive database to WAL mode for the read pool: " + url);
+                Statement pragma = serverConnection.createStatement();
+                pragma.execute("PRAGMA journal_mode=WAL");
+                pragma.close();
+            }
+
+            for (int i = 0; i < readPoolSize; i++) {
+                Connection readConnection;
+
+                if (isSQLite) {
+                    SQLiteConfig config = new SQLiteConfig();
+                    config.setReadOnly(true);
+                    config.setBusyTimeout(READ_BUSY_TIMEOUT_MS);
+                    readConnection = DriverManager.getConnection(url, config.toProperties());
+                } else {
+                    readConnection = DriverManager.getConnection(url, user, password);
+                    readConnection.setReadOnly(true);
+                }
+
+                PreparedStatements statements = new PreparedStatements(readConnection);
+                statements.initReadOnly();
+                pool.add(statements);
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.WARNING, "Could not open the COM Archive read pool. " +
+                "Reads will share the main connection.", ex);
+
+            for (PreparedStatements statements : pool) {
+                closeReadConnection(statements);
+            }
+            return;
+        }
+
+        readPool = pool;
+        LOGGER.log(Level.INFO, "COM Archive read pool started with {0} connections", readPoolSize);
     }
 
     private void checkIfMigrationNeeded() throws SQLException {
@@ -184,6 +436,10 @@ public class DatabaseBackend {
         Logger.getLogger(TransactionsProcessor.class.getName()).log(Level.INFO, "Database migrated successfully!");
     }
 
+    public boolean isIndexCreated() {
+        return indexCreated;
+    }
+
     public void createIndexesIfFirstTime() {
         if (indexCreated) {
             return;
@@ -193,6 +449,9 @@ public class DatabaseBackend {
             statement.execute("CREATE INDEX IF NOT EXISTS index_related2 ON COMObjectEntity (relatedLink)");
             statement.execute(
                 "CREATE INDEX IF NOT EXISTS index_timestampArchiveDetails2 ON COMObjectEntity (timestampArchiveDetails)");
+            // Matches the ordering of the keyset pagination
+            statement.execute(
+                "CREATE INDEX IF NOT EXISTS index_timestampObjId ON COMObjectEntity (timestampArchiveDetails, objId)");
             indexCreated = true;
         } catch (SQLException ex) {
             Logger.getLogger(DatabaseBackend.class.getName()).log(Level.SEVERE, null, ex);
@@ -0,0 +1,595 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.archive.db;
+
+import esa.mo.com.impl.archive.entities.COMObjectEntity;
+import esa.mo.com.impl.util.HelperCOM;
+import esa.mo.helpertools.helpers.HelperAttributes;
+import esa.mo.helpertools.helpers.HelperMisc;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.ccsds.moims.mo.com.archive.structures.CompositeFilter;
+import org.ccsds.moims.mo.com.archive.structures.CompositeFilterSet;
+import org.ccsds.moims.mo.com.archive.structures.ExpressionOperator;
+import org.ccsds.moims.mo.com.structures.ObjectType;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Blob;
+import org.ccsds.moims.mo.mal.structures.Enumeration;
+import org.ccsds.moims.mo.mal.structures.IntegerList;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.UShort;
+
+/**
+ * Denormalised copy of selected fields of the COM object bodies, stored in a
+ * side table so that the Composite Filters on those fields can be evaluated
+ * by the database instead of decoding every candidate object.
+ *
+ * The field paths are configured per object type. The table is populated when
+ * the objects are inserted or updated, and the objects already in the archive
+ * are indexed the first time a field path is configured. The conditions added
+ * to a query only narrow the candidates: the filters are still evaluated in
+ * memory on the objects returned, so the results do not change.
+ */
+public class IndexedAttributes {
+
+    private static final Logger LOGGER = Logger.getLogger(IndexedAttributes.class.getName());
+
+    static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS IndexedAttributeEntity " +
+        "(objectTypeId INTEGER NOT NULL, domainId INTEGER NOT NULL, objId BIGINT NOT NULL, " +
+        "fieldPath VARCHAR NOT NULL, numValue DOUBLE PRECISION, strValue VARCHAR, " +
+        "PRIMARY KEY (objectTypeId, domainId, objId, fieldPath))";
+    static final String CREATE_DEFINITIONS_TABLE = "CREATE TABLE IF NOT EXISTS IndexedAttributeDefinition " +
+        "(objectTypeId INTEGER NOT NULL, fieldPath VARCHAR NOT NULL, PRIMARY KEY (objectTypeId, fieldPath))";
+    static final String CREATE_NUM_INDEX = "CREATE INDEX IF NOT EXISTS index_indexedAttributeNum " +
+        "ON IndexedAttributeEntity (fieldPath, numValue)";
+    static final String CREATE_STR_INDEX = "CREATE INDEX IF NOT EXISTS index_indexedAttributeStr " +
+        "ON IndexedAttributeEntity (fieldPath, strValue)";
+
+    static final String INSERT_ATTRIBUTE = "INSERT INTO IndexedAttributeEntity " +
+        "(objectTypeId, domainId, objId, fieldPath, numValue, strValue) VALUES (?, ?, ?, ?, ?, ?)";
+    static final String DELETE_ATTRIBUTES = "DELETE FROM IndexedAttributeEntity " +
+        "WHERE ((objectTypeId = ?) AND (domainId = ?) AND (objId = ?))";
+    private static final String DELETE_ALL_ATTRIBUTES = "DELETE FROM IndexedAttributeEntity";
+    private static final String DELETE_ORPHAN_ATTRIBUTES = "DELETE FROM IndexedAttributeEntity WHERE ";
+    private static final String NOT_EXISTS_IN_TABLE = "NOT EXISTS (SELECT 1 FROM %s c " +
+        "WHERE c.objectTypeId = IndexedAttributeEntity.objectTypeId " +
+        "AND c.domainId = IndexedAttributeEntity.domainId AND c.objId = IndexedAttributeEntity.objId)";
+    private static final String DELETE_TABLE_ATTRIBUTES = "DELETE FROM IndexedAttributeEntity " +
+        "WHERE (objectTypeId, domainId, objId) IN (SELECT objectTypeId, domainId, objId FROM %s)";
+    private static final String DELETE_PATH_ATTRIBUTES = "DELETE FROM IndexedAttributeEntity " +
+        "WHERE ((objectTypeId = ?) AND (fieldPath = ?))";
+    private static final String SELECT_DEFINITIONS = "SELECT objectTypeId, fieldPath FROM IndexedAttributeDefinition";
+    private static final String INSERT_DEFINITION = "INSERT INTO IndexedAttributeDefinition " +
+        "(objectTypeId, fieldPath) VALUES (?, ?)";
+    private static final String DELETE_DEFINITION = "DELETE FROM IndexedAttributeDefinition " +
+        "WHERE ((objectTypeId = ?) AND (fieldPath = ?))";
+    private static final String SELECT_OBJECTS_OF_TYPE = "SELECT domainId, objId, objBody FROM COMObjectEntity " +
+        "WHERE (objectTypeId = ?)";
+
+    private static final String MATCHING_OBJECTS = "(objectTypeId, domainId, objId) IN " +
+        "(SELECT a.objectTypeId, a.domainId, a.objId FROM IndexedAttributeEntity a WHERE a.fieldPath = ? AND ";
+
+    // Indexed field paths per object type id. It is replaced as a whole, never modified
+    private volatile Map<Integer, Set<String>> indexedPaths = Collections.emptyMap();
+
+    private final ArchivePartitions partitions;
+
+    public IndexedAttributes(final ArchivePartitions partitions) {
+        this.partitions = partitions;
+    }
+
+    /**
+     * Parses the configuration of the indexed attributes. The format is a
+     * list of entries separated by ';', each one being an object type
+     * (area.service.version.number) followed by ':' and the field paths of
+     * its body separated by ','. Example: "4.2.1.1:rawValue,validityState".
+     * Invalid entries are logged and ignored.
+     *
+     * @param configuration The configuration. Can be null.
+     * @return The field paths per object type.
+     */
+    public static Map<ObjectType, List<String>> parseConfiguration(final String configuration) {
+        final Map<ObjectType, List<String>> out = new LinkedHashMap<>();
+
+        if (configuration == null || configuration.trim().isEmpty()) {
+            return out;
+        }
+
+        for (String entry : configuration.split(";")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+
+            final String[] parts = entry.split(":");
+            final String[] type = (parts.length == 2) ? parts[0].trim().split("\\.") : new String[0];
+
+            if (type.length != 4) {
+                LOGGER.log(Level.WARNING, "Invalid indexed attributes entry: {0}", entry);
+                continue;
+            }
+
+            final ObjectType objType;
+            try {
+                objType = new ObjectType(new UShort(Integer.parseInt(type[0])), new UShort(Integer.parseInt(type[1])),
+                    new UOctet(Short.parseShort(type[2])), new UShort(Integer.parseInt(type[3])));
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Invalid object type in the indexed attributes entry: {0}", entry);
+                continue;
+            }
+
+            if (objType.getArea().getValue() == 0 || objType.getService().getValue() == 0 || objType.getVersion()
+                .getValue() == 0 || objType.getNumber().getValue() == 0) {
+                LOGGER.log(Level.WARNING, "Wildcards are not allowed in the indexed attributes entry: {0}", entry);
+                continue;
+            }
+
+            final List<String> paths = out.computeIfAbsent(objType, k -> new ArrayList<>());
+
+            for (String path : parts[1].split(",")) {
+                if (!path.trim().isEmpty() && !paths.contains(path.trim())) {
+                    paths.add(path.trim());
+                }
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Sets the field paths to be indexed per object type id.
+     *
+     * @param paths The field paths per object type id.
+     */
+    public void setIndexedPaths(final Map<Integer, List<String>> paths) {
+        final Map<Integer, Set<String>> map = new HashMap<>();
+
+        for (Map.Entry<Integer, List<String>> entry : paths.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                map.put(entry.getKey(), Collections.unmodifiableSet(new LinkedHashSet<>(entry.getValue())));
+            }
+        }
+
+        this.indexedPaths = Collections.unmodifiableMap(map);
+    }
+
+    public boolean isEnabled() {
+        return !this.indexedPaths.isEmpty();
+    }
+
+    public Set<String> getIndexedPaths(final Integer objTypeId) {
+        final Set<String> paths = this.indexedPaths.get(objTypeId);
+        return (paths == null) ? Collections.<String>emptySet() : paths;
+    }
+
+    /**
+     * Creates the side tables if they do not exist yet.
+     *
+     * @param c The connection.
+     * @throws SQLException If the tables could not be created.
+     */
+    static void createTables(final Connection c) throws SQLException {
+        try (Statement statement = c.createStatement()) {
+            statement.execute(CREATE_TABLE);
+            statement.execute(CREATE_DEFINITIONS_TABLE);
+            statement.execute(CREATE_NUM_INDEX);
+            statement.execute(CREATE_STR_INDEX);
+        }
+    }
+
+    /**
+     * Aligns the side table with the configured field paths. The attributes of
+     * the field paths that are no longer configured are deleted, and the
+     * objects already in the archive are indexed for the new ones. Must be
+     * called with the main connection acquired.
+     *
+     * @param c The main connection.
+     * @throws SQLException If the side table could not be updated.
+     */
+    public void synchronize(final Connection c) throws SQLException {
+        final Map<Integer, Set<String>> existing = new HashMap<>();
+
+        try (Statement statement = c.createStatement(); ResultSet rs = statement.executeQuery(SELECT_DEFINITIONS)) {
+            while (rs.next()) {
+                existing.computeIfAbsent(rs.getInt(1), k -> new HashSet<>()).add(rs.getString(2));
+            }
+        }
+
+        c.setAutoCommit(false);
+
+        try (PreparedStatement deletePath = c.prepareStatement(DELETE_PATH_ATTRIBUTES);
+            PreparedStatement deleteDefinition = c.prepareStatement(DELETE_DEFINITION)) {
+            for (Map.Entry<Integer, Set<String>> entry : existing.entrySet()) {
+                for (String path : entry.getValue()) {
+                    if (!getIndexedPaths(entry.getKey()).contains(path)) {
+                        LOGGER.log(Level.INFO, "Dropping the indexed attribute {0} of object type id {1}",
+                            new Object[]{path, entry.getKey()});
+                        deletePath.setInt(1, entry.getKey());
+                        deletePath.setString(2, path);
+                        deletePath.executeUpdate();
+                        deleteDefinition.setInt(1, entry.getKey());
+                        deleteDefinition.setString(2, path);
+                        deleteDefinition.executeUpdate();
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<Integer, Set<String>> entry : this.indexedPaths.entrySet()) {
+            final Set<String> known = existing.getOrDefault(entry.getKey(), Collections.<String>emptySet());
+            final List<String> newPaths = new ArrayList<>();
+
+            for (String path : entry.getValue()) {
+                if (!known.contains(path)) {
+                    newPaths.add(path);
+                }
+            }
+
+            if (!newPaths.isEmpty()) {
+                backfill(c, entry.getKey(), newPaths);
+            }
+        }
+
+        c.setAutoCommit(true);
+    }
+
+    private void backfill(final Connection c, final Integer objTypeId, final List<String> paths) throws SQLException {
+        LOGGER.log(Level.INFO, "Indexing the attributes {0} of the archived objects with object type id {1}",
+            new Object[]{paths, objTypeId});
+        int count = 0;
+
+        try (PreparedStatement insert = c.prepareStatement(INSERT_ATTRIBUTE);
+            PreparedStatement insertDefinition = c.prepareStatement(INSERT_DEFINITION)) {
+            for (String table : this.partitions.getTables(objTypeId)) {
+                try (PreparedStatement select = c.prepareStatement(PreparedStatements.forTable(SELECT_OBJECTS_OF_TYPE,
+                    table))) {
+                    select.setInt(1, objTypeId);
+
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            final Integer domainId = rs.getInt(1);
+                            final Long objId = TransactionsProcessor.convert2Long(rs.getObject(2));
+                            final COMObjectEntity entity = new COMObjectEntity(objTypeId, domainId, objId, 0L, null,
+                                null, new SourceLinkContainer(null, null, null), null, (byte[]) rs.getObject(3));
+                            final Object body = entity.getObject();
+
+                            for (String path : paths) {
+                                count += addInsert(insert, entity, body, path);
+                            }
+
+                            if (count >= 1000) {
+                                insert.executeBatch();
+                                insert.clearBatch();
+                                count = 0;
+                            }
+                        }
+                    }
+                }
+            }
+
+            insert.executeBatch();
+
+            for (String path : paths) {
+                insertDefinition.setInt(1, objTypeId);
+                insertDefinition.setString(2, path);
+                insertDefinition.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Stores the indexed attributes of the objects, replacing the previous
+     * ones. Must be called with the main connection acquired, in the same
+     * transaction as the objects themselves.
+     *
+     * @param statements The prepared statements of the main connection.
+     * @param objs The inserted or updated objects.
+     * @throws SQLException If the attributes could not be stored.
+     */
+    void store(final PreparedStatements statements, final List<COMObjectEntity> objs) throws SQLException {
+        if (!isEnabled()) {
+            return;
+        }
+
+        final PreparedStatement delete = statements.getDeleteIndexedAttributes();
+        final PreparedStatement insert = statements.getInsertIndexedAttribute();
+        boolean indexed = false;
+
+        for (COMObjectEntity obj : objs) {
+            final Set<String> paths = getIndexedPaths(obj.getObjectTypeId());
+
+            if (paths.isEmpty()) {
+                continue;
+            }
+
+            delete.setInt(1, obj.getObjectTypeId());
+            delete.setInt(2, obj.getDomainId());
+            delete.setLong(3, obj.getObjectId());
+            delete.addBatch();
+            indexed = true;
+
+            final Object body = obj.getObject();
+
+            for (String path : paths) {
+                addInsert(insert, obj, body, path);
+            }
+        }
+
+        if (indexed) {
+            delete.executeBatch();
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * Deletes the indexed attributes of the removed objects.
+     *
+     * @param statements The prepared statements of the main connection.
+     * @param objTypeId The object type id.
+     * @param domainId The domain id.
+     * @param objIds The object ids.
+     * @throws SQLException If the attributes could not be deleted.
+     */
+    void delete(final PreparedStatements statements, final Integer objTypeId, final Integer domainId,
+        final LongList objIds) throws SQLException {
+        if (getIndexedPaths(objTypeId).isEmpty()) {
+            return;
+        }
+
+        final PreparedStatement delete = statements.getDeleteIndexedAttributes();
+
+        for (Long objId : objIds) {
+            delete.setInt(1, objTypeId);
+            delete.setInt(2, domainId);
+            delete.setLong(3, objId);
+            delete.addBatch();
+        }
+
+        delete.executeBatch();
+    }
+
+    /**
+     * Deletes the indexed attributes of the objects that are no longer in the
+     * archive. Used after the deletions by query, whose objects are not known.
+     *
+     * @param c The main connection.
+     * @throws SQLException If the attributes could not be deleted.
+     */
+    void deleteOrphans(final Connection c) throws SQLException {
+        if (!isEnabled()) {
+            return;
+        }
+
+        final StringBuilder sql = new StringBuilder(DELETE_ORPHAN_ATTRIBUTES);
+        final List<String> tables = this.partitions.getAllTables();
+
+        for (int i = 0; i < tables.size(); i++) {
+            if (i != 0) {
+                sql.append(" AND ");
+            }
+            sql.append(String.format(NOT_EXISTS_IN_TABLE, tables.get(i)));
+        }
+
+        try (Statement statement = c.createStatement()) {
+            statement.executeUpdate(sql.toString());
+        }
+    }
+
+    /**
+     * Deletes the indexed attributes of all the objects of a table. Used
+     * before a partition is dropped.
+     *
+     * @param c The main connection.
+     * @param table The table name.
+     * @throws SQLException If the attributes could not be deleted.
+     */
+    void deleteTable(final Connection c, final String table) throws SQLException {
+        if (!isEnabled()) {
+            return;
+        }
+
+        try (Statement statement = c.createStatement()) {
+            statement.executeUpdate(String.format(DELETE_TABLE_ATTRIBUTES, table));
+        }
+    }
+
+    /**
+     * Deletes all the indexed attributes. The definitions are kept because the
+     * archive is empty afterwards.
+     *
+     * @param c The main connection.
+     * @throws SQLException If the attributes could not be deleted.
+     */
+    public void deleteAll(final Connection c) throws SQLException {
+        try (Statement statement = c.createStatement()) {
+            statement.executeUpdate(DELETE_ALL_ATTRIBUTES);
+        }
+    }
+
+    /**
+     * Adds to the query a condition for each Composite Filter of the set that
+     * can be evaluated on the side table, i.e. when its field path is indexed
+     * for all the object types of the query.
+     *
+     * @param query The query.
+     * @param objTypeIds The object type ids of the query.
+     * @param filterSet The Composite Filter set.
+     * @return The number of conditions added.
+     */
+    int addConditions(final CompiledQuery query, final IntegerList objTypeIds, final CompositeFilterSet filterSet) {
+        if (!isEnabled() || objTypeIds == null || objTypeIds.isEmpty() || filterSet.getFilters() == null) {
+            return 0;
+        }
+
+        int added = 0;
+
+        for (CompositeFilter filter : filterSet.getFilters()) {
+            if (filter == null || filter.getFieldName() == null || !isIndexed(objTypeIds, filter.getFieldName())) {
+                continue;
+            }
+
+            final Object[] predicate = compilePredicate(filter.getType(), filter.getFieldValue());
+
+            if (predicate != null) {
+                query.addCondition(MATCHING_OBJECTS + predicate[0] + ")", filter.getFieldName(), predicate[1]);
+                added++;
+            }
+        }
+
+        return added;
+    }
+
+    private boolean isIndexed(final IntegerList objTypeIds, final String path) {
+        for (Integer objTypeId : objTypeIds) {
+            if (!getIndexedPaths(objTypeId).contains(path)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Compiles the predicate on the side table for a filter. Only the
+     * predicates that never exclude an object that HelperCOM.evaluateExpression
+     * would accept are compiled. The others are left to the in-memory
+     * evaluation.
+     *
+     * @param operator The operator of the filter.
+     * @param value The value of the filter.
+     * @return The predicate and its parameter, or null if it cannot be pushed
+     * down.
+     */
+    static Object[] compilePredicate(final ExpressionOperator operator, final Attribute value) {
+        if (operator == null || value == null || value instanceof Blob) {
+            return null;
+        }
+
+        if (HelperMisc.isStringAttribute(value)) {
+            if (operator.equals(ExpressionOperator.EQUAL)) {
+                return new Object[]{"a.strValue = ?", HelperAttributes.attribute2string(value)};
+            }
+
+            return null;
+        }
+
+        final Double number = toDouble(value);
+
+        if (number == null || number.isNaN()) {
+            return null;
+        }
+
+        final String comparison;
+
+        if (operator.equals(ExpressionOperator.EQUAL)) {
+            comparison = "=";
+        } else if (operator.equals(ExpressionOperator.GREATER)) {
+            comparison = ">";
+        } else if (operator.equals(ExpressionOperator.GREATER_OR_EQUAL)) {
+            comparison = ">=";
+        } else if (operator.equals(ExpressionOperator.LESS)) {
+            comparison = "<";
+        } else if (operator.equals(ExpressionOperator.LESS_OR_EQUAL)) {
+            comparison = "<=";
+        } else {
+            return null;
+        }
+
+        return new Object[]{"a.numValue " + comparison + " ?", number};
+    }
+
+    private int addInsert(final PreparedStatement insert, final COMObjectEntity obj, final Object body,
+        final String path) throws SQLException {
+        final Object[] value = extract(body, path);
+
+        if (value == null) {
+            return 0; // The field does not exist, so the filters on it evaluate to false
+        }
+
+        insert.setInt(1, obj.getObjectTypeId());
+        insert.setInt(2, obj.getDomainId());
+        insert.setLong(3, obj.getObjectId());
+        insert.setString(4, path);
+        insert.setObject(5, value[0]);
+        insert.setObject(6, value[1]);
+        insert.addBatch();
+        return 1;
+    }
+
+    /**
+     * Extracts the value of a field of a COM object body, in the same way as
+     * the in-memory evaluation of the Composite Filters does.
+     *
+     * @param body The COM object body.
+     * @param path The field path.
+     * @return The numeric and the string values (each one can be null), or
+     * null if the field does not exist.
+     */
+    static Object[] extract(final Object body, final String path) {
+        final Object field;
+        try {
+            field = HelperCOM.getNestedObject(body, path);
+        } catch (NoSuchFieldException ex) {
+            return null;
+        }
+
+        Object attribute = HelperAttributes.javaType2Attribute(field);
+
+        if (attribute instanceof Enumeration) {
+            attribute = new UInteger(((Enumeration) attribute).getOrdinal());
+        }
+
+        if (attribute == null) {
+            return new Object[]{null, null};
+        }
+
+        Double number = (attribute instanceof Attribute) ? toDouble((Attribute) attribute) : null;
+
+        if (number != null && number.isNaN()) {
+            number = null;
+        }
+
+        return new Object[]{number, HelperAttributes.attribute2string(attribute)};
+    }
+
+    private static Double toDouble(final Attribute value) {
+        try {
+            return HelperAttributes.attribute2double(value);
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+}
@@ -3,60 +3,123 @@ package esa.mo.com.impl.archive.db;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class PreparedStatements {
 
+    private static final Logger LOGGER = Logger.getLogger(PreparedStatements.class.getName());
+
+    // Maximum number of distinct query shapes kept prepared per connection
+    private static final int MAX_CACHED_QUERY_STATEMENTS = 64;
+
     Connection c;
 
+    // Statements of the generic queries, keyed by their SQL text (i.e. their shape)
+    private final Map<String, PreparedStatement> queryStatements = new LinkedHashMap<String, PreparedStatement>(16,
+        0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() <= MAX_CACHED_QUERY_STATEMENTS) {
+                return false;
+            }
+
+            try {
+                eldest.getValue().close();
+            } catch (SQLException ex) {
+                LOGGER.log(Level.FINE, "Could not close the evicted statement", ex);
+            }
+            return true;
+        }
+    };
+
     public PreparedStatements(Connection serverConnection) {
         c = serverConnection;
     }
 
-    private final static String SELECT_ALL_COM_OBJECT_IDS = "SELECT objId " + "FROM COMObjectEntity " +
+    final static String SELECT_ALL_COM_OBJECT_IDS = "SELECT objId " + "FROM COMObjectEntity " +
         "WHERE ((objectTypeId = ?) AND (domainId = ?))";
-    private final static String SELECT_COM_OBJECTS = "SELECT objectTypeId, domainId, objId, " +
-        "timestampArchiveDetails, providerURI, network, sourceLinkObjectTypeId, " +
-        "sourceLinkDomainId, sourceLinkObjId, relatedLink, objBody " + "FROM COMObjectEntity " +
-        "WHERE ((objectTypeId = ?) AND (domainId = ?) AND (objId = ANY(?)))";
-    private final static String INSERT_COM_OBJECTS = "INSERT INTO COMObjectEntity " +
+    final static String INSERT_COM_OBJECTS = "INSERT INTO COMObjectEntity " +
         "(objectTypeId, objId, domainId, network, objBody, providerURI, relatedLink, " +
         "sourceLinkDomainId, sourceLinkObjId, sourceLinkObjectTypeId, timestampArchiveDetails) " +
         "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-    private final static String DELETE_COM_OBJECTS = "DELETE FROM COMObjectEntity " +
+    final static String DELETE_COM_OBJECTS = "DELETE FROM COMObjectEntity " +
         "WHERE (((objectTypeId = ?) AND (domainId = ?) AND (objId = ?)))";
-    private final static String UPDATE_COM_OBJECTS = "UPDATE COMObjectEntity " +
+    final static String UPDATE_COM_OBJECTS = "UPDATE COMObjectEntity " +
         "SET objectTypeId = ?, objId = ?, domainId = ?, network = ?, objBody = ?, " +
         "providerURI = ?, relatedLink = ?, sourceLinkDomainId = ?, " +
         "sourceLinkObjId = ?, sourceLinkObjectTypeId = ?, timestampArchiveDetails = ? " +
         "WHERE (((objectTypeId = ?) AND (domainId = ?) AND (objId = ?)));";
-    private final static String SELECT_MAX_OBJ_ID = "SELECT MAX(objId) FROM COMObjectEntity WHERE ((objectTypeId = ?) AND (domainId = ?))";
+    final static String SELECT_MAX_OBJ_ID = "SELECT MAX(objId) FROM COMObjectEntity WHERE ((objectTypeId = ?) AND (domainId = ?))";
 
     private PreparedStatement selectAllCOMObjectIds;
-    // select com objects prepared statement is available only for postgres because sqlite
-    // doesn't support binding arrays to query parameters
-    private PreparedStatement selectCOMObjects;
     private PreparedStatement insertCOMObjects;
     private PreparedStatement deleteCOMObjects;
     private PreparedStatement updateCOMObjects;
     private PreparedStatement selectMaxObjId;
+    private PreparedStatement insertIndexedAttribute;
+    private PreparedStatement deleteIndexedAttributes;
+
+    /**
+     * Prepares only the statements needed by the read path. Used for the
+     * read-only connections of the read pool.
+     *
+     * @throws SQLException If the statements could not be prepared.
+     */
+    public void initReadOnly() throws SQLException {
+        selectAllCOMObjectIds = c.prepareStatement(SELECT_ALL_COM_OBJECT_IDS);
+    }
 
     public void init(boolean isPostgres) throws SQLException {
-        if (isPostgres) {
-            selectCOMObjects = c.prepareStatement(SELECT_COM_OBJECTS);
-        }
         selectAllCOMObjectIds = c.prepareStatement(SELECT_ALL_COM_OBJECT_IDS);
         insertCOMObjects = c.prepareStatement(INSERT_COM_OBJECTS);
         deleteCOMObjects = c.prepareStatement(DELETE_COM_OBJECTS);
         updateCOMObjects = c.prepareStatement(UPDATE_COM_OBJECTS);
         selectMaxObjId = c.prepareStatement(SELECT_MAX_OBJ_ID);
+        insertIndexedAttribute = c.prepareStatement(IndexedAttributes.INSERT_ATTRIBUTE);
+        deleteIndexedAttributes = c.prepareStatement(IndexedAttributes.DELETE_ATTRIBUTES);
     }
 
-    public PreparedStatement getSelectAllCOMObjects() {
-        return this.selectAllCOMObjectIds;
+    public Connection getConnection() {
+        return this.c;
+    }
+
+    /**
+     * Returns the prepared statement for the given SQL text, preparing it if
+     * it was not used recently. The statement must not be closed by the
+     * caller.
+     *
+     * @param sql The SQL text.
+     * @return The prepared statement.
+     * @throws SQLException If the statement could not be prepared.
+     */
+    public synchronized PreparedStatement getQueryStatement(final String sql) throws SQLException {
+        PreparedStatement stmt = queryStatements.get(sql);
+
+        if (stmt == null) {
+            stmt = c.prepareStatement(sql);
+            queryStatements.put(sql, stmt);
+        }
+
+        return stmt;
+    }
+
+    /**
+     * Returns the SQL text of a statement on the main table, executed on
+     * another table with the same columns instead.
+     *
+     * @param sql The SQL text of the statement on the main table.
+     * @param table The table name.
+     * @return The SQL text of the statement on the given table.
+     */
+    static String forTable(final String sql, final String table) {
+        return sql.replaceFirst(ArchivePartitions.MAIN_TABLE + " ", table + " ");
     }
 
-    public PreparedStatement getSelectCOMObjects() {
-        return selectCOMObjects;
+    public PreparedStatement getSelectAllCOMObjects() {
+        return this.selectAllCOMObjectIds;
     }
 
     public PreparedStatement getInsertCOMObjects() {
@@ -75,4 +138,12 @@ public class PreparedStatements {
         return this.selectMaxObjId;
     }
 
+    public PreparedStatement getInsertIndexedAttribute() {
+        return this.insertIndexedAttribute;
+    }
+
+    public PreparedStatement getDeleteIndexedAttributes() {
+        return this.deleteIndexedAttributes;
+    }
+
 }
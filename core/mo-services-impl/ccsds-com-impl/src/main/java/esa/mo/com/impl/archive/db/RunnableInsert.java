@@ -4,6 +4,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,42 +56,77 @@ final class RunnableInsert implements Runnable {
     }
 
     void persistObjects(final ArrayList<COMObjectEntity> perObjs) {
+        Connection c = this.transactionsProcessor.dbBackend.getConnection();
+        ArchivePartitions partitions = transactionsProcessor.dbBackend.getPartitions();
+
         try {
-            Connection c = this.transactionsProcessor.dbBackend.getConnection();
             c.setAutoCommit(false);
             PreparedStatement insertStmt = transactionsProcessor.dbBackend.getPreparedStatements()
                 .getInsertCOMObjects();
 
+            // The objects with a retention policy are stored in the time partitions
+            Set<PreparedStatement> batches = new LinkedHashSet<>();
+            batches.add(insertStmt);
+
             for (int i = 0; i < perObjs.size(); i++) { // 6.510 ms per cycle
                 COMObjectEntity obj = perObjs.get(i);
-                insertStmt.setObject(1, obj.getObjectTypeId());
-                insertStmt.setObject(2, obj.getObjectId());
-                insertStmt.setObject(3, obj.getDomainId());
-                insertStmt.setObject(4, obj.getNetwork());
-                insertStmt.setObject(5, obj.getObjectEncoded());
-                insertStmt.setObject(6, obj.getProviderURI());
-                insertStmt.setObject(7, obj.getRelatedLink());
-                insertStmt.setObject(8, obj.getSourceLink().getDomainId());
-                insertStmt.setObject(9, obj.getSourceLink().getObjId());
-                insertStmt.setObject(10, obj.getSourceLink().getObjectTypeId());
-                insertStmt.setObject(11, obj.getTimestamp().getValue());
-                insertStmt.addBatch();
+                PreparedStatement stmt = insertStmt;
+
+                if (partitions.isEnabled()) {
+                    ArchivePartitions.Partition partition = partitions.getPartitionForInsert(c, obj);
+
+                    if (partition != null) {
+                        stmt = partition.getInsert(c);
+                        batches.add(stmt);
+                    }
+                }
+
+                stmt.setObject(1, obj.getObjectTypeId());
+                stmt.setObject(2, obj.getObjectId());
+                stmt.setObject(3, obj.getDomainId());
+                stmt.setObject(4, obj.getNetwork());
+                stmt.setObject(5, obj.getObjectEncoded());
+                stmt.setObject(6, obj.getProviderURI());
+                stmt.setObject(7, obj.getRelatedLink());
+                stmt.setObject(8, obj.getSourceLink().getDomainId());
+                stmt.setObject(9, obj.getSourceLink().getObjId());
+                stmt.setObject(10, obj.getSourceLink().getObjectTypeId());
+                stmt.setObject(11, obj.getTimestamp().getValue());
+                stmt.addBatch();
 
                 // Flush every 1k objects...
                 if (i != 0) {
                     if ((i % 1000) == 0) {
                         LOGGER.log(Level.FINE, "Flushing the data after 1000 serial stores...");
 
-                        insertStmt.executeBatch();
-                        insertStmt.clearBatch();
+                        for (PreparedStatement batch : batches) {
+                            batch.executeBatch();
+                            batch.clearBatch();
+                        }
                     }
                 }
             }
 
-            insertStmt.executeBatch();
+            for (PreparedStatement batch : batches) {
+                batch.executeBatch();
+            }
+
+            transactionsProcessor.dbBackend.getIndexedAttributes().store(transactionsProcessor.dbBackend
+                .getPreparedStatements(), perObjs);
             c.setAutoCommit(true);
+            // The new partitions can only be used by the reads once committed
+            partitions.publishPending();
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, null, ex);
+
+            try {
+                c.rollback();
+                c.setAutoCommit(true);
+            } catch (SQLException ex2) {
+                LOGGER.log(Level.SEVERE, null, ex2);
+            }
+
+            partitions.discardPending();
         }
     }
-}
\ No newline at end of file
+}
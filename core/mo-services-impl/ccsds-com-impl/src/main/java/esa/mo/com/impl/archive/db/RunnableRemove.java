@@ -3,6 +3,8 @@ package esa.mo.com.impl.archive.db;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 
 import org.ccsds.moims.mo.mal.structures.LongList;
@@ -41,25 +43,43 @@ final class RunnableRemove implements Runnable {
             PreparedStatement deleteStmt = transactionsProcessor.dbBackend.getPreparedStatements()
                 .getDeleteCOMObjects();
 
+            // The objects can also be in the time partitions of the object type
+            List<PreparedStatement> batches = new ArrayList<>();
+            batches.add(deleteStmt);
+
+            for (ArchivePartitions.Partition partition : transactionsProcessor.dbBackend.getPartitions()
+                .getPartitions(objTypeId)) {
+                batches.add(partition.getDelete(c));
+            }
+
             // Generate the object Ids if needed and the persistence objects to be removed
             for (int i = 0; i < objIds.size(); i++) {
-                deleteStmt.setInt(1, objTypeId);
-                deleteStmt.setInt(2, domainId);
-                deleteStmt.setLong(3, objIds.get(i));
-                deleteStmt.addBatch();
+                for (PreparedStatement batch : batches) {
+                    batch.setInt(1, objTypeId);
+                    batch.setInt(2, domainId);
+                    batch.setLong(3, objIds.get(i));
+                    batch.addBatch();
+                }
 
                 // Flush every 1k objects...
                 if (i != 0) {
                     if ((i % 1000) == 0) {
                         TransactionsProcessor.LOGGER.log(Level.FINE, "Flushing the data after 1000 serial stores...");
 
-                        deleteStmt.executeBatch();
-                        deleteStmt.clearBatch();
+                        for (PreparedStatement batch : batches) {
+                            batch.executeBatch();
+                            batch.clearBatch();
+                        }
                     }
                 }
             }
 
-            deleteStmt.executeBatch();
+            for (PreparedStatement batch : batches) {
+                batch.executeBatch();
+            }
+
+            transactionsProcessor.dbBackend.getIndexedAttributes().delete(transactionsProcessor.dbBackend
+                .getPreparedStatements(), objTypeId, domainId, objIds);
             c.setAutoCommit(true);
         } catch (SQLException ex) {
             TransactionsProcessor.LOGGER.log(Level.SEVERE, null, ex);
@@ -4,6 +4,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.logging.Level;
 
 import esa.mo.com.impl.archive.entities.COMObjectEntity;
@@ -36,39 +38,43 @@ final class RunnableUpdate implements Runnable {
             c.setAutoCommit(false);
 
             PreparedStatement update = transactionsProcessor.dbBackend.getPreparedStatements().getUpdateCOMObjects();
+            ArchivePartitions partitions = transactionsProcessor.dbBackend.getPartitions();
+
+            // The updated objects stay where they are, so the time partitions
+            // that can contain the object type are updated as well
+            Set<PreparedStatement> batches = new LinkedHashSet<>();
+            batches.add(update);
 
             // Generate the object Ids if needed and the persistence objects to be removed
             for (int i = 0; i < newObjs.size(); i++) {
                 COMObjectEntity obj = newObjs.get(i);
-                update.setObject(1, obj.getObjectTypeId());
-                update.setObject(2, obj.getObjectId());
-                update.setObject(3, obj.getDomainId());
-                update.setObject(4, obj.getNetwork());
-                update.setObject(5, obj.getObjectEncoded());
-                update.setObject(6, obj.getProviderURI());
-                update.setObject(7, obj.getRelatedLink());
-                update.setObject(8, obj.getSourceLink().getDomainId());
-                update.setObject(9, obj.getSourceLink().getObjId());
-                update.setObject(10, obj.getSourceLink().getObjectTypeId());
-                update.setObject(11, obj.getTimestamp().getValue());
-
-                update.setObject(12, newObjs.get(i).getObjectTypeId());
-                update.setObject(13, newObjs.get(i).getDomainId());
-                update.setObject(14, newObjs.get(i).getObjectId());
-                update.addBatch();
+                addUpdate(update, obj);
+
+                for (ArchivePartitions.Partition partition : partitions.getPartitions(obj.getObjectTypeId())) {
+                    PreparedStatement stmt = partition.getUpdate(c);
+                    addUpdate(stmt, obj);
+                    batches.add(stmt);
+                }
 
                 // Flush every 1k objects...
                 if (i != 0) {
                     if ((i % 1000) == 0) {
                         TransactionsProcessor.LOGGER.log(Level.FINE, "Flushing the data after 1000 serial stores...");
 
-                        update.executeBatch();
-                        update.clearBatch();
+                        for (PreparedStatement batch : batches) {
+                            batch.executeBatch();
+                            batch.clearBatch();
+                        }
                     }
                 }
             }
 
-            update.executeBatch();
+            for (PreparedStatement batch : batches) {
+                batch.executeBatch();
+            }
+
+            transactionsProcessor.dbBackend.getIndexedAttributes().store(transactionsProcessor.dbBackend
+                .getPreparedStatements(), newObjs);
             c.setAutoCommit(true);
         } catch (SQLException ex) {
             TransactionsProcessor.LOGGER.log(Level.SEVERE, null, ex);
@@ -79,4 +85,23 @@ final class RunnableUpdate implements Runnable {
             this.transactionsProcessor.generalExecutor.submit(publishEvents);
         }
     }
-}
\ No newline at end of file
+
+    private static void addUpdate(final PreparedStatement update, final COMObjectEntity obj) throws SQLException {
+        update.setObject(1, obj.getObjectTypeId());
+        update.setObject(2, obj.getObjectId());
+        update.setObject(3, obj.getDomainId());
+        update.setObject(4, obj.getNetwork());
+        update.setObject(5, obj.getObjectEncoded());
+        update.setObject(6, obj.getProviderURI());
+        update.setObject(7, obj.getRelatedLink());
+        update.setObject(8, obj.getSourceLink().getDomainId());
+        update.setObject(9, obj.getSourceLink().getObjId());
+        update.setObject(10, obj.getSourceLink().getObjectTypeId());
+        update.setObject(11, obj.getTimestamp().getValue());
+
+        update.setObject(12, obj.getObjectTypeId());
+        update.setObject(13, obj.getDomainId());
+        update.setObject(14, obj.getObjectId());
+        update.addBatch();
+    }
+}
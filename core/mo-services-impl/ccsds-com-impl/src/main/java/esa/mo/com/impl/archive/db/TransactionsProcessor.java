@@ -24,14 +24,21 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
@@ -52,9 +59,21 @@ import esa.mo.com.impl.provider.ArchiveManager;
  * interactions with the database. It includes an optimization for batch stores,
  * basically, if many stores are received sequentially, they will be
  * consolidated and executed in one single transaction.
+ *
+ * If the database backend provides a pool of read-only connections, the reads
+ * are executed on a dedicated executor with one thread per pooled connection,
+ * concurrently with the writes. A read only waits for the writes submitted
+ * before it on the same object types, so it always sees the previous stores,
+ * updates and removals of the objects it reads.
+ *
+ * If the time partitions are enabled, the expired partitions are periodically
+ * dropped by the transactions executor.
  */
 public class TransactionsProcessor {
     public static final Logger LOGGER = Logger.getLogger(TransactionsProcessor.class.getName());
+    private static final long RETENTION_CHECK_PERIOD_S = 60;
+    private static final long ONE_MILLION = 1000000L;
+    private static final long READS_SHUTDOWN_TIMEOUT_S = 10;
     final DatabaseBackend dbBackend;
 
     // This executor is responsible for the interactions with the db
@@ -68,8 +87,28 @@ public class TransactionsProcessor {
         "Archive_GeneralProcessor"));
     private final AtomicBoolean sequencialStoring;
 
+    // This executor is responsible for the reads when the read pool is enabled
+    // Created lazily because the pool size is only known after the db is started
+    private volatile ExecutorService dbReadsExecutor;
+
+    // The writes are numbered in the order they are submitted, which is also the order they
+    // are completed because the transactions executor has a single thread. Guarded by writesLock
+    private long writesSubmitted = 0;
+    private long writesCompleted = 0;
+    // Number of the last write submitted for each object type, and of the last one that can
+    // change any object type. Guarded by writesLock
+    private final Map<Integer, Long> lastWrites = new HashMap<>();
+    private long lastWriteOfAllTypes = 0;
+    private final Object writesLock = new Object();
+
+    // The thread of the transactions executor, set when it executes a write
+    private volatile Thread transactionsThread;
+
     final LinkedBlockingQueue<StoreCOMObjectsContainer> storeQueue;
 
+    // Checks the retention of the time partitions. Null if they are disabled
+    private ScheduledExecutorService retentionScheduler;
+
     public TransactionsProcessor(DatabaseBackend dbBackend) {
         this.dbBackend = dbBackend;
         this.storeQueue = new LinkedBlockingQueue<>();
@@ -85,38 +124,218 @@ public class TransactionsProcessor {
     public Future<?> submitExternalTransactionExecutorTask(final Runnable task) {
         this.sequencialStoring.set(false); // Sequential stores can no longer happen otherwise we break order
 
-        return dbTransactionsExecutor.submit(task);
+        return submitWrite(null, () -> {
+            task.run();
+            return null;
+        });
     }
 
     public <T> Future<T> submitExternalTransactionExecutorTask(final Callable<T> task) {
         this.sequencialStoring.set(false);
 
-        return dbTransactionsExecutor.submit(task);
+        return submitWrite(null, task);
+    }
+
+    /**
+     * Submits a write task to the transactions executor.
+     *
+     * @param objTypeIds The object types that the task can change, or null if
+     * it can change any of them.
+     * @param task The write task.
+     * @return The future of the task.
+     */
+    private <T> Future<T> submitWrite(final Collection<Integer> objTypeIds, final Callable<T> task) {
+        synchronized (writesLock) {
+            writeSubmitted(objTypeIds);
+
+            return dbTransactionsExecutor.submit(() -> {
+                transactionsThread = Thread.currentThread();
+                try {
+                    return task.call();
+                } finally {
+                    writeCompleted();
+                }
+            });
+        }
+    }
+
+    private void executeWrite(final Collection<Integer> objTypeIds, final Runnable task) {
+        synchronized (writesLock) {
+            writeSubmitted(objTypeIds);
+
+            dbTransactionsExecutor.execute(() -> {
+                transactionsThread = Thread.currentThread();
+                try {
+                    task.run();
+                } finally {
+                    writeCompleted();
+                }
+            });
+        }
+    }
+
+    private void writeSubmitted(final Collection<Integer> objTypeIds) {
+        writesSubmitted++;
+
+        if (objTypeIds == null) {
+            lastWriteOfAllTypes = writesSubmitted;
+        } else {
+            for (Integer objTypeId : objTypeIds) {
+                lastWrites.put(objTypeId, writesSubmitted);
+            }
+        }
+    }
+
+    private void writeCompleted() {
+        synchronized (writesLock) {
+            writesCompleted++;
+            writesLock.notifyAll();
+        }
+    }
+
+    /**
+     * Submits a read task. If the read pool is enabled, the task is executed
+     * concurrently with the writes, after the writes submitted so far on the
+     * same object types are completed. Otherwise, it is queued on the
+     * transactions executor.
+     *
+     * @param objTypeIds The object types read by the task.
+     * @param task The read task.
+     * @return The future of the task.
+     * @throws InterruptedException If interrupted while waiting for the
+     * pending writes.
+     */
+    private <T> Future<T> submitRead(final Collection<Integer> objTypeIds, final Callable<T> task)
+        throws InterruptedException {
+        if (Thread.currentThread() == transactionsThread) {
+            // Read from a write task: the previous writes are completed, and
+            // queueing it behind the running task would never complete it
+            FutureTask<T> future = new FutureTask<>(task);
+            future.run();
+            return future;
+        }
+
+        if (!dbBackend.isReadPoolEnabled()) {
+            this.sequencialStoring.set(false); // Sequential stores can no longer happen otherwise we break order
+            return dbTransactionsExecutor.submit(task);
+        }
+
+        synchronized (writesLock) {
+            long dependency = lastWriteOfAllTypes;
+
+            for (Integer objTypeId : objTypeIds) {
+                dependency = Math.max(dependency, lastWrites.getOrDefault(objTypeId, 0L));
+            }
+
+            while (writesCompleted < dependency) {
+                writesLock.wait();
+            }
+        }
+
+        return getReadsExecutor().submit(task);
+    }
+
+    private ExecutorService getReadsExecutor() {
+        if (dbReadsExecutor == null) {
+            synchronized (this) {
+                if (dbReadsExecutor == null) {
+                    dbReadsExecutor = Executors.newFixedThreadPool(dbBackend.getReadPoolSize(),
+                        new DBThreadFactory("Archive_DBReadsProcessor"));
+                }
+            }
+        }
+
+        return dbReadsExecutor;
     }
 
     /**
-     * Resizes the database file to match its contents.
+     * The indexes are created by the transactions executor because the reads
+     * do not have write access to the database.
+     */
+    private void createIndexesIfFirstTime() {
+        if (!dbBackend.isReadPoolEnabled() || dbBackend.isIndexCreated()) {
+            return;
+        }
+
+        submitWrite(Collections.emptyList(), () -> {
+            dbBackend.getAvailability().acquire();
+            try {
+                dbBackend.createIndexesIfFirstTime();
+            } finally {
+                dbBackend.getAvailability().release();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Resizes the database file to match its contents. If the incremental
+     * vacuum is enabled, only the free pages are released, otherwise the
+     * whole file is rewritten.
      */
     public void vacuum() {
         try {
             Connection c = dbBackend.getConnection();
             LOGGER.log(Level.FINE, "Vacuuming database");
             Statement query = c.createStatement();
-            query.executeUpdate("VACUUM");
+            query.execute(dbBackend.isIncrementalVacuum() ? "PRAGMA incremental_vacuum" : "VACUUM");
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Failed to vacuum database", ex);
         }
     }
 
-    public COMObjectEntity getCOMObject(final Integer objTypeId, final Integer domainId, final Long objId) {
+    /**
+     * Starts checking periodically the retention of the time partitions, if
+     * they are enabled.
+     */
+    public synchronized void startRetention() {
+        if (retentionScheduler != null || !dbBackend.getPartitions().isEnabled()) {
+            return;
+        }
+
+        retentionScheduler = Executors.newSingleThreadScheduledExecutor(new DBThreadFactory(
+            "Archive_RetentionProcessor"));
+        retentionScheduler.scheduleWithFixedDelay(this::enforceRetention, 0, RETENTION_CHECK_PERIOD_S,
+            TimeUnit.SECONDS);
+    }
+
+    private void enforceRetention() {
+        final long now = System.currentTimeMillis() * ONE_MILLION;
+
+        if (dbBackend.getPartitions().getExpired(now).isEmpty()) {
+            return;
+        }
+
         this.sequencialStoring.set(false); // Sequential stores can no longer happen otherwise we break order
 
+        executeWrite(null, () -> {
+            try {
+                dbBackend.getAvailability().acquire();
+            } catch (InterruptedException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+                return;
+            }
+
+            try {
+                if (dbBackend.getPartitions().dropExpired(dbBackend.getConnection(), now, dbBackend
+                    .getIndexedAttributes()) != 0) {
+                    vacuum();
+                }
+            } catch (SQLException ex) {
+                LOGGER.log(Level.SEVERE, "Failed to drop the expired partitions", ex);
+            } finally {
+                dbBackend.getAvailability().release();
+            }
+        });
+    }
+
+    public COMObjectEntity getCOMObject(final Integer objTypeId, final Integer domainId, final Long objId) {
         LongList ids = new LongList();
         ids.add(objId);
-        Future<List<COMObjectEntity>> future = dbTransactionsExecutor.submit(new CallableGetCOMObjects(this, ids,
-            domainId, objTypeId));
 
         try {
+            Future<List<COMObjectEntity>> future = submitRead(Collections.singletonList(objTypeId),
+                new CallableGetCOMObjects(this, ids, domainId, objTypeId));
             List<COMObjectEntity> ret = future.get();
             if (ret.size() == 1) {
                 return ret.get(0);
@@ -135,12 +354,31 @@ public class TransactionsProcessor {
     }
 
     public List<COMObjectEntity> getCOMObjects(final Integer objTypeId, final Integer domainId, final LongList ids) {
-        this.sequencialStoring.set(false); // Sequential stores can no longer happen otherwise we break order
+        try {
+            Future<List<COMObjectEntity>> future = submitRead(Collections.singletonList(objTypeId),
+                new CallableGetCOMObjects(this, ids, domainId, objTypeId));
+            return future.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        }
 
-        Future<List<COMObjectEntity>> future = dbTransactionsExecutor.submit(new CallableGetCOMObjects(this, ids,
-            domainId, objTypeId));
+        return null;
+    }
 
+    /**
+     * Returns the newest COM Object of the object type for each of the
+     * related links, in a single query.
+     *
+     * @param objTypeId The object type identifier.
+     * @param domainId The domain identifier.
+     * @param relatedIds The related links, or null for all of them.
+     * @return The newest object of each related link that has objects.
+     */
+    public List<COMObjectEntity> getLatestCOMObjects(final Integer objTypeId, final Integer domainId,
+        final LongList relatedIds) {
         try {
+            Future<List<COMObjectEntity>> future = submitRead(Collections.singletonList(objTypeId),
+                new CallableGetLatestCOMObjects(this, relatedIds, domainId, objTypeId));
             return future.get();
         } catch (InterruptedException | ExecutionException ex) {
             LOGGER.log(Level.SEVERE, null, ex);
@@ -150,17 +388,16 @@ public class TransactionsProcessor {
     }
 
     public List<COMObjectEntity> getAllCOMObjects(final Integer objTypeId, final Integer domainId) {
-        this.sequencialStoring.set(false); // Sequential stores can no longer happen otherwise we break order
-
         IntegerList types = new IntegerList();
         types.add(objTypeId);
         IntegerList domains = new IntegerList();
         domains.add(domainId);
         ArchiveQuery archiveQuery = new ArchiveQuery(null, null, null, 0L, null, null, null, null, null);
         CallableSelectQuery query = new CallableSelectQuery(this, types, archiveQuery, domains, null, null, null, null);
-        Future<ArrayList<COMObjectEntity>> future = dbTransactionsExecutor.submit(query);
+        this.createIndexesIfFirstTime();
 
         try {
+            Future<ArrayList<COMObjectEntity>> future = submitRead(types, query);
             return future.get();
         } catch (InterruptedException | ExecutionException ex) {
             LOGGER.log(Level.SEVERE, null, ex);
@@ -170,12 +407,9 @@ public class TransactionsProcessor {
     }
 
     public LongList getAllCOMObjectsIds(final Integer objTypeId, final Integer domainId) {
-        this.sequencialStoring.set(false); // Sequential stores can no longer happen otherwise we break order
-
-        Future<LongList> future = dbTransactionsExecutor.submit(new CallableGetAllCOMObjectIds(this, domainId,
-            objTypeId));
-
         try {
+            Future<LongList> future = submitRead(Collections.singletonList(objTypeId),
+                new CallableGetAllCOMObjectIds(this, domainId, objTypeId));
             return future.get();
         } catch (InterruptedException | ExecutionException ex) {
             LOGGER.log(Level.SEVERE, null, ex);
@@ -196,32 +430,32 @@ public class TransactionsProcessor {
             Logger.getLogger(ArchiveManager.class.getName()).log(Level.SEVERE, "Something went wrong...", ex);
         }
 
-        dbTransactionsExecutor.execute(new RunnableInsert(this, publishEvents));
+        executeWrite(getObjectTypeIds(perObjs), new RunnableInsert(this, publishEvents));
     }
 
     public void remove(final Integer objTypeId, final Integer domainId, final LongList objIds,
         final Runnable publishEvents) {
         this.sequencialStoring.set(false); // Sequential stores can no longer happen otherwise we break order
 
-        dbTransactionsExecutor.execute(new RunnableRemove(this, publishEvents, objTypeId, domainId, objIds));
+        executeWrite(Collections.singletonList(objTypeId), new RunnableRemove(this, publishEvents, objTypeId,
+            domainId, objIds));
     }
 
     public void update(final ArrayList<COMObjectEntity> newObjs, final Runnable publishEvents) {
         this.sequencialStoring.set(false); // Sequential stores can no longer happen otherwise we break order
 
-        dbTransactionsExecutor.execute(new RunnableUpdate(this, publishEvents, newObjs));
+        executeWrite(getObjectTypeIds(newObjs), new RunnableUpdate(this, publishEvents, newObjs));
     }
 
     public ArrayList<COMObjectEntity> query(final IntegerList objTypeIds, final ArchiveQuery archiveQuery,
         final IntegerList domainIds, final Integer providerURIId, final Integer networkId,
         final SourceLinkContainer sourceLink, final QueryFilter filter) {
-        this.sequencialStoring.set(false); // Sequential stores can no longer happen otherwise we break order
         final CallableSelectQuery task = new CallableSelectQuery(this, objTypeIds, archiveQuery, domainIds,
             providerURIId, networkId, sourceLink, filter);
-
-        Future<ArrayList<COMObjectEntity>> future = dbTransactionsExecutor.submit(task);
+        this.createIndexesIfFirstTime();
 
         try {
+            Future<ArrayList<COMObjectEntity>> future = submitRead(objTypeIds, task);
             return future.get();
         } catch (InterruptedException | ExecutionException ex) {
             LOGGER.log(Level.SEVERE, null, ex);
@@ -237,7 +471,7 @@ public class TransactionsProcessor {
         final CallableDeleteQuery task = new CallableDeleteQuery(this, objTypeIds, archiveQuery, domainIds,
             providerURIId, networkId, sourceLink, filter);
 
-        Future<Integer> future = dbTransactionsExecutor.submit(task);
+        Future<Integer> future = submitWrite(objTypeIds, task);
 
         try {
             return future.get();
@@ -250,7 +484,7 @@ public class TransactionsProcessor {
 
     public void resetMainTable(final Callable<?> task) {
         this.sequencialStoring.set(false); // Sequential stores can no longer happen otherwise we break order
-        Future<?> f = dbTransactionsExecutor.submit(task);
+        Future<?> f = submitWrite(null, task);
         LOGGER.info("Reset table submitted!");
 
         try {
@@ -263,13 +497,63 @@ public class TransactionsProcessor {
 
     public void stopInteractions(final Callable<?> task) {
         this.sequencialStoring.set(false); // Sequential stores can no longer happen otherwise we break order
-        Future<?> future = dbTransactionsExecutor.submit(task);
+
+        synchronized (this) {
+            if (retentionScheduler != null) {
+                retentionScheduler.shutdownNow();
+                retentionScheduler = null;
+            }
+        }
+
+        Future<?> future = submitWrite(null, task);
 
         try {
             future.get();
         } catch (InterruptedException | ExecutionException ex) {
             LOGGER.log(Level.SEVERE, null, ex);
         }
+
+        stopReads();
+    }
+
+    /**
+     * Waits for the reads in progress, stops the reads executor and closes the
+     * connections of the read pool. The next reads share the main connection.
+     */
+    private void stopReads() {
+        final ExecutorService executor;
+
+        synchronized (this) {
+            executor = dbReadsExecutor;
+            dbReadsExecutor = null;
+        }
+
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(READS_SHUTDOWN_TIMEOUT_S, TimeUnit.SECONDS)) {
+                    LOGGER.log(Level.WARNING, "The COM Archive reads did not complete in {0} seconds",
+                        READS_SHUTDOWN_TIMEOUT_S);
+                }
+            } catch (InterruptedException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        dbBackend.stopReadPool();
+    }
+
+    private static List<Integer> getObjectTypeIds(final List<COMObjectEntity> objs) {
+        List<Integer> objTypeIds = new ArrayList<>();
+
+        for (COMObjectEntity obj : objs) {
+            if (!objTypeIds.contains(obj.getObjectTypeId())) {
+                objTypeIds.add(obj.getObjectTypeId());
+            }
+        }
+
+        return objTypeIds;
     }
 
     /**
@@ -145,6 +145,17 @@ public class BinaryDecoder extends GENDecoder {
         return Arrays.copyOfRange(dSourceBuffer.buf.buf, dSourceBuffer.buf.offset, dSourceBuffer.buf.contentLength);
     }
 
+    /**
+     * Checks if there is still data to be decoded. For stream based decoders,
+     * it returns false once the end of the stream is reached.
+     *
+     * @return true if there is data remaining.
+     * @throws MALException if there is an error reading from the stream
+     */
+    public boolean hasRemainingEncodedData() throws MALException {
+        return ((BinaryBufferHolder) sourceBuffer).buf.hasRemaining();
+    }
+
     /**
      * Internal class that is used to hold the byte buffer. Derived classes should extend this (and replace it in the
      * constructors) if they encode the fields differently from this encoding.
@@ -378,7 +389,7 @@ public class BinaryDecoder extends GENDecoder {
 
                         // this either shifts the existing contents to the start of the old buffer, or copies it into the new buffer
                         // NOTE: this is faster than System.arraycopy, as that performs argument type checks
-                        if (existingContentRemaining >= 0)
+                        if (existingContentRemaining > 0)
                             System.arraycopy(this.buf, this.offset + 0, destBuf, 0, existingContentRemaining);
 
                         // the start of the data in the buffer has moved to zero now
@@ -388,16 +399,19 @@ public class BinaryDecoder extends GENDecoder {
                     }
 
                     try {
-                        // read into the empty space of the buffer
-                        LOGGER.log(Level.FINER, "Reading from input stream: {0}", (existingBufferLength -
-                            this.contentLength));
-                        final int read = inputStream.read(this.buf, this.contentLength, existingBufferLength -
-                            this.contentLength);
-                        LOGGER.log(Level.FINER, "Read from input stream: {0}", read);
-                        if (read < 0) {
-                            throw new MALException("Unable to read required amount from source stream: end of file.");
+                        // read into the empty space of the buffer, until the required data is loaded
+                        // because streams such as the compressed ones can return less than requested
+                        while (this.contentLength - this.offset < requiredLength) {
+                            LOGGER.log(Level.FINER, "Reading from input stream: {0}", (existingBufferLength -
+                                this.contentLength));
+                            final int read = inputStream.read(this.buf, this.contentLength, existingBufferLength -
+                                this.contentLength);
+                            LOGGER.log(Level.FINER, "Read from input stream: {0}", read);
+                            if (read < 0) {
+                                throw new MALException("Unable to read required amount from source stream: end of file.");
+                            }
+                            this.contentLength += read;
                         }
-                        this.contentLength += read;
                     } catch (IOException ex) {
                         throw new MALException("Unable to read required amount from source stream", ex);
                     }
@@ -405,6 +419,49 @@ public class BinaryDecoder extends GENDecoder {
             }
         }
 
+        /**
+         * Checks if there is still data to be decoded, reading from the input
+         * stream (if we are stream based) if needed.
+         *
+         * @return true if there is data remaining.
+         * @throws MALException if there is an error reading from the stream
+         */
+        public boolean hasRemaining() throws MALException {
+            if (this.contentLength > this.offset) {
+                return true;
+            }
+
+            if (null == inputStream) {
+                return false;
+            }
+
+            // nothing is loaded, so the data can be read from the start of the buffer
+            if (forceRealloc || null == this.buf) {
+                bufferRealloced((null == this.buf) ? 0 : this.buf.length);
+                this.buf = new byte[BLOCK_SIZE];
+            }
+
+            this.offset = 0;
+            this.contentLength = 0;
+
+            try {
+                int read = 0;
+
+                while (read == 0) {
+                    read = inputStream.read(this.buf, 0, this.buf.length);
+                }
+
+                if (read < 0) {
+                    return false;
+                }
+
+                this.contentLength = read;
+                return true;
+            } catch (IOException ex) {
+                throw new MALException("Unable to read from source stream", ex);
+            }
+        }
+
         /**
          * Returns the internal byte buffer.
          *
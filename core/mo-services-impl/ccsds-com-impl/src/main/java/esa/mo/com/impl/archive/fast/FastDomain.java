@@ -28,7 +28,6 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.mal.structures.IdentifierList;
@@ -77,39 +76,21 @@ public class FastDomain extends FastIndex<IdentifierList> {
             Logger.getLogger(FastDomain.class.getName()).log(Level.SEVERE, null, ex);
         }
 
-        uniqueId = new AtomicInteger(max);
+        uniqueId.set(max);
         dbBackend.getAvailability().release();
     }
 
-    private Integer addNewDomain(final IdentifierList domain) {
-        final int domainId = uniqueId.incrementAndGet();
-        this.fastID.put(domain, domainId);
-        this.fastIDreverse.put(domainId, domain);
-
-        try {
-            dbBackend.getAvailability().acquire();
-        } catch (InterruptedException ex) {
-            Logger.getLogger(FastDomain.class.getName()).log(Level.SEVERE, null, ex);
-        }
-
-        try {
-            insertStmt.setObject(1, domainId);
-            insertStmt.setObject(2, HelperMisc.domain2domainId(domain));
-            insertStmt.execute();
-        } catch (SQLException ex) {
-            Logger.getLogger(FastDomain.class.getName()).log(Level.SEVERE, null, ex);
-        }
-
-        dbBackend.getAvailability().release();
-        return domainId;
+    @Override
+    protected Object toDatabaseValue(final IdentifierList domain) {
+        return HelperMisc.domain2domainId(domain);
     }
 
-    public synchronized Integer getDomainId(final IdentifierList domain) {
+    public Integer getDomainId(final IdentifierList domain) {
         final Integer id = this.fastID.get(domain);
-        return (id == null) ? this.addNewDomain(domain) : id;
+        return (id == null) ? this.addNewEntry(domain) : id;
     }
 
-    public synchronized IntegerList getDomainIds(final IdentifierList inputDomain) {
+    public IntegerList getDomainIds(final IdentifierList inputDomain) {
         final IntegerList ids = new IntegerList();
 
         if (inputDomain == null) {
@@ -128,14 +109,13 @@ public class FastDomain extends FastIndex<IdentifierList> {
                 }
             }
         } else {
-            final Integer id = this.fastID.get(inputDomain);
-            ids.add((id == null) ? this.addNewDomain(inputDomain) : id);
+            ids.add(this.getDomainId(inputDomain));
         }
 
         return ids;
     }
 
-    public synchronized IdentifierList getDomain(Integer key) throws Exception {
+    public IdentifierList getDomain(Integer key) throws Exception {
         return super.getValue(key);
     }
 
@@ -25,7 +25,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -44,13 +44,11 @@ public abstract class FastIndex<T> {
     protected PreparedStatement insertStmt;
 
     protected final DatabaseBackend dbBackend;
-    protected AtomicInteger uniqueId = new AtomicInteger(0);
-    protected HashMap<T, Integer> fastID;
-    protected HashMap<Integer, T> fastIDreverse;
+    protected final AtomicInteger uniqueId = new AtomicInteger(0);
+    protected final ConcurrentHashMap<T, Integer> fastID = new ConcurrentHashMap<>();
+    protected final ConcurrentHashMap<Integer, T> fastIDreverse = new ConcurrentHashMap<>();
 
     public FastIndex(final DatabaseBackend dbBackend, String table) {
-        this.fastID = new HashMap<>();
-        this.fastIDreverse = new HashMap<>();
         this.dbBackend = dbBackend;
 
         QUERY_DELETE = "DELETE FROM " + table;
@@ -87,22 +85,22 @@ public abstract class FastIndex<T> {
             LOGGER.log(Level.SEVERE, null, ex);
         }
 
-        uniqueId = new AtomicInteger(max);
+        uniqueId.set(max);
         dbBackend.getAvailability().release();
     }
 
-    public synchronized boolean exists(final T value) {
+    public boolean exists(final T value) {
         return (this.fastID.get(value) != null);
     }
 
-    public synchronized boolean exists(final Integer key) {
+    public boolean exists(final Integer key) {
         return (this.fastIDreverse.get(key) != null);
     }
 
     public synchronized void resetTable() {
-        this.fastID = new HashMap<>();
-        this.fastIDreverse = new HashMap<>();
-        uniqueId = new AtomicInteger(0);
+        this.fastID.clear();
+        this.fastIDreverse.clear();
+        uniqueId.set(0);
 
         try {
             Connection c = dbBackend.getConnection();
@@ -112,7 +110,7 @@ public abstract class FastIndex<T> {
         }
     }
 
-    public synchronized T getValue(final Integer key) throws Exception {
+    public T getValue(final Integer key) throws Exception {
         final T value = this.fastIDreverse.get(key);
 
         if (value == null) {
@@ -122,7 +120,7 @@ public abstract class FastIndex<T> {
         return value;
     }
 
-    public synchronized Integer getKey(final T value) throws Exception {
+    public Integer getKey(final T value) throws Exception {
         final Integer key = this.fastID.get(value);
 
         if (key == null) {
@@ -132,10 +130,24 @@ public abstract class FastIndex<T> {
         return key;
     }
 
+    /**
+     * Adds a new value to the table, unless another thread added it first.
+     * The database is not accessed while holding a lock of the maps, because
+     * the thread releasing the database might be resetting the table.
+     *
+     * @param value the new value
+     * @return the key of the value
+     */
     public Integer addNewEntry(final T value) {
         final int key = uniqueId.incrementAndGet();
-        this.fastID.put(value, key);
+        // The reverse entry goes first, so the key can be resolved as soon as it is visible
         this.fastIDreverse.put(key, value);
+        final Integer existingKey = this.fastID.putIfAbsent(value, key);
+
+        if (existingKey != null) { // Lost the race, the new key is left unused
+            this.fastIDreverse.remove(key);
+            return existingKey;
+        }
 
         try {
             dbBackend.getAvailability().acquire();
@@ -145,7 +157,7 @@ public abstract class FastIndex<T> {
 
         try {
             insertStmt.setObject(1, key);
-            insertStmt.setObject(2, value);
+            insertStmt.setObject(2, toDatabaseValue(value));
             insertStmt.execute();
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, null, ex);
@@ -155,4 +167,14 @@ public abstract class FastIndex<T> {
         return key;
     }
 
+    /**
+     * Converts a value to the representation stored in the table.
+     *
+     * @param value the value
+     * @return the value to be stored
+     */
+    protected Object toDatabaseValue(final T value) {
+        return value;
+    }
+
 }
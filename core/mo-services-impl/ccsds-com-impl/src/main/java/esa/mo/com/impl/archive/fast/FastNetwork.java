@@ -35,12 +35,12 @@ public class FastNetwork extends FastIndex<String> {
         super(dbBackend, TABLE_NAME);
     }
 
-    public synchronized Integer getNetworkId(final Identifier network) {
+    public Integer getNetworkId(final Identifier network) {
         final Integer id = this.fastID.get(network.getValue());
         return (id == null) ? this.addNewEntry(network.getValue()) : id;
     }
 
-    public synchronized Identifier getNetwork(final Integer id) throws Exception {
+    public Identifier getNetwork(final Integer id) throws Exception {
         final String network = this.fastIDreverse.get(id);
 
         if (network == null) {
@@ -25,82 +25,67 @@ import esa.mo.com.impl.archive.db.TransactionsProcessor;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Allows fast generation of object instance identifiers and only check the
- * database when it is necessary.
+ * database when it is necessary. The identifiers are generated by a counter
+ * per object type and domain, so concurrent inserts do not block each other.
  */
 public class FastObjId {
     private final DatabaseBackend dbBackend;
-    private HashMap<Key, Long> fastID;
+    private final ConcurrentHashMap<Key, AtomicLong> fastID;
 
     public FastObjId(final DatabaseBackend dbBackend) {
         this.dbBackend = dbBackend;
-        this.fastID = new HashMap<>();
+        this.fastID = new ConcurrentHashMap<>();
     }
 
-    public synchronized void resetFastIDs() {
-        this.fastID = new HashMap<>();
+    public void resetFastIDs() {
+        this.fastID.clear();
     }
 
-    private Long newUniqueID(final Integer objectTypeId, final Integer domain) {
-        Long objId = (this.getCurrentID(objectTypeId, domain));
-        if (objId == null) {
-            return null;
-        }
-
-        objId++;
-        this.setUniqueID(objectTypeId, domain, objId);
-
-        return objId;
+    public void delete(final Integer objectTypeId, final Integer domain) {
+        this.fastID.remove(new Key(objectTypeId, domain));
     }
 
-    private void setUniqueIdIfLatest(final Integer objectTypeId, final Integer domain, final Long objId) {
+    /**
+     * Gets the counter of the object ids of an object type in a domain. The
+     * database is queried the first time the combination is requested.
+     */
+    private AtomicLong getCounter(final Integer objectTypeId, final Integer domain) {
         final Key key = new Key(objectTypeId, domain);
-        final Long currentObjId = this.getCurrentID(objectTypeId, domain);
-
-        if (currentObjId == null) {
-            this.fastID.put(key, objId);
-            return;
-        }
+        final AtomicLong counter = this.fastID.get(key);
 
-        if (objId > currentObjId) {
-            this.fastID.put(key, objId);
+        // Did we request this objType+domain combination before?! If so, return its counter
+        if (counter != null) {
+            return counter;
         }
-    }
-
-    private void setUniqueID(final Integer objectTypeId, final Integer domain, final Long objId) {
-        final Key key = new Key(objectTypeId, domain);
-        this.fastID.put(key, objId);
-    }
 
-    public synchronized void delete(final Integer objectTypeId, final Integer domain) {
-        Key key = new Key(objectTypeId, domain);
-        this.fastID.remove(key);
-    }
+        // Well, if not then we must check if this combination already exists in the PU...
+        // The counter is only published once it holds the maximum, so no id is generated twice
+        final long max = this.selectMaxObjId(objectTypeId, domain);
+        final AtomicLong newCounter = new AtomicLong(max);
+        final AtomicLong existingCounter = this.fastID.putIfAbsent(key, newCounter);
 
-    private Long getCurrentID(final Integer objectTypeId, final Integer domain) {
-        final Key key = new Key(objectTypeId, domain);
-        final Long objId = this.fastID.get(key);
+        if (existingCounter == null) {
+            return newCounter;
+        }
 
-        return (objId == null) ? null : objId;
+        existingCounter.accumulateAndGet(max, Math::max);
+        return existingCounter;
     }
 
-    private synchronized Long generateUniqueObjId(final Integer objectTypeId, final Integer domain) {
-        // Did we request this objType+domain combination before?! If so, return the next value
-        Long objId = this.newUniqueID(objectTypeId, domain);
-        if (objId != null) {
-            return objId;
-        }
+    private long selectMaxObjId(final Integer objectTypeId, final Integer domain) {
+        long value = 0;
 
-        // Well, if not then we must check if this combination already exists in the PU...
         try {
             dbBackend.getAvailability().acquire();
         } catch (InterruptedException ex) {
-            Logger.getLogger(FastDomain.class.getName()).log(Level.SEVERE, null, ex);
+            Logger.getLogger(FastObjId.class.getName()).log(Level.SEVERE, null, ex);
         }
 
         try {
@@ -111,27 +96,44 @@ public class FastObjId {
 
             while (rs.next()) {
                 Long maxValue = TransactionsProcessor.convert2Long(rs.getObject(1));
-                long value = (maxValue == null) ? (long) 0 : maxValue;
-                this.setUniqueID(objectTypeId, domain, value);
+                value = (maxValue == null) ? (long) 0 : maxValue;
+                // The objects of the object type can also be in the time partitions
+                value = Math.max(value, dbBackend.getPartitions().selectMaxObjId(dbBackend.getConnection(),
+                    objectTypeId, domain));
             }
         } catch (SQLException ex) {
-            Logger.getLogger(FastDomain.class.getName()).log(Level.SEVERE, null, ex);
+            Logger.getLogger(FastObjId.class.getName()).log(Level.SEVERE, null, ex);
         }
 
         dbBackend.getAvailability().release();
-        return this.newUniqueID(objectTypeId, domain);
+        return value;
     }
 
-    public synchronized Long getUniqueObjId(final Integer objTypeId, final Integer domain, final Long objId) {
+    public Long getUniqueObjId(final Integer objTypeId, final Integer domain, final Long objId) {
         if (objId == 0) { // requirement: 3.4.6.2.5
-            return this.generateUniqueObjId(objTypeId, domain);
+            return this.getCounter(objTypeId, domain).incrementAndGet();
         } else {
             // Check if it is not greater than the current "fast" objId
-            this.setUniqueIdIfLatest(objTypeId, domain, objId);
+            final AtomicLong counter = this.fastID.computeIfAbsent(new Key(objTypeId, domain),
+                key -> new AtomicLong(objId));
+            counter.accumulateAndGet(objId, Math::max);
             return objId;
         }
     }
 
+    /**
+     * Reserves a block of consecutive object ids, for inserting several
+     * objects that all need a generated object id.
+     *
+     * @param objTypeId the object type id
+     * @param domain the domain id
+     * @param count the number of object ids to reserve
+     * @return the first object id of the block
+     */
+    public long reserveUniqueObjIds(final Integer objTypeId, final Integer domain, final int count) {
+        return this.getCounter(objTypeId, domain).getAndAdd(count) + 1;
+    }
+
     private static class Key {
 
         private final Integer objectTypeId;
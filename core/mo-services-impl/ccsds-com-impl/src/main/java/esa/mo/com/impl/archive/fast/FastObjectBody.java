@@ -0,0 +1,257 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.archive.fast;
+
+import esa.mo.com.impl.archive.db.COMObjectEntityPK;
+import esa.mo.com.impl.archive.entities.COMObjectEntity;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.ccsds.moims.mo.mal.structures.Duration;
+import org.ccsds.moims.mo.mal.structures.FineTime;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.mal.structures.Time;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.mal.structures.ULong;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.URI;
+import org.ccsds.moims.mo.mal.structures.UShort;
+
+/**
+ * Holds the decoded bodies of the most recently read COM objects and avoids
+ * decoding the same body over and over again, which makes things go much
+ * faster for the definitions that are constantly looked up.
+ *
+ * The cache is bounded by an estimation of the memory used by the decoded
+ * objects. An entry is only returned if the encoded body it was decoded from
+ * is the same as the one of the requested object.
+ *
+ * The objects returned by getSharedObject are shared between the callers and
+ * must only be read, for instance to encode them in a reply. The objects
+ * returned by getObject belong to the caller: the cached object is only
+ * returned if it is immutable, otherwise the body is decoded again.
+ */
+public class FastObjectBody {
+
+    // The decoded bodies that can be shared with any caller
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(String.class, Boolean.class,
+        Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class, Identifier.class, URI.class,
+        Time.class, FineTime.class, Duration.class, UOctet.class, UShort.class, UInteger.class, ULong.class));
+
+    // Decoded objects take more memory than their binary encoding
+    private static final int DECODED_SIZE_FACTOR = 4;
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final long maxSize;
+    private long currentSize = 0;
+    private final LinkedHashMap<COMObjectEntityPK, Entry> cache;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize The maximum estimated memory in bytes of the cached
+     * objects. 0 disables the cache.
+     */
+    public FastObjectBody(final long maxSize) {
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<>(64, 0.75f, true);
+    }
+
+    /**
+     * Returns the decoded body of a COM object, owned by the caller. It comes
+     * from the cache only if it is immutable.
+     *
+     * @param entity The COM object.
+     * @return The decoded body.
+     */
+    public Object getObject(final COMObjectEntity entity) {
+        final byte[] encoded = entity.getObjectEncoded();
+
+        if (maxSize <= 0 || encoded == null) {
+            return entity.getObject();
+        }
+
+        final Object cached = this.lookup(entity.getPrimaryKey(), encoded);
+
+        if (cached != null && IMMUTABLE_TYPES.contains(cached.getClass())) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        final Object object = entity.getObject();
+
+        // A mutable body is not cached, as it now belongs to the caller
+        if (object != null && IMMUTABLE_TYPES.contains(object.getClass())) {
+            this.put(entity.getPrimaryKey(), new Entry(encoded, object));
+        }
+
+        return object;
+    }
+
+    /**
+     * Returns the decoded body of a COM object, from the cache if possible.
+     * The body is shared with the other callers and must not be modified.
+     *
+     * @param entity The COM object.
+     * @return The decoded body.
+     */
+    public Object getSharedObject(final COMObjectEntity entity) {
+        final byte[] encoded = entity.getObjectEncoded();
+
+        if (maxSize <= 0 || encoded == null) {
+            return entity.getObject();
+        }
+
+        final Object cached = this.lookup(entity.getPrimaryKey(), encoded);
+
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        final Object object = entity.getObject();
+
+        if (object != null) {
+            this.put(entity.getPrimaryKey(), new Entry(encoded, object));
+        }
+
+        return object;
+    }
+
+    private synchronized Object lookup(final COMObjectEntityPK key, final byte[] encoded) {
+        final Entry entry = cache.get(key);
+
+        if (entry != null && (entry.encoded == encoded || Arrays.equals(entry.encoded, encoded))) {
+            return entry.object;
+        }
+
+        return null;
+    }
+
+    private synchronized void put(final COMObjectEntityPK key, final Entry entry) {
+        if (entry.size > maxSize) {
+            return;
+        }
+
+        final Entry previous = cache.put(key, entry);
+
+        if (previous != null) {
+            currentSize -= previous.size;
+        }
+
+        currentSize += entry.size;
+
+        // Evict the least recently used entries
+        Iterator<Map.Entry<COMObjectEntityPK, Entry>> it = cache.entrySet().iterator();
+
+        while (currentSize > maxSize && it.hasNext()) {
+            currentSize -= it.next().getValue().size;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes the cached bodies of the given objects.
+     *
+     * @param objectTypeId The object type id.
+     * @param domainId The domain id.
+     * @param objIds The object instance identifiers.
+     */
+    public synchronized void invalidate(final Integer objectTypeId, final Integer domainId, final LongList objIds) {
+        for (Long objId : objIds) {
+            this.invalidate(objectTypeId, domainId, objId);
+        }
+    }
+
+    /**
+     * Removes the cached body of the given object.
+     *
+     * @param objectTypeId The object type id.
+     * @param domainId The domain id.
+     * @param objId The object instance identifier.
+     */
+    public synchronized void invalidate(final Integer objectTypeId, final Integer domainId, final Long objId) {
+        final Entry entry = cache.remove(new COMObjectEntityPK(objectTypeId, domainId, objId));
+
+        if (entry != null) {
+            currentSize -= entry.size;
+        }
+    }
+
+    /**
+     * Removes all the cached bodies.
+     */
+    public synchronized void invalidateAll() {
+        cache.clear();
+        currentSize = 0;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized int getNumberOfEntries() {
+        return cache.size();
+    }
+
+    public synchronized long getEstimatedSize() {
+        return currentSize;
+    }
+
+    @Override
+    public String toString() {
+        return "FastObjectBody{hits=" + hits.get() + ", misses=" + misses.get() + ", evictions=" + evictions.get() +
+            ", entries=" + getNumberOfEntries() + ", estimatedSize=" + getEstimatedSize() + "}";
+    }
+
+    private static class Entry {
+
+        private final byte[] encoded;
+        private final Object object;
+        private final long size;
+
+        Entry(final byte[] encoded, final Object object) {
+            this.encoded = encoded;
+            this.object = object;
+            this.size = (long) encoded.length * DECODED_SIZE_FACTOR + ENTRY_OVERHEAD;
+        }
+    }
+}
@@ -29,7 +29,6 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.structures.ObjectType;
@@ -77,17 +76,17 @@ public class FastObjectType extends FastIndex<Long> {
             Logger.getLogger(FastObjectType.class.getName()).log(Level.SEVERE, null, ex);
         }
 
-        uniqueId = new AtomicInteger(max);
+        uniqueId.set(max);
         dbBackend.getAvailability().release();
     }
 
-    public synchronized Integer getObjectTypeId(final ObjectType objectType) {
+    public Integer getObjectTypeId(final ObjectType objectType) {
         final Long longObjType = HelperCOM.generateSubKey(objectType);
         final Integer id = this.fastID.get(longObjType);
         return (id == null) ? this.addNewEntry(longObjType) : id;
     }
 
-    public synchronized IntegerList getObjectTypeIds(final ObjectType objectType) {
+    public IntegerList getObjectTypeIds(final ObjectType objectType) {
         final IntegerList ids = new IntegerList();
 
         if (ArchiveManager.objectTypeContainsWildcard(objectType)) {
@@ -108,15 +107,13 @@ public class FastObjectType extends FastIndex<Long> {
                 }
             }
         } else {
-            final Long longObjType = HelperCOM.generateSubKey(objectType);
-            final Integer id = this.fastID.get(longObjType);
-            ids.add((id == null) ? this.addNewEntry(longObjType) : id);
+            ids.add(this.getObjectTypeId(objectType));
         }
 
         return ids;
     }
 
-    public synchronized ObjectType getObjectType(final Integer id) throws Exception {
+    public ObjectType getObjectType(final Integer id) throws Exception {
         final Long objectType = this.fastIDreverse.get(id);
 
         if (objectType == null) {
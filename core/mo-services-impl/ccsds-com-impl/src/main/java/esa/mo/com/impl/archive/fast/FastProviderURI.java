@@ -35,12 +35,12 @@ public class FastProviderURI extends FastIndex<String> {
         super(dbBackend, TABLE_NAME);
     }
 
-    public synchronized Integer getProviderURIId(final URI providerURI) {
+    public Integer getProviderURIId(final URI providerURI) {
         final Integer id = this.fastID.get(providerURI.getValue());
         return (id == null) ? this.addNewEntry(providerURI.getValue()) : id;
     }
 
-    public synchronized URI getProviderURI(final Integer id) throws Exception {
+    public URI getProviderURI(final Integer id) throws Exception {
         final URI providerURI = new URI(this.fastIDreverse.get(id));
 
         if (providerURI == null) {
@@ -20,6 +20,7 @@
  */
 package esa.mo.com.impl.consumer;
 
+import esa.mo.com.impl.sync.Compression;
 import esa.mo.com.impl.sync.Dictionary;
 import esa.mo.com.impl.sync.EncodeDecode;
 import esa.mo.com.impl.util.COMObjectStructure;
@@ -27,6 +28,10 @@ import esa.mo.helpertools.misc.ConsumerServiceImpl;
 import esa.mo.helpertools.connections.SingleConnectionDetails;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.COMHelper;
@@ -52,6 +57,7 @@ public class ArchiveSyncConsumerServiceImpl extends ConsumerServiceImpl {
 
     private ArchiveSyncStub archiveSyncService = null;
     private Dictionary dictionary = new Dictionary();
+    private final Map<Long, PendingTransfer> pendingTransfers = new ConcurrentHashMap<>();
 
     @Override
     public Object generateServiceStub(MALConsumer tmConsumer) {
@@ -106,16 +112,44 @@ public class ArchiveSyncConsumerServiceImpl extends ConsumerServiceImpl {
     }
 
     public ArrayList<COMObjectStructure> retrieveCOMObjects(FineTime from, FineTime until, ObjectTypeList objTypes) {
+        return retrieveCOMObjects(from, until, objTypes, new Identifier(""));
+    }
+
+    /**
+     * Retrieves the COM objects of a range of time from the provider. If the
+     * transfer is interrupted, for example at the end of a pass, null is
+     * returned and the transfer can be resumed later with resumeCOMObjects.
+     *
+     * @param from The start of the range
+     * @param until The end of the range
+     * @param objTypes The object types to retrieve
+     * @param compression The compression of the transfer: "none", "gzip",
+     * "gzip:level", "dictionary" or "dictionary:level". Empty for gzip
+     * @return The COM objects, or null if the transfer failed
+     */
+    public ArrayList<COMObjectStructure> retrieveCOMObjects(FineTime from, FineTime until, ObjectTypeList objTypes,
+        Identifier compression) {
+        final Compression codec;
+
+        try {
+            codec = Compression.parse(compression.getValue());
+        } catch (IllegalArgumentException ex) {
+            Logger.getLogger(ArchiveSyncConsumerServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
+            return null;
+        }
+
         ArchiveSyncGenAdapter adapter = new ArchiveSyncGenAdapter();
         Long iTicket;
 
         try { // Do a retrieve with the correct times
-            iTicket = archiveSyncService.retrieveRange(from, until, objTypes, new Identifier(""), adapter);
+            iTicket = archiveSyncService.retrieveRange(from, until, objTypes, compression, adapter);
         } catch (MALInteractionException | MALException ex) {
             Logger.getLogger(ArchiveSyncConsumerServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
             return null;
         }
 
+        pendingTransfers.put(iTicket, new PendingTransfer(adapter, codec));
+
         // Wait until it is finished...
         boolean unfinished = true;
         long timeout = 1000;
@@ -140,32 +174,68 @@ public class ArchiveSyncConsumerServiceImpl extends ConsumerServiceImpl {
                     missingIndexes.add(adapter.getLastKnownIndex());
                     missingIndexes.add(new UInteger(0));
 
-                    try {
-                        archiveSyncService.retrieveRangeAgain(iTicket, missingIndexes, adapter);
-                    } catch (MALInteractionException | MALException ex1) {
-                        Logger.getLogger(ArchiveSyncConsumerServiceImpl.class.getName()).log(Level.SEVERE, null, ex1);
+                    if (!retrieveAgain(iTicket, missingIndexes)) {
+                        return null;
                     }
                 }
             }
         }
 
+        return completeTransfer(iTicket);
+    }
+
+    /**
+     * Resumes a transfer that was interrupted. The provider sends again the
+     * chunks that were not received, starting from the first one missing.
+     *
+     * @param transferId The transfer id
+     * @return The COM objects, or null if the transfer failed again
+     */
+    public ArrayList<COMObjectStructure> resumeCOMObjects(Long transferId) {
+        final PendingTransfer pending = pendingTransfers.get(transferId);
+
+        if (pending == null) {
+            Logger.getLogger(ArchiveSyncConsumerServiceImpl.class.getName()).log(Level.SEVERE,
+                "Unknown transfer: {0}", transferId);
+            return null;
+        }
+
+        if (!pending.adapter.transactionCompleted()) {
+            // The end of the transfer was not received: everything after the chunks received in order is needed
+            UIntegerList missingIndexes = new UIntegerList();
+            missingIndexes.add(pending.adapter.getFirstMissingIndex());
+            missingIndexes.add(new UInteger(0));
+
+            if (!retrieveAgain(transferId, missingIndexes)) {
+                return null;
+            }
+        }
+
+        return completeTransfer(transferId);
+    }
+
+    /**
+     * Returns the transfers that were interrupted and can be resumed.
+     *
+     * @return The transfer ids
+     */
+    public Set<Long> getPendingTransfers() {
+        return new HashSet<>(pendingTransfers.keySet());
+    }
+
+    private ArrayList<COMObjectStructure> completeTransfer(Long iTicket) {
+        final PendingTransfer pending = pendingTransfers.get(iTicket);
+        final ArchiveSyncGenAdapter adapter = pending.adapter;
+
         // Reretrieve the missing pieces
-        boolean complete = false;
-
-        while (!complete) {
-            if (!adapter.receivedAllChunks()) {
-                // Then we will have to retrieve the missing ones...
-                UIntegerList missingIndexes = adapter.getMissingIndexes();
-                Logger.getLogger(ArchiveSyncConsumerServiceImpl.class.getName()).log(Level.INFO, "Missing {0} chunks.",
-                    missingIndexes.size());
-
-                try {
-                    archiveSyncService.retrieveRangeAgain(iTicket, missingIndexes, adapter);
-                } catch (MALInteractionException | MALException ex1) {
-                    Logger.getLogger(ArchiveSyncConsumerServiceImpl.class.getName()).log(Level.SEVERE, null, ex1);
-                }
-            } else {
-                complete = true;
+        while (!adapter.receivedAllChunks()) {
+            // Then we will have to retrieve the missing ones...
+            UIntegerList missingIndexes = adapter.getMissingIndexes();
+            Logger.getLogger(ArchiveSyncConsumerServiceImpl.class.getName()).log(Level.INFO, "Missing {0} chunks.",
+                missingIndexes.size());
+
+            if (!retrieveAgain(iTicket, missingIndexes)) {
+                return null;
             }
         }
 
@@ -173,17 +243,64 @@ public class ArchiveSyncConsumerServiceImpl extends ConsumerServiceImpl {
         ArrayList<byte[]> chunks = adapter.getReceivedChunks();
 
         ArrayList<COMObjectStructure> objs = EncodeDecode.decodeFromCompressedByteArrayList(chunks, dictionary,
-            archiveSyncService, this.connectionDetails.getDomain());
+            archiveSyncService, this.connectionDetails.getDomain(), pending.compression);
+
+        if (objs == null) {
+            Logger.getLogger(ArchiveSyncConsumerServiceImpl.class.getName()).log(Level.WARNING,
+                "The transfer {0} is incomplete, it can be resumed.", iTicket);
+            return null;
+        }
+
+        pendingTransfers.remove(iTicket);
+        free(iTicket);
+
+        // Profit!
+        return objs;
+    }
 
+    /**
+     * Requests chunks again. If the provider cannot be reached, the transfer
+     * can be resumed later. If the provider cannot send them anymore, the
+     * transfer is aborted.
+     *
+     * @return true if the chunks were requested
+     */
+    private boolean retrieveAgain(Long iTicket, UIntegerList missingIndexes) {
+        try {
+            archiveSyncService.retrieveRangeAgain(iTicket, missingIndexes, pendingTransfers.get(iTicket).adapter);
+            return true;
+        } catch (MALInteractionException ex) {
+            // The provider does not have the missing chunks anymore
+            Logger.getLogger(ArchiveSyncConsumerServiceImpl.class.getName()).log(Level.SEVERE,
+                "The missing chunks could not be retrieved! The sync is aborted.", ex);
+            pendingTransfers.remove(iTicket);
+            free(iTicket);
+        } catch (MALException ex) {
+            Logger.getLogger(ArchiveSyncConsumerServiceImpl.class.getName()).log(Level.WARNING,
+                "The transfer " + iTicket + " was interrupted, it can be resumed.", ex);
+        }
+
+        return false;
+    }
+
+    private void free(Long iTicket) {
         try {
             // Free the data from the provider!
             archiveSyncService.free(iTicket);
         } catch (MALInteractionException | MALException ex) {
             Logger.getLogger(ArchiveSyncConsumerServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
         }
+    }
 
-        // Profit!
-        return objs;
+    private static class PendingTransfer {
+
+        private final ArchiveSyncGenAdapter adapter;
+        private final Compression compression;
+
+        PendingTransfer(final ArchiveSyncGenAdapter adapter, final Compression compression) {
+            this.adapter = adapter;
+            this.compression = compression;
+        }
     }
 
 }
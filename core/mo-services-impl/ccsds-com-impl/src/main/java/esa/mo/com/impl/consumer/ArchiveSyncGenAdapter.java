@@ -23,6 +23,7 @@ package esa.mo.com.impl.consumer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -41,7 +42,7 @@ public class ArchiveSyncGenAdapter extends org.ccsds.moims.mo.com.archivesync.co
     private final Map<Integer, byte[]> receivedChunks;
     private final Semaphore completed;
     //    private Long interactionTicket = null;
-    private UInteger numberOfChunks = null;
+    private volatile UInteger numberOfChunks = null;
     private long lastTimeReceived = 0;
     private long lastknowIndex = 0;
 
@@ -109,7 +110,7 @@ public class ArchiveSyncGenAdapter extends org.ccsds.moims.mo.com.archivesync.co
     }
 
     @Override
-    public void retrieveRangeAgainUpdateReceived(org.ccsds.moims.mo.mal.transport.MALMessageHeader msgHeader,
+    public synchronized void retrieveRangeAgainUpdateReceived(org.ccsds.moims.mo.mal.transport.MALMessageHeader msgHeader,
         org.ccsds.moims.mo.mal.structures.Blob chunk, org.ccsds.moims.mo.mal.structures.UInteger indexReceived,
         java.util.Map qosProperties) {
         int index = (int) indexReceived.getValue();
@@ -153,8 +154,8 @@ public class ArchiveSyncGenAdapter extends org.ccsds.moims.mo.com.archivesync.co
         return (numberOfChunks != null);
     }
 
-    public boolean receivedAllChunks() {
-        long nOfChunks = numberOfChunks.getValue();
+    public synchronized boolean receivedAllChunks() {
+        long nOfChunks = getExpectedNumberOfChunks();
 
         for (int i = 0; i < nOfChunks; i++) {
             if (receivedChunks.get(i) == null) {
@@ -169,9 +170,9 @@ public class ArchiveSyncGenAdapter extends org.ccsds.moims.mo.com.archivesync.co
         return new UInteger(lastknowIndex);
     }
 
-    public UIntegerList getMissingIndexes() {
+    public synchronized UIntegerList getMissingIndexes() {
         UIntegerList missingIndexes = new UIntegerList();
-        long nOfChunks = numberOfChunks.getValue();
+        long nOfChunks = getExpectedNumberOfChunks();
 
         for (int i = 0; i < nOfChunks; i++) {
             if (receivedChunks.get(i) == null) {
@@ -182,8 +183,46 @@ public class ArchiveSyncGenAdapter extends org.ccsds.moims.mo.com.archivesync.co
         return missingIndexes;
     }
 
-    public ArrayList<byte[]> getReceivedChunks() {
-        return new ArrayList<>(receivedChunks.values());
+    public synchronized ArrayList<byte[]> getReceivedChunks() {
+        // The chunks must be in order to be decoded
+        return new ArrayList<>(new TreeMap<>(receivedChunks).values());
+    }
+
+    /**
+     * Returns the number of chunks of the transfer. When the end of the
+     * transfer was not received, it is assumed to end with the highest chunk
+     * received, the decoding detects if it does not.
+     *
+     * @return The number of chunks.
+     */
+    private long getExpectedNumberOfChunks() {
+        if (numberOfChunks != null) {
+            return numberOfChunks.getValue();
+        }
+
+        long highest = -1;
+
+        for (Integer index : receivedChunks.keySet()) {
+            highest = Math.max(highest, index);
+        }
+
+        return highest + 1;
+    }
+
+    /**
+     * Returns the first chunk missing after the ones received in order. The
+     * first chunk is not considered, since it is the last one to be sent.
+     *
+     * @return The index of the first missing chunk.
+     */
+    public synchronized UInteger getFirstMissingIndex() {
+        int index = 1;
+
+        while (receivedChunks.containsKey(index)) {
+            index++;
+        }
+
+        return new UInteger(index);
     }
 
 }
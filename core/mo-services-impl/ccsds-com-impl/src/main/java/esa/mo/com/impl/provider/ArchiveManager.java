@@ -23,24 +23,30 @@ package esa.mo.com.impl.provider;
 import esa.mo.com.impl.archive.db.TransactionsProcessor;
 import esa.mo.com.impl.archive.fast.FastObjId;
 import esa.mo.com.impl.archive.fast.FastDomain;
+import esa.mo.com.impl.util.CompiledCompositeFilter;
 import esa.mo.com.impl.util.HelperCOM;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
-import esa.mo.helpertools.helpers.HelperAttributes;
 import esa.mo.helpertools.misc.Const;
 import esa.mo.com.impl.archive.db.DatabaseBackend;
+import esa.mo.com.impl.archive.db.ArchivePartitions;
+import esa.mo.com.impl.archive.db.IndexedAttributes;
 import esa.mo.com.impl.archive.fast.FastNetwork;
 import esa.mo.com.impl.archive.fast.FastProviderURI;
 import esa.mo.com.impl.archive.db.SourceLinkContainer;
 import esa.mo.com.impl.archive.entities.COMObjectEntity;
 import esa.mo.com.impl.archive.fast.FastObjectType;
+import esa.mo.com.impl.archive.fast.FastObjectBody;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -63,7 +69,6 @@ import org.ccsds.moims.mo.mal.provider.MALInteraction;
 import org.ccsds.moims.mo.mal.structures.Attribute;
 import org.ccsds.moims.mo.mal.structures.Blob;
 import org.ccsds.moims.mo.mal.structures.Composite;
-import org.ccsds.moims.mo.mal.structures.Element;
 import org.ccsds.moims.mo.mal.structures.ElementList;
 import org.ccsds.moims.mo.mal.structures.Enumeration;
 import org.ccsds.moims.mo.mal.structures.Identifier;
@@ -89,9 +94,12 @@ public class ArchiveManager {
     private final FastProviderURI fastProviderURI;
     private final FastObjId fastObjId;
     private final FastObjectType fastObjectType;
+    private final FastObjectBody fastObjectBody;
 
     private EventProviderServiceImpl eventService;
 
+    private final CopyOnWriteArrayList<ObjectChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
     /**
      * Should generate COM Archive events: ObjectStored, ObjectUpdated, ObjectDeleted
      */
@@ -126,6 +134,16 @@ public class ArchiveManager {
         this.fastProviderURI = new FastProviderURI(dbBackend);
         this.fastObjId = new FastObjId(dbBackend);
         this.fastObjectType = new FastObjectType(dbBackend);
+
+        long decodedCacheSize;
+        try {
+            decodedCacheSize = Long.parseLong(System.getProperty(Const.ARCHIVE_DECODED_CACHE_SIZE_PROPERTY,
+                Const.ARCHIVE_DECODED_CACHE_SIZE_DEFAULT));
+        } catch (NumberFormatException ex) {
+            LOGGER.log(Level.WARNING, "Invalid value for " + Const.ARCHIVE_DECODED_CACHE_SIZE_PROPERTY, ex);
+            decodedCacheSize = Long.parseLong(Const.ARCHIVE_DECODED_CACHE_SIZE_DEFAULT);
+        }
+        this.fastObjectBody = new FastObjectBody(decodedCacheSize);
     }
 
     public synchronized void init() {
@@ -138,12 +156,70 @@ public class ArchiveManager {
             fastNetwork.init();
             fastProviderURI.init();
             LOGGER.log(Level.FINE, "The Fast classes are initialized!");
+            initPartitions();
+            initIndexedAttributes();
         });
         try {
             f.get();
         } catch (InterruptedException | ExecutionException e) {
             LOGGER.log(Level.SEVERE, "Failed to init the archive", e);
         }
+
+        this.dbProcessor.startRetention();
+    }
+
+    /**
+     * Configures the retention policies of the time partitions from the system
+     * properties.
+     */
+    private void initPartitions() {
+        final Map<Integer, Long> retentions = new HashMap<>();
+
+        for (Map.Entry<ObjectType, Long> entry : ArchivePartitions.parseRetention(System.getProperty(
+            Const.ARCHIVE_RETENTION_PROPERTY)).entrySet()) {
+            retentions.put(this.fastObjectType.getObjectTypeId(entry.getKey()), entry.getValue());
+        }
+
+        long period;
+        try {
+            period = Long.parseLong(System.getProperty(Const.ARCHIVE_PARTITION_PERIOD_PROPERTY,
+                Const.ARCHIVE_PARTITION_PERIOD_DEFAULT));
+        } catch (NumberFormatException ex) {
+            LOGGER.log(Level.WARNING, "Invalid value for " + Const.ARCHIVE_PARTITION_PERIOD_PROPERTY +
+                ". Using the default: " + Const.ARCHIVE_PARTITION_PERIOD_DEFAULT);
+            period = Long.parseLong(Const.ARCHIVE_PARTITION_PERIOD_DEFAULT);
+        }
+
+        this.dbBackend.getPartitions().setRetention(retentions, period);
+    }
+
+    /**
+     * Configures the indexed attributes from the system property and indexes
+     * the archived objects for the field paths that were not indexed yet.
+     */
+    private void initIndexedAttributes() {
+        final Map<Integer, List<String>> paths = new HashMap<>();
+
+        for (Map.Entry<ObjectType, List<String>> entry : IndexedAttributes.parseConfiguration(System.getProperty(
+            Const.ARCHIVE_INDEXED_ATTRIBUTES_PROPERTY)).entrySet()) {
+            paths.put(this.fastObjectType.getObjectTypeId(entry.getKey()), entry.getValue());
+        }
+
+        this.dbBackend.getIndexedAttributes().setIndexedPaths(paths);
+
+        try {
+            dbBackend.getAvailability().acquire();
+        } catch (InterruptedException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        }
+
+        try {
+            this.dbBackend.getIndexedAttributes().synchronize(dbBackend.getConnection());
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Could not index the attributes of the archived objects", ex);
+        }
+
+        dbBackend.getAvailability().release();
     }
 
     /**
@@ -180,6 +256,9 @@ public class ArchiveManager {
      * objects are being called simultaneously. The Testbeds don't pass without
      * the synchronization.
      *
+     * The reads are not synchronized with it. A read submitted after the wipe
+     * waits for it like for any other write.
+     *
      */
     public synchronized void wipe() {
         LOGGER.info("Reset table triggered!");
@@ -194,21 +273,83 @@ public class ArchiveManager {
             try {
                 Connection c = dbBackend.getConnection();
                 c.createStatement().execute("DELETE FROM COMObjectEntity");
+                dbBackend.getPartitions().dropAll(c);
+                dbBackend.getIndexedAttributes().deleteAll(c);
             } catch (SQLException ex) {
                 Logger.getLogger(TransactionsProcessor.class.getName()).log(Level.SEVERE, null, ex);
             }
 
             fastObjId.resetFastIDs();
+            fastObjectBody.invalidateAll();
             fastDomain.resetTable();
             fastNetwork.resetTable();
             fastProviderURI.resetTable();
             dbBackend.getAvailability().release();
+            notifyObjectsChanged(null, null);
 
             return null;
         });
     }
 
-    public synchronized ArchivePersistenceObject getPersistenceObject(final ObjectType objType,
+    /**
+     * Listens to the objects written to the archive, for instance to
+     * invalidate the definitions cached by a service.
+     */
+    public interface ObjectChangeListener {
+
+        /**
+         * Called once objects stored, updated or deleted are written to the
+         * database.
+         *
+         * @param objType The object type of the objects, or null if all the
+         * objects were deleted.
+         * @param domain The domain of the objects, or null if all the objects
+         * were deleted.
+         */
+        void onObjectsChanged(ObjectType objType, IdentifierList domain);
+    }
+
+    public void addObjectChangeListener(final ObjectChangeListener listener) {
+        this.changeListeners.add(listener);
+    }
+
+    public void removeObjectChangeListener(final ObjectChangeListener listener) {
+        this.changeListeners.remove(listener);
+    }
+
+    private void notifyObjectsChanged(final ObjectType objType, final IdentifierList domain) {
+        for (ObjectChangeListener listener : changeListeners) {
+            try {
+                listener.onObjectsChanged(objType, domain);
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, "The object change listener failed!", ex);
+            }
+        }
+    }
+
+    /**
+     * Returns the task to be run once a write is done: the listeners are
+     * notified, then the events are published.
+     */
+    private Runnable afterWrite(final Runnable publishEvents, final ObjectType objType,
+        final IdentifierList domain) {
+        if (changeListeners.isEmpty()) {
+            return publishEvents;
+        }
+
+        return () -> {
+            notifyObjectsChanged(objType, domain);
+
+            if (publishEvents != null) {
+                publishEvents.run();
+            }
+        };
+    }
+
+    // The reads do not lock the manager. The fast indexes are thread-safe and
+    // the database reads only wait for the writes they depend on, so a large
+    // retrieve does not hold back the stores of insertEntries.
+    public ArchivePersistenceObject getPersistenceObject(final ObjectType objType,
         final IdentifierList domain, final Long objId) {
         final Integer domainId = this.fastDomain.getDomainId(domain);
         final Integer objTypeId = this.fastObjectType.getObjectTypeId(objType);
@@ -218,37 +359,83 @@ public class ArchiveManager {
             return null;
         }
 
-        return this.convert2ArchivePersistenceObject(comEntity, domain, objId);
+        return this.convert2ArchivePersistenceObject(comEntity, domain, objId, false);
     }
 
-    public synchronized List<ArchivePersistenceObject> getPersistenceObjects(final ObjectType objType,
+    public List<ArchivePersistenceObject> getPersistenceObjects(final ObjectType objType,
         final IdentifierList domain, final LongList objIds) {
+        return this.getPersistenceObjects(objType, domain, objIds, false);
+    }
+
+    /**
+     * Returns the COM objects with the given object instance identifiers.
+     *
+     * @param objType The object type.
+     * @param domain The domain.
+     * @param objIds The object instance identifiers.
+     * @param sharedBodies True if the returned bodies can be shared with the
+     * other callers, which is only the case if they are not modified.
+     * @return The objects, null for the ones not found.
+     */
+    List<ArchivePersistenceObject> getPersistenceObjects(final ObjectType objType,
+        final IdentifierList domain, final LongList objIds, final boolean sharedBodies) {
         final Integer domainId = this.fastDomain.getDomainId(domain);
         final Integer objTypeId = this.fastObjectType.getObjectTypeId(objType);
         List<COMObjectEntity> comEntities = this.dbProcessor.getCOMObjects(objTypeId, domainId, objIds);
-        return convert2ArchivePersistenceObjects(comEntities, domain);
+        return convert2ArchivePersistenceObjects(comEntities, domain, sharedBodies);
     }
 
-    public synchronized List<ArchivePersistenceObject> getAllPersistenceObjects(final ObjectType objType,
+    public List<ArchivePersistenceObject> getAllPersistenceObjects(final ObjectType objType,
         final IdentifierList domain) {
+        return this.getAllPersistenceObjects(objType, domain, false);
+    }
+
+    /**
+     * Returns all the COM objects of the object type.
+     *
+     * @param objType The object type.
+     * @param domain The domain.
+     * @param sharedBodies True if the returned bodies can be shared with the
+     * other callers, which is only the case if they are not modified.
+     * @return The objects.
+     */
+    List<ArchivePersistenceObject> getAllPersistenceObjects(final ObjectType objType,
+        final IdentifierList domain, final boolean sharedBodies) {
         final Integer domainId = this.fastDomain.getDomainId(domain);
         final Integer objTypeId = this.fastObjectType.getObjectTypeId(objType);
         List<COMObjectEntity> comEntities = this.dbProcessor.getAllCOMObjects(objTypeId, domainId);
-        return convert2ArchivePersistenceObjects(comEntities, domain);
+        return convert2ArchivePersistenceObjects(comEntities, domain, sharedBodies);
+    }
+
+    /**
+     * Returns the newest object of the object type for each related link,
+     * for instance the last value of each parameter definition.
+     *
+     * @param objType The object type.
+     * @param domain The domain.
+     * @param relatedIds The related links, or null for all of them.
+     * @return The newest object of each related link that has objects.
+     */
+    public List<ArchivePersistenceObject> getLatestPersistenceObjects(final ObjectType objType,
+        final IdentifierList domain, final LongList relatedIds) {
+        final Integer domainId = this.fastDomain.getDomainId(domain);
+        final Integer objTypeId = this.fastObjectType.getObjectTypeId(objType);
+        List<COMObjectEntity> comEntities = this.dbProcessor.getLatestCOMObjects(objTypeId, domainId, relatedIds);
+        return convert2ArchivePersistenceObjects(comEntities, domain, false);
     }
 
     private List<ArchivePersistenceObject> convert2ArchivePersistenceObjects(final List<COMObjectEntity> comEntities,
-        final IdentifierList domain) {
+        final IdentifierList domain, final boolean sharedBodies) {
         if (comEntities == null) {
             return null;
         }
 
         return comEntities.stream().map(entity -> entity == null ? null : convert2ArchivePersistenceObject(entity,
-            domain, entity.getObjectId())).collect(Collectors.toList());
+            domain, entity.getObjectId(), sharedBodies)).collect(Collectors.toList());
     }
 
     private ArchivePersistenceObject convert2ArchivePersistenceObject(final COMObjectEntity comEntity,
-        final IdentifierList domain, final Long objId) {
+        final IdentifierList domain, final Long objId, final boolean sharedBodies) {
         Identifier network = null;
         URI providerURI = null;
         ObjectType objType = null;
@@ -277,7 +464,10 @@ public class ArchiveManager {
         ArchiveDetails archiveDetails = new ArchiveDetails(comEntity.getObjectId(), new ObjectDetails(comEntity
             .getRelatedLink(), objectId), network, comEntity.getTimestamp(), providerURI);
 
-        return new ArchivePersistenceObject(objType, domain, objId, archiveDetails, comEntity.getObject());
+        // The shared bodies come from the cache and must not be modified
+        final Object body = sharedBodies ? this.fastObjectBody.getSharedObject(comEntity) : this.fastObjectBody
+            .getObject(comEntity);
+        return new ArchivePersistenceObject(objType, domain, objId, archiveDetails, body);
     }
 
     public Object getObject(final ObjectType objType, final IdentifierList domain, final Long objId) {
@@ -338,13 +528,18 @@ public class ArchiveManager {
         final int domainId = this.fastDomain.getDomainId(domain);
         final int objTypeId = this.fastObjectType.getObjectTypeId(objType);
 
+        // If all the object Ids are to be generated, they are reserved as a single block
+        long nextObjId = (lArchiveDetails.size() > 1 && allObjIdsGenerated(lArchiveDetails)) ? this.fastObjId
+            .reserveUniqueObjIds(objTypeId, domainId, lArchiveDetails.size()) : 0;
+
         // Generate the object Ids if needed and the persistence objects to be stored
         for (int i = 0; i < lArchiveDetails.size(); i++) {
             final int providerURIId = this.fastProviderURI.getProviderURIId(lArchiveDetails.get(i).getProvider());
             final int networkId = this.fastNetwork.getNetworkId(lArchiveDetails.get(i).getNetwork());
             final SourceLinkContainer sourceLink = this.createSourceContainerFromObjectId(lArchiveDetails.get(i)
                 .getDetails().getSource());
-            final Long objId = this.fastObjId.getUniqueObjId(objTypeId, domainId, lArchiveDetails.get(i).getInstId());
+            final Long objId = (nextObjId != 0) ? nextObjId++ : this.fastObjId.getUniqueObjId(objTypeId, domainId,
+                lArchiveDetails.get(i).getInstId());
 
             // If there are no objects in the list, inject null...
             final Object objBody = (objects == null) ? null : ((objects.get(i) == null) ? null : objects.get(i));
@@ -358,11 +553,20 @@ public class ArchiveManager {
         final Runnable publishEvents = (globalGenerateEvents && generateEvents) ? this.generatePublishEventsThread(
             ArchiveHelper.OBJECTSTORED_OBJECT_TYPE, objType, domain, objIds, interaction) : null;
 
-        this.dbProcessor.insert(perObjsEntities, publishEvents);
+        this.dbProcessor.insert(perObjsEntities, afterWrite(publishEvents, objType, domain));
 
         return objIds;
     }
 
+    private static boolean allObjIdsGenerated(final ArchiveDetailsList lArchiveDetails) {
+        for (ArchiveDetails archiveDetails : lArchiveDetails) {
+            if (archiveDetails.getInstId() != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public void updateEntries(final ObjectType objType, final IdentifierList domain,
         final ArchiveDetailsList lArchiveDetails, final ElementList objects, final MALInteraction interaction) {
         updateEntries(objType, domain, lArchiveDetails, objects, interaction, true);
@@ -398,7 +602,8 @@ public class ArchiveManager {
         Runnable publishEvents = (globalGenerateEvents && generateEvents) ? this.generatePublishEventsThread(
             ArchiveHelper.OBJECTUPDATED_OBJECT_TYPE, objType, domain, objIds, interaction) : null;
 
-        this.dbProcessor.update(newObjs, publishEvents);
+        this.fastObjectBody.invalidate(objTypeId, domainId, objIds);
+        this.dbProcessor.update(newObjs, afterWrite(publishEvents, objType, domain));
     }
 
     public LongList removeEntries(final ObjectType objType, final IdentifierList domain, final LongList objIds,
@@ -413,13 +618,29 @@ public class ArchiveManager {
 
         Runnable publishEvents = (globalGenerateEvents && generateEvents) ? this.generatePublishEventsThread(
             ArchiveHelper.OBJECTDELETED_OBJECT_TYPE, objType, domain, objIds, interaction) : null;
-        this.dbProcessor.remove(objTypeId, domainId, objIds, publishEvents);
+        this.fastObjectBody.invalidate(objTypeId, domainId, objIds);
+        this.dbProcessor.remove(objTypeId, domainId, objIds, afterWrite(publishEvents, objType, domain));
         this.fastObjId.delete(objTypeId, domainId);
         return objIds;
     }
 
     public ArrayList<ArchivePersistenceObject> query(final ObjectType objType, final ArchiveQuery archiveQuery,
         final QueryFilter filter) {
+        return this.query(objType, archiveQuery, filter, false);
+    }
+
+    /**
+     * Queries the COM objects.
+     *
+     * @param objType The object type, possibly with wildcards.
+     * @param archiveQuery The archive query.
+     * @param filter The query filter.
+     * @param sharedBodies True if the returned bodies can be shared with the
+     * other callers, which is only the case if they are not modified.
+     * @return The matching objects.
+     */
+    ArrayList<ArchivePersistenceObject> query(final ObjectType objType, final ArchiveQuery archiveQuery,
+        final QueryFilter filter, final boolean sharedBodies) {
         final ArrayList<COMObjectEntity> perObjs = this.queryCOMObjectEntity(objType, archiveQuery, filter);
 
         // Convert COMObjectEntity to ArchivePersistenceObject
@@ -429,7 +650,7 @@ public class ArchiveManager {
         for (COMObjectEntity perObj : perObjs) {
             try {
                 domain = this.fastDomain.getDomain(perObj.getDomainId());
-                outs.add(this.convert2ArchivePersistenceObject(perObj, domain, perObj.getObjectId()));
+                outs.add(this.convert2ArchivePersistenceObject(perObj, domain, perObj.getObjectId(), sharedBodies));
             } catch (Exception ex) {
                 LOGGER.log(Level.SEVERE, null, ex);
             }
@@ -463,8 +684,12 @@ public class ArchiveManager {
                 }
             }
 
-            return this.dbProcessor.delete(objTypeIds, archiveQuery, domainIds, providerURIId, networkId, sourceLink,
-                filter);
+            // The deleted objects are not known upfront
+            this.fastObjectBody.invalidateAll();
+            final int deleted = this.dbProcessor.delete(objTypeIds, archiveQuery, domainIds, providerURIId, networkId,
+                sourceLink, filter);
+            notifyObjectsChanged(objType, archiveQuery.getDomain());
+            return deleted;
         } else {
             return 0;
         }
@@ -543,6 +768,8 @@ public class ArchiveManager {
             return perObjs;
         }
 
+        // The filters on indexed attributes were already applied in the query, but they only
+        // narrow the candidates, so they are evaluated again here (see IndexedAttributes)
         final CompositeFilterList compositeFilterList = filterSet.getFilters();
         ArrayList<ArchivePersistenceObject> outPerObjs = perObjs;
         ArrayList<ArchivePersistenceObject> tmpPerObjs;
@@ -556,6 +783,9 @@ public class ArchiveManager {
                 continue;
             }
 
+            // The field path and the value are resolved once for all the objects
+            final CompiledCompositeFilter compiledFilter = CompiledCompositeFilter.compile(compositeFilter);
+
             // Cycle the objects
             for (ArchivePersistenceObject outPerObj : outPerObjs) {
                 obj = outPerObj.getObject();
@@ -568,16 +798,14 @@ public class ArchiveManager {
                 // Requirement from the Composite filter: page 57:
                 // For the dots: "If a field is nested, it can use the dot to separate"
                 try {
-                    obj = HelperCOM.getNestedObject(obj, compositeFilter.getFieldName());
+                    obj = compiledFilter.getField(obj);
                 } catch (NoSuchFieldException ex) {
                     // requirement from the Composite filter: page 57
                     // "If the field does not exist in the Composite then the filter shall evaluate to false."
                     continue;
                 }
 
-                Element leftHandSide = (Element) HelperAttributes.javaType2Attribute(obj);
-                Boolean evaluation = HelperCOM.evaluateExpression(leftHandSide, compositeFilter.getType(),
-                    compositeFilter.getFieldValue());
+                Boolean evaluation = compiledFilter.evaluate(obj);
 
                 if (evaluation == null) {
                     continue;
@@ -754,6 +982,10 @@ public class ArchiveManager {
         return fastObjectType;
     }
 
+    public FastObjectBody getFastObjectBody() {
+        return fastObjectBody;
+    }
+
     public DatabaseBackend getDbBackend() {
         return dbBackend;
     }
@@ -23,6 +23,7 @@ package esa.mo.com.impl.provider;
 import esa.mo.com.impl.archive.db.SortByField;
 import esa.mo.com.impl.util.HelperArchive;
 import esa.mo.com.impl.util.HelperCOM;
+import esa.mo.com.impl.util.HelperLocalArchiveRetrieveAdapter;
 import esa.mo.helpertools.connections.ConnectionProvider;
 import esa.mo.helpertools.helpers.HelperMisc;
 import java.util.ArrayList;
@@ -184,11 +185,15 @@ public class ArchiveProviderServiceImpl extends ArchiveInheritanceSkeleton {
         ArchiveDetailsList outArchiveDetailsList = new ArchiveDetailsList();
         ElementList outMatchedObjects = null;
 
+        // The bodies of a remote retrieve are only encoded in the reply, so they
+        // can be shared. A local retrieve hands them over to the caller as they are.
+        final boolean sharedBodies = !(interaction instanceof HelperLocalArchiveRetrieveAdapter) ||
+            ((HelperLocalArchiveRetrieveAdapter) interaction).isReadOnly();
         List<ArchivePersistenceObject> perObjs;
         if (wildcardFound) {
-            perObjs = manager.getAllPersistenceObjects(inObjectType, inDomain);
+            perObjs = manager.getAllPersistenceObjects(inObjectType, inDomain, sharedBodies);
         } else {
-            perObjs = manager.getPersistenceObjects(inObjectType, inDomain, longList);
+            perObjs = manager.getPersistenceObjects(inObjectType, inDomain, longList, sharedBodies);
         }
 
         for (int index = 0; index < perObjs.size(); index++) {  // Let's go one by one in the list
@@ -292,7 +297,7 @@ public class ArchiveProviderServiceImpl extends ArchiveInheritanceSkeleton {
 
             // Query the objects
             // requirement: 3.4.4.2.11 (taken care internally)
-            perObjs = manager.query(lObjectType, tmpArchiveQuery, tmpQueryFilter); // requirement: 3.4.4.2.10
+            perObjs = manager.query(lObjectType, tmpArchiveQuery, tmpQueryFilter, true); // requirement: 3.4.4.2.10
             // requirement: 3.4.4.2.15
 
             if (queryFilterList != null) { // requirement: 3.4.4.2.8
@@ -470,7 +475,7 @@ public class ArchiveProviderServiceImpl extends ArchiveInheritanceSkeleton {
             }
 
             // Query the objects
-            perObjs = manager.query(lObjectType, tmpArchiveQuery, tmpQueryFilter);
+            perObjs = manager.query(lObjectType, tmpArchiveQuery, tmpQueryFilter, true);
 
             if (queryFilterList != null) {
                 if (tmpQueryFilter instanceof CompositeFilterSet) {
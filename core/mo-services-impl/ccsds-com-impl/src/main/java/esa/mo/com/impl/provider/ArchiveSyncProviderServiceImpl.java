@@ -22,9 +22,13 @@ package esa.mo.com.impl.provider;
 
 import esa.mo.com.impl.archive.entities.COMObjectEntity;
 import esa.mo.com.impl.consumer.ArchiveConsumerServiceImpl;
+import esa.mo.com.impl.sync.ChunkOutputStream;
+import esa.mo.com.impl.sync.Compression;
 import esa.mo.com.impl.sync.Dictionary;
 import esa.mo.com.impl.sync.EncodeDecode;
+import esa.mo.com.impl.sync.KeysetPages;
 import esa.mo.com.impl.sync.ToDelete;
+import esa.mo.com.impl.sync.TransferStore;
 import esa.mo.com.impl.util.Quota;
 import esa.mo.helpertools.connections.ConnectionProvider;
 import esa.mo.helpertools.connections.SingleConnectionDetails;
@@ -34,7 +38,6 @@ import org.ccsds.moims.mo.com.COMHelper;
 import org.ccsds.moims.mo.com.archive.consumer.ArchiveAdapter;
 import org.ccsds.moims.mo.com.archive.structures.ArchiveDetailsList;
 import org.ccsds.moims.mo.com.archive.structures.ArchiveQuery;
-import org.ccsds.moims.mo.com.archive.structures.PaginationFilter;
 import org.ccsds.moims.mo.com.archivesync.ArchiveSyncHelper;
 import org.ccsds.moims.mo.com.archivesync.body.GetTimeResponse;
 import org.ccsds.moims.mo.com.archivesync.provider.ArchiveSyncInheritanceSkeleton;
@@ -48,6 +51,7 @@ import org.ccsds.moims.mo.mal.provider.MALProvider;
 import org.ccsds.moims.mo.mal.structures.*;
 import org.ccsds.moims.mo.mal.transport.MALMessageHeader;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.text.MessageFormat;
@@ -69,6 +73,9 @@ public class ArchiveSyncProviderServiceImpl extends ArchiveSyncInheritanceSkelet
 
     private static final long DISPATCHERS_CLEANUP_INTERVAL_IN_MILISECONDS = 600000L; //10 minutes
 
+    // Number of objects fetched from the archive at a time while they are sent
+    private static final int QUERY_PAGE_SIZE = 1000;
+
     private static long timerCounter = 0;
 
     private final ConnectionProvider connection = new ConnectionProvider();
@@ -85,6 +92,13 @@ public class ArchiveSyncProviderServiceImpl extends ArchiveSyncInheritanceSkelet
 
     private final Map<Long, Long> syncTimes = Collections.synchronizedMap(new HashMap<>());
 
+    // The transfer ids stay unique after a restart, since the transfers can be resumed
+    private final AtomicLong transferIds = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private TransferStore transfers = null;
+
+    private long transfersRetention;
+
     private final String timerName;
 
     private ArchiveManager manager;
@@ -143,6 +157,37 @@ public class ArchiveSyncProviderServiceImpl extends ArchiveSyncInheritanceSkelet
                 Const.ARCHIVESYNC_OBJECTS_LIMIT_PROPERTY);
             LOGGER.log(Level.WARNING, msg);
         }
+
+        initTransfers();
+    }
+
+    private void initTransfers() {
+        final String directory = System.getProperty(Const.ARCHIVESYNC_TRANSFERS_DIR_PROPERTY,
+            Const.ARCHIVESYNC_TRANSFERS_DIR_DEFAULT);
+
+        if (directory.isEmpty()) {
+            LOGGER.log(Level.INFO, "The archive sync transfers are not stored, they cannot be resumed.");
+            return;
+        }
+
+        try {
+            transfersRetention = Long.parseLong(System.getProperty(Const.ARCHIVESYNC_TRANSFERS_RETENTION_PROPERTY,
+                Const.ARCHIVESYNC_TRANSFERS_RETENTION_DEFAULT)) * 3600000L;
+        } catch (NumberFormatException ex) {
+            transfersRetention = Long.parseLong(Const.ARCHIVESYNC_TRANSFERS_RETENTION_DEFAULT) * 3600000L;
+            LOGGER.log(Level.WARNING, MessageFormat.format("Error when parsing {0} property. Using the default value",
+                Const.ARCHIVESYNC_TRANSFERS_RETENTION_PROPERTY));
+        }
+
+        transfers = new TransferStore(new File(directory));
+        transfers.purge(transfersRetention);
+
+        try {
+            // The stored transfers and the consumers refer to the word ids of the previous runs
+            transfers.loadDictionary(dictionary);
+        } catch (IOException | NumberFormatException ex) {
+            LOGGER.log(Level.SEVERE, MessageFormat.format(UNEXPECTED_EXCEPTION_0, ex.getMessage()), ex);
+        }
     }
 
     private static synchronized String getTimerName() {
@@ -230,8 +275,21 @@ public class ArchiveSyncProviderServiceImpl extends ArchiveSyncInheritanceSkelet
     @Override
     public void retrieveRange(FineTime from, FineTime until, ObjectTypeList objectTypes, Identifier compression,
         RetrieveRangeInteraction interaction) throws MALInteractionException, MALException {
-        final Dispatcher dispatcher = new Dispatcher(interaction, archive);
-        long interactionTicket = interaction.getInteraction().getMessageHeader().getTransactionId();
+        final Compression codec;
+
+        try {
+            codec = Compression.parse((compression == null) ? null : compression.getValue());
+        } catch (IllegalArgumentException ex) {
+            throw new MALInteractionException(new MALStandardError(COMHelper.INVALID_ERROR_NUMBER, ex.getMessage()));
+        }
+
+        if (transfers != null) {
+            transfers.purge(transfersRetention);
+        }
+
+        // The transfer id is the ticket used by the consumer to resume the transfer
+        long interactionTicket = transferIds.incrementAndGet();
+        final Dispatcher dispatcher = new Dispatcher(interaction, archive, interactionTicket, codec);
         dispatchers.put(interactionTicket, dispatcher);
         final TimerTask timerTask = new CleaningTimerTask(interactionTicket);
         timerTasks.put(interactionTicket, timerTask);
@@ -254,25 +312,23 @@ public class ArchiveSyncProviderServiceImpl extends ArchiveSyncInheritanceSkelet
         archiveQuery.setSortFieldName(null);
         archiveQuery.setSortOrder(true);
 
-        PaginationFilter filter = new PaginationFilter();
-        filter.setLimit(new UInteger(objectsLimit));
-        filter.setOffset(new UInteger(0));
-
-        ArrayList<COMObjectEntity> perObjs = manager.queryCOMObjectEntity(objectTypes, archiveQuery, filter);
-        latestSync = perObjs.isEmpty() ? latestSync : perObjs.get(perObjs.size() - 1).getTimestamp();
+        // The objects are fetched one page at a time while the previous ones are being sent
+        dispatcher.setObjects(new KeysetPages(filter -> manager.queryCOMObjectEntity(objectTypes, archiveQuery,
+            filter), QUERY_PAGE_SIZE, objectsLimit));
+        LOGGER.log(Level.FINE, "Stage 1: the objects are being queried and sent back to the consumer!");
 
-        dispatcher.addObjects(perObjs);
-        LOGGER.log(Level.FINE, "Stage 1: " + perObjs.size() +
-            " objects were queried and are now being sent back to the consumer!");
-
-        syncTimes.put(interactionTicket, latestSync.getValue());
         executor.execute(dispatcher::flushData);
     }
 
     @Override
     public void retrieveRangeAgain(final Long transactionTicket, final UIntegerList missingIndexes,
         final RetrieveRangeAgainInteraction interaction) throws MALInteractionException, MALException {
-        final Dispatcher dispatcher = dispatchers.get(transactionTicket);
+        Dispatcher dispatcher = dispatchers.get(transactionTicket);
+
+        if (null == dispatcher) {
+            // The transfer was interrupted and its dispatcher cleaned, or the provider was restarted
+            dispatcher = resumeDispatcher(transactionTicket);
+        }
 
         if (null == dispatcher) {
             throw new MALInteractionException(new MALStandardError(COMHelper.INVALID_ERROR_NUMBER, null));
@@ -324,6 +380,32 @@ public class ArchiveSyncProviderServiceImpl extends ArchiveSyncInheritanceSkelet
         interaction.sendResponse();
     }
 
+    private Dispatcher resumeDispatcher(final Long transferId) {
+        if (null == transfers) {
+            return null;
+        }
+
+        try {
+            final TransferStore.Transfer transfer = transfers.open(transferId);
+
+            if (null == transfer || !transfer.isComplete()) {
+                return null;
+            }
+
+            final Dispatcher dispatcher = new Dispatcher(archive, transfer);
+            dispatchers.put(transferId, dispatcher);
+            syncTimes.put(transferId, transfer.getSyncTime());
+
+            final String msg = MessageFormat.format("Transfer {0} resumed, {1} chunks in total.", transferId, transfer
+                .getNumberOfChunks());
+            LOGGER.log(Level.INFO, msg);
+            return dispatcher;
+        } catch (IOException | IllegalArgumentException ex) {
+            LOGGER.log(Level.SEVERE, MessageFormat.format(UNEXPECTED_EXCEPTION_0, ex.getMessage()), ex);
+            return null;
+        }
+    }
+
     private void cleanTimerTask(Long transactionTicket, TimerTask timerTask) {
         timerTask.cancel();
         dispatchersCleanupTimer.purge();
@@ -356,7 +438,11 @@ public class ArchiveSyncProviderServiceImpl extends ArchiveSyncInheritanceSkelet
 
     @Override
     public void free(Long transactionTicket, MALInteraction interaction) throws MALInteractionException, MALException {
-        final Dispatcher dispatcher = dispatchers.get(transactionTicket);
+        Dispatcher dispatcher = dispatchers.get(transactionTicket);
+
+        if (null == dispatcher) {
+            dispatcher = resumeDispatcher(transactionTicket);
+        }
 
         if (null == dispatcher) {
             throw new MALInteractionException(new MALStandardError(MALHelper.UNKNOWN_ERROR_NUMBER,
@@ -371,6 +457,10 @@ public class ArchiveSyncProviderServiceImpl extends ArchiveSyncInheritanceSkelet
 
         cleanDispatcher(transactionTicket, dispatcher);
 
+        if (null != transfers) {
+            transfers.delete(transactionTicket);
+        }
+
         Long lastSyncTime = syncTimes.get(transactionTicket);
 
         if (null == lastSyncTime) {
@@ -422,49 +512,128 @@ public class ArchiveSyncProviderServiceImpl extends ArchiveSyncInheritanceSkelet
         }
     }
 
-    private class Dispatcher {
+    private class Dispatcher implements ChunkOutputStream.ChunkListener {
         private final RetrieveRangeInteraction interaction;
 
-        // These chunks are already compressed!
-        private final ArrayList<byte[]> chunksFlushed = new ArrayList<>();
+        private final long transferId;
+
+        private final Compression compression;
+
+        // The chunks stored on disk, null if the transfers are not stored
+        private TransferStore.Transfer transfer = null;
+
+        // These chunks are already compressed! Only the latest ones are kept for retransmission
+        private final Map<Integer, byte[]> chunksFlushed;
 
-        private byte[] dataToFlush = null;
+        // The objects are released as soon as they are encoded
+        private volatile KeysetPages objectsToFlush = null;
+
+        // The first chunk is sent last, once the uncompressed size is known
+        private byte[] firstChunk = null;
 
         private final ArchiveConsumerServiceImpl archive;
 
         private int chunkSize = 200;
 
-        private int numberOfChunks = 0;
+        private int windowSize = 2048;
+
+        private volatile int numberOfChunks = 0;
 
         private boolean purgeArchive;
 
-        Dispatcher(final RetrieveRangeInteraction interaction, ArchiveConsumerServiceImpl archive) {
+        Dispatcher(final RetrieveRangeInteraction interaction, ArchiveConsumerServiceImpl archive,
+            final long transferId, final Compression compression) {
             this.interaction = interaction;
             this.archive = archive;
+            this.transferId = transferId;
+            this.compression = compression;
 
             String chunkSizeParam = System.getProperty(Const.ARCHIVESYNC_CHUNK_SIZE_PROPERTY,
                 Const.ARCHIVESYNC_CHUNK_SIZE_DEFAULT);
 
             try {
-                this.chunkSize = Integer.parseInt(chunkSizeParam);
+                // The first chunk must hold the whole header
+                this.chunkSize = Math.max(EncodeDecode.HEADER_SIZE, Integer.parseInt(chunkSizeParam));
             } catch (NumberFormatException e) {
                 Logger.getLogger(Dispatcher.class.getName()).log(Level.WARNING, MessageFormat.format(
                     "Unexpected NumberFormatException on {0} ! {1}", Const.ARCHIVESYNC_CHUNK_SIZE_PROPERTY, e
                         .getMessage()), e);
             }
 
-            final String msg = MessageFormat.format("{0} = {1}", Const.ARCHIVESYNC_CHUNK_SIZE_PROPERTY, this.chunkSize);
+            String windowParam = System.getProperty(Const.ARCHIVESYNC_WINDOW_PROPERTY,
+                Const.ARCHIVESYNC_WINDOW_DEFAULT);
+
+            try {
+                this.windowSize = Math.max(1, Integer.parseInt(windowParam));
+            } catch (NumberFormatException e) {
+                Logger.getLogger(Dispatcher.class.getName()).log(Level.WARNING, MessageFormat.format(
+                    "Unexpected NumberFormatException on {0} ! {1}", Const.ARCHIVESYNC_WINDOW_PROPERTY, e
+                        .getMessage()), e);
+            }
+
+            final int window = this.windowSize;
+            this.chunksFlushed = new LinkedHashMap<Integer, byte[]>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+                    return size() > window;
+                }
+            };
+
+            final String msg = MessageFormat.format("{0} = {1}, {2} = {3}", Const.ARCHIVESYNC_CHUNK_SIZE_PROPERTY,
+                this.chunkSize, Const.ARCHIVESYNC_WINDOW_PROPERTY, this.windowSize);
             Logger.getLogger(Dispatcher.class.getName()).log(Level.FINE, msg);
             this.purgeArchive = Boolean.parseBoolean(System.getProperty(Const.ARCHIVESYNC_PURGE_ARCHIVE_PROPERTY,
                 Const.ARCHIVESYNC_PURGE_ARCHIVE_DEFAULT));
+
+            if (null != transfers) {
+                try {
+                    this.transfer = transfers.create(transferId, this.chunkSize, compression);
+                } catch (IOException ex) {
+                    LOGGER.log(Level.SEVERE, "The transfer " + transferId + " cannot be resumed!", ex);
+                }
+            }
         }
 
-        private void clear() {
+        /**
+         * Constructor of a dispatcher resuming a stored transfer. Its chunks
+         * are read from the disk.
+         */
+        Dispatcher(ArchiveConsumerServiceImpl archive, final TransferStore.Transfer transfer) {
+            this.interaction = null;
+            this.archive = archive;
+            this.transferId = transfer.getTransferId();
+            this.compression = transfer.getCompression();
+            this.transfer = transfer;
+            this.chunkSize = transfer.getChunkSize();
+            this.numberOfChunks = transfer.getNumberOfChunks();
+            this.chunksFlushed = new LinkedHashMap<>();
+            this.purgeArchive = false;
+        }
+
+        private synchronized void clear() {
+            objectsToFlush = null;
             chunksFlushed.clear();
+            firstChunk = null;
         }
 
-        public byte[] getFlushedChunk(int index) {
-            return chunksFlushed.get(index);
+        public synchronized byte[] getFlushedChunk(int index) throws MALInteractionException {
+            byte[] chunk = (index == 0) ? firstChunk : chunksFlushed.get(index);
+
+            // The first chunk is only stored once complete, the next ones as soon as they are sent
+            if (chunk == null && transfer != null && (index != 0 || numberOfChunks != 0)) {
+                try {
+                    chunk = transfer.readChunk(index);
+                } catch (IOException ex) {
+                    LOGGER.log(Level.SEVERE, MessageFormat.format(UNEXPECTED_EXCEPTION_0, ex.getMessage()), ex);
+                }
+            }
+
+            if (chunk == null) {
+                throw new MALInteractionException(new MALStandardError(COMHelper.INVALID_ERROR_NUMBER,
+                    "The chunk " + index + " is no longer available for retransmission!"));
+            }
+
+            return chunk;
         }
 
         public int numberOfChunks() throws IOException {
@@ -475,28 +644,59 @@ public class ArchiveSyncProviderServiceImpl extends ArchiveSyncInheritanceSkelet
             return numberOfChunks;
         }
 
-        public void addObjects(final List<COMObjectEntity> entities) {
-            dataToFlush = EncodeDecode.encodeToCompressedByteArray(entities, manager, dictionary);
+        public void setObjects(final KeysetPages objects) {
+            objectsToFlush = objects;
         }
 
         public void flushData() {
-            numberOfChunks = dataToFlush.length / chunkSize + (dataToFlush.length % chunkSize != 0 ? 1 : 0);
-            if (numberOfChunks > 0) {
-                byte[] aChunk = new byte[chunkSize];
+            // The chunks are sent while the objects are being queried, encoded and compressed
+            final ChunkOutputStream out = new ChunkOutputStream(chunkSize, this);
+            final KeysetPages pages = objectsToFlush;
+            final Iterator<COMObjectEntity> objects = new Iterator<COMObjectEntity>() {
+                @Override
+                public boolean hasNext() {
+                    // Stops once the dispatcher is cleared
+                    return pages != null && objectsToFlush == pages && pages.hasNext();
+                }
+
+                @Override
+                public COMObjectEntity next() {
+                    return pages.next();
+                }
+            };
+
+            int chunks = 0;
+
+            try {
+                final long uncompressedSize = EncodeDecode.encodeToCompressedStream(objects, manager, dictionary,
+                    compression, out);
+                chunks = out.getNumberOfChunks();
+
+                // The sync time is the timestamp of the last object sent, only known at the end
+                if (pages != null && pages.getLastTimestamp() != null) {
+                    latestSync = pages.getLastTimestamp();
+                }
+                syncTimes.put(transferId, latestSync.getValue());
 
-                for (int i = 0; i < numberOfChunks - (dataToFlush.length % chunkSize != 0 ? 1 : 0); ++i) {
-                    System.arraycopy(dataToFlush, chunkSize * i, aChunk, 0, chunkSize);
-                    sendUpdateToConsumer(i, aChunk);
+                synchronized (this) {
+                    if (firstChunk != null) {
+                        EncodeDecode.setUncompressedSize(firstChunk, uncompressedSize);
+                        storeChunk(0, firstChunk);
+                    }
                 }
 
-                // Flush the last byte array!
-                if (dataToFlush.length % chunkSize != 0) {
-                    byte[] lastChunk = new byte[dataToFlush.length - (numberOfChunks - 1) * chunkSize]; // We need to trim to fit!
-                    System.arraycopy(dataToFlush, chunkSize * (numberOfChunks - 1), lastChunk, 0, lastChunk.length);
-                    sendUpdateToConsumer(numberOfChunks - 1, lastChunk);
+                completeTransfer(chunks);
+
+                if (chunks > 0) {
+                    sendUpdateToConsumer(0, firstChunk);
                 }
+            } catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, MessageFormat.format(UNEXPECTED_EXCEPTION_0, ex.getMessage()), ex);
             }
 
+            numberOfChunks = chunks;
+            syncTimes.putIfAbsent(transferId, latestSync.getValue());
+
             try {
                 interaction.sendResponse(new UInteger(numberOfChunks));
             } catch (MALInteractionException | MALException ex) {
@@ -519,8 +719,54 @@ public class ArchiveSyncProviderServiceImpl extends ArchiveSyncInheritanceSkelet
             }
         }
 
+        @Override
+        public void chunkReady(int index, byte[] chunk) {
+            if (index == 0) {
+                synchronized (this) {
+                    firstChunk = chunk;
+                }
+                return;
+            }
+
+            synchronized (this) {
+                chunksFlushed.put(index, chunk);
+                storeChunk(index, chunk);
+            }
+
+            sendUpdateToConsumer(index, chunk);
+        }
+
+        private void storeChunk(int index, byte[] chunk) {
+            if (null == transfer) {
+                return;
+            }
+
+            try {
+                transfer.writeChunk(index, chunk);
+            } catch (IOException ex) {
+                // The chunks are still retransmitted from the window
+                LOGGER.log(Level.SEVERE, "The transfer " + transferId + " cannot be resumed!", ex);
+                transfer = null;
+            }
+        }
+
+        private synchronized void completeTransfer(int chunks) {
+            if (null == transfer) {
+                return;
+            }
+
+            try {
+                // The dictionary is stored first since the objects refer to its words
+                transfers.saveDictionary(dictionary);
+                final Long syncTime = syncTimes.get(transferId);
+                transfer.complete(chunks, (null == syncTime) ? 0 : syncTime);
+            } catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, "The transfer " + transferId + " cannot be resumed!", ex);
+                transfer = null;
+            }
+        }
+
         public void sendUpdateToConsumer(int index, byte[] aChunk) {
-            chunksFlushed.add(index, aChunk);
             try {
                 interaction.sendUpdate(new Blob(aChunk), new UInteger(index));
             } catch (MALInteractionException | MALException ex) {
@@ -0,0 +1,87 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.sync;
+
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Input stream reading a sequence of chunks one after the other, without
+ * copying them into a single byte array.
+ */
+public class ChunkInputStream extends InputStream {
+
+    private final Iterator<byte[]> chunks;
+    private byte[] current = null;
+    private int position = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param chunks The chunks, in order.
+     */
+    public ChunkInputStream(final Iterable<byte[]> chunks) {
+        this.chunks = chunks.iterator();
+    }
+
+    @Override
+    public int read() {
+        if (!advance()) {
+            return -1;
+        }
+
+        return current[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (!advance()) {
+            return -1;
+        }
+
+        final int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return (current == null) ? 0 : current.length - position;
+    }
+
+    private boolean advance() {
+        while (current == null || position >= current.length) {
+            if (!chunks.hasNext()) {
+                return false;
+            }
+
+            current = chunks.next();
+            position = 0;
+        }
+
+        return true;
+    }
+}
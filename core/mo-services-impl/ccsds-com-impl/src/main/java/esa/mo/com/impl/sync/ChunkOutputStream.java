@@ -0,0 +1,118 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.sync;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Output stream that splits the written bytes into chunks of a fixed size and
+ * hands over each chunk as soon as it is full, so that the data can be sent
+ * while it is still being produced. The last chunk can be smaller and is
+ * handed over when the stream is closed.
+ */
+public class ChunkOutputStream extends OutputStream {
+
+    /**
+     * Receives the chunks in order.
+     */
+    public interface ChunkListener {
+
+        /**
+         * Called when a chunk is complete.
+         *
+         * @param index The index of the chunk, starting at 0.
+         * @param chunk The chunk.
+         */
+        void chunkReady(int index, byte[] chunk);
+    }
+
+    private final byte[] buffer;
+    private final ChunkListener listener;
+    private int count = 0;
+    private int numberOfChunks = 0;
+    private boolean closed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param chunkSize The size of the chunks in bytes.
+     * @param listener The listener receiving the chunks.
+     */
+    public ChunkOutputStream(final int chunkSize, final ChunkListener listener) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be positive");
+        }
+
+        this.buffer = new byte[chunkSize];
+        this.listener = listener;
+    }
+
+    @Override
+    public void write(final int b) {
+        buffer[count++] = (byte) b;
+
+        if (count == buffer.length) {
+            emit();
+        }
+    }
+
+    @Override
+    public void write(final byte[] b, int off, int len) {
+        while (len > 0) {
+            final int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+
+            if (count == buffer.length) {
+                emit();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+
+            if (count != 0) {
+                emit();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of chunks handed over so far.
+     *
+     * @return The number of chunks.
+     */
+    public int getNumberOfChunks() {
+        return numberOfChunks;
+    }
+
+    private void emit() {
+        final byte[] chunk = Arrays.copyOf(buffer, count);
+        count = 0;
+        listener.chunkReady(numberOfChunks++, chunk);
+    }
+}
@@ -0,0 +1,242 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.sync;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * The compression of the archive sync transfers, selected by the consumer
+ * with the compression field of the retrieveRange operation:
+ * <ul>
+ * <li>"none": no compression</li>
+ * <li>"gzip" or "gzip:level": gzip, the default when the field is empty</li>
+ * <li>"dictionary" or "dictionary:level": deflate with a preset dictionary
+ * made of the words of the sync Dictionary, which are repeated in every COM
+ * object</li>
+ * </ul>
+ * The level goes from 0 (no compression, fastest) to 9 (best compression,
+ * slowest).
+ */
+public final class Compression {
+
+    public enum Type {
+        NONE, GZIP, DICTIONARY
+    }
+
+    /**
+     * The compression used when none is selected.
+     */
+    public static final Compression DEFAULT = new Compression(Type.GZIP, Deflater.DEFAULT_COMPRESSION);
+
+    /**
+     * The maximum size of a deflate preset dictionary.
+     */
+    public static final int MAX_PRESET_DICTIONARY_SIZE = 32 * 1024;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Type type;
+    private final int level;
+
+    private Compression(final Type type, final int level) {
+        this.type = type;
+        this.level = level;
+    }
+
+    /**
+     * Parses the compression selected by a consumer.
+     *
+     * @param value The compression, can be null or empty for the default one.
+     * @return The compression.
+     * @throws IllegalArgumentException If the compression is unknown.
+     */
+    public static Compression parse(final String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT;
+        }
+
+        final String[] parts = value.trim().toLowerCase().split(":", 2);
+        int level = Deflater.DEFAULT_COMPRESSION;
+
+        if (parts.length == 2) {
+            try {
+                level = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid compression level: " + value, ex);
+            }
+
+            if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("Invalid compression level: " + value);
+            }
+        }
+
+        switch (parts[0]) {
+            case "none":
+                if (parts.length == 2) {
+                    throw new IllegalArgumentException("No level can be set without compression: " + value);
+                }
+                return new Compression(Type.NONE, Deflater.NO_COMPRESSION);
+            case "gzip":
+                return new Compression(Type.GZIP, level);
+            case "dictionary":
+                return new Compression(Type.DICTIONARY, level);
+            default:
+                throw new IllegalArgumentException("Unknown compression: " + value);
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Whether the compression uses a preset dictionary.
+     *
+     * @return true for the dictionary compression.
+     */
+    public boolean usesDictionary() {
+        return type == Type.DICTIONARY;
+    }
+
+    /**
+     * Wraps an output stream to compress what is written to it. Closing the
+     * returned stream finishes the compression and closes the output stream.
+     *
+     * @param out The output stream.
+     * @param presetDictionary The preset dictionary, only used by the
+     * dictionary compression.
+     * @return The compressing stream.
+     * @throws IOException If the stream could not be written.
+     */
+    public OutputStream compress(final OutputStream out, final byte[] presetDictionary) throws IOException {
+        switch (type) {
+            case NONE:
+                return out;
+            case GZIP:
+                return new GZIPOutputStream(out, BUFFER_SIZE) {
+                    {
+                        def.setLevel(level);
+                    }
+                };
+            default:
+                final Deflater deflater = new Deflater(level);
+
+                if (presetDictionary.length != 0) {
+                    deflater.setDictionary(presetDictionary);
+                }
+
+                return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            deflater.end();
+                        }
+                    }
+                };
+        }
+    }
+
+    /**
+     * Wraps an input stream to decompress what is read from it.
+     *
+     * @param in The input stream.
+     * @param presetDictionary The preset dictionary, only used by the
+     * dictionary compression. It must be the one used for the compression.
+     * @return The decompressing stream.
+     * @throws IOException If the stream could not be read.
+     */
+    public InputStream decompress(final InputStream in, final byte[] presetDictionary) throws IOException {
+        switch (type) {
+            case NONE:
+                return in;
+            case GZIP:
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            default:
+                return new PresetDictionaryInputStream(in, presetDictionary);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final String name = type.name().toLowerCase();
+        return (type == Type.NONE || level == Deflater.DEFAULT_COMPRESSION) ? name : name + ":" + level;
+    }
+
+    /**
+     * Inflater stream that sets the preset dictionary when the compressed
+     * stream asks for it. The inflater checks that the dictionary is the one
+     * used for the compression.
+     */
+    private static class PresetDictionaryInputStream extends InflaterInputStream {
+
+        private final byte[] presetDictionary;
+
+        PresetDictionaryInputStream(final InputStream in, final byte[] presetDictionary) {
+            super(in, new Inflater(), BUFFER_SIZE);
+            this.presetDictionary = presetDictionary;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int n = super.read(b, off, len);
+
+            if (n < 0 && inf.needsDictionary()) {
+                try {
+                    inf.setDictionary(presetDictionary);
+                } catch (IllegalArgumentException ex) {
+                    throw new ZipException("The preset dictionary does not match the compressed stream");
+                }
+
+                return super.read(b, off, len);
+            }
+
+            if (n < 0 && !inf.finished()) {
+                throw new ZipException("Unexpected end of the compressed stream");
+            }
+
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                inf.end();
+            }
+        }
+    }
+}
@@ -20,7 +20,11 @@
  */
 package esa.mo.com.impl.sync;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -55,6 +59,11 @@ public class Dictionary {
     public synchronized void defineWord(final Integer wordId, final String word) {
         this.fastID.put(word, wordId);
         this.fastIDreverse.put(wordId, word);
+
+        // The new words must not reuse the ids that were defined
+        if (wordId > uniqueId.get()) {
+            uniqueId.set(wordId);
+        }
     }
 
     private Integer addNewWord(final String word) {
@@ -78,4 +87,53 @@ public class Dictionary {
 
         return word;
     }
+
+    /**
+     * Returns the number of words assigned by this dictionary. The words have
+     * the ids from 1 to this number.
+     *
+     * @return The highest word id.
+     */
+    public synchronized int getNumberOfWords() {
+        return uniqueId.get();
+    }
+
+    /**
+     * Returns a copy of the words, sorted by id.
+     *
+     * @return The words.
+     */
+    public synchronized Map<Integer, String> getWords() {
+        return new TreeMap<>(this.fastIDreverse);
+    }
+
+    /**
+     * Builds a deflate preset dictionary from the words with the ids from 1 to
+     * numberOfWords. If they do not fit, the words with the highest ids are
+     * kept, at the end of the preset dictionary where deflate finds them
+     * faster.
+     *
+     * @param numberOfWords The number of words.
+     * @param maxLength The maximum size of the preset dictionary.
+     * @return The preset dictionary.
+     * @throws Exception If one of the words is unknown.
+     */
+    public synchronized byte[] getPresetDictionary(final int numberOfWords, final int maxLength) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        for (int id = 1; id <= numberOfWords; id++) {
+            final byte[] word = this.getWord(id).getBytes(StandardCharsets.UTF_8);
+            out.write(word, 0, word.length);
+        }
+
+        final byte[] preset = out.toByteArray();
+
+        if (preset.length <= maxLength) {
+            return preset;
+        }
+
+        final byte[] trimmed = new byte[maxLength];
+        System.arraycopy(preset, preset.length - maxLength, trimmed, 0, maxLength);
+        return trimmed;
+    }
 }
@@ -35,18 +35,22 @@ import org.ccsds.moims.mo.com.structures.ObjectType;
 import org.ccsds.moims.mo.mal.MALContextFactory;
 import org.ccsds.moims.mo.mal.MALElementFactory;
 import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.MALInteractionException;
 import org.ccsds.moims.mo.mal.structures.*;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * Encodes and decodes COM objects to and from bytes.
@@ -57,6 +61,19 @@ public class EncodeDecode {
 
     private static final Logger LOGGER = Logger.getLogger(EncodeDecode.class.getName());
 
+    /**
+     * Size of the header of the compressed streams, holding the uncompressed
+     * size.
+     */
+    public static final int HEADER_SIZE = 4;
+
+    /**
+     * Uncompressed size of a compressed stream whose header was not set.
+     */
+    public static final int UNKNOWN_UNCOMPRESSED_SIZE = -1;
+
+    private static final int BUFFER_SIZE = 8192;
+
     /**
      * Encodes a database COM object to byte array.
      *
@@ -99,19 +116,23 @@ public class EncodeDecode {
             return null;
         }
 
-        int chunkSize = chunks.get(0).length; // We assume all chunks have the same size
-        int totalSize = chunkSize * (chunks.size() - 1) + chunks.get(chunks.size() - 1).length;
-        byte[] bytes = new byte[totalSize];
-
-        for (int i = 0; i < totalSize; i++) {
-            int slot = i % chunkSize;
-            int chunkNumber = i / chunkSize;
-            bytes[i] = chunks.get(chunkNumber)[slot];
+        try {
+            return decodeFromStream(dictionary, archiveSyncService, domain, new BinaryDecoder(new ChunkInputStream(
+                chunks)));
+        } catch (MALException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+            return null;
         }
-
-        return decodeFromByteArray(dictionary, archiveSyncService, domain, bytes);
     }
 
+    /**
+     * Encodes a list of COM objects into a compressed byte array.
+     *
+     * @param entities The objects to encode
+     * @param manager The archive manager for fast object details retrieval
+     * @param dictionary Dictionary mapping strings to integers
+     * @return The byte array holding the compressed COM objects
+     */
     public static byte[] encodeToCompressedByteArray(final List<COMObjectEntity> entities, ArchiveManager manager,
         Dictionary dictionary) {
         if (entities.isEmpty()) {
@@ -119,75 +140,194 @@ public class EncodeDecode {
         }
         try {
             ByteArrayOutputStream bytesOutputStream = new ByteArrayOutputStream();
-            BinaryEncoder encoder = new BinaryEncoder(bytesOutputStream);
+            long uncompressedSize = encodeToCompressedStream(entities.iterator(), manager, dictionary,
+                Compression.DEFAULT, bytesOutputStream);
+            byte[] output = bytesOutputStream.toByteArray();
+            setUncompressedSize(output, uncompressedSize);
 
-            for (COMObjectEntity entity : entities) {
-                encodeEntity(entity, manager, dictionary, encoder);
-            }
+            return output;
+        } catch (Exception ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        }
 
-            byte[] uncompressedOutput = bytesOutputStream.toByteArray();
-            encoder.close();
-            Logger.getLogger(EncodeDecode.class.getName()).log(Level.FINE, "Uncompressed objects size: " +
-                uncompressedOutput.length + " bytes");
+        return new byte[0]; // Return an empty byte array
+    }
 
-            ByteArrayOutputStream compressedBytesOutputStream = new ByteArrayOutputStream();
-            GZIPOutputStream gzip = new GZIPOutputStream(compressedBytesOutputStream);
-            gzip.write(uncompressedOutput);
-            gzip.close();
-            byte[] compressedBytes = compressedBytesOutputStream.toByteArray();
-            compressedBytesOutputStream.close();
+    /**
+     * Encodes COM objects into a compressed stream, one object at a time, so
+     * that neither the encoded nor the compressed objects are held in memory.
+     * The stream starts with a 4 bytes header holding the uncompressed size,
+     * which is not known yet when it is written: it is set to
+     * UNKNOWN_UNCOMPRESSED_SIZE and can be replaced afterwards with
+     * setUncompressedSize. With the dictionary compression, the header is
+     * followed by the number of words of the preset dictionary. The output
+     * stream is closed at the end.
+     *
+     * @param entities The objects to encode. They are not referenced after
+     * being encoded
+     * @param manager The archive manager for fast object details retrieval
+     * @param dictionary Dictionary mapping strings to integers
+     * @param compression The compression
+     * @param out The output stream
+     * @return The uncompressed size of the encoded objects
+     * @throws IOException If the stream could not be written
+     */
+    public static long encodeToCompressedStream(final Iterator<COMObjectEntity> entities, ArchiveManager manager,
+        Dictionary dictionary, Compression compression, OutputStream out) throws IOException {
+        out.write(ByteBuffer.allocate(HEADER_SIZE).putInt(UNKNOWN_UNCOMPRESSED_SIZE).array());
+        byte[] presetDictionary = new byte[0];
 
-            byte[] uncompressedSize = ByteBuffer.allocate(4).putInt(uncompressedOutput.length).array();
-            byte[] output = new byte[4 + compressedBytes.length];
+        if (compression.usesDictionary()) {
+            // The words defined while encoding are not part of the preset dictionary
+            final int numberOfWords = dictionary.getNumberOfWords();
+            out.write(ByteBuffer.allocate(HEADER_SIZE).putInt(numberOfWords).array());
 
-            System.arraycopy(uncompressedSize, 0, output, 0, 4);
-            System.arraycopy(compressedBytes, 0, output, 4, compressedBytes.length);
+            try {
+                presetDictionary = dictionary.getPresetDictionary(numberOfWords,
+                    Compression.MAX_PRESET_DICTIONARY_SIZE);
+            } catch (Exception ex) {
+                throw new IOException("The preset dictionary could not be built", ex);
+            }
+        }
 
-            Logger.getLogger(EncodeDecode.class.getName()).log(Level.FINE, "Compressed objects size: " +
-                compressedBytes.length + " bytes");
+        final CountingOutputStream counting = new CountingOutputStream(compression.compress(out, presetDictionary));
+        // The encoder writes the fields one by one, the compressor is only called once per block
+        final BufferedOutputStream buffered = new BufferedOutputStream(counting, BUFFER_SIZE);
+        final BinaryEncoder encoder = new BinaryEncoder(buffered);
 
-            return output;
-        } catch (Exception ex) {
-            LOGGER.log(Level.SEVERE, null, ex);
+        while (entities.hasNext()) {
+            try {
+                encodeEntity(entities.next(), manager, dictionary, encoder);
+            } catch (IOException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            }
         }
 
-        return new byte[0]; // Return an empty byte array
+        buffered.flush();
+        final long uncompressedSize = counting.getCount();
+        buffered.close();
+
+        LOGGER.log(Level.FINE, "Uncompressed objects size: {0} bytes", uncompressedSize);
+        return uncompressedSize;
     }
 
+    /**
+     * Sets the uncompressed size in the header of a compressed stream.
+     *
+     * @param firstChunk The first bytes of the stream, at least HEADER_SIZE
+     * @param uncompressedSize The uncompressed size
+     */
+    public static void setUncompressedSize(final byte[] firstChunk, final long uncompressedSize) {
+        final int size = (uncompressedSize > Integer.MAX_VALUE) ? UNKNOWN_UNCOMPRESSED_SIZE : (int) uncompressedSize;
+        ByteBuffer.wrap(firstChunk).putInt(0, size);
+    }
+
+    /**
+     * Decodes a list of COM objects from the chunks of a gzip compressed
+     * stream.
+     *
+     * @param chunks The chunks, in order
+     * @param dictionary Local dictionary mapping integers to strings
+     * @param archiveSyncService ArchiveSync provider to fetch strings missing in the local dictionary
+     * @param domain The domain of the COM objects to decode
+     * @return The list of decoded COM objects, or null if the stream is
+     * incomplete
+     */
     public static ArrayList<COMObjectStructure> decodeFromCompressedByteArrayList(List<byte[]> chunks,
         Dictionary dictionary, ArchiveSyncStub archiveSyncService, IdentifierList domain) {
+        return decodeFromCompressedByteArrayList(chunks, dictionary, archiveSyncService, domain, Compression.DEFAULT);
+    }
+
+    /**
+     * Decodes a list of COM objects from the chunks of a compressed stream.
+     * The chunks are decompressed and decoded as a stream, without being
+     * copied into a single byte array.
+     *
+     * @param chunks The chunks, in order
+     * @param dictionary Local dictionary mapping integers to strings
+     * @param archiveSyncService ArchiveSync provider to fetch strings missing in the local dictionary
+     * @param domain The domain of the COM objects to decode
+     * @param compression The compression used by the provider
+     * @return The list of decoded COM objects, or null if the stream is
+     * incomplete
+     */
+    public static ArrayList<COMObjectStructure> decodeFromCompressedByteArrayList(List<byte[]> chunks,
+        Dictionary dictionary, ArchiveSyncStub archiveSyncService, IdentifierList domain, Compression compression) {
         if (chunks.isEmpty()) {
             return new ArrayList<>();
         }
 
-        int chunkSize = chunks.get(0).length; // We assume all chunks have the same size
-        int totalCompressedSize = chunkSize * (chunks.size() - 1) + chunks.get(chunks.size() - 1).length;
+        try (InputStream in = new ChunkInputStream(chunks)) {
+            final int uncompressedSize = readInt(in);
+            LOGGER.log(Level.FINE, "Uncompressed objects size: {0} bytes", uncompressedSize);
+            byte[] presetDictionary = new byte[0];
 
-        byte[] compressedBytes = new byte[totalCompressedSize - 4];
+            if (compression.usesDictionary()) {
+                final int numberOfWords = readInt(in);
+                final IntegerList ids = new IntegerList();
 
-        byte[] uncompressedSizeBytes = new byte[4]; // first 4 bytes are the size of uncompressed data
-        System.arraycopy(chunks.get(0), 0, uncompressedSizeBytes, 0, 4);
-        int uncompressedSize = ByteBuffer.wrap(uncompressedSizeBytes).getInt();
+                for (int id = 1; id <= numberOfWords; id++) {
+                    if (!dictionary.exists(id)) {
+                        ids.add(id);
+                    }
+                }
 
-        for (int i = 0; i < totalCompressedSize - 4; i++) {
-            int slot = (i + 4) % chunkSize;
-            int chunkNumber = (i + 4) / chunkSize;
-            compressedBytes[i] = chunks.get(chunkNumber)[slot];
-        }
+                defineWords(ids, dictionary, archiveSyncService);
+                presetDictionary = dictionary.getPresetDictionary(numberOfWords,
+                    Compression.MAX_PRESET_DICTIONARY_SIZE);
+            }
 
-        ByteArrayInputStream bytesInputStream = new ByteArrayInputStream(compressedBytes);
-        byte[] bytes = new byte[uncompressedSize];
-        try {
-            GZIPInputStream gzip = new GZIPInputStream(bytesInputStream, uncompressedSize);
-            gzip.read(bytes);
-            gzip.close();
-            bytesInputStream.close();
-        } catch (IOException ex) {
-            Logger.getLogger(EncodeDecode.class.getName()).log(Level.SEVERE, null, ex);
+            try (CountingInputStream decompressed = new CountingInputStream(compression.decompress(in,
+                presetDictionary))) {
+                final ArrayList<COMObjectStructure> objs = decodeFromStream(dictionary, archiveSyncService, domain,
+                    new BinaryDecoder(decompressed));
+
+                // Detects the missing chunks at the end of the transfer, even without compression
+                if (uncompressedSize != UNKNOWN_UNCOMPRESSED_SIZE && decompressed.getCount() != uncompressedSize) {
+                    throw new IOException("The stream is incomplete: " + decompressed.getCount() + " bytes out of " +
+                        uncompressedSize);
+                }
+
+                return objs;
+            }
+        } catch (Exception ex) {
+            LOGGER.log(Level.SEVERE, "The objects could not be decoded!", ex);
             return null;
         }
+    }
+
+    private static int readInt(final InputStream in) throws IOException {
+        final byte[] bytes = new byte[HEADER_SIZE];
+        int read = 0;
 
-        return decodeFromByteArray(dictionary, archiveSyncService, domain, bytes);
+        while (read < bytes.length) {
+            final int n = in.read(bytes, read, bytes.length - read);
+
+            if (n < 0) {
+                throw new IOException("The compressed stream is too short");
+            }
+            read += n;
+        }
+
+        return ByteBuffer.wrap(bytes).getInt();
+    }
+
+    private static void defineWords(final IntegerList ids, final Dictionary dictionary,
+        final ArchiveSyncStub archiveSyncService) throws MALInteractionException, MALException {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        // Then request the dictionary from the provider side!
+        StringList strings = archiveSyncService.getDictionary(ids);
+
+        for (int j = 0; j < ids.size(); j++) {
+            dictionary.defineWord(ids.get(j), strings.get(j));
+            Logger.getLogger(COMObjectEntity.class.getName()).log(Level.FINE, "Defining id: " + ids.get(j) +
+                " as word: " + strings.get(j));
+        }
     }
 
     private static void encodeEntity(COMObjectEntity entity, ArchiveManager manager, Dictionary dictionary,
@@ -239,13 +379,13 @@ public class EncodeDecode {
         encoder.encodeFineTime(entity.getTimestamp());
     }
 
-    private static ArrayList<COMObjectStructure> decodeFromByteArray(Dictionary dictionary,
-        ArchiveSyncStub archiveSyncService, IdentifierList domain, byte[] bytes) {
+    private static ArrayList<COMObjectStructure> decodeFromStream(Dictionary dictionary,
+        ArchiveSyncStub archiveSyncService, IdentifierList domain, BinaryDecoder decoder) throws MALException {
         ArrayList<COMObjectStructure> objs = new ArrayList<>();
-        final BinaryDecoder decoder = new BinaryDecoder(bytes);
         boolean stillDecoding = true;
 
-        while (stillDecoding) {
+        // A failure to read the stream itself is not recoverable
+        while (stillDecoding && decoder.hasRemainingEncodedData()) {
             try {
                 Short networkId = decoder.decodeShort();
                 Short providerURIId = decoder.decodeShort();
@@ -301,16 +441,7 @@ public class EncodeDecode {
                     }
                 }
 
-                if (!ids.isEmpty()) {
-                    // Then request the dictionary from the provider side!
-                    StringList strings = archiveSyncService.getDictionary(ids);
-
-                    for (int j = 0; j < ids.size(); j++) {
-                        dictionary.defineWord(ids.get(j), strings.get(j));
-                        Logger.getLogger(COMObjectEntity.class.getName()).log(Level.FINE, "Defining id: " + ids.get(j) +
-                            " as word: " + strings.get(j));
-                    }
-                }
+                defineWords(ids, dictionary, archiveSyncService);
 
                 Identifier network = new Identifier(dictionary.getWord((int) networkId));
                 URI providerURI = new URI(dictionary.getWord((int) providerURIId));
@@ -339,4 +470,68 @@ public class EncodeDecode {
         return objs; // Return the list of objects
     }
 
+    /**
+     * Output stream counting the bytes written to it.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count = 0;
+
+        CountingOutputStream(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Input stream counting the bytes read from it.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count = 0;
+
+        CountingInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = in.read();
+
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int n = in.read(b, off, len);
+
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
 }
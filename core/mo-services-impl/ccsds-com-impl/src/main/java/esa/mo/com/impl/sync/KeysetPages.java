@@ -0,0 +1,151 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.sync;
+
+import esa.mo.com.impl.archive.entities.COMObjectEntity;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+import org.ccsds.moims.mo.com.archive.structures.KeysetPaginationFilter;
+import org.ccsds.moims.mo.mal.structures.FineTime;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+
+/**
+ * Iterates over the objects of a query in ascending (timestamp, objId) order,
+ * fetching them one page at a time with the keyset pagination, so that only
+ * one page is held in memory.
+ *
+ * The key (timestamp, objId) is not unique when the query matches several
+ * object types or domains. Each page therefore starts at the last key seen,
+ * inclusive, and skips the objects of that key that were already returned.
+ * If a whole page holds objects of that key, the next page is made larger,
+ * so that no object is ever skipped.
+ */
+public class KeysetPages implements Iterator<COMObjectEntity> {
+
+    private final Function<KeysetPaginationFilter, List<COMObjectEntity>> fetch;
+
+    private final ArrayDeque<COMObjectEntity> page = new ArrayDeque<>();
+
+    // The object types and domains of the objects returned with the last key
+    private final Set<Long> lastKeyObjects = new HashSet<>();
+
+    private int pageSize;
+
+    private long remaining;
+
+    private FineTime lastTimestamp = null;
+
+    private long lastObjId;
+
+    private boolean exhausted = false;
+
+    /**
+     * Constructor.
+     *
+     * @param fetch Executes the query with the given keyset pagination filter.
+     * The results must be in ascending (timestamp, objId) order.
+     * @param pageSize The number of objects fetched per page.
+     * @param limit The maximum number of objects returned in total.
+     */
+    public KeysetPages(final Function<KeysetPaginationFilter, List<COMObjectEntity>> fetch, final int pageSize,
+        final long limit) {
+        this.fetch = fetch;
+        this.pageSize = Math.max(1, pageSize);
+        this.remaining = limit;
+    }
+
+    /**
+     * Returns the timestamp of the last object returned.
+     *
+     * @return The timestamp, or null if no object was returned.
+     */
+    public FineTime getLastTimestamp() {
+        return this.lastTimestamp;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (this.page.isEmpty() && !this.exhausted && this.remaining > 0) {
+            fetchPage();
+        }
+
+        return !this.page.isEmpty();
+    }
+
+    @Override
+    public COMObjectEntity next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        this.remaining--;
+        return this.page.poll();
+    }
+
+    private void fetchPage() {
+        final KeysetPaginationFilter filter = (this.lastTimestamp == null)
+            ? new KeysetPaginationFilter(new UInteger(this.pageSize), null, null)
+            // The object ids are integers, so the page starts at (lastTimestamp, lastObjId) inclusive
+            : new KeysetPaginationFilter(new UInteger(this.pageSize), this.lastTimestamp, this.lastObjId - 1);
+        final List<COMObjectEntity> objs = this.fetch.apply(filter);
+
+        if (objs == null || objs.size() < this.pageSize) {
+            this.exhausted = true;
+        }
+
+        if (objs == null) {
+            return;
+        }
+
+        for (COMObjectEntity obj : objs) {
+            if (this.page.size() >= this.remaining) {
+                this.exhausted = true;
+                break;
+            }
+
+            final long objectOfKey = ((long) obj.getObjectTypeId() << 32) | (obj.getDomainId() & 0xFFFFFFFFL);
+
+            if (this.lastTimestamp != null && obj.getTimestamp().getValue() == this.lastTimestamp.getValue() &&
+                obj.getObjectId() == this.lastObjId) {
+                if (!this.lastKeyObjects.add(objectOfKey)) {
+                    continue; // Already returned by the previous page
+                }
+            } else {
+                this.lastTimestamp = obj.getTimestamp();
+                this.lastObjId = obj.getObjectId();
+                this.lastKeyObjects.clear();
+                this.lastKeyObjects.add(objectOfKey);
+            }
+
+            this.page.add(obj);
+        }
+
+        if (this.page.isEmpty() && !this.exhausted) {
+            // The whole page was made of objects of the last key
+            this.pageSize = (int) Math.min(Integer.MAX_VALUE, 2L * this.pageSize);
+        }
+    }
+}
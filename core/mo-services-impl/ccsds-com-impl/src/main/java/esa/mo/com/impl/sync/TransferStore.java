@@ -0,0 +1,336 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.sync;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores the chunks of the archive sync transfers on disk, so that a transfer
+ * interrupted at the end of a pass can be resumed during the next one, even
+ * after a restart of the provider. Each transfer is made of a file holding the
+ * chunks, one after the other, and of a properties file holding its state.
+ * The dictionary used to encode the transfers is stored next to them, since
+ * the encoded objects refer to its word ids.
+ */
+public class TransferStore {
+
+    private static final Logger LOGGER = Logger.getLogger(TransferStore.class.getName());
+
+    private static final String CHUNKS_EXTENSION = ".chunks";
+    private static final String STATE_EXTENSION = ".properties";
+    private static final String DICTIONARY_FILE = "dictionary.properties";
+
+    private static final String CHUNK_SIZE = "chunkSize";
+    private static final String COMPRESSION = "compression";
+    private static final String NUMBER_OF_CHUNKS = "numberOfChunks";
+    private static final String SYNC_TIME = "syncTime";
+
+    private final File directory;
+
+    /**
+     * Constructor.
+     *
+     * @param directory The directory of the transfers, created if needed.
+     */
+    public TransferStore(final File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Creates a new transfer.
+     *
+     * @param transferId The transfer id.
+     * @param chunkSize The size of the chunks, all of them but the last one.
+     * @param compression The compression of the transfer.
+     * @return The transfer.
+     * @throws IOException If the transfer could not be created.
+     */
+    public Transfer create(final long transferId, final int chunkSize, final Compression compression)
+        throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("The directory " + directory + " could not be created");
+        }
+
+        final Properties state = new Properties();
+        state.setProperty(CHUNK_SIZE, String.valueOf(chunkSize));
+        state.setProperty(COMPRESSION, compression.toString());
+
+        final Transfer transfer = new Transfer(transferId, state);
+        transfer.saveState();
+        return transfer;
+    }
+
+    /**
+     * Opens a transfer that was created before.
+     *
+     * @param transferId The transfer id.
+     * @return The transfer, or null if it does not exist.
+     * @throws IOException If the transfer could not be read.
+     */
+    public Transfer open(final long transferId) throws IOException {
+        final File stateFile = getStateFile(transferId);
+
+        if (!stateFile.isFile()) {
+            return null;
+        }
+
+        final Properties state = new Properties();
+
+        try (InputStream in = new FileInputStream(stateFile)) {
+            state.load(in);
+        }
+
+        return new Transfer(transferId, state);
+    }
+
+    /**
+     * Deletes a transfer.
+     *
+     * @param transferId The transfer id.
+     */
+    public void delete(final long transferId) {
+        delete(getChunksFile(transferId));
+        delete(getStateFile(transferId));
+    }
+
+    /**
+     * Deletes the transfers that were not modified during the given time.
+     *
+     * @param maxAge The maximum age of the transfers in milliseconds.
+     */
+    public void purge(final long maxAge) {
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(STATE_EXTENSION) && !DICTIONARY_FILE
+            .equals(name));
+
+        if (files == null) {
+            return;
+        }
+
+        final long oldest = System.currentTimeMillis() - maxAge;
+
+        for (File file : files) {
+            if (file.lastModified() < oldest) {
+                final String name = file.getName();
+
+                try {
+                    delete(Long.parseLong(name.substring(0, name.length() - STATE_EXTENSION.length())));
+                    LOGGER.log(Level.INFO, "The expired transfer {0} was deleted.", name);
+                } catch (NumberFormatException ex) {
+                    LOGGER.log(Level.WARNING, "Unexpected file in the transfers directory: {0}", name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if there are transfers stored.
+     *
+     * @return true if there is at least one transfer.
+     */
+    public boolean hasTransfers() {
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(STATE_EXTENSION) && !DICTIONARY_FILE
+            .equals(name));
+        return files != null && files.length != 0;
+    }
+
+    /**
+     * Stores the words of a dictionary.
+     *
+     * @param dictionary The dictionary.
+     * @throws IOException If the dictionary could not be stored.
+     */
+    public void saveDictionary(final Dictionary dictionary) throws IOException {
+        final Properties words = new Properties();
+
+        for (Map.Entry<Integer, String> word : dictionary.getWords().entrySet()) {
+            words.setProperty(String.valueOf(word.getKey()), word.getValue());
+        }
+
+        save(words, new File(directory, DICTIONARY_FILE));
+    }
+
+    /**
+     * Loads the words of the stored dictionary, if any.
+     *
+     * @param dictionary The dictionary in which the words are defined.
+     * @throws IOException If the dictionary could not be loaded.
+     */
+    public void loadDictionary(final Dictionary dictionary) throws IOException {
+        final File file = new File(directory, DICTIONARY_FILE);
+
+        if (!file.isFile()) {
+            return;
+        }
+
+        final Properties words = new Properties();
+
+        try (InputStream in = new FileInputStream(file)) {
+            words.load(in);
+        }
+
+        for (String id : words.stringPropertyNames()) {
+            dictionary.defineWord(Integer.valueOf(id), words.getProperty(id));
+        }
+    }
+
+    private File getChunksFile(final long transferId) {
+        return new File(directory, transferId + CHUNKS_EXTENSION);
+    }
+
+    private File getStateFile(final long transferId) {
+        return new File(directory, transferId + STATE_EXTENSION);
+    }
+
+    private static void delete(final File file) {
+        if (file.exists() && !file.delete()) {
+            LOGGER.log(Level.WARNING, "The file {0} could not be deleted.", file);
+        }
+    }
+
+    private static void save(final Properties properties, final File file) throws IOException {
+        // Written aside and then moved, so that a reset never leaves a partial file
+        final File tmp = new File(file.getPath() + ".tmp");
+
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            properties.store(out, null);
+        }
+
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * A transfer stored on disk.
+     */
+    public final class Transfer {
+
+        private final long transferId;
+        private final Properties state;
+        private final int chunkSize;
+
+        private Transfer(final long transferId, final Properties state) {
+            this.transferId = transferId;
+            this.state = state;
+            this.chunkSize = Integer.parseInt(state.getProperty(CHUNK_SIZE));
+        }
+
+        public long getTransferId() {
+            return transferId;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public synchronized Compression getCompression() {
+            return Compression.parse(state.getProperty(COMPRESSION));
+        }
+
+        /**
+         * Checks if all the chunks of the transfer were stored.
+         *
+         * @return true if the transfer is complete.
+         */
+        public synchronized boolean isComplete() {
+            return state.getProperty(NUMBER_OF_CHUNKS) != null;
+        }
+
+        public synchronized int getNumberOfChunks() {
+            return Integer.parseInt(state.getProperty(NUMBER_OF_CHUNKS, "0"));
+        }
+
+        /**
+         * Returns the time of the last object of the transfer.
+         *
+         * @return The sync time, or null if the transfer is not complete.
+         */
+        public synchronized Long getSyncTime() {
+            final String value = state.getProperty(SYNC_TIME);
+            return (value == null) ? null : Long.valueOf(value);
+        }
+
+        /**
+         * Writes a chunk.
+         *
+         * @param index The index of the chunk.
+         * @param chunk The chunk.
+         * @throws IOException If the chunk could not be written.
+         */
+        public synchronized void writeChunk(final int index, final byte[] chunk) throws IOException {
+            try (RandomAccessFile file = new RandomAccessFile(getChunksFile(transferId), "rw")) {
+                file.seek((long) index * chunkSize);
+                file.write(chunk);
+            }
+        }
+
+        /**
+         * Reads a chunk.
+         *
+         * @param index The index of the chunk.
+         * @return The chunk, or null if it was not stored.
+         * @throws IOException If the chunk could not be read.
+         */
+        public synchronized byte[] readChunk(final int index) throws IOException {
+            final File chunksFile = getChunksFile(transferId);
+            final long offset = (long) index * chunkSize;
+
+            if (index < 0 || offset >= chunksFile.length()) {
+                return null;
+            }
+
+            try (RandomAccessFile file = new RandomAccessFile(chunksFile, "r")) {
+                final byte[] chunk = new byte[(int) Math.min(chunkSize, file.length() - offset)];
+                file.seek(offset);
+                file.readFully(chunk);
+                return chunk;
+            }
+        }
+
+        /**
+         * Marks the transfer as complete, once all its chunks were written.
+         *
+         * @param numberOfChunks The number of chunks.
+         * @param syncTime The time of the last object of the transfer.
+         * @throws IOException If the state could not be written.
+         */
+        public synchronized void complete(final int numberOfChunks, final long syncTime) throws IOException {
+            state.setProperty(NUMBER_OF_CHUNKS, String.valueOf(numberOfChunks));
+            state.setProperty(SYNC_TIME, String.valueOf(syncTime));
+            saveState();
+        }
+
+        private void saveState() throws IOException {
+            save(state, getStateFile(transferId));
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.util;
+
+import esa.mo.helpertools.helpers.HelperAttributes;
+import esa.mo.helpertools.helpers.HelperMisc;
+import org.ccsds.moims.mo.com.archive.structures.CompositeFilter;
+import org.ccsds.moims.mo.com.archive.structures.ExpressionOperator;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Duration;
+import org.ccsds.moims.mo.mal.structures.Element;
+import org.ccsds.moims.mo.mal.structures.Enumeration;
+import org.ccsds.moims.mo.mal.structures.FineTime;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.Time;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.mal.structures.ULong;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.UShort;
+import org.ccsds.moims.mo.mal.structures.Union;
+
+/**
+ * A Composite Filter compiled once for the evaluation of many objects. The
+ * field path is resolved through a FieldPath and the value of the filter is
+ * converted once. The numeric (including enumerations and times) and string
+ * fields are compared without boxing. Any other combination is evaluated by
+ * HelperCOM.evaluateExpression, so the results are always the same as the
+ * ones of the reflective evaluation.
+ */
+public final class CompiledCompositeFilter {
+
+    private enum Kind {
+        NUMERIC, STRING, GENERIC
+    }
+
+    private enum Op {
+        EQUAL, DIFFER, GREATER, GREATER_OR_EQUAL, LESS, LESS_OR_EQUAL, CONTAINS, ICONTAINS, OTHER
+    }
+
+    private final CompositeFilter filter;
+    private final FieldPath fieldPath;
+    private final Kind kind;
+    private final Op op;
+    private final double rightNumber;
+    private final String rightString;
+    private final String rightStringLowerCase;
+
+    private CompiledCompositeFilter(final CompositeFilter filter) {
+        final ExpressionOperator operator = filter.getType();
+        final Attribute value = filter.getFieldValue();
+
+        this.filter = filter;
+        this.fieldPath = FieldPath.compile(filter.getFieldName());
+        this.op = toOp(operator);
+
+        Kind k = Kind.GENERIC;
+        double number = 0;
+        String string = null;
+
+        if (operator != null && value != null) {
+            if (HelperMisc.isStringAttribute(value)) {
+                string = HelperAttributes.attribute2string(value);
+                k = (string != null) ? Kind.STRING : Kind.GENERIC;
+            } else {
+                final Double d = HelperAttributes.attribute2double(value);
+
+                if (d != null) {
+                    number = d;
+                    k = Kind.NUMERIC;
+                }
+            }
+        }
+
+        this.kind = k;
+        this.rightNumber = number;
+        this.rightString = string;
+        this.rightStringLowerCase = (string != null) ? string.toLowerCase() : null;
+    }
+
+    /**
+     * Compiles a Composite Filter.
+     *
+     * @param filter The Composite Filter.
+     * @return The compiled filter.
+     */
+    public static CompiledCompositeFilter compile(final CompositeFilter filter) {
+        return new CompiledCompositeFilter(filter);
+    }
+
+    public CompositeFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Returns the field of the object that the filter refers to.
+     *
+     * @param obj The object.
+     * @return The field.
+     * @throws NoSuchFieldException If the field does not exist.
+     */
+    public Object getField(final Object obj) throws NoSuchFieldException {
+        return fieldPath.get(obj);
+    }
+
+    /**
+     * Evaluates the filter on a field, with the same result as
+     * HelperCOM.evaluateExpression on the field converted to an attribute.
+     *
+     * @param field The field, as returned by getField.
+     * @return The boolean value of the evaluation. Null if not evaluated.
+     */
+    public Boolean evaluate(final Object field) {
+        if (field != null) {
+            if (kind == Kind.NUMERIC && isNumeric(field)) {
+                return evaluateNumeric(toDouble(field));
+            }
+
+            if (kind == Kind.STRING) {
+                if (field instanceof String) {
+                    return evaluateString((String) field);
+                }
+
+                if (field instanceof Identifier) {
+                    return evaluateString(((Identifier) field).getValue());
+                }
+            }
+        }
+
+        return HelperCOM.evaluateExpression((Element) HelperAttributes.javaType2Attribute(field), filter.getType(),
+            filter.getFieldValue());
+    }
+
+    private Boolean evaluateNumeric(final double left) {
+        switch (op) {
+            case EQUAL:
+                return Double.compare(left, rightNumber) == 0;
+            case DIFFER:
+                return Double.compare(left, rightNumber) != 0;
+            case GREATER:
+                return left > rightNumber;
+            case GREATER_OR_EQUAL:
+                return left >= rightNumber;
+            case LESS:
+                return left < rightNumber;
+            case LESS_OR_EQUAL:
+                return left <= rightNumber;
+            default:
+                return null; // The string operators are not evaluated on numbers
+        }
+    }
+
+    private Boolean evaluateString(final String left) {
+        switch (op) {
+            case EQUAL:
+                return rightString.equals(left);
+            case DIFFER:
+                return !rightString.equals(left);
+            case CONTAINS:
+                return left.contains(rightString);
+            case ICONTAINS:
+                return left.toLowerCase().contains(rightStringLowerCase);
+            default:
+                // The numeric comparisons of strings parse them
+                return HelperCOM.evaluateExpression((Element) HelperAttributes.javaType2Attribute(left), filter
+                    .getType(), filter.getFieldValue());
+        }
+    }
+
+    private static Op toOp(final ExpressionOperator operator) {
+        if (operator == null) {
+            return Op.OTHER;
+        }
+
+        switch (operator.getOrdinal()) {
+            case ExpressionOperator._EQUAL_INDEX:
+                return Op.EQUAL;
+            case ExpressionOperator._DIFFER_INDEX:
+                return Op.DIFFER;
+            case ExpressionOperator._GREATER_INDEX:
+                return Op.GREATER;
+            case ExpressionOperator._GREATER_OR_EQUAL_INDEX:
+                return Op.GREATER_OR_EQUAL;
+            case ExpressionOperator._LESS_INDEX:
+                return Op.LESS;
+            case ExpressionOperator._LESS_OR_EQUAL_INDEX:
+                return Op.LESS_OR_EQUAL;
+            case ExpressionOperator._CONTAINS_INDEX:
+                return Op.CONTAINS;
+            case ExpressionOperator._ICONTAINS_INDEX:
+                return Op.ICONTAINS;
+            default:
+                return Op.OTHER;
+        }
+    }
+
+    private static boolean isNumeric(final Object field) {
+        if (field instanceof Number) {
+            return field instanceof Integer || field instanceof Long || field instanceof Double ||
+                field instanceof Float || field instanceof Short || field instanceof Byte;
+        }
+
+        if (field instanceof Union) {
+            final Integer shortForm = ((Union) field).getTypeShortForm();
+
+            if (shortForm.equals(Union.BOOLEAN_TYPE_SHORT_FORM)) {
+                return ((Union) field).getBooleanValue() != null;
+            }
+            if (shortForm.equals(Union.FLOAT_TYPE_SHORT_FORM)) {
+                return ((Union) field).getFloatValue() != null;
+            }
+            if (shortForm.equals(Union.DOUBLE_TYPE_SHORT_FORM)) {
+                return ((Union) field).getDoubleValue() != null;
+            }
+            if (shortForm.equals(Union.OCTET_TYPE_SHORT_FORM)) {
+                return ((Union) field).getOctetValue() != null;
+            }
+            if (shortForm.equals(Union.SHORT_TYPE_SHORT_FORM)) {
+                return ((Union) field).getShortValue() != null;
+            }
+            if (shortForm.equals(Union.INTEGER_TYPE_SHORT_FORM)) {
+                return ((Union) field).getIntegerValue() != null;
+            }
+            if (shortForm.equals(Union.LONG_TYPE_SHORT_FORM)) {
+                return ((Union) field).getLongValue() != null;
+            }
+
+            return false;
+        }
+
+        return field instanceof Boolean || field instanceof Enumeration || field instanceof UOctet ||
+            field instanceof UShort || field instanceof UInteger || field instanceof ULong || field instanceof Time ||
+            field instanceof FineTime || field instanceof Duration;
+    }
+
+    private static double toDouble(final Object field) {
+        if (field instanceof Number) {
+            return ((Number) field).doubleValue();
+        }
+
+        if (field instanceof Union) {
+            final Union union = (Union) field;
+            final Integer shortForm = union.getTypeShortForm();
+
+            if (shortForm.equals(Union.BOOLEAN_TYPE_SHORT_FORM)) {
+                return union.getBooleanValue() ? 1 : 0;
+            }
+            if (shortForm.equals(Union.FLOAT_TYPE_SHORT_FORM)) {
+                return union.getFloatValue();
+            }
+            if (shortForm.equals(Union.DOUBLE_TYPE_SHORT_FORM)) {
+                return union.getDoubleValue();
+            }
+            if (shortForm.equals(Union.OCTET_TYPE_SHORT_FORM)) {
+                return union.getOctetValue();
+            }
+            if (shortForm.equals(Union.SHORT_TYPE_SHORT_FORM)) {
+                return union.getShortValue();
+            }
+            if (shortForm.equals(Union.INTEGER_TYPE_SHORT_FORM)) {
+                return union.getIntegerValue();
+            }
+
+            return union.getLongValue();
+        }
+
+        if (field instanceof Boolean) {
+            return ((Boolean) field) ? 1 : 0;
+        }
+
+        if (field instanceof Enumeration) {
+            return ((Enumeration) field).getOrdinal();
+        }
+
+        if (field instanceof UOctet) {
+            return ((UOctet) field).getValue();
+        }
+
+        if (field instanceof UShort) {
+            return ((UShort) field).getValue();
+        }
+
+        if (field instanceof UInteger) {
+            return ((UInteger) field).getValue();
+        }
+
+        if (field instanceof ULong) {
+            return ((ULong) field).getValue().doubleValue();
+        }
+
+        if (field instanceof Time) {
+            return ((Time) field).getValue();
+        }
+
+        if (field instanceof FineTime) {
+            return ((FineTime) field).getValue();
+        }
+
+        return ((Duration) field).getValue();
+    }
+}
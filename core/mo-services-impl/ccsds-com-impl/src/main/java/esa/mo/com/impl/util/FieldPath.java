@@ -0,0 +1,176 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A field path of a COM object body (the field names separated by dots),
+ * split once and resolved into field getters that are cached per class. The
+ * lookup of a field is the same as the reflective one of
+ * HelperCOM.getNestedObject: the field must be declared by the runtime class
+ * of the object holding it.
+ */
+public final class FieldPath {
+
+    // Upper bound of cached paths, as they can come from the consumers of the archive
+    private static final int MAX_CACHED_PATHS = 1024;
+
+    private static final ConcurrentHashMap<String, FieldPath> PATHS = new ConcurrentHashMap<>();
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    // Getters of the fields declared by each class. Only the existing fields are cached
+    private static final ClassValue<ConcurrentHashMap<String, MethodHandle>> GETTERS =
+        new ClassValue<ConcurrentHashMap<String, MethodHandle>>() {
+            @Override
+            protected ConcurrentHashMap<String, MethodHandle> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+
+    private final String path;
+    private final String[] parts;
+
+    // Last getter used for each part, to skip the lookups for objects of the same class
+    private final Hop[] lastHops;
+
+    private FieldPath(final String path) {
+        final List<String> list = new ArrayList<>();
+
+        for (String part : path.split("\\.")) {
+            if (!part.equals("")) {
+                list.add(part);
+            }
+        }
+
+        this.path = path;
+        this.parts = list.toArray(new String[0]);
+        this.lastHops = new Hop[this.parts.length];
+    }
+
+    /**
+     * Returns the compiled field path. The empty path is the object itself.
+     *
+     * @param path The field path.
+     * @return The compiled field path.
+     */
+    public static FieldPath compile(final String path) {
+        FieldPath fieldPath = PATHS.get(path);
+
+        if (fieldPath == null) {
+            fieldPath = new FieldPath(path);
+
+            if (PATHS.size() < MAX_CACHED_PATHS) {
+                final FieldPath previous = PATHS.putIfAbsent(path, fieldPath);
+                fieldPath = (previous != null) ? previous : fieldPath;
+            }
+        }
+
+        return fieldPath;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the value of the field in the object.
+     *
+     * @param in The object.
+     * @return The value of the field.
+     * @throws NoSuchFieldException If the field does not exist or if one of
+     * the objects in the path is null.
+     */
+    public Object get(final Object in) throws NoSuchFieldException {
+        Object obj = in;
+
+        for (int i = 0; i < parts.length; i++) {
+            if (obj == null) {
+                throw new NoSuchFieldException(parts[i]);
+            }
+
+            Hop hop = lastHops[i];
+
+            if (hop == null || hop.type != obj.getClass()) {
+                hop = new Hop(obj.getClass(), getter(obj.getClass(), parts[i]));
+                lastHops[i] = hop;
+            }
+
+            obj = invoke(hop.getter, obj);
+        }
+
+        return obj;
+    }
+
+    private static MethodHandle getter(final Class<?> type, final String name) throws NoSuchFieldException {
+        final ConcurrentHashMap<String, MethodHandle> getters = GETTERS.get(type);
+        MethodHandle getter = getters.get(name);
+
+        if (getter == null) {
+            final Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+
+            try {
+                getter = MethodHandles.lookup().unreflectGetter(field);
+            } catch (IllegalAccessException ex) {
+                throw new NoSuchFieldException(name);
+            }
+
+            if (Modifier.isStatic(field.getModifiers())) {
+                getter = MethodHandles.dropArguments(getter, 0, Object.class);
+            }
+
+            getter = getter.asType(GETTER_TYPE);
+            getters.putIfAbsent(name, getter);
+        }
+
+        return getter;
+    }
+
+    private static Object invoke(final MethodHandle getter, final Object obj) {
+        try {
+            return (Object) getter.invokeExact(obj);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IllegalStateException(ex); // Field getters do not throw checked exceptions
+        }
+    }
+
+    private static final class Hop {
+
+        private final Class<?> type;
+        private final MethodHandle getter;
+
+        private Hop(final Class<?> type, final MethodHandle getter) {
+            this.type = type;
+            this.getter = getter;
+        }
+    }
+}
@@ -305,6 +305,33 @@ public class HelperArchive {
         return (objs != null) ? (Element) objs.get(0) : null;
     }
 
+    /**
+     * Get the object body of a retrieved COM object from the Archive, for a
+     * caller that only reads it. A local Archive can return the body of its
+     * decoded body cache, which is shared with the other callers, so the
+     * returned body must not be modified.
+     * 
+     * @param archiveService
+     *            The Archive
+     * @param objType
+     *            The object Type of the COM object
+     * @param domain
+     *            The domain of the COM object
+     * @param objId
+     *            The object instance identifier of the COM object
+     * @return The object body of the retrieved COM object or null if no object was
+     *         returned
+     */
+    public static Element getReadOnlyObjectBodyFromArchive(final Object archiveService, final ObjectType objType,
+        final IdentifierList domain, final Long objId) {
+        final LongList objIds = new LongList();
+        objIds.add(objId);
+        final ElementList objs = (ElementList) getFromArchive(archiveService, objType, domain, objIds,
+            ToBeReturned.OBJECT_BODY, true, true);
+
+        return (objs != null) ? (Element) objs.get(0) : null;
+    }
+
     /**
      * Get a List of object bodies of a retrieved List of COM objects from the
      * Archive.
@@ -485,6 +512,12 @@ public class HelperArchive {
     private static Object getFromArchive(final Object archiveService, final ObjectType objType,
         final IdentifierList domain, final LongList objIds, final ToBeReturned toBeReturned,
         final boolean sortReturnList) {
+        return getFromArchive(archiveService, objType, domain, objIds, toBeReturned, sortReturnList, false);
+    }
+
+    private static Object getFromArchive(final Object archiveService, final ObjectType objType,
+        final IdentifierList domain, final LongList objIds, final ToBeReturned toBeReturned,
+        final boolean sortReturnList, final boolean readOnly) {
         if (archiveService == null) { // If there's no archive...
             LOGGER.log(Level.INFO, "The Archive service provided contains a null pointer!");
             return null;
@@ -494,7 +527,7 @@ public class HelperArchive {
 
         try {
             if (archiveService instanceof ArchiveHandler) {
-                adapter = new HelperLocalArchiveRetrieveAdapter(null, objType, domain);
+                adapter = new HelperLocalArchiveRetrieveAdapter(null, objType, domain, readOnly);
                 ((ArchiveHandler) archiveService).retrieve(objType, domain, objIds,
                     (HelperLocalArchiveRetrieveAdapter) adapter);
             } else if (archiveService instanceof ArchiveStub) {
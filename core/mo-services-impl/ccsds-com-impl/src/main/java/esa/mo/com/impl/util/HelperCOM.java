@@ -23,7 +23,6 @@ package esa.mo.com.impl.util;
 import esa.mo.helpertools.connections.ConnectionConsumer;
 import esa.mo.helpertools.helpers.HelperAttributes;
 import esa.mo.helpertools.helpers.HelperMisc;
-import java.lang.reflect.Field;
 import java.util.Random;
 import org.ccsds.moims.mo.com.COMObject;
 import org.ccsds.moims.mo.com.COMService;
@@ -373,39 +372,17 @@ public class HelperCOM {
         return a.equals(b);
     }
 
+    /**
+     * Returns a nested field of an object. The field names are separated by
+     * dots. The path is compiled and cached, see FieldPath.
+     *
+     * @param in The object.
+     * @param fieldName The field path.
+     * @return The value of the field.
+     * @throws NoSuchFieldException If the field does not exist.
+     */
     public static Object getNestedObject(Object in, String fieldName) throws NoSuchFieldException {
-        Object obj = in;
-        String[] parts = fieldName.split("\\.");
-
-        try {
-            for (String part : parts) {
-                if (!part.equals("")) {
-                    obj = HelperCOM.getObjectInsideObject(part, obj);
-                } else {
-                    // Then it is a Enumeration
-                    //                            obj = ((Enumeration) obj).getNumericValue();
-                }
-            }
-        } catch (IllegalArgumentException | IllegalAccessException ex) {
-            throw new NoSuchFieldException();
-        }
-
-        return obj;
-    }
-
-    private static Object getObjectInsideObject(final String fieldName, final Object obj) throws NoSuchFieldException,
-        IllegalArgumentException, IllegalAccessException {
-        if (obj == null) {
-            throw new NoSuchFieldException();
-        }
-
-        if ("".equals(fieldName) && !(obj instanceof Enumeration)) {
-            throw new NoSuchFieldException();
-        }
-
-        Field field = obj.getClass().getDeclaredField(fieldName);
-        field.setAccessible(true);
-        return field.get(obj);
+        return FieldPath.compile(fieldName).get(in);
     }
 
     /**
@@ -18,12 +18,29 @@ public class HelperLocalArchiveRetrieveAdapter extends RetrieveInteraction imple
 
     final ObjectType objType;
     final IdentifierList domain;
+    private final boolean readOnly;
 
     public HelperLocalArchiveRetrieveAdapter(MALInvoke interaction, final ObjectType objType,
         final IdentifierList domain) {
+        this(interaction, objType, domain, false);
+    }
+
+    /**
+     * Creates the adapter.
+     *
+     * @param interaction The MAL interaction.
+     * @param objType The object type.
+     * @param domain The domain.
+     * @param readOnly True if the caller does not modify the returned bodies.
+     * The Archive can then return the bodies of its decoded body cache instead
+     * of decoding them again.
+     */
+    public HelperLocalArchiveRetrieveAdapter(MALInvoke interaction, final ObjectType objType,
+        final IdentifierList domain, final boolean readOnly) {
         super(interaction);
         this.objType = objType;
         this.domain = domain;
+        this.readOnly = readOnly;
     }
 
     @Override
@@ -74,6 +91,16 @@ public class HelperLocalArchiveRetrieveAdapter extends RetrieveInteraction imple
         return objectBodyList;
     }
 
+    /**
+     * Returns true if the returned bodies are only read by the caller, and so
+     * can be shared with the other callers.
+     *
+     * @return True if the returned bodies must not be modified.
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
     @Override
     public void waitUntilReady() {
         // Do nothing
@@ -0,0 +1,213 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.archive.db;
+
+import esa.mo.com.impl.archive.entities.COMObjectEntity;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import org.ccsds.moims.mo.com.structures.ObjectType;
+import org.ccsds.moims.mo.mal.structures.IntegerList;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.UShort;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the configuration, the naming and the selection of the time
+ * partitions, and their use against the database.
+ */
+public class ArchivePartitionsTest {
+
+    private static final long DAY = 24 * ArchivePartitions.NANOS_PER_HOUR;
+    private static final long HOUR = ArchivePartitions.NANOS_PER_HOUR;
+    private static final int PARTITIONED_TYPE = 5001;
+    private static final int MAIN_TYPE = 5002;
+
+    @Test
+    public void testParseRetention() {
+        Map<ObjectType, Long> config = ArchivePartitions.parseRetention("4.2.1.1:168;4.2.1.2:abc;4.3.1.2:0;" +
+            "4.3.1.1:1,2;2.1.1.1:24");
+
+        ObjectType parameterValue = new ObjectType(new UShort(4), new UShort(2), new UOctet((short) 1), new UShort(1));
+        ObjectType event = new ObjectType(new UShort(2), new UShort(1), new UOctet((short) 1), new UShort(1));
+        Assert.assertEquals(2, config.size());
+        Assert.assertEquals(Long.valueOf(168), config.get(parameterValue));
+        Assert.assertEquals(Long.valueOf(24), config.get(event));
+        Assert.assertTrue(ArchivePartitions.parseRetention(null).isEmpty());
+    }
+
+    @Test
+    public void testPeriods() {
+        long timestamp = 3 * DAY + 5;
+
+        Assert.assertEquals(3 * DAY, ArchivePartitions.periodStart(timestamp, DAY));
+        Assert.assertEquals(3 * DAY, ArchivePartitions.periodStart(3 * DAY, DAY));
+        Assert.assertEquals(0, ArchivePartitions.periodStart(-5, DAY));
+        Assert.assertEquals("COMObjectEntity_r168_259200_345600", ArchivePartitions.partitionName(7 * DAY, 3 * DAY,
+            4 * DAY));
+    }
+
+    @Test
+    public void testUnion() {
+        Assert.assertEquals("COMObjectEntity", ArchivePartitions.union(Collections.singletonList("COMObjectEntity")));
+        Assert.assertEquals("(SELECT " + ArchivePartitions.FIELDS + " FROM COMObjectEntity UNION ALL SELECT " +
+            ArchivePartitions.FIELDS + " FROM p1) COMObjectEntity", ArchivePartitions.union(Arrays.asList(
+                "COMObjectEntity", "p1")));
+    }
+
+    @Test
+    public void testPartitionSelection() {
+        ArchivePartitions.Partition partition = new ArchivePartitions.Partition("p", DAY, 3 * DAY, 4 * DAY);
+        partition.objTypeIds.add(1);
+
+        // The period is [start, end[ and the time window of the queries is [from, to]
+        Assert.assertTrue(partition.overlaps(null, null));
+        Assert.assertTrue(partition.overlaps(4 * DAY - 1, null));
+        Assert.assertFalse(partition.overlaps(4 * DAY, null));
+        Assert.assertTrue(partition.overlaps(null, 3 * DAY));
+        Assert.assertFalse(partition.overlaps(null, 3 * DAY - 1));
+        Assert.assertTrue(partition.overlaps(0L, 10 * DAY));
+
+        IntegerList types = new IntegerList();
+        Assert.assertTrue(partition.containsAny(null));
+        Assert.assertTrue(partition.containsAny(types));
+        types.add(2);
+        Assert.assertFalse(partition.containsAny(types));
+        types.add(1);
+        Assert.assertTrue(partition.containsAny(types));
+    }
+
+    @Test
+    public void testStatementsForPartition() {
+        Assert.assertEquals("SELECT MAX(objId) FROM p1 WHERE ((objectTypeId = ?) AND (domainId = ?))",
+            PreparedStatements.forTable(PreparedStatements.SELECT_MAX_OBJ_ID, "p1"));
+        Assert.assertTrue(PreparedStatements.forTable(PreparedStatements.INSERT_COM_OBJECTS, "p1").startsWith(
+            "INSERT INTO p1 ("));
+    }
+
+    @Test
+    public void testInsertQueryAndDropPartitions() throws Exception {
+        try (TestDatabase db = TestDatabase.start(2)) {
+            ArchivePartitions partitions = db.backend.getPartitions();
+            // One partition per hour, kept for a day
+            partitions.setRetention(Collections.singletonMap(PARTITIONED_TYPE, 24L), 1);
+
+            ArrayList<COMObjectEntity> objs = new ArrayList<>();
+            for (int i = 0; i < 9; i++) {
+                objs.add(TestDatabase.newObject(PARTITIONED_TYPE, i + 1, (i / 3) * HOUR + i, 0));
+                objs.add(TestDatabase.newObject(MAIN_TYPE, i + 1, (i / 3) * HOUR + i, 0));
+            }
+            db.processor.insert(objs, null);
+
+            // The objects of the type with a retention are spread over 3 partitions
+            Assert.assertEquals(4, partitions.getTables(PARTITIONED_TYPE).size());
+            Assert.assertEquals(Collections.singletonList(ArchivePartitions.MAIN_TABLE), partitions.getTables(
+                MAIN_TYPE));
+            Assert.assertEquals(ids(1, 9), new HashSet<>(db.processor.getAllCOMObjectsIds(PARTITIONED_TYPE, 1)));
+            Assert.assertEquals(ids(1, 9), new HashSet<>(db.processor.getAllCOMObjectsIds(MAIN_TYPE, 1)));
+
+            LongList requested = new LongList();
+            requested.add(2L);
+            requested.add(5L);
+            requested.add(8L);
+            List<COMObjectEntity> found = db.processor.getCOMObjects(PARTITIONED_TYPE, 1, requested);
+            Assert.assertEquals(3, found.size());
+
+            // Only the first partition has expired one day after its end
+            int dropped = db.processor.submitExternalTransactionExecutorTask(inTransaction(db, c -> partitions
+                .dropExpired(c, HOUR + DAY, db.backend.getIndexedAttributes()))).get();
+            Assert.assertEquals(1, dropped);
+            Assert.assertEquals(3, partitions.getTables(PARTITIONED_TYPE).size());
+            Assert.assertEquals(ids(4, 9), new HashSet<>(db.processor.getAllCOMObjectsIds(PARTITIONED_TYPE, 1)));
+            Assert.assertEquals(ids(1, 9), new HashSet<>(db.processor.getAllCOMObjectsIds(MAIN_TYPE, 1)));
+        }
+    }
+
+    @Test
+    public void testPartitionsArePublishedAfterCommit() throws Exception {
+        try (TestDatabase db = TestDatabase.start(2)) {
+            ArchivePartitions partitions = db.backend.getPartitions();
+            partitions.setRetention(Collections.singletonMap(PARTITIONED_TYPE, 24L), 1);
+            COMObjectEntity obj = TestDatabase.newObject(PARTITIONED_TYPE, 1, 0, 0);
+
+            // A partition created by a transaction that is rolled back is forgotten
+            db.processor.submitExternalTransactionExecutorTask(inTransaction(db, c -> {
+                c.setAutoCommit(false);
+                Assert.assertNotNull(partitions.getPartitionForInsert(c, obj));
+                Assert.assertEquals(1, partitions.getTables(PARTITIONED_TYPE).size());
+                c.rollback();
+                c.setAutoCommit(true);
+                partitions.discardPending();
+                return null;
+            })).get();
+            Assert.assertEquals(1, partitions.getTables(PARTITIONED_TYPE).size());
+
+            // It is only used by the reads once committed
+            db.processor.submitExternalTransactionExecutorTask(inTransaction(db, c -> {
+                c.setAutoCommit(false);
+                Assert.assertNotNull(partitions.getPartitionForInsert(c, obj));
+                Assert.assertEquals(1, partitions.getTables(PARTITIONED_TYPE).size());
+                c.setAutoCommit(true);
+                partitions.publishPending();
+                return null;
+            })).get();
+            Assert.assertEquals(2, partitions.getTables(PARTITIONED_TYPE).size());
+
+            // The objects are stored in it
+            ArrayList<COMObjectEntity> objs = new ArrayList<>();
+            objs.add(obj);
+            db.processor.insert(objs, null);
+            Assert.assertEquals(ids(1, 1), new HashSet<>(db.processor.getAllCOMObjectsIds(PARTITIONED_TYPE, 1)));
+        }
+    }
+
+    private interface Transaction<T> {
+
+        T run(Connection c) throws SQLException;
+    }
+
+    private static <T> Callable<T> inTransaction(final TestDatabase db, final Transaction<T> transaction) {
+        return () -> {
+            db.backend.getAvailability().acquire();
+            try {
+                return transaction.run(db.backend.getConnection());
+            } finally {
+                db.backend.getAvailability().release();
+            }
+        };
+    }
+
+    private static HashSet<Long> ids(final long first, final long last) {
+        HashSet<Long> ids = new HashSet<>();
+        for (long id = first; id <= last; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,178 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.archive.db;
+
+import esa.mo.com.impl.archive.entities.COMObjectEntity;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.ccsds.moims.mo.com.archive.structures.ArchiveQuery;
+import org.ccsds.moims.mo.com.archive.structures.KeysetPaginationFilter;
+import org.ccsds.moims.mo.mal.structures.IntegerList;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the shape of the parameterised statements generated for the archive
+ * queries, and the keyset pagination against the database.
+ */
+public class CompiledQueryTest {
+
+    private static final String PREFIX = "SELECT objId FROM COMObjectEntity ";
+    private static final int OBJ_TYPE_ID = 3001;
+    private static final int OBJECTS = 25;
+    private static final int SAME_TIMESTAMP = 4;
+    private static final int PAGE_SIZE = 3;
+
+    @Test
+    public void testValuesAreBoundNotConcatenated() {
+        CompiledQuery query = new CompiledQuery(PREFIX, false);
+        query.addEqual("objectTypeId", 5);
+        query.addCondition("timestampArchiveDetails>=?", 1000L);
+        query.append(" ORDER BY timestampArchiveDetails ASC LIMIT ? OFFSET ?", 10L, 20L);
+
+        Assert.assertEquals(PREFIX + "WHERE objectTypeId=? AND timestampArchiveDetails>=?" +
+            " ORDER BY timestampArchiveDetails ASC LIMIT ? OFFSET ?", query.getSql());
+        Assert.assertEquals(Arrays.asList(5, 1000L, 10L, 20L), query.getParameters());
+    }
+
+    @Test
+    public void testKeysetConditionBindsBothKeys() {
+        CompiledQuery query = new CompiledQuery(PREFIX, false);
+        query.addEqual("objectTypeId", 5);
+        query.addCondition("(timestampArchiveDetails, objId) > (?, ?)", 1000L, 42L);
+
+        Assert.assertEquals(PREFIX + "WHERE objectTypeId=? AND (timestampArchiveDetails, objId) > (?, ?)", query
+            .getSql());
+        Assert.assertEquals(Arrays.asList(5, 1000L, 42L), query.getParameters());
+    }
+
+    @Test
+    public void testSameShapeForListsInTheSameBucket() {
+        CompiledQuery query3 = new CompiledQuery(PREFIX, false);
+        query3.addIn("domainId", Arrays.asList(1, 2, 3), "INTEGER");
+        CompiledQuery query4 = new CompiledQuery(PREFIX, false);
+        query4.addIn("domainId", Arrays.asList(7, 8, 9, 10), "INTEGER");
+
+        Assert.assertEquals(PREFIX + "WHERE domainId IN (?, ?, ?, ?)", query3.getSql());
+        Assert.assertEquals(query3.getSql(), query4.getSql());
+        // The bucket is padded with the last value
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 3), query3.getParameters());
+    }
+
+    @Test
+    public void testSingleValueListIsAnEquality() {
+        CompiledQuery query = new CompiledQuery(PREFIX, false);
+        query.addIn("domainId", Arrays.asList(4), "INTEGER");
+        query.addIn("objectTypeId", new ArrayList<Integer>(), "INTEGER");
+
+        Assert.assertEquals(PREFIX + "WHERE domainId=?", query.getSql());
+    }
+
+    @Test
+    public void testLongListsAreChunked() {
+        List<Long> ids = new ArrayList<>();
+        for (long i = 0; i < CompiledQuery.MAX_IN_LIST_CHUNK + 3; i++) {
+            ids.add(i);
+        }
+
+        CompiledQuery query = new CompiledQuery(PREFIX, false);
+        query.addIn("objId", ids, "BIGINT");
+
+        String sql = query.getSql();
+        Assert.assertTrue(sql.startsWith(PREFIX + "WHERE (objId IN (?"));
+        Assert.assertTrue(sql.endsWith(") OR objId IN (?, ?, ?, ?))"));
+        Assert.assertEquals(CompiledQuery.MAX_IN_LIST_CHUNK + 4, query.getParameters().size());
+    }
+
+    @Test
+    public void testPostgresBindsArrays() {
+        CompiledQuery query = new CompiledQuery(PREFIX, true);
+        query.addIn("objId", Arrays.asList(1L, 2L, 3L), "BIGINT");
+
+        Assert.assertEquals(PREFIX + "WHERE objId = ANY(?)", query.getSql());
+        Assert.assertEquals(1, query.getParameters().size());
+    }
+
+    @Test
+    public void testBucketSize() {
+        Assert.assertEquals(1, CompiledQuery.bucketSize(1));
+        Assert.assertEquals(2, CompiledQuery.bucketSize(2));
+        Assert.assertEquals(4, CompiledQuery.bucketSize(3));
+        Assert.assertEquals(256, CompiledQuery.bucketSize(200));
+    }
+
+    @Test
+    public void testKeysetPaginationWithDuplicateTimestamps() throws Exception {
+        try (TestDatabase db = TestDatabase.start(0)) {
+            // Groups of objects share the same timestamp, and are not stored in the order of their ids
+            ArrayList<COMObjectEntity> objs = new ArrayList<>();
+            for (int i = 0; i < OBJECTS; i++) {
+                long objId = (i * 7L) % OBJECTS + 1;
+                objs.add(TestDatabase.newObject(OBJ_TYPE_ID, objId, 1000L * (objId % (OBJECTS / SAME_TIMESTAMP)),
+                    0));
+            }
+            db.processor.insert(objs, null);
+
+            objs.sort(Comparator.comparing((COMObjectEntity obj) -> obj.getTimestamp().getValue()).thenComparing(
+                COMObjectEntity::getObjectId));
+            List<Long> expected = new ArrayList<>();
+            for (COMObjectEntity obj : objs) {
+                expected.add(obj.getObjectId());
+            }
+
+            Assert.assertEquals(expected, readAllPages(db, true));
+            Collections.reverse(expected);
+            Assert.assertEquals(expected, readAllPages(db, false));
+        }
+    }
+
+    private static List<Long> readAllPages(final TestDatabase db, final boolean ascending) {
+        final IntegerList objTypeIds = new IntegerList();
+        objTypeIds.add(OBJ_TYPE_ID);
+        final IntegerList domainIds = new IntegerList();
+        domainIds.add(1);
+        final ArchiveQuery archiveQuery = new ArchiveQuery(null, null, null, 0L, null, null, null, ascending, null);
+
+        List<Long> objIds = new ArrayList<>();
+        KeysetPaginationFilter filter = new KeysetPaginationFilter(new UInteger(PAGE_SIZE), null, null);
+
+        while (true) {
+            List<COMObjectEntity> page = db.processor.query(objTypeIds, archiveQuery, domainIds, null, null, null,
+                filter);
+            Assert.assertTrue(page.size() <= PAGE_SIZE);
+
+            if (page.isEmpty()) {
+                return objIds;
+            }
+
+            for (COMObjectEntity obj : page) {
+                objIds.add(obj.getObjectId());
+            }
+
+            COMObjectEntity last = page.get(page.size() - 1);
+            filter = new KeysetPaginationFilter(new UInteger(PAGE_SIZE), last.getTimestamp(), last.getObjectId());
+        }
+    }
+}
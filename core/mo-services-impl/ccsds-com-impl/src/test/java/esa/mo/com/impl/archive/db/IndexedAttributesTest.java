@@ -0,0 +1,218 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.archive.db;
+
+import esa.mo.com.impl.archive.entities.COMObjectEntity;
+import esa.mo.com.impl.provider.ArchiveManager;
+import esa.mo.com.impl.provider.ArchivePersistenceObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.ccsds.moims.mo.com.COMHelper;
+import org.ccsds.moims.mo.com.archive.structures.ArchiveQuery;
+import org.ccsds.moims.mo.com.archive.structures.CompositeFilter;
+import org.ccsds.moims.mo.com.archive.structures.CompositeFilterList;
+import org.ccsds.moims.mo.com.archive.structures.CompositeFilterSet;
+import org.ccsds.moims.mo.com.archive.structures.ExpressionOperator;
+import org.ccsds.moims.mo.com.structures.ObjectDetails;
+import org.ccsds.moims.mo.com.structures.ObjectType;
+import org.ccsds.moims.mo.mal.MALContextFactory;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.MALHelper;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IntegerList;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.UShort;
+import org.ccsds.moims.mo.mal.structures.Union;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the configuration, the extraction and the SQL predicates of the
+ * indexed attributes, and the queries pushed down to the database.
+ */
+public class IndexedAttributesTest {
+
+    private static final String PREFIX = "SELECT objId FROM COMObjectEntity ";
+    private static final int OBJ_TYPE_ID = 4001;
+    private static final int OBJECTS = 40;
+
+    @BeforeClass
+    public static void setUp() throws MALException {
+        if (MALContextFactory.lookupArea(MALHelper.MAL_AREA_NAME, MALHelper.MAL_AREA_VERSION) == null) {
+            MALHelper.init(MALContextFactory.getElementFactoryRegistry());
+        }
+
+        if (MALContextFactory.lookupArea(COMHelper.COM_AREA_NAME, COMHelper.COM_AREA_VERSION) == null) {
+            COMHelper.init(MALContextFactory.getElementFactoryRegistry());
+        }
+    }
+
+    @Test
+    public void testParseConfiguration() {
+        Map<ObjectType, List<String>> config = IndexedAttributes.parseConfiguration(
+            "4.2.1.1:rawValue, validityState;bad;4.0.1.1:rawValue;4.3.1.2:value");
+
+        ObjectType parameterValue = new ObjectType(new UShort(4), new UShort(2), new UOctet((short) 1), new UShort(1));
+        Assert.assertEquals(2, config.size());
+        Assert.assertEquals(Arrays.asList("rawValue", "validityState"), config.get(parameterValue));
+        Assert.assertTrue(IndexedAttributes.parseConfiguration(null).isEmpty());
+    }
+
+    @Test
+    public void testExtract() {
+        ObjectDetails details = new ObjectDetails(7L, null);
+
+        Object[] related = IndexedAttributes.extract(details, "related");
+        Assert.assertEquals(7.0, (Double) related[0], 0);
+        Assert.assertEquals("7", related[1]);
+
+        // Existing field without value
+        Assert.assertArrayEquals(new Object[]{null, null}, IndexedAttributes.extract(details, "source"));
+        // Missing field: the filters evaluate to false
+        Assert.assertNull(IndexedAttributes.extract(details, "unknown"));
+        Assert.assertNull(IndexedAttributes.extract(details, "source.key"));
+    }
+
+    @Test
+    public void testOnlySafePredicatesArePushedDown() {
+        Assert.assertArrayEquals(new Object[]{"a.numValue > ?", 3.0}, IndexedAttributes.compilePredicate(
+            ExpressionOperator.GREATER, new UInteger(3)));
+        Assert.assertArrayEquals(new Object[]{"a.strValue = ?", "abc"}, IndexedAttributes.compilePredicate(
+            ExpressionOperator.EQUAL, new Identifier("abc")));
+
+        Assert.assertNull(IndexedAttributes.compilePredicate(ExpressionOperator.DIFFER, new UInteger(3)));
+        Assert.assertNull(IndexedAttributes.compilePredicate(ExpressionOperator.CONTAINS, new Identifier("abc")));
+        Assert.assertNull(IndexedAttributes.compilePredicate(ExpressionOperator.EQUAL, null));
+        Assert.assertNull(IndexedAttributes.compilePredicate(ExpressionOperator.EQUAL, new Union(Double.NaN)));
+    }
+
+    @Test
+    public void testConditionsOnlyForPathsIndexedInAllTypes() {
+        IndexedAttributes indexed = new IndexedAttributes(new ArchivePartitions());
+        Map<Integer, List<String>> paths = new HashMap<>();
+        paths.put(1, Arrays.asList("rawValue", "validityState"));
+        paths.put(2, Arrays.asList("rawValue"));
+        indexed.setIndexedPaths(paths);
+
+        CompositeFilterList filters = new CompositeFilterList();
+        filters.add(new CompositeFilter("rawValue", ExpressionOperator.LESS, new Union(10.5)));
+        filters.add(new CompositeFilter("validityState", ExpressionOperator.EQUAL, new UInteger(0)));
+
+        IntegerList types = new IntegerList();
+        types.add(1);
+        types.add(2);
+
+        CompiledQuery query = new CompiledQuery(PREFIX, false);
+        Assert.assertEquals(1, indexed.addConditions(query, types, new CompositeFilterSet(filters)));
+        Assert.assertEquals(PREFIX + "WHERE (objectTypeId, domainId, objId) IN (SELECT a.objectTypeId, " +
+            "a.domainId, a.objId FROM IndexedAttributeEntity a WHERE a.fieldPath = ? AND a.numValue < ?)", query
+                .getSql());
+        Assert.assertEquals(Arrays.asList("rawValue", 10.5), query.getParameters());
+
+        types.remove(1);
+        Assert.assertEquals(2, indexed.addConditions(new CompiledQuery(PREFIX, false), types,
+            new CompositeFilterSet(filters)));
+    }
+
+    @Test
+    public void testPushdownReturnsTheSameObjectsAsTheInMemoryFilters() throws Exception {
+        try (TestDatabase db = TestDatabase.start(0)) {
+            Map<Integer, List<String>> paths = new HashMap<>();
+            paths.put(OBJ_TYPE_ID, Arrays.asList("related"));
+            db.backend.getIndexedAttributes().setIndexedPaths(paths);
+            db.backend.getAvailability().acquire();
+            try {
+                db.backend.getIndexedAttributes().synchronize(db.backend.getConnection());
+            } finally {
+                db.backend.getAvailability().release();
+            }
+
+            ArrayList<COMObjectEntity> objs = new ArrayList<>();
+            for (long i = 1; i <= OBJECTS; i++) {
+                objs.add(new COMObjectEntity(OBJ_TYPE_ID, 1, i, 1000L * i, 1, 1, new SourceLinkContainer(null, null,
+                    null), 0L, (Object) new ObjectDetails(i % 10, null)));
+            }
+            db.processor.insert(objs, null);
+
+            final List<Long> all = query(db, null);
+            Assert.assertEquals(OBJECTS, all.size());
+
+            // Fully pushed down: the database returns exactly the matching objects
+            assertPushdown(db, true, new CompositeFilter("related", ExpressionOperator.GREATER, new Union(5L)));
+            assertPushdown(db, true, new CompositeFilter("related", ExpressionOperator.EQUAL, new Union(3L)));
+            assertPushdown(db, true, new CompositeFilter("related", ExpressionOperator.GREATER_OR_EQUAL,
+                new Union(2L)), new CompositeFilter("related", ExpressionOperator.LESS, new Union(4L)));
+            assertPushdown(db, true, new CompositeFilter("related", ExpressionOperator.GREATER, new Union(100L)));
+            // DIFFER is not pushed down: the database only narrows the candidates
+            assertPushdown(db, false, new CompositeFilter("related", ExpressionOperator.GREATER, new Union(5L)),
+                new CompositeFilter("related", ExpressionOperator.DIFFER, new Union(7L)));
+        }
+    }
+
+    private static void assertPushdown(final TestDatabase db, final boolean exact, final CompositeFilter... filters)
+        throws Exception {
+        final CompositeFilterSet filterSet = new CompositeFilterSet(new CompositeFilterList());
+        filterSet.getFilters().addAll(Arrays.asList(filters));
+
+        final List<Long> expected = filterInMemory(db, query(db, null), filterSet);
+        final List<Long> pushed = query(db, filterSet);
+
+        Assert.assertTrue(pushed.containsAll(expected));
+        Assert.assertEquals(expected, filterInMemory(db, pushed, filterSet));
+        if (exact) {
+            Assert.assertEquals(expected, pushed);
+        }
+    }
+
+    private static List<Long> query(final TestDatabase db, final CompositeFilterSet filterSet) {
+        final IntegerList objTypeIds = new IntegerList();
+        objTypeIds.add(OBJ_TYPE_ID);
+        final IntegerList domainIds = new IntegerList();
+        domainIds.add(1);
+
+        final List<Long> objIds = new ArrayList<>();
+        for (COMObjectEntity obj : db.processor.query(objTypeIds, new ArchiveQuery(null, null, null, 0L, null, null,
+            null, true, null), domainIds, null, null, null, filterSet)) {
+            objIds.add(obj.getObjectId());
+        }
+        return objIds;
+    }
+
+    private static List<Long> filterInMemory(final TestDatabase db, final List<Long> objIds,
+        final CompositeFilterSet filterSet) throws Exception {
+        final ArrayList<ArchivePersistenceObject> perObjs = new ArrayList<>();
+        for (Long objId : objIds) {
+            COMObjectEntity obj = db.processor.getCOMObject(OBJ_TYPE_ID, 1, objId);
+            perObjs.add(new ArchivePersistenceObject(null, null, objId, null, obj.getObject()));
+        }
+
+        final List<Long> out = new ArrayList<>();
+        for (ArchivePersistenceObject perObj : ArchiveManager.filterQuery(perObjs, filterSet)) {
+            out.add(perObj.getObjectId());
+        }
+        return out;
+    }
+}
@@ -0,0 +1,100 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.archive.db;
+
+import esa.mo.com.impl.archive.entities.COMObjectEntity;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A COM Archive backed by a new SQLite file in a temporary directory, for the
+ * tests that run queries against the database.
+ */
+final class TestDatabase implements AutoCloseable {
+
+    static final String URL_PROPERTY = "esa.nmf.archive.persistence.jdbc.url";
+    static final String READ_POOL_SIZE_PROPERTY = "esa.nmf.archive.persistence.jdbc.readpool.size";
+
+    final DatabaseBackend backend;
+    final TransactionsProcessor processor;
+
+    private TestDatabase(final DatabaseBackend backend, final TransactionsProcessor processor) {
+        this.backend = backend;
+        this.processor = processor;
+    }
+
+    /**
+     * Starts a new database.
+     *
+     * @param readPoolSize The number of read connections, 0 to disable the
+     * read pool.
+     * @param properties Other system properties read when the database is
+     * started, as pairs of name and value.
+     * @return The started database.
+     * @throws IOException If the temporary directory could not be created.
+     */
+    static TestDatabase start(final int readPoolSize, final String... properties) throws IOException {
+        final File directory = Files.createTempDirectory("archive").toFile();
+        directory.deleteOnExit();
+
+        final Map<String, String> values = new HashMap<>();
+        values.put(URL_PROPERTY, "jdbc:sqlite:" + new File(directory, "comArchive.db").getAbsolutePath());
+        values.put(READ_POOL_SIZE_PROPERTY, String.valueOf(readPoolSize));
+        for (int i = 0; i + 1 < properties.length; i += 2) {
+            values.put(properties[i], properties[i + 1]);
+        }
+
+        final Map<String, String> previous = new HashMap<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            previous.put(entry.getKey(), System.getProperty(entry.getKey()));
+            System.setProperty(entry.getKey(), entry.getValue());
+        }
+
+        try {
+            final DatabaseBackend backend = new DatabaseBackend();
+            final TransactionsProcessor processor = new TransactionsProcessor(backend);
+            backend.startBackendDatabase(processor);
+            return new TestDatabase(backend, processor);
+        } finally {
+            for (Map.Entry<String, String> entry : previous.entrySet()) {
+                if (entry.getValue() == null) {
+                    System.clearProperty(entry.getKey());
+                } else {
+                    System.setProperty(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    static COMObjectEntity newObject(final int objTypeId, final long objId, final long timestamp,
+        final long relatedLink) {
+        return new COMObjectEntity(objTypeId, 1, objId, timestamp, 1, 1, new SourceLinkContainer(null, null, null),
+            relatedLink, new byte[8]);
+    }
+
+    @Override
+    public void close() {
+        processor.stopInteractions(() -> null);
+    }
+}
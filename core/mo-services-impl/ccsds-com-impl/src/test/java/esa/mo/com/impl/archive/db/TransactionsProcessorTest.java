@@ -0,0 +1,288 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.archive.db;
+
+import esa.mo.com.impl.archive.entities.COMObjectEntity;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.ccsds.moims.mo.com.archive.structures.ArchiveQuery;
+import org.ccsds.moims.mo.com.archive.structures.PaginationFilter;
+import org.ccsds.moims.mo.mal.structures.IntegerList;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Mixed read/write throughput of the COM Archive against the local
+ * file-backed comArchive.db, with and without the pool of read connections.
+ */
+public class TransactionsProcessorTest {
+
+    private static final String READ_POOL_SIZE_PROPERTY = "esa.nmf.archive.persistence.jdbc.readpool.size";
+
+    private static final int WRITER_THREADS = 2;
+    private static final int READER_THREADS = 4;
+    private static final int OBJECTS_PER_STORE = 100;
+    private static final long TEST_DURATION_MS = 10000;
+
+    @Test
+    public void testReadFromWriteTask() throws Exception {
+        try (TestDatabase db = TestDatabase.start(2)) {
+            ArrayList<COMObjectEntity> objs = new ArrayList<>();
+            objs.add(TestDatabase.newObject(2001, 1, 1000, 0));
+            db.processor.insert(objs, null);
+
+            // Used to wait for itself on the transactions executor
+            Future<LongList> future = db.processor.submitExternalTransactionExecutorTask(() -> db.processor
+                .getAllCOMObjectsIds(2001, 1));
+            Assert.assertEquals(1, future.get(10, TimeUnit.SECONDS).size());
+        }
+    }
+
+    @Test
+    public void testReadsOnlyWaitForTheWritesOfTheirObjectTypes() throws Exception {
+        final ExecutorService readers = Executors.newSingleThreadExecutor();
+
+        try (TestDatabase db = TestDatabase.start(2)) {
+            ArrayList<COMObjectEntity> objs = new ArrayList<>();
+            objs.add(TestDatabase.newObject(2002, 1, 1000, 0));
+            objs.add(TestDatabase.newObject(2003, 1, 1000, 0));
+            db.processor.insert(objs, null);
+            Assert.assertEquals(1, db.processor.getAllCOMObjectsIds(2003, 1).size());
+
+            // The removal of the object of 2002 waits for the database
+            db.backend.getAvailability().acquire();
+            try {
+                LongList ids = new LongList();
+                ids.add(1L);
+                db.processor.remove(2002, 1, ids, null);
+
+                Future<LongList> blocked = readers.submit(() -> db.processor.getAllCOMObjectsIds(2002, 1));
+                Assert.assertEquals(1, db.processor.getAllCOMObjectsIds(2003, 1).size());
+                Assert.assertFalse(blocked.isDone());
+            } finally {
+                db.backend.getAvailability().release();
+            }
+
+            Assert.assertEquals(0, db.processor.getAllCOMObjectsIds(2002, 1).size());
+        } finally {
+            readers.shutdown();
+        }
+    }
+
+    @Test
+    public void testStopClosesTheReadPool() throws Exception {
+        TestDatabase db = TestDatabase.start(2);
+        ArrayList<COMObjectEntity> objs = new ArrayList<>();
+        objs.add(TestDatabase.newObject(2004, 1, 1000, 0));
+        db.processor.insert(objs, null);
+        Assert.assertTrue(db.backend.isReadPoolEnabled());
+        Assert.assertEquals(1, db.processor.getAllCOMObjectsIds(2004, 1).size());
+
+        db.close();
+        Assert.assertFalse(db.backend.isReadPoolEnabled());
+        // The reads share the main connection afterwards
+        Assert.assertEquals(1, db.processor.getAllCOMObjectsIds(2004, 1).size());
+    }
+
+    @Test
+    public void testLatestCOMObjectsPerRelatedLink() throws Exception {
+        try (TestDatabase db = TestDatabase.start(2)) {
+            ArrayList<COMObjectEntity> objs = new ArrayList<>();
+            objs.add(TestDatabase.newObject(2005, 1, 1000, 1));
+            objs.add(TestDatabase.newObject(2005, 2, 3000, 1));
+            objs.add(TestDatabase.newObject(2005, 3, 2000, 1));
+            // Same timestamp: the highest object instance identifier is the newest
+            objs.add(TestDatabase.newObject(2005, 4, 5000, 2));
+            objs.add(TestDatabase.newObject(2005, 5, 5000, 2));
+            objs.add(TestDatabase.newObject(2005, 6, 9000, 3));
+            db.processor.insert(objs, null);
+
+            LongList relatedIds = new LongList();
+            relatedIds.add(1L);
+            relatedIds.add(2L);
+            relatedIds.add(4L);
+            Map<Long, Long> latest = latestObjIds(db.processor.getLatestCOMObjects(2005, 1, relatedIds));
+            Assert.assertEquals(2, latest.size());
+            Assert.assertEquals(Long.valueOf(2), latest.get(1L));
+            Assert.assertEquals(Long.valueOf(5), latest.get(2L));
+
+            latest = latestObjIds(db.processor.getLatestCOMObjects(2005, 1, null));
+            Assert.assertEquals(3, latest.size());
+            Assert.assertEquals(Long.valueOf(6), latest.get(3L));
+
+            Assert.assertTrue(db.processor.getLatestCOMObjects(2005, 1, new LongList()).isEmpty());
+            Assert.assertTrue(db.processor.getLatestCOMObjects(2005, 2, relatedIds).isEmpty());
+        }
+    }
+
+    @Test
+    @Ignore("Manual test only")
+    public void testMixedReadWriteThroughput() throws Exception {
+        System.out.println("TransactionsProcessor - Mixed read/write test >> BEGIN <<");
+
+        runMixedWorkload(0, 1001);
+        runMixedWorkload(READER_THREADS, 1002);
+
+        System.out.println("TransactionsProcessor - Mixed read/write test >> END <<");
+    }
+
+    @Test
+    @Ignore("Manual test only")
+    public void testLatestCOMObjects() throws Exception {
+        final int objTypeId = 1003;
+        final Integer domainId = 1;
+        final int relatedLinks = 2000;
+        final int valuesPerRelated = 10;
+        final DatabaseBackend dbBackend = new DatabaseBackend();
+        final TransactionsProcessor processor = new TransactionsProcessor(dbBackend);
+        dbBackend.startBackendDatabase(processor);
+
+        final IntegerList objTypeIds = new IntegerList();
+        objTypeIds.add(objTypeId);
+        final IntegerList domainIds = new IntegerList();
+        domainIds.add(domainId);
+        processor.delete(objTypeIds, new ArchiveQuery(null, null, null, 0L, null, null, null, null, null), domainIds,
+            null, null, null, null);
+
+        // The newest value of related link r has the timestamp 1000 * valuesPerRelated + r
+        long objId = 0;
+        final LongList relatedIds = new LongList();
+        for (int v = 1; v <= valuesPerRelated; v++) {
+            ArrayList<COMObjectEntity> objs = new ArrayList<>(relatedLinks);
+            for (long r = 1; r <= relatedLinks; r++) {
+                objs.add(new COMObjectEntity(objTypeId, domainId, ++objId, 1000L * v + r, 1, 1,
+                    new SourceLinkContainer(null, null, null), r, new byte[16]));
+            }
+            processor.insert(objs, null);
+        }
+        for (long r = 1; r <= relatedLinks; r++) {
+            relatedIds.add(r);
+        }
+
+        long start = System.nanoTime();
+        List<COMObjectEntity> latest = processor.getLatestCOMObjects(objTypeId, domainId, relatedIds);
+        long bulkNs = System.nanoTime() - start;
+
+        Assert.assertEquals(relatedLinks, latest.size());
+        for (COMObjectEntity entity : latest) {
+            Assert.assertEquals(1000L * valuesPerRelated + entity.getRelatedLink(), (long) entity.getTimestamp()
+                .getValue());
+        }
+
+        start = System.nanoTime();
+        for (long r = 1; r <= relatedLinks; r++) {
+            processor.query(objTypeIds, new ArchiveQuery(null, null, null, r, null, null, null, false, null),
+                domainIds, null, null, null, new PaginationFilter(new UInteger(1), new UInteger(0)));
+        }
+        long perRelatedNs = System.nanoTime() - start;
+
+        System.out.println("Latest value of " + relatedLinks + " related links:");
+        System.out.println("  Bulk query: " + bulkNs / 1000000 + " ms");
+        System.out.println("  One query per related link: " + perRelatedNs / 1000000 + " ms");
+    }
+
+    private static Map<Long, Long> latestObjIds(final List<COMObjectEntity> entities) {
+        final Map<Long, Long> objIds = new HashMap<>();
+        for (COMObjectEntity entity : entities) {
+            Assert.assertNull(objIds.put(entity.getRelatedLink(), entity.getObjectId()));
+        }
+        return objIds;
+    }
+
+    private void runMixedWorkload(final int readPoolSize, final int objTypeId) throws Exception {
+        System.setProperty(READ_POOL_SIZE_PROPERTY, String.valueOf(readPoolSize));
+        final DatabaseBackend dbBackend = new DatabaseBackend();
+        final TransactionsProcessor processor = new TransactionsProcessor(dbBackend);
+        dbBackend.startBackendDatabase(processor);
+
+        final Integer domainId = 1;
+        final IntegerList objTypeIds = new IntegerList();
+        objTypeIds.add(objTypeId);
+        final IntegerList domainIds = new IntegerList();
+        domainIds.add(domainId);
+
+        // Start from an empty table for this object type
+        processor.delete(objTypeIds, new ArchiveQuery(null, null, null, 0L, null, null, null, null, null), domainIds,
+            null, null, null, null);
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong objIdCounter = new AtomicLong(0);
+        final AtomicLong stored = new AtomicLong(0);
+        final AtomicLong reads = new AtomicLong(0);
+        final AtomicLong readLatencyNs = new AtomicLong(0);
+        final CountDownLatch done = new CountDownLatch(WRITER_THREADS + READER_THREADS);
+
+        for (int i = 0; i < WRITER_THREADS; i++) {
+            new Thread(() -> {
+                while (running.get()) {
+                    ArrayList<COMObjectEntity> objs = new ArrayList<>(OBJECTS_PER_STORE);
+                    for (int j = 0; j < OBJECTS_PER_STORE; j++) {
+                        objs.add(new COMObjectEntity(objTypeId, domainId, objIdCounter.incrementAndGet(), System
+                            .currentTimeMillis(), 1, 1, new SourceLinkContainer(null, null, null), 0L, new byte[64]));
+                    }
+                    processor.insert(objs, null);
+                    stored.addAndGet(OBJECTS_PER_STORE);
+                }
+                done.countDown();
+            }).start();
+        }
+
+        for (int i = 0; i < READER_THREADS; i++) {
+            new Thread(() -> {
+                while (running.get()) {
+                    long start = System.nanoTime();
+                    LongList ids = processor.getAllCOMObjectsIds(objTypeId, domainId);
+                    readLatencyNs.addAndGet(System.nanoTime() - start);
+                    Assert.assertNotNull(ids);
+                    reads.incrementAndGet();
+                }
+                done.countDown();
+            }).start();
+        }
+
+        Thread.sleep(TEST_DURATION_MS);
+        running.set(false);
+        done.await();
+
+        // All the stores submitted before the read must be visible
+        LongList ids = processor.getAllCOMObjectsIds(objTypeId, domainId);
+        Assert.assertEquals(stored.get(), ids.size());
+
+        double seconds = TEST_DURATION_MS / 1000.0;
+        System.out.println("Read pool size: " + dbBackend.getReadPoolSize());
+        System.out.println("  Stored objects per second: " + (long) (stored.get() / seconds));
+        System.out.println("  Reads per second: " + (long) (reads.get() / seconds));
+        System.out.println("  Average read latency: " + (reads.get() == 0 ? 0 : readLatencyNs.get() / reads.get() /
+            1000) + " us");
+    }
+}
@@ -0,0 +1,124 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.archive.fast;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Generates object ids from concurrent writers. The counters are initialised
+ * with an explicit object id, so the database is never queried.
+ */
+public class FastObjIdTest {
+
+    private static final int WRITER_THREADS = 16;
+    private static final int IDS_PER_WRITER = 20000;
+    private static final int BLOCK_SIZE = 10;
+    private static final long FIRST_OBJ_ID = 100;
+
+    @Test
+    public void testUniqueIdsFromConcurrentWriters() throws Exception {
+        final FastObjId fastObjId = new FastObjId(null);
+        fastObjId.getUniqueObjId(1, 1, FIRST_OBJ_ID);
+
+        final long[][] ids = generateConcurrently(fastObjId, false);
+
+        final Set<Long> unique = new HashSet<>();
+        for (long[] writerIds : ids) {
+            for (long id : writerIds) {
+                Assert.assertTrue("Object id " + id + " was generated twice", unique.add(id));
+                Assert.assertTrue(id > FIRST_OBJ_ID);
+            }
+        }
+        Assert.assertEquals(WRITER_THREADS * IDS_PER_WRITER, unique.size());
+        Assert.assertEquals(FIRST_OBJ_ID + unique.size() + 1, (long) fastObjId.getUniqueObjId(1, 1, 0L));
+    }
+
+    @Test
+    public void testUniqueIdsFromConcurrentBlocks() throws Exception {
+        final FastObjId fastObjId = new FastObjId(null);
+        fastObjId.getUniqueObjId(1, 1, FIRST_OBJ_ID);
+
+        final long[][] ids = generateConcurrently(fastObjId, true);
+
+        final Set<Long> unique = new HashSet<>();
+        for (long[] writerIds : ids) {
+            for (long id : writerIds) {
+                Assert.assertTrue("Object id " + id + " was generated twice", unique.add(id));
+            }
+        }
+        Assert.assertEquals(WRITER_THREADS * IDS_PER_WRITER, unique.size());
+    }
+
+    @Test
+    public void testExplicitIdsMoveTheCounter() {
+        final FastObjId fastObjId = new FastObjId(null);
+        fastObjId.getUniqueObjId(1, 1, FIRST_OBJ_ID);
+        fastObjId.getUniqueObjId(2, 1, 5L);
+
+        Assert.assertEquals(500L, (long) fastObjId.getUniqueObjId(1, 1, 500L));
+        Assert.assertEquals(10L, (long) fastObjId.getUniqueObjId(1, 1, 10L));
+        Assert.assertEquals(501L, (long) fastObjId.getUniqueObjId(1, 1, 0L));
+        Assert.assertEquals(502L, fastObjId.reserveUniqueObjIds(1, 1, BLOCK_SIZE));
+        Assert.assertEquals(502L + BLOCK_SIZE, (long) fastObjId.getUniqueObjId(1, 1, 0L));
+
+        // The other object type has its own counter
+        Assert.assertEquals(6L, (long) fastObjId.getUniqueObjId(2, 1, 0L));
+    }
+
+    private static long[][] generateConcurrently(final FastObjId fastObjId, final boolean blocks)
+        throws InterruptedException {
+        final long[][] ids = new long[WRITER_THREADS][IDS_PER_WRITER];
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] writers = new Thread[WRITER_THREADS];
+
+        for (int t = 0; t < WRITER_THREADS; t++) {
+            final long[] writerIds = ids[t];
+            writers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < IDS_PER_WRITER; i += blocks ? BLOCK_SIZE : 1) {
+                    if (blocks) {
+                        final long first = fastObjId.reserveUniqueObjIds(1, 1, BLOCK_SIZE);
+                        for (int k = 0; k < BLOCK_SIZE; k++) {
+                            writerIds[i + k] = first + k;
+                        }
+                    } else {
+                        writerIds[i] = fastObjId.getUniqueObjId(1, 1, 0L);
+                    }
+                }
+            });
+            writers[t].start();
+        }
+
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        return ids;
+    }
+}
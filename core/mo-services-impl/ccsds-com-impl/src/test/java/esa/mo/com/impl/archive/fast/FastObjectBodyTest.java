@@ -0,0 +1,182 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.archive.fast;
+
+import esa.mo.com.impl.archive.entities.COMObjectEntity;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.ccsds.moims.mo.com.COMHelper;
+import org.ccsds.moims.mo.com.structures.ObjectDetails;
+import org.ccsds.moims.mo.com.structures.ObjectId;
+import org.ccsds.moims.mo.com.structures.ObjectKey;
+import org.ccsds.moims.mo.com.structures.ObjectType;
+import org.ccsds.moims.mo.mal.MALContextFactory;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.MALHelper;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.UShort;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+
+public class FastObjectBodyTest {
+
+    @BeforeClass
+    public static void setUp() throws MALException {
+        if (MALContextFactory.lookupArea(MALHelper.MAL_AREA_NAME, MALHelper.MAL_AREA_VERSION) == null) {
+            MALHelper.init(MALContextFactory.getElementFactoryRegistry());
+        }
+
+        if (MALContextFactory.lookupArea(COMHelper.COM_AREA_NAME, COMHelper.COM_AREA_VERSION) == null) {
+            COMHelper.init(MALContextFactory.getElementFactoryRegistry());
+        }
+    }
+
+    private static COMObjectEntity createEntity(final long objId, final long related) {
+        IdentifierList domain = new IdentifierList();
+        domain.add(new Identifier("esa"));
+        domain.add(new Identifier("test"));
+        ObjectId source = new ObjectId(new ObjectType(new UShort(4), new UShort(2), new UOctet((short) 1),
+            new UShort(1)), new ObjectKey(domain, objId));
+        return new COMObjectEntity(1, 1, objId, 0L, 1, 1, null, 0L, (Object) new ObjectDetails(related, source));
+    }
+
+    @Test
+    public void testHitsMissesAndInvalidation() {
+        FastObjectBody cache = new FastObjectBody(1024 * 1024);
+        COMObjectEntity entity = createEntity(1, 5);
+
+        Object first = cache.getSharedObject(entity);
+        Object second = cache.getSharedObject(entity);
+
+        Assert.assertEquals(5L, (long) ((ObjectDetails) first).getRelated());
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(1, cache.getHits());
+
+        cache.invalidate(1, 1, 1L);
+        Assert.assertNotSame(first, cache.getSharedObject(entity));
+        Assert.assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testOwnedBodiesAreNotShared() {
+        FastObjectBody cache = new FastObjectBody(1024 * 1024);
+        COMObjectEntity entity = createEntity(1, 5);
+
+        ObjectDetails shared = (ObjectDetails) cache.getSharedObject(entity);
+        ObjectDetails owned = (ObjectDetails) cache.getObject(entity);
+        Assert.assertNotSame(shared, owned);
+
+        // A change made by the owner is not seen by the other callers
+        owned.setRelated(6L);
+        Assert.assertEquals(5L, (long) ((ObjectDetails) cache.getSharedObject(entity)).getRelated());
+        Assert.assertEquals(5L, (long) ((ObjectDetails) cache.getObject(entity)).getRelated());
+        Assert.assertNotSame(cache.getObject(entity), cache.getObject(entity));
+    }
+
+    @Test
+    public void testImmutableBodiesAreShared() {
+        FastObjectBody cache = new FastObjectBody(1024 * 1024);
+        COMObjectEntity entity = new COMObjectEntity(1, 1, 1L, 0L, 1, 1, null, 0L, (Object) new Identifier("value"));
+
+        Object first = cache.getObject(entity);
+        Assert.assertEquals(new Identifier("value"), first);
+        Assert.assertSame(first, cache.getObject(entity));
+        Assert.assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testChangedBodyIsNotServedFromCache() {
+        FastObjectBody cache = new FastObjectBody(1024 * 1024);
+        cache.getSharedObject(createEntity(1, 5));
+
+        Object updated = cache.getSharedObject(createEntity(1, 6));
+
+        Assert.assertEquals(6L, (long) ((ObjectDetails) updated).getRelated());
+        Assert.assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testEvictionKeepsTheSizeBounded() {
+        FastObjectBody cache = new FastObjectBody(2048);
+
+        for (int i = 1; i <= 100; i++) {
+            cache.getSharedObject(createEntity(i, i));
+        }
+
+        Assert.assertTrue(cache.getEvictions() > 0);
+        Assert.assertTrue(cache.getEstimatedSize() <= 2048);
+        Assert.assertEquals(100 - cache.getEvictions(), cache.getNumberOfEntries());
+    }
+
+    @Test
+    public void testDisabledCache() {
+        FastObjectBody cache = new FastObjectBody(0);
+        COMObjectEntity entity = createEntity(1, 5);
+
+        Assert.assertNotSame(cache.getSharedObject(entity), cache.getSharedObject(entity));
+        Assert.assertEquals(0, cache.getNumberOfEntries());
+    }
+
+    @Test
+    @Ignore("Manual test only")
+    public void testAllocationRate() {
+        final int definitions = 200;
+        final int iterations = 500;
+        List<COMObjectEntity> entities = new ArrayList<>(definitions);
+
+        for (int i = 1; i <= definitions; i++) {
+            entities.add(createEntity(i, i));
+        }
+
+        long uncached = allocatedBytes(new FastObjectBody(0), entities, iterations);
+        long cached = allocatedBytes(new FastObjectBody(16 * 1024 * 1024), entities, iterations);
+
+        System.out.println("FastObjectBody - Allocation test");
+        System.out.println("  Without cache: " + uncached / (definitions * iterations) + " bytes per read");
+        System.out.println("  With cache: " + cached / (definitions * iterations) + " bytes per read");
+    }
+
+    private static long allocatedBytes(FastObjectBody cache, List<COMObjectEntity> entities, int iterations) {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Warm up
+        for (COMObjectEntity entity : entities) {
+            cache.getSharedObject(entity);
+        }
+
+        long before = bean.getThreadAllocatedBytes(threadId);
+
+        for (int i = 0; i < iterations; i++) {
+            for (COMObjectEntity entity : entities) {
+                cache.getSharedObject(entity);
+            }
+        }
+
+        return bean.getThreadAllocatedBytes(threadId) - before;
+    }
+}
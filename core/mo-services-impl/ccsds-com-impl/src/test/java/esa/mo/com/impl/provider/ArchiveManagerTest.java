@@ -20,6 +20,10 @@
  */
 package esa.mo.com.impl.provider;
 
+import esa.mo.com.impl.util.HelperArchive;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
@@ -27,13 +31,28 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import org.ccsds.moims.mo.com.COMHelper;
+import org.ccsds.moims.mo.com.archive.structures.ArchiveDetails;
+import org.ccsds.moims.mo.com.archive.structures.ArchiveDetailsList;
+import org.ccsds.moims.mo.com.structures.ObjectDetails;
+import org.ccsds.moims.mo.com.structures.ObjectDetailsList;
 import org.ccsds.moims.mo.com.structures.ObjectType;
+import org.ccsds.moims.mo.mal.MALContextFactory;
+import org.ccsds.moims.mo.mal.MALHelper;
+import org.ccsds.moims.mo.mal.structures.FineTime;
 import org.ccsds.moims.mo.mal.structures.Identifier;
 import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.LongList;
 import org.ccsds.moims.mo.mal.structures.UOctet;
 import org.ccsds.moims.mo.mal.structures.URI;
 import org.ccsds.moims.mo.mal.structures.UShort;
+import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -202,5 +221,160 @@ public class ArchiveManagerTest {
             .getTime()) + " ms");
 
     }
+
+    @Test
+    public void testReadsDoNotBlockTheStores() throws Exception {
+        final String urlProperty = "esa.nmf.archive.persistence.jdbc.url";
+        final File directory = Files.createTempDirectory("archive").toFile();
+        directory.deleteOnExit();
+
+        final String previousUrl = System.getProperty(urlProperty);
+        System.setProperty(urlProperty, "jdbc:sqlite:" + new File(directory, "comArchive.db").getAbsolutePath());
+        final ArchiveManager archiveManager;
+        try {
+            archiveManager = new ArchiveManager(null);
+        } finally {
+            if (previousUrl == null) {
+                System.clearProperty(urlProperty);
+            } else {
+                System.setProperty(urlProperty, previousUrl);
+            }
+        }
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            archiveManager.init();
+
+            final ObjectType readType = new ObjectType(new UShort(4), new UShort(9), new UOctet((short) 1),
+                new UShort(3));
+            final ObjectType storedType = new ObjectType(new UShort(4), new UShort(9), new UOctet((short) 1),
+                new UShort(4));
+            final IdentifierList domain = new IdentifierList();
+            domain.add(new Identifier("esa"));
+            domain.add(new Identifier("reads"));
+
+            // Stored once first, so the fast indexes no longer need the database
+            archiveManager.insertEntries(readType, domain, newArchiveDetails(), null, null, false);
+            archiveManager.insertEntries(storedType, domain, newArchiveDetails(), null, null, false);
+            Assert.assertNotNull(archiveManager.getPersistenceObject(readType, domain, 1L));
+
+            // The removal waits for the database, and so does the read after it
+            final FutureTask<ArchivePersistenceObject> read = new FutureTask<>(() -> archiveManager
+                .getPersistenceObject(readType, domain, 1L));
+            archiveManager.getDbBackend().getAvailability().acquire();
+            try {
+                LongList objIds = new LongList();
+                objIds.add(1L);
+                archiveManager.removeEntries(readType, domain, objIds, null, false);
+
+                Thread reader = new Thread(read);
+                reader.start();
+
+                // The read is in progress once it waits for the removal
+                long deadline = System.currentTimeMillis() + 10000;
+                while (reader.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                Assert.assertEquals(Thread.State.WAITING, reader.getState());
+
+                Future<LongList> store = executor.submit(() -> archiveManager.insertEntries(storedType, domain,
+                    newArchiveDetails(), null, null));
+
+                // The store is not held back by the pending read
+                Assert.assertEquals(1, store.get(10, TimeUnit.SECONDS).size());
+                Assert.assertFalse(read.isDone());
+            } finally {
+                archiveManager.getDbBackend().getAvailability().release();
+            }
+
+            Assert.assertNull(read.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+            archiveManager.close();
+        }
+    }
+
+    private static ArchiveDetailsList newArchiveDetails() {
+        ArchiveDetailsList details = new ArchiveDetailsList();
+        details.add(new ArchiveDetails(0L, new ObjectDetails(null, null), new Identifier("network"), new FineTime(0),
+            new URI("maltcp://reads")));
+        return details;
+    }
+
+    @Test
+    @Ignore("Manual test only")
+    public void testDefinitionLookup() throws Exception {
+        final int definitions = 200;
+        final int iterations = 50;
+
+        if (MALContextFactory.lookupArea(MALHelper.MAL_AREA_NAME, MALHelper.MAL_AREA_VERSION) == null) {
+            MALHelper.init(MALContextFactory.getElementFactoryRegistry());
+        }
+
+        if (MALContextFactory.lookupArea(COMHelper.COM_AREA_NAME, COMHelper.COM_AREA_VERSION) == null) {
+            COMHelper.init(MALContextFactory.getElementFactoryRegistry());
+        }
+
+        ArchiveProviderServiceImpl archiveService = new ArchiveProviderServiceImpl();
+        archiveService.getArchiveManager().init();
+
+        // The definitions are mutable composites, like the MC definitions
+        ObjectType defType = new ObjectType(new UShort(4), new UShort(9), new UOctet((short) 1), new UShort(2));
+        IdentifierList domain = new IdentifierList();
+        domain.add(new Identifier("esa"));
+        domain.add(new Identifier("definitions"));
+
+        ArchiveDetailsList details = new ArchiveDetailsList();
+        ObjectDetailsList bodies = new ObjectDetailsList();
+
+        for (int i = 1; i <= definitions; i++) {
+            details.add(new ArchiveDetails(0L, new ObjectDetails(null, null), new Identifier("network"),
+                new FineTime(i), new URI("maltcp://definitions")));
+            bodies.add(new ObjectDetails((long) i, null));
+        }
+
+        LongList defIds = archiveService.getArchiveManager().insertEntries(defType, domain, details, bodies, null,
+            false);
+
+        System.out.println("ArchiveManager - Definition lookup test");
+
+        for (boolean readOnly : new boolean[]{false, true}) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+            long threadId = Thread.currentThread().getId();
+
+            // Warm up
+            lookupDefinitions(archiveService, defType, domain, defIds, readOnly);
+
+            long allocatedBefore = bean.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+
+            for (int i = 0; i < iterations; i++) {
+                lookupDefinitions(archiveService, defType, domain, defIds, readOnly);
+            }
+
+            long time = System.nanoTime() - start;
+            long allocated = bean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+            System.out.println("  " + (readOnly ? "Read-only" : "Owned") + " bodies: " + time / (definitions *
+                iterations) + " ns and " + allocated / (definitions * iterations) + " bytes per lookup");
+        }
+
+        archiveService.getArchiveManager().close();
+    }
+
+    private static void lookupDefinitions(ArchiveProviderServiceImpl archiveService, ObjectType defType,
+        IdentifierList domain, LongList defIds, boolean readOnly) {
+        for (Long defId : defIds) {
+            ObjectDetails def = (ObjectDetails) (readOnly ? HelperArchive.getReadOnlyObjectBodyFromArchive(
+                archiveService, defType, domain, defId) : HelperArchive.getObjectBodyFromArchive(archiveService,
+                    defType, domain, defId));
+
+            if (def == null) {
+                throw new IllegalStateException("The definition " + defId + " was not found!");
+            }
+        }
+    }
 }
 //------------------------------------------------------------------------------
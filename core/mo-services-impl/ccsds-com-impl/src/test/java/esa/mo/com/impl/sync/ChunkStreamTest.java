@@ -0,0 +1,94 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.sync;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChunkStreamTest {
+
+    @Test
+    public void testChunksInOrder() throws IOException {
+        List<byte[]> chunks = new ArrayList<>();
+        ChunkOutputStream out = new ChunkOutputStream(4, (index, chunk) -> {
+            Assert.assertEquals(chunks.size(), index);
+            chunks.add(chunk);
+        });
+
+        out.write(new byte[]{1, 2, 3});
+        out.write(4);
+        out.write(new byte[]{5, 6, 7, 8, 9, 10}, 0, 6);
+        Assert.assertEquals(2, chunks.size());
+
+        out.close();
+        Assert.assertEquals(3, chunks.size());
+        Assert.assertEquals(3, out.getNumberOfChunks());
+        Assert.assertArrayEquals(new byte[]{1, 2, 3, 4}, chunks.get(0));
+        Assert.assertArrayEquals(new byte[]{5, 6, 7, 8}, chunks.get(1));
+        Assert.assertArrayEquals(new byte[]{9, 10}, chunks.get(2));
+
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        ChunkInputStream in = new ChunkInputStream(chunks);
+        byte[] buffer = new byte[3];
+        int read;
+
+        while ((read = in.read(buffer)) > 0) {
+            joined.write(buffer, 0, read);
+        }
+
+        Assert.assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, joined.toByteArray());
+    }
+
+    @Test
+    public void testCompressedRoundTrip() throws IOException {
+        byte[] data = new byte[100000];
+        new Random(1).nextBytes(data);
+        Arrays.fill(data, 0, 50000, (byte) 7);
+
+        List<byte[]> chunks = new ArrayList<>();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(new ChunkOutputStream(200, (index, chunk) -> chunks.add(
+            chunk)))) {
+            gzip.write(data);
+        }
+
+        for (int i = 0; i < chunks.size() - 1; i++) {
+            Assert.assertEquals(200, chunks.get(i).length);
+        }
+
+        byte[] decoded = new byte[data.length];
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ChunkInputStream(chunks)))) {
+            in.readFully(decoded);
+            Assert.assertEquals(-1, in.read());
+        }
+
+        Assert.assertArrayEquals(data, decoded);
+    }
+
+}
@@ -0,0 +1,150 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.sync;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompressionTest {
+
+    private static Dictionary createDictionary() {
+        Dictionary dictionary = new Dictionary();
+
+        for (int i = 0; i < 50; i++) {
+            dictionary.getWordId("esa.nanosat.domain" + i);
+        }
+
+        return dictionary;
+    }
+
+    private static byte[] createData() {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        Random random = new Random(3);
+
+        for (int i = 0; i < 10000; i++) {
+            byte[] word = ("esa.nanosat.domain" + random.nextInt(50)).getBytes(StandardCharsets.UTF_8);
+            data.write(word, 0, word.length);
+            data.write(random.nextInt());
+        }
+
+        return data.toByteArray();
+    }
+
+    private static byte[] compress(Compression compression, byte[] data, byte[] preset) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        try (OutputStream out = compression.compress(compressed, preset)) {
+            out.write(data);
+        }
+
+        return compressed.toByteArray();
+    }
+
+    private static byte[] decompress(Compression compression, byte[] compressed, int length, byte[] preset)
+        throws IOException {
+        byte[] data = new byte[length];
+
+        try (DataInputStream in = new DataInputStream(compression.decompress(new ByteArrayInputStream(compressed),
+            preset))) {
+            in.readFully(data);
+            Assert.assertEquals(-1, in.read());
+        }
+
+        return data;
+    }
+
+    @Test
+    public void testParse() {
+        Assert.assertSame(Compression.DEFAULT, Compression.parse(null));
+        Assert.assertSame(Compression.DEFAULT, Compression.parse(""));
+        Assert.assertEquals(Compression.Type.NONE, Compression.parse("none").getType());
+        Assert.assertEquals(Compression.Type.GZIP, Compression.parse("gzip").getType());
+        Assert.assertEquals(3, Compression.parse(" GZIP:3 ").getLevel());
+        Assert.assertEquals(Compression.Type.DICTIONARY, Compression.parse("dictionary:9").getType());
+        Assert.assertEquals("dictionary:9", Compression.parse("dictionary:9").toString());
+
+        for (String invalid : new String[]{"lz4", "gzip:10", "gzip:fast", "none:1"}) {
+            try {
+                Compression.parse(invalid);
+                Assert.fail(invalid);
+            } catch (IllegalArgumentException ex) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Dictionary dictionary = createDictionary();
+        byte[] preset = dictionary.getPresetDictionary(dictionary.getNumberOfWords(),
+            Compression.MAX_PRESET_DICTIONARY_SIZE);
+        byte[] data = createData();
+
+        for (String value : new String[]{"none", "gzip", "gzip:1", "gzip:9", "dictionary", "dictionary:1"}) {
+            Compression compression = Compression.parse(value);
+            byte[] compressed = compress(compression, data, preset);
+
+            if (compression.getType() != Compression.Type.NONE) {
+                Assert.assertTrue(value, compressed.length < data.length / 2);
+            }
+
+            Assert.assertArrayEquals(value, data, decompress(compression, compressed, data.length, preset));
+        }
+    }
+
+    @Test
+    public void testDictionaryMismatch() throws Exception {
+        Dictionary dictionary = createDictionary();
+        byte[] preset = dictionary.getPresetDictionary(dictionary.getNumberOfWords(),
+            Compression.MAX_PRESET_DICTIONARY_SIZE);
+        byte[] data = createData();
+        Compression compression = Compression.parse("dictionary");
+        byte[] compressed = compress(compression, data, preset);
+
+        try {
+            decompress(compression, compressed, data.length, dictionary.getPresetDictionary(10, 1024));
+            Assert.fail();
+        } catch (IOException ex) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testPresetDictionary() throws Exception {
+        Dictionary dictionary = new Dictionary();
+        dictionary.getWordId("abc");
+        dictionary.getWordId("de");
+        dictionary.defineWord(3, "fgh");
+
+        Assert.assertEquals(3, dictionary.getNumberOfWords());
+        Assert.assertEquals(Integer.valueOf(4), dictionary.getWordId("ij"));
+        Assert.assertArrayEquals("abcde".getBytes(StandardCharsets.UTF_8), dictionary.getPresetDictionary(2, 10));
+        Assert.assertArrayEquals("efghij".getBytes(StandardCharsets.UTF_8), dictionary.getPresetDictionary(4, 6));
+    }
+
+}
@@ -0,0 +1,98 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.sync;
+
+import esa.mo.com.impl.archive.entities.COMObjectEntity;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.ccsds.moims.mo.com.archive.structures.KeysetPaginationFilter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KeysetPagesTest {
+
+    private static final Comparator<COMObjectEntity> KEY_ORDER = Comparator.comparing((COMObjectEntity obj) -> obj
+        .getTimestamp().getValue()).thenComparing(COMObjectEntity::getObjectId);
+
+    @Test
+    public void testAllObjectsWithSharedKeys() {
+        // 3 object types in 2 domains share the same object ids and timestamps
+        List<COMObjectEntity> objs = new ArrayList<>();
+        for (int type = 1; type <= 3; type++) {
+            for (int domain = 1; domain <= 2; domain++) {
+                for (long objId = 1; objId <= 10; objId++) {
+                    objs.add(newObject(type, domain, objId, 1000L * (objId / 3)));
+                }
+            }
+        }
+
+        for (int pageSize : new int[]{1, 2, 4, 5, 7, 100}) {
+            List<COMObjectEntity> fetched = new ArrayList<>();
+            KeysetPages pages = new KeysetPages(filter -> query(objs, filter), pageSize, Long.MAX_VALUE);
+            pages.forEachRemaining(fetched::add);
+
+            Assert.assertEquals("Page size " + pageSize, objs.size(), fetched.size());
+            Assert.assertEquals("Page size " + pageSize, new HashSet<>(objs), new HashSet<>(fetched));
+            for (int i = 1; i < fetched.size(); i++) {
+                Assert.assertTrue(KEY_ORDER.compare(fetched.get(i - 1), fetched.get(i)) <= 0);
+            }
+            Assert.assertEquals(3000L, pages.getLastTimestamp().getValue());
+        }
+    }
+
+    @Test
+    public void testLimit() {
+        List<COMObjectEntity> objs = new ArrayList<>();
+        for (long objId = 1; objId <= 10; objId++) {
+            objs.add(newObject(1, 1, objId, objId));
+        }
+
+        List<Long> fetched = new ArrayList<>();
+        KeysetPages pages = new KeysetPages(filter -> query(objs, filter), 3, 7);
+        pages.forEachRemaining(obj -> fetched.add(obj.getObjectId()));
+
+        Assert.assertEquals(7, fetched.size());
+        Assert.assertEquals(Long.valueOf(7), fetched.get(6));
+        Assert.assertEquals(7L, pages.getLastTimestamp().getValue());
+        Assert.assertNull(new KeysetPages(filter -> new ArrayList<>(), 3, 7).getLastTimestamp());
+    }
+
+    /**
+     * Executes the keyset pagination as the archive does. The order of the
+     * objects sharing the same key is not defined.
+     */
+    private static List<COMObjectEntity> query(final List<COMObjectEntity> objs, final KeysetPaginationFilter filter) {
+        final List<COMObjectEntity> sorted = objs.stream().filter(obj -> filter.getLastTimestamp() == null || KEY_ORDER
+            .compare(obj, newObject(0, 0, filter.getLastObjId(), filter.getLastTimestamp().getValue())) > 0).sorted(
+                KEY_ORDER.thenComparing(COMObjectEntity::getDomainId, Comparator.reverseOrder()).thenComparing(
+                    COMObjectEntity::getObjectTypeId)).collect(Collectors.toList());
+
+        return sorted.subList(0, (int) Math.min(sorted.size(), filter.getLimit().getValue()));
+    }
+
+    private static COMObjectEntity newObject(final int objTypeId, final int domainId, final long objId,
+        final long timestamp) {
+        return new COMObjectEntity(objTypeId, domainId, objId, timestamp, 1, 1, null, 0L, new byte[0]);
+    }
+}
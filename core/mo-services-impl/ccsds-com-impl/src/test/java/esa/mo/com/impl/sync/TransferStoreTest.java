@@ -0,0 +1,92 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.sync;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TransferStoreTest {
+
+    @Test
+    public void testTransfer() throws IOException {
+        File directory = new File(Files.createTempDirectory("transfers").toFile(), "sync");
+        TransferStore store = new TransferStore(directory);
+        Assert.assertNull(store.open(42));
+
+        TransferStore.Transfer transfer = store.create(42, 4, Compression.parse("dictionary:5"));
+        transfer.writeChunk(1, new byte[]{5, 6, 7, 8});
+        transfer.writeChunk(2, new byte[]{9});
+        transfer.writeChunk(0, new byte[]{1, 2, 3, 4});
+        Assert.assertFalse(store.open(42).isComplete());
+        Assert.assertTrue(store.hasTransfers());
+
+        transfer.complete(3, 1234L);
+
+        // As read after a restart
+        TransferStore.Transfer stored = store.open(42);
+        Assert.assertTrue(stored.isComplete());
+        Assert.assertEquals(3, stored.getNumberOfChunks());
+        Assert.assertEquals(4, stored.getChunkSize());
+        Assert.assertEquals(Long.valueOf(1234L), stored.getSyncTime());
+        Assert.assertEquals("dictionary:5", stored.getCompression().toString());
+        Assert.assertArrayEquals(new byte[]{1, 2, 3, 4}, stored.readChunk(0));
+        Assert.assertArrayEquals(new byte[]{5, 6, 7, 8}, stored.readChunk(1));
+        Assert.assertArrayEquals(new byte[]{9}, stored.readChunk(2));
+        Assert.assertNull(stored.readChunk(3));
+
+        store.delete(42);
+        Assert.assertNull(store.open(42));
+        Assert.assertFalse(store.hasTransfers());
+    }
+
+    @Test
+    public void testDictionary() throws IOException {
+        TransferStore store = new TransferStore(Files.createTempDirectory("transfers").toFile());
+        Dictionary dictionary = new Dictionary();
+        dictionary.getWordId("esa");
+        dictionary.getWordId("malspp://provider");
+        store.saveDictionary(dictionary);
+
+        Dictionary loaded = new Dictionary();
+        store.loadDictionary(loaded);
+        Assert.assertEquals(dictionary.getWords(), loaded.getWords());
+
+        // The new words do not reuse the ids of the stored ones
+        Assert.assertEquals(Integer.valueOf(3), loaded.getWordId("network"));
+    }
+
+    @Test
+    public void testPurge() throws IOException {
+        TransferStore store = new TransferStore(Files.createTempDirectory("transfers").toFile());
+        store.create(1, 10, Compression.DEFAULT);
+        store.saveDictionary(new Dictionary());
+
+        store.purge(3600000L);
+        Assert.assertNotNull(store.open(1));
+
+        store.purge(-1);
+        Assert.assertNull(store.open(1));
+    }
+
+}
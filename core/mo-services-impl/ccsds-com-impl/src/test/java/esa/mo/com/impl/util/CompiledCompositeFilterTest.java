@@ -0,0 +1,181 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.com.impl.util;
+
+import esa.mo.helpertools.helpers.HelperAttributes;
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.ccsds.moims.mo.com.archive.structures.CompositeFilter;
+import org.ccsds.moims.mo.com.archive.structures.ExpressionOperator;
+import org.ccsds.moims.mo.com.structures.ObjectDetails;
+import org.ccsds.moims.mo.com.structures.ObjectId;
+import org.ccsds.moims.mo.com.structures.ObjectKey;
+import org.ccsds.moims.mo.com.structures.ObjectType;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Blob;
+import org.ccsds.moims.mo.mal.structures.Duration;
+import org.ccsds.moims.mo.mal.structures.Element;
+import org.ccsds.moims.mo.mal.structures.FineTime;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.Time;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.mal.structures.ULong;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.UShort;
+import org.ccsds.moims.mo.mal.structures.Union;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+public class CompiledCompositeFilterTest {
+
+    private static final ExpressionOperator[] OPERATORS = new ExpressionOperator[]{ExpressionOperator.EQUAL,
+        ExpressionOperator.DIFFER, ExpressionOperator.GREATER, ExpressionOperator.GREATER_OR_EQUAL,
+        ExpressionOperator.LESS, ExpressionOperator.LESS_OR_EQUAL, ExpressionOperator.CONTAINS,
+        ExpressionOperator.ICONTAINS};
+
+    private static ObjectDetails createDetails(final long related, final long instId) {
+        IdentifierList domain = new IdentifierList();
+        domain.add(new Identifier("esa"));
+        ObjectType type = new ObjectType(new UShort(4), new UShort(2), new UOctet((short) 1), new UShort(1));
+        return new ObjectDetails(related, new ObjectId(type, new ObjectKey(domain, instId)));
+    }
+
+    @Test
+    public void testFieldPath() throws NoSuchFieldException {
+        ObjectDetails details = createDetails(3, 42);
+
+        Assert.assertEquals(42L, FieldPath.compile("source.key.instId").get(details));
+        Assert.assertEquals(3L, FieldPath.compile("related").get(details));
+        Assert.assertSame(details, FieldPath.compile("").get(details));
+        Assert.assertSame(FieldPath.compile("related"), FieldPath.compile("related"));
+
+        // Same path on objects of different classes
+        Assert.assertEquals(42L, FieldPath.compile("instId").get(details.getSource().getKey()));
+        try {
+            FieldPath.compile("instId").get(details);
+            Assert.fail("Expected NoSuchFieldException");
+        } catch (NoSuchFieldException ex) {
+        }
+
+        try {
+            FieldPath.compile("source.key").get(new ObjectDetails(1L, null));
+            Assert.fail("Expected NoSuchFieldException");
+        } catch (NoSuchFieldException ex) {
+        }
+    }
+
+    @Test
+    public void testSameResultsAsEvaluateExpression() {
+        Object[] fields = new Object[]{5, 5L, 2.5, Double.NaN, 1.5f, (short) 5, (byte) 5, true, "abc", "5", "ABCD",
+            new Identifier("abc"), new UInteger(5), new UOctet((short) 3), new UShort(7), new ULong(BigInteger.TEN),
+            new Time(100), new FineTime(100), new Duration(2.0), new Union(5L), new Union("x"), new Union(2.5),
+            ExpressionOperator.GREATER, new Blob(new byte[]{1}), null};
+        Attribute[] values = new Attribute[]{new UInteger(5), new Union(2.5), new Identifier("abc"), new Union("5"),
+            new Union("b"), new Blob(new byte[]{1}), new Duration(2.0), new FineTime(100), new UInteger(2), null};
+
+        for (Object field : fields) {
+            for (Attribute value : values) {
+                for (ExpressionOperator operator : OPERATORS) {
+                    CompiledCompositeFilter filter = CompiledCompositeFilter.compile(new CompositeFilter("related",
+                        operator, value));
+                    Object expected = evaluate(() -> HelperCOM.evaluateExpression((Element) HelperAttributes
+                        .javaType2Attribute(field), operator, value));
+                    Object actual = evaluate(() -> filter.evaluate(field));
+
+                    Assert.assertEquals(field + " " + operator + " " + value, expected, actual);
+                }
+            }
+        }
+    }
+
+    private static Object evaluate(final java.util.function.Supplier<Boolean> evaluation) {
+        try {
+            return evaluation.get();
+        } catch (RuntimeException ex) {
+            return ex.getClass();
+        }
+    }
+
+    @Test
+    @Ignore("Manual test only")
+    public void testFilteringPerformance() throws Exception {
+        final int n = 100000;
+        final List<Object> objs = new ArrayList<>(n);
+
+        for (int i = 0; i < n; i++) {
+            objs.add(createDetails(i, i));
+        }
+
+        final CompositeFilter filter = new CompositeFilter("source.key.instId", ExpressionOperator.GREATER,
+            new UInteger(n / 2));
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            int reflective = 0;
+
+            for (Object obj : objs) {
+                Object field = getNestedObjectReflectively(obj, filter.getFieldName());
+                Element left = (Element) HelperAttributes.javaType2Attribute(field);
+
+                if (Boolean.TRUE.equals(HelperCOM.evaluateExpression(left, filter.getType(), filter
+                    .getFieldValue()))) {
+                    reflective++;
+                }
+            }
+
+            long middle = System.nanoTime();
+            int compiled = 0;
+            CompiledCompositeFilter compiledFilter = CompiledCompositeFilter.compile(filter);
+
+            for (Object obj : objs) {
+                if (Boolean.TRUE.equals(compiledFilter.evaluate(compiledFilter.getField(obj)))) {
+                    compiled++;
+                }
+            }
+
+            long end = System.nanoTime();
+            Assert.assertEquals(reflective, compiled);
+
+            System.out.println("CompiledCompositeFilter - Filtering " + n + " objects");
+            System.out.println("  Reflective: " + (middle - start) / 1000000 + " ms");
+            System.out.println("  Compiled: " + (end - middle) / 1000000 + " ms");
+        }
+    }
+
+    // The previous implementation of HelperCOM.getNestedObject
+    private static Object getNestedObjectReflectively(final Object in, final String fieldName) throws Exception {
+        Object obj = in;
+
+        for (String part : fieldName.split("\\.")) {
+            if (!part.equals("")) {
+                Field field = obj.getClass().getDeclaredField(part);
+                field.setAccessible(true);
+                obj = field.get(obj);
+            }
+        }
+
+        return obj;
+    }
+}
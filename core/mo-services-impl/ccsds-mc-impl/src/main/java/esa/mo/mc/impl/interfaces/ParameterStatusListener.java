@@ -21,9 +21,11 @@
 package esa.mo.mc.impl.interfaces;
 
 import java.io.IOException;
+import java.util.List;
 import org.ccsds.moims.mo.mal.structures.Attribute;
 import org.ccsds.moims.mo.mal.structures.Identifier;
 import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.LongList;
 import org.ccsds.moims.mo.mc.parameter.structures.ParameterDefinitionDetails;
 import org.ccsds.moims.mo.mc.parameter.structures.ParameterRawValueList;
 import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
@@ -66,6 +68,21 @@ public interface ParameterStatusListener {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    /**
+     * Called by the NMF core whenever the values of several parameters are sampled together, for
+     * example the parameters of an aggregation.
+     *
+     * Implementing it is optional. If implemented, it is called once for the whole list instead of
+     * calling onGetValue once per parameter.
+     *
+     * @param parameterIDs the IDs of the parameters
+     * @return The values of the parameters that were requested, in the same order as the IDs
+     * @throws java.io.IOException if the parameter values could not be acquired
+     */
+    default List<Attribute> onGetValues(LongList parameterIDs) throws IOException {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
     /**
      * The user must implement this interface in order to set a collection of parameter values to a
      * set variables in the application logic.
@@ -25,8 +25,16 @@ import esa.mo.com.impl.util.HelperArchive;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.SingleConnectionDetails;
 import esa.mo.helpertools.helpers.HelperTime;
+import esa.mo.mc.impl.util.MCServicesHelper;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.structures.ObjectId;
@@ -58,6 +66,7 @@ import org.ccsds.moims.mo.mc.aggregation.structures.ThresholdFilter;
 import org.ccsds.moims.mo.mc.aggregation.structures.ThresholdType;
 import org.ccsds.moims.mo.mc.parameter.structures.ParameterDefinitionDetails;
 import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterValueList;
 import org.ccsds.moims.mo.mc.parameter.structures.ValidityState;
 import org.ccsds.moims.mo.mc.structures.ObjectInstancePair;
 
@@ -78,6 +87,13 @@ public final class AggregationManager extends MCManager {
     private Long uniqueObjIdAVal;
     private final ParameterManager parameterManager;
 
+    private final static long KEEP_ALIVE_TIME_SAMPLING_THREADS = 60L;
+    private final static int MAXIMUM_NUMBER_OF_SAMPLING_TASKS = 1000;
+    private final static String DEFAULT_SAMPLING_THREADS = "0"; // Sequential sampling
+    private final static String DEFAULT_SAMPLING_DEADLINE = "250"; // Milliseconds
+    private final ThreadPoolExecutor samplingExecutor; // null if the parameters are sampled serially
+    private final long samplingDeadline; // Milliseconds
+
     public AggregationManager(COMServicesProvider comServices, ParameterManager parameterManager) {
         super(comServices);
         this.parameterManager = parameterManager;
@@ -88,6 +104,20 @@ public final class AggregationManager extends MCManager {
         this.latestSampleTimeList = new HashMap<>();
         this.sampleCountList = new HashMap<>();
 
+        final int samplingThreads = (int) getLongProperty(MCServicesHelper.AGGREGATION_SAMPLING_THREADS_PROPERTY,
+            DEFAULT_SAMPLING_THREADS);
+        this.samplingDeadline = getLongProperty(MCServicesHelper.AGGREGATION_SAMPLING_DEADLINE_PROPERTY,
+            DEFAULT_SAMPLING_DEADLINE);
+
+        if (samplingThreads > 0) {
+            this.samplingExecutor = new ThreadPoolExecutor(samplingThreads, samplingThreads,
+                KEEP_ALIVE_TIME_SAMPLING_THREADS, TimeUnit.SECONDS, new ArrayBlockingQueue<>(
+                    MAXIMUM_NUMBER_OF_SAMPLING_TASKS), new ActionManager.ActionThreadFactory("AggregationSampling"));
+            this.samplingExecutor.allowCoreThreadTimeOut(true);
+        } else {
+            this.samplingExecutor = null;
+        }
+
         if (super.getArchiveService() == null) {  // No Archive?
             this.uniqueObjIdIdentity = 0L; // The zeroth value will not be used (reserved for the wildcard)
             this.uniqueObjIdDef = 0L; // The zeroth value will not be used (reserved for the wildcard)
@@ -95,6 +125,28 @@ public final class AggregationManager extends MCManager {
         }
     }
 
+    /**
+     * Stops the sampling threads. Providers that are still being sampled are
+     * interrupted.
+     */
+    public void close() {
+        if (samplingExecutor != null) {
+            samplingExecutor.shutdownNow();
+        }
+    }
+
+    private static long getLongProperty(String property, String defaultValue) {
+        String value = System.getProperty(property, defaultValue);
+
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            Logger.getLogger(AggregationManager.class.getName()).log(Level.WARNING,
+                "Invalid value for " + property + ": " + value + ". Using the default: " + defaultValue);
+            return Long.parseLong(defaultValue);
+        }
+    }
+
     public AggregationDefinitionDetails getAggregationDefinition(Long identityId) {
         return (AggregationDefinitionDetails) this.getDefinition(identityId);
     }
@@ -233,10 +285,21 @@ public final class AggregationManager extends MCManager {
         try {
             return parameterManager.getParameterValue(paramIdentityId, aggrExpired);
         } catch (MALInteractionException ex) {
-            return new ParameterValue(new UOctet((short) ValidityState.INVALID_RAW_NUM_VALUE.getValue()), null, null);
+            return newInvalidParameterValue();
         }
     }
 
+    /**
+     * Creates an empty ParameterValue with INVALID state, for a parameter
+     * that cannot be retrieved. A new object is needed every time because the
+     * validity-state of a sample can be changed later on.
+     *
+     * @return the new ParameterValue
+     */
+    private static ParameterValue newInvalidParameterValue() {
+        return new ParameterValue(new UOctet((short) ValidityState.INVALID_RAW_NUM_VALUE.getValue()), null, null);
+    }
+
     /**
      * This method is created for the field:
      * AggregationDefinitionDetails.sendDefinitions. If
@@ -244,6 +307,7 @@ public final class AggregationManager extends MCManager {
      * include the ParameterDefinition object instance identifier in the
      * AggregationParameterValue, if FALSE it will be set to NULL.
      *
+     * @param aggrDef the definition of the aggregation sampling the parameters
      * @param paramIdentityIds the identity id of the parameters to be sampled
      * @param aggrExpired should be set to true, if the aggregation that is
      * sampling the parameter, is periodic and the update hasnt been received in
@@ -251,18 +315,142 @@ public final class AggregationManager extends MCManager {
      * will be expired.
      * @return
      */
-    private AggregationParameterValueList sampleParameters(LongList paramIdentityIds, boolean aggrExpired,
-        boolean sendDefinitions) {
-        AggregationParameterValueList aggrPValList = new AggregationParameterValueList();
-        for (Long identityId : paramIdentityIds) {
-            final Long paramDefId = sendDefinitions ? parameterManager.getDefinitionId(identityId) : null;
-            final ParameterValue paramValue = sampleParameter(identityId, aggrExpired);
-            aggrPValList.add(new AggregationParameterValue(paramValue, paramDefId));
+    private AggregationParameterValueList sampleParameters(AggregationDefinitionDetails aggrDef,
+        LongList paramIdentityIds, boolean aggrExpired) {
+        final ParameterValue[] paramValues = (samplingExecutor == null) ? sampleParameterValues(paramIdentityIds,
+            aggrExpired) : sampleParameterValuesInParallel(paramIdentityIds, aggrExpired, getSamplingDeadline(aggrDef));
+
+        AggregationParameterValueList aggrPValList = new AggregationParameterValueList(paramIdentityIds.size());
+        for (int i = 0; i < paramIdentityIds.size(); i++) {
+            final Long paramDefId = aggrDef.getSendDefinitions() ? parameterManager.getDefinitionId(paramIdentityIds
+                .get(i)) : null;
+            aggrPValList.add(new AggregationParameterValue(paramValues[i], paramDefId));
         }
 
         return aggrPValList;
     }
 
+    /**
+     * Samples the given parameters in the calling thread. If the application
+     * implements onGetValues, all of them are acquired with a single call.
+     *
+     * @param paramIdentityIds the identity id of the parameters to be sampled
+     * @param aggrExpired see sampleParameters
+     * @return the values, in the same order as the identity ids
+     */
+    private ParameterValue[] sampleParameterValues(LongList paramIdentityIds, boolean aggrExpired) {
+        final ParameterValue[] paramValues = new ParameterValue[paramIdentityIds.size()];
+
+        if (parameterManager.isBatchSamplingSupported()) {
+            final ParameterValueList sampled = parameterManager.getParameterValues(paramIdentityIds, aggrExpired);
+            for (int i = 0; i < paramValues.length; i++) {
+                paramValues[i] = (sampled.get(i) == null) ? newInvalidParameterValue() : sampled.get(i);
+            }
+        } else {
+            for (int i = 0; i < paramValues.length; i++) {
+                paramValues[i] = sampleParameter(paramIdentityIds.get(i), aggrExpired);
+            }
+        }
+
+        return paramValues;
+    }
+
+    /**
+     * Samples the given parameters on the sampling executor and waits for
+     * them until the deadline. The parameters that were not sampled by then
+     * are reported with an INVALID state. Their tasks are cancelled without
+     * interrupting the providers, and their late values are dropped. If the
+     * application implements onGetValues, all of them are acquired by a
+     * single task.
+     *
+     * A provider that never returns keeps its sampling thread busy. Once all
+     * the sampling threads are held by such providers, the later tasks stay
+     * in the queue, so every later aggregation is reported as INVALID. The
+     * number of sampling threads should therefore be larger than the number
+     * of providers that can hang at the same time.
+     *
+     * @param paramIdentityIds the identity id of the parameters to be sampled
+     * @param aggrExpired see sampleParameters
+     * @param deadline the maximum time to wait in nanoseconds, 0 waits until
+     * all the parameters are sampled
+     * @return the values, in the same order as the identity ids
+     */
+    private ParameterValue[] sampleParameterValuesInParallel(LongList paramIdentityIds, boolean aggrExpired,
+        long deadline) {
+        final int total = paramIdentityIds.size();
+        final int paramsPerTask = parameterManager.isBatchSamplingSupported() ? Math.max(1, total) : 1;
+        final ArrayList<Future<ParameterValue[]>> tasks = new ArrayList<>();
+
+        for (int from = 0; from < total; from += paramsPerTask) {
+            final LongList subset = new LongList(paramsPerTask);
+            subset.addAll(paramIdentityIds.subList(from, Math.min(from + paramsPerTask, total)));
+
+            try {
+                tasks.add(samplingExecutor.submit(() -> sampleParameterValues(subset, aggrExpired)));
+            } catch (RejectedExecutionException ex) {
+                Logger.getLogger(AggregationManager.class.getName()).log(Level.SEVERE,
+                    "The sampling queue is full! The parameters will be reported as invalid.", ex);
+                tasks.add(null);
+            }
+        }
+
+        final ParameterValue[] paramValues = new ParameterValue[total];
+        final long end = System.nanoTime() + deadline;
+        boolean deadlineMissed = false;
+
+        for (int i = 0; i < tasks.size(); i++) {
+            final Future<ParameterValue[]> task = tasks.get(i);
+            ParameterValue[] sampled = null;
+
+            if (task != null) {
+                try {
+                    sampled = (deadline == 0) ? task.get() : task.get(Math.max(0, end - System.nanoTime()),
+                        TimeUnit.NANOSECONDS);
+                } catch (TimeoutException ex) {
+                    task.cancel(false); // The deadline was missed
+                    deadlineMissed = true;
+                } catch (ExecutionException ex) {
+                    Logger.getLogger(AggregationManager.class.getName()).log(Level.SEVERE, null, ex);
+                } catch (InterruptedException ex) {
+                    task.cancel(false);
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            final int from = i * paramsPerTask;
+            for (int k = from; k < Math.min(from + paramsPerTask, total); k++) {
+                paramValues[k] = (sampled == null) ? newInvalidParameterValue() : sampled[k - from];
+            }
+        }
+
+        if (deadlineMissed && samplingExecutor.getActiveCount() >= samplingExecutor.getMaximumPoolSize()) {
+            Logger.getLogger(AggregationManager.class.getName()).log(Level.WARNING,
+                "All the sampling threads are busy! Some providers might never return.");
+        }
+
+        return paramValues;
+    }
+
+    /**
+     * Gets the maximum time to sample the parameters of an aggregation in
+     * parallel. It is the configured deadline, 250 ms by default, but never
+     * more than the report interval of the aggregation.
+     *
+     * @param aggrDef the definition of the aggregation
+     * @return the deadline in nanoseconds, 0 if there is none
+     */
+    private long getSamplingDeadline(AggregationDefinitionDetails aggrDef) {
+        final long deadline = TimeUnit.MILLISECONDS.toNanos(samplingDeadline);
+        final Duration reportInterval = aggrDef.getReportInterval();
+
+        if (reportInterval == null || reportInterval.getValue() <= 0) {
+            return deadline;
+        }
+
+        final long interval = (long) (reportInterval.getValue() * 1000000000L);
+        return (deadline == 0) ? interval : Math.min(deadline, interval);
+    }
+
     private Boolean triggeredFilter(Attribute previousValue, Attribute currentValue, ThresholdFilter filter) {
         if (filter == null) {
             return false;  // If there's no filter, then it will never be ignored! 
@@ -319,7 +507,7 @@ public final class AggregationManager extends MCManager {
 
             //If sendDefinition is TRUE reports will include the ParameterDefinition object instance 
             //identifier in the AggregationParameterValue, if FALSE it will be set to NULL.
-            newAggrParameterValueSamples = this.sampleParameters(parameters, aggrExpired, aggrDef.getSendDefinitions());
+            newAggrParameterValueSamples = this.sampleParameters(aggrDef, parameters, aggrExpired);
         }
         //        //check for expired values if the aggregation-period was expired
         if (aggrExpired) {
@@ -369,8 +557,7 @@ public final class AggregationManager extends MCManager {
             //not using the aggrExpired value here but the "false" value, is because the actual 
             //check for expired value will be done a bit furhter down this code. Ther ParameterService 
             //should still hold the "interface" to manually check for the expired value
-            newParameterValueSamples = this.sampleParameters(aggrParamSet.getParameters(), false, aggrDef
-                .getSendDefinitions());
+            newParameterValueSamples = this.sampleParameters(aggrDef, aggrParamSet.getParameters(), false);
         }
         //increment the number of samples for this ParameterSet
         this.sampleCountList.get(identityId).set(indexOfparameterSet, this.sampleCountList.get(identityId).get(
@@ -425,8 +612,10 @@ public final class AggregationManager extends MCManager {
                 final ParameterDefinitionDetails paramDef = parameterManager.getParameterDefinition(aggrParamSet
                     .getParameters().get(k));
                 if (paramDef.getGenerationEnabled() && paramDef.getReportInterval().getValue() != 0) {
-                    if (currentParamValues.get(k).getValue().getRawValue().equals(newParameterValueSamples.get(k)
-                        .getValue().getRawValue())) {
+                    // The samples that could not be acquired have no raw value
+                    final Attribute currentRawValue = currentParamValues.get(k).getValue().getRawValue();
+                    if (currentRawValue != null && currentRawValue.equals(newParameterValueSamples.get(k).getValue()
+                        .getRawValue())) {
                         newParameterValueSamples.get(k).getValue().setValidityState(new UOctet(Short.valueOf("" +
                             ValidityState.EXPIRED_NUM_VALUE)));
                     }
@@ -473,8 +662,8 @@ public final class AggregationManager extends MCManager {
 
         //fill AggregationSetValue-objects for each parameterSet
         for (int j = 0; j < parameterSets.size(); j++) {   //Cycle through the parameterSets (requirement: 3.7.3.n)
-            AggregationParameterValueList sampleParameters = this.sampleParameters(aggrDef.getParameterSets().get(j)
-                .getParameters(), false, aggrDef.getSendDefinitions());
+            AggregationParameterValueList sampleParameters = this.sampleParameters(aggrDef, aggrDef.getParameterSets()
+                .get(j).getParameters(), false);
             AggregationSetValue aggrSetValue = new AggregationSetValue(null, null, sampleParameters);
             parameterSetValues.add(aggrSetValue);
         }
@@ -25,7 +25,7 @@ import esa.mo.com.impl.util.HelperArchive;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.ConnectionProvider;
 import esa.mo.helpertools.helpers.HelperTime;
-import esa.mo.helpertools.misc.TaskScheduler;
+import esa.mo.helpertools.misc.PeriodicTimer;
 import esa.mo.mc.impl.util.GroupRetrieval;
 import esa.mo.mc.impl.util.MCServicesHelper;
 import esa.mo.reconfigurable.service.ConfigurationChangeListener;
@@ -184,6 +184,10 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
                 aggregationServiceProvider.close();
             }
 
+            if (null != manager) {
+                manager.close();
+            }
+
             connection.closeAll();
             running = false;
         } catch (MALException ex) {
@@ -953,8 +957,8 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
 
     private class PeriodicReportingManager { // requirement: 3.7.2.1a
 
-        private HashMap<Long, TaskScheduler> updateTimerList; // updateInterval Timers list
-        private HashMap<Long, TaskScheduler> filterTimeoutTimerList; // filterTimeout Timers list
+        private HashMap<Long, PeriodicTimer.Task> updateTimerList; // updateInterval Timers list
+        private HashMap<Long, PeriodicTimer.Task> filterTimeoutTimerList; // filterTimeout Timers list
         private boolean active = false; // Flag that determines if the Manager is on or off
 
         public PeriodicReportingManager() {
@@ -1026,9 +1030,6 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
         private void addPeriodicReporting(Long identityId) {
             //requirement: 3.7.9.2.12
             publishImmediatePeriodicUpdate(identityId);
-            TaskScheduler timer = new TaskScheduler(1);
-            updateTimerList.put(identityId, timer);
-
             final AggregationDefinitionDetails aggrDef = manager.getAggregationDefinition(identityId);
             this.startUpdatesTimer(identityId, aggrDef.getReportInterval());  // requirement 3.7.3.c
 
@@ -1043,8 +1044,6 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
             final AggregationDefinitionDetails aggrDef = manager.getAggregationDefinition(identityId);
             // Is the filter enabled? If so, do we have a filter Timeout set?
             //            if (aggrDef.getFilterEnabled() && aggrDef.getFilteredTimeout().getValue() != 0) { // requirement 3.7.2.12
-            TaskScheduler timer2 = new TaskScheduler(1);
-            filterTimeoutTimerList.put(identityId, timer2);
             this.startFilterTimeoutTimer(identityId, aggrDef.getFilteredTimeout());
             //            } else {
             //                filterTimeoutTimerList.put(identityId, null);
@@ -1064,7 +1063,7 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
 
         private void startUpdatesTimer(final Long identityId, final Duration interval) {
             // the time is being converted to milliseconds by multiplying by 1000
-            updateTimerList.get(identityId).scheduleTask(new Thread(() -> {  // requirement: 3.7.3.c
+            updateTimerList.put(identityId, PeriodicTimer.getSharedInstance().schedule(() -> {  // requirement: 3.7.3.c
                 if (active) {
                     AggregationDefinitionDetails def = manager.getAggregationDefinition(identityId);
                     checkSampleIntervalAndSampleParam(identityId, true);
@@ -1085,11 +1084,11 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
                         }
                     }
                 }
-            }), (int) (interval.getValue() * 1000), (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS, true); // requirement: 3.7.3.g
+            }, (int) (interval.getValue() * 1000), (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS)); // requirement: 3.7.3.g
         }
 
         private void stopUpdatesTimer(final Long objId) {
-            updateTimerList.get(objId).stopLast();
+            updateTimerList.get(objId).cancel();
         }
 
         private void resetFilterTimeoutTimer(Long objId) {
@@ -1100,15 +1099,12 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
                 return;  // Get out if the timer was not set
             }
             this.stopFilterTimeoutTimer(objId);
-            // Should be unnecessary since the TaskScheduler does not need to be re-initialized to start the timer again.
-            //TaskScheduler timer2 = new TaskScheduler(1);
-            //filterTimeoutTimerList.put(objId, timer2);
             this.startFilterTimeoutTimer(objId, manager.getAggregationDefinition(objId).getFilteredTimeout());
         }
 
         private void startFilterTimeoutTimer(final Long identityId, final Duration interval) {
             // the time is being converted to milliseconds by multiplying by 1000
-            filterTimeoutTimerList.get(identityId).scheduleTask(new Thread(() -> {  // requirement: 3.7.2.a.c, 3.7.3.n
+            filterTimeoutTimerList.put(identityId, PeriodicTimer.getSharedInstance().schedule(() -> {  // requirement: 3.7.2.a.c, 3.7.3.n
                 if (active) {
                     manager.setFilterTriggered(identityId, true);
                     //get the new samples and update the aggregation in the internal list
@@ -1122,12 +1118,12 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
                         GenerationMode.FILTERED_TIMEOUT));
                     manager.resetAggregationSampleHelperVariables(identityId);
                 }
-            }), 0, (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS, true);
+            }, 0, (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS));
         }
 
         private void stopFilterTimeoutTimer(final Long objId) {
             if (filterTimeoutTimerList.get(objId) != null) { // Does it exist?
-                filterTimeoutTimerList.get(objId).stopLast();
+                filterTimeoutTimerList.get(objId).cancel();
             }
         }
 
@@ -1148,7 +1144,7 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
      */
     private class PeriodicSamplingManager { // requirement: 3.7.2.1a
 
-        private List<TaskScheduler> sampleTimerList; // Timer List. One timer for each parameterSet of each aggregation that needs to be sampled
+        private List<PeriodicTimer.Task> sampleTimerList; // Timer List. One timer for each parameterSet of each aggregation that needs to be sampled
         private LongList aggregationObjIdList; // ids of the aggregations whiches parameterSet started the timer above. first index here belongs to the first timer abode. 
         private List<Integer> parameterSetIndexList; // index of the parameter set in the aggregation above, that belongs to the timer. first index here belngs to the first  aggregation id above and belongs to the first timer above.
         private boolean active = false; // Flag that determines if the Manager is on or off
@@ -1220,9 +1216,7 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
                 if (sampleInterval.getValue() != 0) {
                     aggregationObjIdList.add(index, identityId);
                     parameterSetIndexList.add(index, indexOfParameterSet);
-                    TaskScheduler timer = new TaskScheduler(1);  // Take care of adding a new timer
-                    sampleTimerList.add(index, timer);
-                    startTimer(index, sampleInterval);
+                    sampleTimerList.add(index, startTimer(index, sampleInterval));
                     index++;
                 }
             }
@@ -1239,11 +1233,11 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
             }
         }
 
-        private void startTimer(final int index, Duration interval) {  // requirement: 3.7.2.11
+        private PeriodicTimer.Task startTimer(final int index, Duration interval) {  // requirement: 3.7.2.11
             final Long identityId = aggregationObjIdList.get(index);
             final int indexOfparameterSet = parameterSetIndexList.get(index);
 
-            sampleTimerList.get(index).scheduleTask(new Thread(() -> {
+            return PeriodicTimer.getSharedInstance().schedule(() -> {
                 if (active) {
                     // To prevent race conditions with the other timer
                     synchronized (lock) {
@@ -1251,11 +1245,11 @@ public class AggregationProviderServiceImpl extends AggregationInheritanceSkelet
                         manager.sampleAndFilterParam(identityId, indexOfparameterSet);
                     }
                 }
-            }), 0, (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS, true); // the time has to be converted to milliseconds by multiplying by 1000
+            }, 0, (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS); // the time has to be converted to milliseconds by multiplying by 1000
         }
 
         private void stopTimer(int index) {
-            sampleTimerList.get(index).stopLast();
+            sampleTimerList.get(index).cancel();
         }
 
     }
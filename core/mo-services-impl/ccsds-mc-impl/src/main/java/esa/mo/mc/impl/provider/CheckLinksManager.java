@@ -33,6 +33,8 @@ import org.ccsds.moims.mo.mc.check.structures.CheckLinkDetails;
  * To manage the CheckLink and the CheckLinkDefinition Object this
  * CheckLinksManager-class is used. It extends the DefinitionsManger-class which
  * is used to manage the check identity and the actual check definition.
+ * Like the definitions of the MCManager, the check links are accessed with
+ * the lock of the manager, as the checks are executed concurrently.
  *
  * @author Vorwerg
  */
@@ -61,17 +63,17 @@ class CheckLinksManager extends MCManager {
     //    public LongList getAllCheckDefinitionIds() {
     //        return (LongList) checkIdentityDefIds.values();
     //    }
-    public LongList listAllCheckLinkIds() {
+    public synchronized LongList listAllCheckLinkIds() {
         LongList checkLinkIdList = new LongList();
         checkLinkIdList.addAll(checkLinkIds.keySet());
         return checkLinkIdList;
     }
 
-    public List<ObjectDetails> getAllCheckLinkLinks() {
+    public synchronized List<ObjectDetails> getAllCheckLinkLinks() {
         return (ArrayList<ObjectDetails>) checkLinkLinks.values();
     }
 
-    public List<CheckLinkDetails> getAllCheckLinkDetails() {
+    public synchronized List<CheckLinkDetails> getAllCheckLinkDetails() {
         return (ArrayList<CheckLinkDetails>) checkLinkDetails.values();
     }
 
@@ -97,7 +99,7 @@ class CheckLinksManager extends MCManager {
     //        }
     //        return null;
     //    }
-    public Long getCheckLinkDefId(Long checkLinkId) {
+    public synchronized Long getCheckLinkDefId(Long checkLinkId) {
         return this.checkLinkIds.get(checkLinkId);
     }
 
@@ -108,11 +110,11 @@ class CheckLinksManager extends MCManager {
      * @param checkLinkId
      * @return
      */
-    public boolean existsCheckLink(Long checkLinkId) {
+    public synchronized boolean existsCheckLink(Long checkLinkId) {
         return this.checkLinkIds.containsKey(checkLinkId);
     }
 
-    public Long getCheckLinkId(Long checkLinkDefId) {
+    public synchronized Long getCheckLinkId(Long checkLinkDefId) {
         for (Map.Entry<Long, Long> entry : checkLinkIds.entrySet()) {
             if (entry.getValue() == null && checkLinkDefId == null) {
                 return entry.getKey();
@@ -124,11 +126,11 @@ class CheckLinksManager extends MCManager {
         return null;
     }
 
-    public ObjectDetails getCheckLinkLinks(Long checkLinkId) {
+    public synchronized ObjectDetails getCheckLinkLinks(Long checkLinkId) {
         return this.checkLinkLinks.get(checkLinkId);
     }
 
-    public CheckLinkDetails getCheckLinkDetails(Long checkLinkDefId) {
+    public synchronized CheckLinkDetails getCheckLinkDetails(Long checkLinkDefId) {
         return this.checkLinkDetails.get(checkLinkDefId);
     }
 
@@ -143,7 +145,7 @@ class CheckLinksManager extends MCManager {
     //    protected void updateCheckIdentityDefPair(Long identityId, Long defId) {
     //        this.checkIdentityDefIds.put(identityId, defId);
     //    }
-    protected void addCheckLink(Long checkLinkId, ObjectDetails objDetails, Long checkLinkDefId,
+    protected synchronized void addCheckLink(Long checkLinkId, ObjectDetails objDetails, Long checkLinkDefId,
         CheckLinkDetails checkLinkDetails) {
         this.checkLinkIds.put(checkLinkId, checkLinkDefId);
         this.checkLinkLinks.put(checkLinkId, objDetails);
@@ -156,7 +158,7 @@ class CheckLinksManager extends MCManager {
      * @param checkLinkId
      * @param objectDetails
      */
-    protected void updateCheckLinkLinks(Long checkLinkId, ObjectDetails objectDetails) {
+    protected synchronized void updateCheckLinkLinks(Long checkLinkId, ObjectDetails objectDetails) {
         this.checkLinkLinks.put(checkLinkId, objectDetails);
     }
 
@@ -166,7 +168,7 @@ class CheckLinksManager extends MCManager {
      * @param checkLinkDefId the defId of the CheckLinkDefinition-object
      * @param checkLinkDetails The new details for the checkLink
      */
-    protected void updateCheckLinkDetails(Long checkLinkDefId, CheckLinkDetails checkLinkDetails) {
+    protected synchronized void updateCheckLinkDetails(Long checkLinkDefId, CheckLinkDetails checkLinkDetails) {
         this.checkLinkDetails.put(checkLinkDefId, checkLinkDetails);
     }
 
@@ -178,7 +180,8 @@ class CheckLinksManager extends MCManager {
      * @param newCheckLinkDefId the defId of the new CheckLinkDefinition-object
      * @param checkLinkDetails The new details for the checkLink
      */
-    protected void updateCheckLink(Long checkLinkId, Long newCheckLinkDefId, CheckLinkDetails checkLinkDetails) {
+    protected synchronized void updateCheckLink(Long checkLinkId, Long newCheckLinkDefId,
+        CheckLinkDetails checkLinkDetails) {
         final Long oldCheckLinkDefid = checkLinkIds.get(checkLinkId);
         this.checkLinkIds.put(checkLinkId, newCheckLinkDefId);
         this.checkLinkDetails.remove(oldCheckLinkDefid);
@@ -192,7 +195,7 @@ class CheckLinksManager extends MCManager {
      * @param checkLinkId
      * @param checkLinkDefId
      */
-    protected void updateCheckLinkIds(Long checkLinkId, Long checkLinkDefId) {
+    protected synchronized void updateCheckLinkIds(Long checkLinkId, Long checkLinkDefId) {
         this.checkLinkIds.put(checkLinkId, checkLinkDefId);
     }
 
@@ -212,7 +215,7 @@ class CheckLinksManager extends MCManager {
      *
      * @param checkLinkId id of the checkLink to be deleted
      */
-    protected void deleteCheckLink(Long checkLinkId) {
+    protected synchronized void deleteCheckLink(Long checkLinkId) {
         Long defId = getCheckLinkDefId(checkLinkId);
         this.checkLinkDetails.remove(defId);
         this.checkLinkLinks.remove(checkLinkId);
@@ -230,7 +233,7 @@ class CheckLinksManager extends MCManager {
     /**
      * deletes all the ObjectDetails from the internal list
      */
-    protected void deleteAllCheckLinks() {
+    protected synchronized void deleteAllCheckLinks() {
         this.checkLinkLinks.clear();
         this.checkLinkDetails.clear();
         this.checkLinkIds.clear();
@@ -31,8 +31,8 @@ import esa.mo.mc.impl.provider.check.CheckLinkEvaluation;
 import esa.mo.mc.impl.provider.check.EvaluationResult;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -83,7 +83,7 @@ public final class CheckManager extends CheckLinksManager {
 
     //private final HashMap<Long, CheckResult> lastCheckResult; // list of latest checkResults by its checkLink-ids
     private final ParameterManager parameterManager;
-    private boolean checkServiceEnabled;
+    private volatile boolean checkServiceEnabled;
     private final ConnectionProvider connection = new ConnectionProvider();
     private final CheckLinkEvaluationManager checkLinkEvalManager;
 
@@ -104,7 +104,7 @@ public final class CheckManager extends CheckLinksManager {
 
     }
 
-    public HashMap<Long, CheckLinkEvaluation> getCheckLinkEvaluations() {
+    public Map<Long, CheckLinkEvaluation> getCheckLinkEvaluations() {
         return checkLinkEvalManager.getCheckLinkEvaluations();
     }
 
@@ -611,7 +611,9 @@ public final class CheckManager extends CheckLinksManager {
     /**
      * Executes Delta, Limit, Reference and Constant-Checks. For Compound-Checks
      * use executeCompoundCheck-method. Checks the given value and creates,
-     * saves and publishes the CheckResult if necessary.
+     * saves and publishes the CheckResult if necessary. The executions of a
+     * check link are serialized on its CheckLinkEvaluation, different check
+     * links are executed concurrently.
      *
      * @param checkLinkId id of the checkLink
      * @param newParamValue ParameterValue to be checked
@@ -624,19 +626,36 @@ public final class CheckManager extends CheckLinksManager {
      */
     public void executeCheck(Long checkLinkId, final ParameterValue newParamValue, boolean triggered,
         boolean maxReportingIntervalExpired, ObjectId source) {
-        Logger.getLogger(CheckManager.class.getName()).log(Level.INFO,
-            "Executing check for CheckLink with Id {0} that references to: " +
-                "Check-Identity with id: {1} and Parameter-Identity with id: {2}. " + "The ParamValue is: {3}",
-            new Object[]{checkLinkId, getCheckLinkLinks(checkLinkId).getRelated(), getCheckLinkLinks(checkLinkId)
-                .getSource() == null ? "null" : getCheckLinkLinks(checkLinkId).getSource().getKey().getInstId(),
-                         newParamValue});
-        if (!super.getCheckLinkDetails(super.getCheckLinkDefId(checkLinkId)).getCheckEnabled()) {
+        // Executed on every parameter update, so the arguments are only built if the trace is enabled
+        if (Logger.getLogger(CheckManager.class.getName()).isLoggable(Level.FINE)) {
+            Logger.getLogger(CheckManager.class.getName()).log(Level.FINE,
+                "Executing check for CheckLink with Id {0} that references to: " +
+                    "Check-Identity with id: {1} and Parameter-Identity with id: {2}. " + "The ParamValue is: {3}",
+                new Object[]{checkLinkId, getCheckLinkLinks(checkLinkId).getRelated(), getCheckLinkLinks(checkLinkId)
+                    .getSource() == null ? "null" : getCheckLinkLinks(checkLinkId).getSource().getKey().getInstId(),
+                             newParamValue});
+        }
+        final CheckLinkEvaluation checkLinkEvaluation = checkLinkEvalManager.get(checkLinkId);
+        final CheckLinkDetails checkLinkDetails = super.getCheckLinkDetails(super.getCheckLinkDefId(checkLinkId));
+        if (checkLinkEvaluation == null || checkLinkDetails == null) {
+            return; // The check link was removed
+        }
+        if (!checkLinkDetails.getCheckEnabled()) {
             return;
         }
+        synchronized (checkLinkEvaluation) {
+            executeCheck(checkLinkId, checkLinkEvaluation, checkLinkDetails, newParamValue, triggered,
+                maxReportingIntervalExpired, source);
+        }
+    }
+
+    private void executeCheck(Long checkLinkId, CheckLinkEvaluation checkLinkEvaluation,
+        CheckLinkDetails checkLinkDetails, final ParameterValue newParamValue, boolean triggered,
+        boolean maxReportingIntervalExpired, ObjectId source) {
         //evalutate new result
         final EvaluationResult evalResult = checkLinkEvalManager.evaluateCheckResult(checkLinkId, newParamValue,
-            triggered, getActualCheckDefinitionFromCheckLinks(checkLinkId), super.getCheckLinkDetails(
-                super.getCheckLinkDefId(checkLinkId)), getCheckLinkLinks(checkLinkId), checkServiceEnabled);
+            triggered, getActualCheckDefinitionFromCheckLinks(checkLinkId), checkLinkDetails, getCheckLinkLinks(
+                checkLinkId), checkServiceEnabled);
         //publish if necessary
         if (!maxReportingIntervalExpired) {
             //3.5.3.p
@@ -652,8 +671,8 @@ public final class CheckManager extends CheckLinksManager {
             }
         }
         //create new CheckResult-Object, but its not saved yet
-        CheckResult newCheckResult = createNewCheckResultObject(checkLinkEvalManager.get(checkLinkId)
-            .getLastCheckResult(), evalResult);
+        CheckResult newCheckResult = createNewCheckResultObject(checkLinkEvaluation.getLastCheckResult(),
+            evalResult);
         if (!triggered) {
             //requriement: requirement: 3.5.4.j, 3.5.5.a, 3.5.5.b 3.5.3.hh - dont publish if it didnt change (only if the maximum reporting interval expired (3.5.3.ff)
             if (!maxReportingIntervalExpired && newCheckResult.getPreviousCheckState() == newCheckResult
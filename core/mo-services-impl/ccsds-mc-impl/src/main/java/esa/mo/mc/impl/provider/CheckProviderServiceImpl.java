@@ -24,7 +24,7 @@ import esa.mo.com.impl.consumer.EventConsumerServiceImpl;
 import esa.mo.com.impl.util.COMServicesProvider;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.ConnectionProvider;
-import esa.mo.helpertools.misc.TaskScheduler;
+import esa.mo.helpertools.misc.PeriodicTimer;
 import esa.mo.mc.impl.provider.check.CheckLinkMonitorManager;
 import esa.mo.mc.impl.provider.check.ParameterMonitoringManager;
 import esa.mo.mc.impl.util.GroupRetrieval;
@@ -963,7 +963,7 @@ public class CheckProviderServiceImpl extends CheckInheritanceSkeleton {
 
     private class PeriodicCheckingManager { // requirement: 3.7.2.1a
 
-        private HashMap<Long, TaskScheduler> sampleTimerList; // Timers list
+        private HashMap<Long, PeriodicTimer.Task> sampleTimerList; // Timers list
         private boolean active = false; // Flag that determines if the Manager is on or off
 
         public PeriodicCheckingManager() {
@@ -1023,8 +1023,6 @@ public class CheckProviderServiceImpl extends CheckInheritanceSkeleton {
             }
 
             // Add to the Periodic Sampling Manager 
-            TaskScheduler timer = new TaskScheduler(1);  // Take care of adding a new timer
-            sampleTimerList.put(checkLinkId, timer);
             startTimer(checkLinkId, checkInterval);// requirement: 3.5.3.j
         }
 
@@ -1036,7 +1034,7 @@ public class CheckProviderServiceImpl extends CheckInheritanceSkeleton {
         private void startTimer(final Long checkLinkId, Duration interval) {  // requirement: 3.7.2.11
 
             // the time has to be converted to milliseconds by multiplying by 1000
-            sampleTimerList.get(checkLinkId).scheduleTask(new Thread(() -> { // Periodic Checking
+            sampleTimerList.put(checkLinkId, PeriodicTimer.getSharedInstance().schedule(() -> { // Periodic Checking
                 if (active) {
                     try {
                         final ObjectId paramId = manager.getCheckLinkLinks(checkLinkId).getSource();
@@ -1048,18 +1046,18 @@ public class CheckProviderServiceImpl extends CheckInheritanceSkeleton {
                         Logger.getLogger(CheckProviderServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
                     }
                 }
-            }), 0, (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS, true); // requirement: 3.6.2.g
+            }, 0, (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS)); // requirement: 3.6.2.g
         }
 
         private void stopTimer(Long objId) {
-            sampleTimerList.get(objId).stopLast();
+            sampleTimerList.get(objId).cancel();
         }
 
     }
 
     private class PeriodicReportingMaxManager { // requirement: 3.7.2.1a
 
-        private HashMap<Long, TaskScheduler> updateTimerList; // updateInterval Timers list
+        private HashMap<Long, PeriodicTimer.Task> updateTimerList; // updateInterval Timers list
         private boolean active = false; // Flag that determines if the Manager is on or off
 
         public PeriodicReportingMaxManager() {
@@ -1114,8 +1112,6 @@ public class CheckProviderServiceImpl extends CheckInheritanceSkeleton {
         }
 
         private void addPeriodicReportingMax(Long checkLinkId, Duration maxReportingInterval) {
-            TaskScheduler timer = new TaskScheduler(1);
-            updateTimerList.put(checkLinkId, timer);
             this.startUpdatesTimer(checkLinkId, maxReportingInterval);
         }
 
@@ -1126,7 +1122,7 @@ public class CheckProviderServiceImpl extends CheckInheritanceSkeleton {
 
         private void startUpdatesTimer(final Long checkLinkId, final Duration interval) {
             // the time is being converted to milliseconds by multiplying by 1000  (starting delay included)
-            updateTimerList.get(checkLinkId).scheduleTask(new Thread(() -> {
+            updateTimerList.put(checkLinkId, PeriodicTimer.getSharedInstance().schedule(() -> {
                 try {
                     //paramId is null for compound check
                     final ObjectId paramSource = manager.getCheckLinkLinks(checkLinkId).getSource();
@@ -1136,11 +1132,11 @@ public class CheckProviderServiceImpl extends CheckInheritanceSkeleton {
                 } catch (MALInteractionException ex) {
                     Logger.getLogger(CheckProviderServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
                 }
-            }), (int) (interval.getValue() * 1000), (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS, true); // requirement: 3.5.3.ff
+            }, (int) (interval.getValue() * 1000), (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS)); // requirement: 3.5.3.ff
         }
 
         private void stopUpdatesTimer(final Long objId) {
-            updateTimerList.get(objId).stopLast();
+            updateTimerList.get(objId).cancel();
         }
 
     }
@@ -0,0 +1,417 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mc.impl.provider;
+
+import esa.mo.com.impl.util.HelperCOM;
+import esa.mo.helpertools.helpers.HelperAttributes;
+import esa.mo.helpertools.helpers.HelperMisc;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import org.ccsds.moims.mo.com.archive.structures.ExpressionOperator;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Element;
+import org.ccsds.moims.mo.mal.structures.Pair;
+import org.ccsds.moims.mo.mal.structures.PairList;
+import org.ccsds.moims.mo.mal.structures.Union;
+import org.ccsds.moims.mo.mc.conversion.structures.DiscreteConversionDetails;
+import org.ccsds.moims.mo.mc.conversion.structures.LineConversionDetails;
+import org.ccsds.moims.mo.mc.conversion.structures.PolyConversionDetails;
+import org.ccsds.moims.mo.mc.conversion.structures.RangeConversionDetails;
+
+/**
+ * A conversion definition compiled into an immutable evaluator. Polynomials
+ * are evaluated in Horner form, the points of the line and range conversions
+ * are sorted and searched with a binary search, and the mapping of the
+ * discrete conversions is hashed.
+ *
+ * The line and range conversions of String values keep the comparison of
+ * strings of the Conversion service, and scan the points.
+ */
+abstract class CompiledConversion {
+
+    /**
+     * The conversion of a definition that does not exist, or that cannot
+     * convert any value.
+     */
+    static final CompiledConversion NONE = new CompiledConversion() {
+        @Override
+        Attribute apply(final Attribute value) {
+            return null;
+        }
+    };
+
+    private static final int MAX_HORNER_DEGREE = 64;
+
+    /**
+     * Converts a value.
+     *
+     * @param value The raw value.
+     * @return The converted value, or null if the value cannot be converted.
+     */
+    abstract Attribute apply(Attribute value);
+
+    /**
+     * Compiles a conversion definition.
+     *
+     * @param conversionDetails The Discrete, Line, Poly or Range conversion
+     * details.
+     * @return The compiled conversion.
+     */
+    static CompiledConversion compile(final Element conversionDetails) {
+        if (conversionDetails instanceof DiscreteConversionDetails) {
+            return new Discrete((DiscreteConversionDetails) conversionDetails);
+        }
+
+        if (conversionDetails instanceof LineConversionDetails) {
+            final PairList points = ((LineConversionDetails) conversionDetails).getPoints();
+
+            //requirement: 3.8.3.d: It is only possible to do a line conversion if there are at least 2 points
+            if (points == null || points.size() < 2) {
+                return NONE;
+            }
+
+            return new Line(points, ((LineConversionDetails) conversionDetails).getExtrapolate());
+        }
+
+        if (conversionDetails instanceof PolyConversionDetails) {
+            //requirement: 3.8.3.e => no entry in the points-list returns null
+            final PairList points = ((PolyConversionDetails) conversionDetails).getPoints();
+
+            if (points == null || points.isEmpty()) {
+                return NONE;
+            }
+
+            return new Poly(points);
+        }
+
+        if (conversionDetails instanceof RangeConversionDetails) {
+            final PairList points = ((RangeConversionDetails) conversionDetails).getPoints();
+
+            if (points == null) {
+                return NONE;
+            }
+
+            return new Range(points);
+        }
+
+        return NONE;
+    }
+
+    private static final class Discrete extends CompiledConversion {
+
+        private final HashMap<Attribute, Attribute> mapping = new HashMap<>();
+
+        private Discrete(final DiscreteConversionDetails conversionDetails) {
+            for (Pair pair : conversionDetails.getMapping()) {
+                // The first entry of a raw value is the one that applies
+                if (pair.getFirst() != null) {
+                    mapping.putIfAbsent(pair.getFirst(), pair.getSecond());
+                }
+            }
+        }
+
+        @Override
+        Attribute apply(final Attribute value) {
+            //requirement: 3.8.3.c => no entry in the points-list returns null
+            return (value == null) ? null : mapping.get(value);
+        }
+    }
+
+    private static final class Poly extends CompiledConversion {
+
+        private final double[] coefficients;
+        private final int[] exponents;
+        private final double[] hornerCoefficients;
+
+        private Poly(final PairList points) {
+            coefficients = new double[points.size()];
+            exponents = new int[points.size()];
+            int degree = 0;
+            boolean horner = true;
+
+            for (int i = 0; i < points.size(); i++) {
+                exponents[i] = ((Union) points.get(i).getFirst()).getIntegerValue();
+                coefficients[i] = HelperAttributes.attribute2double(points.get(i).getSecond());
+                horner &= (exponents[i] >= 0 && exponents[i] <= MAX_HORNER_DEGREE);
+                degree = Math.max(degree, exponents[i]);
+            }
+
+            if (horner) {
+                hornerCoefficients = new double[degree + 1];
+
+                for (int i = 0; i < exponents.length; i++) {
+                    hornerCoefficients[exponents[i]] += coefficients[i];
+                }
+            } else {
+                hornerCoefficients = null;
+            }
+        }
+
+        @Override
+        Attribute apply(final Attribute value) {
+            final double x = HelperAttributes.attribute2double(value);
+            double convertedValue = 0;
+
+            if (hornerCoefficients != null) {
+                for (int i = hornerCoefficients.length - 1; i >= 0; i--) {
+                    convertedValue = convertedValue * x + hornerCoefficients[i];
+                }
+            } else { // Negative or very large exponents
+                for (int i = 0; i < exponents.length; i++) {
+                    convertedValue += coefficients[i] * Math.pow(x, exponents[i]);
+                }
+            }
+
+            return new Union(convertedValue);
+        }
+    }
+
+    /**
+     * The points of a line or range conversion, sorted by raw value. Only the
+     * first point of each raw value is kept, as it is the one that the
+     * conversions use.
+     */
+    private abstract static class SortedPoints extends CompiledConversion {
+
+        protected final PairList points;
+        protected final double[] xs;
+        protected final double[] ys;
+        protected final Attribute[] outputs;
+
+        private SortedPoints(final PairList points) {
+            this.points = points;
+            Integer[] order = new Integer[points.size()];
+            double[] firsts = new double[points.size()];
+            int numeric = 0;
+
+            for (int i = 0; i < points.size(); i++) {
+                Double first = (points.get(i).getFirst() == null) ? null : HelperAttributes.attribute2double(points
+                    .get(i).getFirst());
+
+                // Points without a numeric raw value never match a numeric value
+                if (first != null && !Double.isNaN(first)) {
+                    firsts[i] = first;
+                    order[numeric++] = i;
+                }
+            }
+
+            order = Arrays.copyOf(order, numeric);
+            Arrays.sort(order, Comparator.comparingDouble(i -> firsts[i])); // Stable, so the first point comes first
+
+            double[] sortedXs = new double[numeric];
+            double[] sortedYs = new double[numeric];
+            Attribute[] sortedOutputs = new Attribute[numeric];
+            int size = 0;
+
+            for (Integer i : order) {
+                if (size != 0 && sortedXs[size - 1] == firsts[i]) {
+                    continue;
+                }
+
+                final Double second = (points.get(i).getSecond() == null) ? null : HelperAttributes.attribute2double(
+                    points.get(i).getSecond());
+                sortedXs[size] = firsts[i];
+                sortedYs[size] = (second == null) ? Double.NaN : second;
+                sortedOutputs[size] = points.get(i).getSecond();
+                size++;
+            }
+
+            xs = Arrays.copyOf(sortedXs, size);
+            ys = Arrays.copyOf(sortedYs, size);
+            outputs = Arrays.copyOf(sortedOutputs, size);
+        }
+
+        /**
+         * Returns the index of the point with the raw value, or -(insertion
+         * point) - 1 if there is none.
+         */
+        protected int search(final double x) {
+            return Arrays.binarySearch(xs, x);
+        }
+
+        /**
+         * Returns the raw value as a double, or null if the points have to be
+         * compared as strings or the value is not numeric.
+         */
+        protected static Double numeric(final Attribute value) {
+            if (value == null || HelperMisc.isStringAttribute(value)) {
+                return null;
+            }
+
+            return HelperAttributes.attribute2double(value);
+        }
+    }
+
+    private static final class Line extends SortedPoints {
+
+        private final boolean extrapolate;
+
+        private Line(final PairList points, final boolean extrapolate) {
+            super(points);
+            this.extrapolate = extrapolate;
+        }
+
+        @Override
+        Attribute apply(final Attribute value) {
+            final Double x = numeric(value);
+
+            if (x == null) {
+                return (value == null) ? null : scanLine(value, points, extrapolate);
+            }
+
+            final int index = search(x);
+
+            if (index >= 0) { // Direct hit
+                return outputs[index];
+            }
+
+            final int top = -index - 1;
+            final int bottom = top - 1;
+
+            // Let's interpolate if we have the top and the bottom points
+            if (bottom >= 0 && top < xs.length) {
+                return interpolate(x, bottom, top);
+            }
+
+            // It was not possible to interpolate. Are we allowed to extrapolate?
+            if (!extrapolate || xs.length < 2) {
+                return null;
+            }
+
+            // The value is less than the minimum point, or greater than the maximum point
+            return (bottom < 0) ? interpolate(x, 0, 1) : interpolate(x, xs.length - 2, xs.length - 1);
+        }
+
+        private Union interpolate(final double x, final int bottom, final int top) {
+            return new Union(linearInterpolation(x, xs[bottom], ys[bottom], xs[top], ys[top]));
+        }
+    }
+
+    private static final class Range extends SortedPoints {
+
+        private Range(final PairList points) {
+            super(points);
+        }
+
+        @Override
+        Attribute apply(final Attribute value) {
+            final Double x = numeric(value);
+
+            if (x == null) {
+                return (value == null) ? null : scanRange(value, points);
+            }
+
+            final int index = search(x);
+
+            if (index >= 0) { // Direct hit
+                return outputs[index];
+            }
+
+            //requirement: 3.8.3.f => no point below the value returns null
+            final int bottom = -index - 2;
+            return (bottom < 0) ? null : outputs[bottom];
+        }
+    }
+
+    private static double linearInterpolation(double x, double x_0, double y_0, double x_1, double y_1) {
+        // From wikipedia: http://en.wikipedia.org/wiki/Linear_interpolation
+        return (y_0 + (y_1 - y_0) * (x - x_0) / (x_1 - x_0));
+    }
+
+    private static Attribute scanLine(final Attribute value, final PairList points, final boolean extrapolate) {
+        // Do we have a direct hit?
+        for (Pair point : points) {
+            if (HelperCOM.evaluateExpression(point.getFirst(), ExpressionOperator.EQUAL, value)) {
+                return point.getSecond();
+            }
+        }
+
+        Pair top = findTop(value, points);
+        Pair bottom = findBottom(value, points);
+
+        if (top == null || bottom == null) {
+            if (!extrapolate) {
+                return null;
+            }
+
+            if (top != null) { // The value is less than the minimum point
+                bottom = top;
+                top = findTop(bottom.getFirst(), points);
+            } else if (bottom != null) { // The value is greater than the maximum point
+                top = bottom;
+                bottom = findBottom(top.getFirst(), points);
+            }
+
+            if (top == null || bottom == null) {
+                return null;
+            }
+        }
+
+        return new Union(linearInterpolation(HelperAttributes.attribute2double(value), HelperAttributes
+            .attribute2double(bottom.getFirst()), HelperAttributes.attribute2double(bottom.getSecond()),
+            HelperAttributes.attribute2double(top.getFirst()), HelperAttributes.attribute2double(top.getSecond())));
+    }
+
+    private static Attribute scanRange(final Attribute value, final PairList points) {
+        // Do we have a direct hit?
+        for (Pair point : points) {
+            if (HelperCOM.evaluateExpression(point.getFirst(), ExpressionOperator.EQUAL, value)) {
+                return point.getSecond();
+            }
+        }
+
+        Pair bottom = findBottom(value, points);
+        return (bottom == null) ? null : bottom.getSecond();
+    }
+
+    private static Pair findTop(final Attribute value, final PairList points) {
+        Pair top = null;
+
+        for (Pair point : points) {
+            // Check if the point is after the value
+            if (HelperCOM.evaluateExpression(point.getFirst(), ExpressionOperator.GREATER, value)) {
+                if (top == null || HelperCOM.evaluateExpression(point.getFirst(), ExpressionOperator.LESS, top
+                    .getFirst())) {
+                    top = point;
+                }
+            }
+        }
+
+        return top;
+    }
+
+    private static Pair findBottom(final Attribute value, final PairList points) {
+        Pair bottom = null;
+
+        for (Pair point : points) {
+            // Check if the point is NOT after the value
+            if (HelperCOM.evaluateExpression(point.getFirst(), ExpressionOperator.LESS, value)) {
+                if (bottom == null || HelperCOM.evaluateExpression(point.getFirst(), ExpressionOperator.GREATER,
+                    bottom.getFirst())) {
+                    bottom = point;
+                }
+            }
+        }
+
+        return bottom;
+    }
+}
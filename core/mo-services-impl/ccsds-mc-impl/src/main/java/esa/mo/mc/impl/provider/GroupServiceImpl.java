@@ -123,7 +123,8 @@ public class GroupServiceImpl extends ConversionInheritanceSkeleton {
      *
      * @param domain
      * @param groupIdentityId the id of the group-identity
-     * @return
+     * @return the group details, shared with the Archive cache so they must not
+     * be modified
      */
     protected GroupDetails retrieveGroupDetailsFromArchive(IdentifierList domain, Long groupIdentityId) {
 
@@ -137,7 +138,7 @@ public class GroupServiceImpl extends ConversionInheritanceSkeleton {
         }
         //get the group-definitions-body
         //requirement: 3.9.4.g instances of a group will be referenced by the id of the GroupDefinition-object
-        return (GroupDetails) HelperArchive.getObjectBodyFromArchive(archiveService,
+        return (GroupDetails) HelperArchive.getReadOnlyObjectBodyFromArchive(archiveService,
             GroupHelper.GROUPDEFINITION_OBJECT_TYPE, domain, latestGroupDefId);
     }
 
@@ -146,7 +147,8 @@ public class GroupServiceImpl extends ConversionInheritanceSkeleton {
      *
      * @param domain
      * @param groupDefId the id of the group-definition
-     * @return
+     * @return the group details, shared with the Archive cache so they must not
+     * be modified
      */
     protected GroupDetails retrieveGroupDetailsOfDefinitionFromArchive(IdentifierList domain, Long groupDefId) {
 
@@ -156,7 +158,7 @@ public class GroupServiceImpl extends ConversionInheritanceSkeleton {
 
         //get the group-definitions-body
         //requirement: 3.9.4.g instances of a group will be referenced by the id of the GroupDefinition-object
-        return (GroupDetails) HelperArchive.getObjectBodyFromArchive(archiveService,
+        return (GroupDetails) HelperArchive.getReadOnlyObjectBodyFromArchive(archiveService,
             GroupHelper.GROUPDEFINITION_OBJECT_TYPE, domain, groupDefId);
     }
 
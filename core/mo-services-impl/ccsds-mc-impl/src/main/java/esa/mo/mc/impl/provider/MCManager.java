@@ -30,6 +30,7 @@ import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.mc.impl.util.GroupRetrieval;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.structures.InstanceBooleanPair;
@@ -61,6 +62,10 @@ public abstract class MCManager {
     private final HashMap<Identifier, ObjectInstancePair> namesToPairsMap;
     private final HashMap<Long, Element> objIdToDefMap;
 
+    // Lock-free copy of the names resolved so far. Only filled and emptied while holding the manager lock.
+    // The pairs are snapshots, copied again for every caller
+    private final ConcurrentHashMap<Identifier, ObjectInstancePair> resolvedNamesCache = new ConcurrentHashMap<>();
+
     // Maps all existing Identity objects names that exists in the archive to their ID
     // Identity objects type for which names are stored depends on the implementation class (ParameterIdentity, ActionIdentity...)
     private HashMap<Identifier, Long> storedNamesToIdMap;
@@ -154,10 +159,31 @@ public abstract class MCManager {
      *
      * @param name The name of the identity
      * @return The object instance identifier of the identity. Null if not
-     * found.
+     * found. The pair is a copy, it is not updated when the definition
+     * changes.
      */
-    public synchronized ObjectInstancePair getIdentityDefinition(Identifier name) {
-        return this.namesToPairsMap.get(name);
+    public ObjectInstancePair getIdentityDefinition(Identifier name) {
+        if (name == null) {
+            return null;
+        }
+
+        ObjectInstancePair pair = this.resolvedNamesCache.get(name);
+        pair = (pair != null) ? pair : this.resolveIdentityDefinition(name);
+        return (pair != null) ? new ObjectInstancePair(pair.getObjIdentityInstanceId(), pair.getObjDefInstanceId())
+            : null;
+    }
+
+    private synchronized ObjectInstancePair resolveIdentityDefinition(Identifier name) {
+        final ObjectInstancePair pair = this.namesToPairsMap.get(name);
+
+        if (pair == null) {
+            return null;
+        }
+
+        final ObjectInstancePair snapshot = new ObjectInstancePair(pair.getObjIdentityInstanceId(), pair
+            .getObjDefInstanceId());
+        this.resolvedNamesCache.put(name, snapshot);
+        return snapshot;
     }
 
     /**
@@ -264,6 +290,7 @@ public abstract class MCManager {
         this.identitiesToNamesMap.put(pair.getObjIdentityInstanceId(), name);
         this.namesToPairsMap.put(name, pair);
         this.objIdToDefMap.put(pair.getObjDefInstanceId(), defDetails);
+        this.resolvedNamesCache.remove(name);
         this.storedNamesToIdMap.put(name, pair.getObjIdentityInstanceId());
         return true;
     }
@@ -294,8 +321,9 @@ public abstract class MCManager {
         this.objIdToDefMap.remove(pair.getObjDefInstanceId());
         this.objIdToDefMap.put(newDefId, newDefDetails);
 
-        // Update the pair
-        pair.setObjDefInstanceId(newDefId);
+        // Replace the pair, the previous one may still be used by the callers
+        this.namesToPairsMap.put(name, new ObjectInstancePair(pair.getObjIdentityInstanceId(), newDefId));
+        this.resolvedNamesCache.remove(name);
 
         return true;
     }
@@ -324,6 +352,7 @@ public abstract class MCManager {
         this.objIdToDefMap.remove(objId);
         this.namesToPairsMap.remove(name);
         this.identitiesToNamesMap.remove(identityId);
+        this.resolvedNamesCache.remove(name);
 
         return true;
     }
@@ -384,6 +413,7 @@ public abstract class MCManager {
         this.identitiesToNamesMap.clear();
         this.namesToPairsMap.clear();
         this.objIdToDefMap.clear();
+        this.resolvedNamesCache.clear();
 
         for (int i = 0; i < identityIds.size(); i++) {
             this.identitiesToNamesMap.put(identityIds.get(i), names.get(i));
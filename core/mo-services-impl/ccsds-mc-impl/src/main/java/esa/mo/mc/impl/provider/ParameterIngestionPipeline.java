@@ -0,0 +1,200 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mc.impl.provider;
+
+import esa.mo.helpertools.helpers.HelperTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.ccsds.moims.mo.mal.structures.Time;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
+
+/**
+ * Pushes the parameter values queued by several producers from a single
+ * thread. The values queued in the meantime are pushed together, so that they
+ * are stored in the COM Archive and published with one call each. The
+ * producers wait while the queue is full.
+ *
+ * The values of a producer are checked when they are queued, so that an
+ * invalid value is rejected with the call that queued it instead of failing
+ * the batch it would be merged into.
+ */
+final class ParameterIngestionPipeline {
+
+    private static final Logger LOGGER = Logger.getLogger(ParameterIngestionPipeline.class.getName());
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    /**
+     * The destination of the parameter values.
+     */
+    interface Sink {
+
+        /**
+         * Pushes a batch of parameter values.
+         *
+         * @param parameters The parameter values.
+         * @param storeIt Whether the parameter values are stored in the COM
+         * Archive.
+         * @return True if the push was successful.
+         */
+        Boolean push(List<ParameterInstance> parameters, boolean storeIt);
+    }
+
+    private final BlockingQueue<Entry> queue;
+    private final int maxBatchSize;
+    private final Sink sink;
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    ParameterIngestionPipeline(final Sink sink, final int capacity, final int maxBatchSize) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.sink = sink;
+        this.drainer = new Thread(this::drain, "ParameterIngestion");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Queues parameter values. Blocks while the queue is full. The values
+     * without timestamp are stamped with the time at which they were queued.
+     * The parameter values are copied, so the caller can reuse its objects as
+     * soon as the method returns.
+     *
+     * @param parameters The parameter values.
+     * @param storeIt Whether the parameter values are stored in the COM
+     * Archive.
+     * @return True if queued. False if the pipeline was closed, if a value
+     * has no name or no parameter value, or if the producer was interrupted
+     * while waiting. Nothing is queued if a value is invalid.
+     */
+    boolean queue(final List<ParameterInstance> parameters, final boolean storeIt) {
+        if (!running) {
+            return false;
+        }
+
+        for (ParameterInstance parameter : parameters) {
+            if (parameter == null || parameter.getName() == null || parameter.getParameterValue() == null) {
+                LOGGER.log(Level.WARNING, "Invalid parameter value, none of the {0} values is queued.",
+                    parameters.size());
+                return false;
+            }
+        }
+
+        Time now = null;
+
+        try {
+            for (ParameterInstance parameter : parameters) {
+                Time timestamp = parameter.getTimestamp();
+
+                if (timestamp == null) {
+                    now = (now == null) ? HelperTime.getTimestampMillis() : now;
+                    timestamp = now;
+                }
+
+                // The ingestion thread sets the converted value and the validity state of its copy
+                final ParameterValue pValue = parameter.getParameterValue();
+                final ParameterValue copy = new ParameterValue(pValue.getValidityState(), pValue.getRawValue(),
+                    pValue.getConvertedValue());
+                queue.put(new Entry(new ParameterInstance(parameter.getName(), copy, parameter.getSource(),
+                    timestamp), storeIt));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Stops accepting parameter values. The values already queued are still
+     * pushed.
+     */
+    void close() {
+        running = false;
+    }
+
+    private void drain() {
+        final List<Entry> entries = new ArrayList<>(maxBatchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                final Entry first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+                if (first == null) {
+                    continue;
+                }
+
+                entries.add(first);
+                queue.drainTo(entries, maxBatchSize - 1);
+                push(entries);
+                entries.clear();
+            } catch (InterruptedException ex) {
+                LOGGER.log(Level.SEVERE, "The parameter ingestion was interrupted.", ex);
+                return;
+            }
+        }
+    }
+
+    private void push(final List<Entry> entries) {
+        // Consecutive values with the same storage flag are pushed together, in order
+        List<ParameterInstance> batch = new ArrayList<>(entries.size());
+        boolean storeIt = entries.get(0).storeIt;
+
+        for (Entry entry : entries) {
+            if (entry.storeIt != storeIt) {
+                flush(batch, storeIt);
+                batch = new ArrayList<>(entries.size());
+                storeIt = entry.storeIt;
+            }
+
+            batch.add(entry.instance);
+        }
+
+        flush(batch, storeIt);
+    }
+
+    private void flush(final List<ParameterInstance> batch, final boolean storeIt) {
+        try {
+            if (!Boolean.TRUE.equals(sink.push(batch, storeIt))) {
+                LOGGER.log(Level.WARNING, "{0} queued parameter values could not be pushed.", batch.size());
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "The queued parameter values could not be pushed.", ex);
+        }
+    }
+
+    private static final class Entry {
+
+        private final ParameterInstance instance;
+        private final boolean storeIt;
+
+        private Entry(final ParameterInstance instance, final boolean storeIt) {
+            this.instance = instance;
+            this.storeIt = storeIt;
+        }
+    }
+}
@@ -27,6 +27,7 @@ import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.SingleConnectionDetails;
 import esa.mo.mc.impl.interfaces.ParameterStatusListener;
 import java.io.IOException;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.archive.structures.ArchiveDetails;
@@ -69,6 +70,14 @@ public class ParameterManager extends MCManager {
 
     private final ParameterStatusListener parametersMonitoring;
 
+    // Resolved once: whether the adapter implements the callbacks based on identity ids instead of names
+    private final boolean getValueByIdentityId;
+
+    private final boolean setValueByIdentityId;
+
+    // Whether the adapter implements the optional onGetValues callback for several parameters at once
+    private final boolean getValuesInBatch;
+
     private Long uniqueObjIdIdentity;
 
     private Long uniqueObjIdDef; // Counter (different for every Definition)
@@ -90,6 +99,12 @@ public class ParameterManager extends MCManager {
         }
 
         this.parametersMonitoring = parametersMonitoring;
+        this.getValueByIdentityId = isDefaultCallback(parametersMonitoring, "onGetValue", Identifier.class,
+            Byte.class);
+        this.setValueByIdentityId = isDefaultCallback(parametersMonitoring, "onSetValue", IdentifierList.class,
+            ParameterRawValueList.class);
+        this.getValuesInBatch = parametersMonitoring != null && !isDefaultCallback(parametersMonitoring,
+            "onGetValues", LongList.class);
 
         if (super.getArchiveService() == null) {  // No Archive?
             this.uniqueObjIdIdentity = 0L; // The zeroth value will not be used (reserved for the wildcard)
@@ -107,6 +122,31 @@ public class ParameterManager extends MCManager {
         }
     }
 
+    /**
+     * Checks if the adapter keeps the default implementation of a deprecated
+     * callback based on names, which means that it implements the callback
+     * based on identity ids instead.
+     *
+     * @param listener the adapter
+     * @param name the name of the deprecated callback
+     * @param parameterTypes the parameter types of the deprecated callback
+     * @return true, if the callback based on identity ids shall be used
+     */
+    private static boolean isDefaultCallback(final ParameterStatusListener listener, final String name,
+        final Class<?>... parameterTypes) {
+        if (listener == null) {
+            return false;
+        }
+
+        try {
+            return listener.getClass().getMethod(name, parameterTypes).getDeclaringClass() ==
+                ParameterStatusListener.class;
+        } catch (NoSuchMethodException | SecurityException ex) {
+            Logger.getLogger(ParameterManager.class.getName()).log(Level.SEVERE, null, ex);
+            return false;
+        }
+    }
+
     /**
      * checks in the application if a parameter is read-only
      *
@@ -114,15 +154,8 @@ public class ParameterManager extends MCManager {
      * @return true, if it is readonly. false, if you can set it.
      */
     public boolean isReadOnly(Long identityId) {
-        Class cla;
-        try {
-            cla = parametersMonitoring.getClass().getMethod("onGetValue", Identifier.class, Byte.class)
-                .getDeclaringClass();
-            if (cla == ParameterStatusListener.class) {
-                return parametersMonitoring.isReadOnly(identityId);
-            }
-        } catch (NoSuchMethodException | SecurityException ex) {
-            Logger.getLogger(ParameterManager.class.getName()).log(Level.SEVERE, null, ex);
+        if (getValueByIdentityId) {
+            return parametersMonitoring.isReadOnly(identityId);
         }
 
         return parametersMonitoring.isReadOnly(getName(identityId));
@@ -251,6 +284,10 @@ public class ParameterManager extends MCManager {
      * @return a list with the requested parameter-values
      */
     protected ParameterValueList getParameterValues(LongList identityIds, boolean aggrExpired) {
+        if (getValuesInBatch) {
+            return getParameterValuesInBatch(identityIds, aggrExpired);
+        }
+
         ParameterValueList pValList = new ParameterValueList();
         for (Long identityId : identityIds) {
             try {
@@ -263,6 +300,71 @@ public class ParameterManager extends MCManager {
         return pValList;
     }
 
+    /**
+     * Checks if the application provides the values of several parameters
+     * with a single onGetValues call.
+     *
+     * @return true, if the parameters are sampled in batch
+     */
+    public boolean isBatchSamplingSupported() {
+        return getValuesInBatch;
+    }
+
+    /**
+     * Gets the current values of the parameters with the given identity-ids
+     * with a single onGetValues call to the application. The values of the
+     * parameters that do not exist are null, as in getParameterValues.
+     *
+     * @param identityIds the ids of the identities
+     * @param aggrExpired should be set to true, if the aggregation that is sampling the parameter, is periodic and the
+     *                    update hasnt been received in the aggregation-period. if true, the validity-state of the new
+     *                    parameter will be expired.
+     * @return a list with the requested parameter-values
+     */
+    private ParameterValueList getParameterValuesInBatch(LongList identityIds, boolean aggrExpired) {
+        final ParameterDefinitionDetails[] pDefs = new ParameterDefinitionDetails[identityIds.size()];
+        final LongList existingIds = new LongList(identityIds.size());
+
+        for (int i = 0; i < identityIds.size(); i++) {
+            if (this.existsIdentity(identityIds.get(i))) {
+                pDefs[i] = this.getParameterDefinition(identityIds.get(i));
+                existingIds.add(identityIds.get(i));
+            }
+        }
+
+        List<Attribute> rawValues = null;
+
+        if (!existingIds.isEmpty()) {
+            try {
+                rawValues = parametersMonitoring.onGetValues(existingIds);
+            } catch (IOException ex) {
+                rawValues = null;
+            }
+
+            if (rawValues != null && rawValues.size() != existingIds.size()) {
+                Logger.getLogger(ParameterManager.class.getName()).log(Level.SEVERE,
+                    "onGetValues returned {0} values for {1} parameters!", new Object[]{rawValues.size(), existingIds
+                        .size()});
+                rawValues = null;
+            }
+        }
+
+        ParameterValueList pValList = new ParameterValueList(identityIds.size());
+        int index = 0;
+
+        for (ParameterDefinitionDetails pDef : pDefs) {
+            if (pDef == null) {
+                pValList.add(null);
+            } else if (rawValues == null) {
+                pValList.add(new ParameterValue(getAsUOctet(ValidityState.INVALID_RAW), null, null));
+            } else {
+                pValList.add(generateNewParameterValue(rawValues.get(index++), pDef, aggrExpired));
+            }
+        }
+
+        return pValList;
+    }
+
     /**
      * Gets the current value of the parameter with the given identity-id
      *
@@ -322,18 +424,12 @@ public class ParameterManager extends MCManager {
      */
     public Attribute getValue(Long paramIdentityId) throws IOException {
         // check if new interface method is implemented, if yes, call it
-        try {
-            Class cla = parametersMonitoring.getClass().getMethod("onGetValue", Identifier.class, Byte.class)
-                .getDeclaringClass();
-            if (cla == ParameterStatusListener.class) {
-                return parametersMonitoring.onGetValue(paramIdentityId);
-            }
-        } catch (NoSuchMethodException | SecurityException ex) {
+        if (getValueByIdentityId) {
+            return parametersMonitoring.onGetValue(paramIdentityId);
         }
 
         // else use old procedure:
         ParameterDefinitionDetails pDef = this.getParameterDefinition(paramIdentityId);
-        Attribute value;
 
         return parametersMonitoring.onGetValue(super.getName(paramIdentityId), pDef.getRawType());
 
@@ -366,15 +462,12 @@ public class ParameterManager extends MCManager {
         ParameterDefinitionDetails pDef = this.getParameterDefinition(paramIdentityId);
         Attribute value;
         try {
-
-            Class cla = parametersMonitoring.getClass().getMethod("onGetValue", Identifier.class, Byte.class)
-                .getDeclaringClass();
-            if (cla == ParameterStatusListener.class) {
+            if (getValueByIdentityId) {
                 value = parametersMonitoring.onGetValue(paramIdentityId);
             } else {
                 value = parametersMonitoring.onGetValue(super.getName(paramIdentityId), pDef.getRawType());
             }
-        } catch (IOException | NoSuchMethodException | SecurityException ex) {
+        } catch (IOException ex) {
             Logger.getLogger(ParameterManager.class.getName()).log(Level.SEVERE, null, ex);
             return false;
         }
@@ -458,15 +551,12 @@ public class ParameterManager extends MCManager {
         final Long expPIdentityId = validityExpression.getParameterId().getInstId();
         final Attribute expParamValue;
         try {
-            Class cla = parametersMonitoring.getClass().getMethod("onGetValue", Identifier.class, Byte.class)
-                .getDeclaringClass();
-            if (cla == ParameterStatusListener.class) {
+            if (getValueByIdentityId) {
                 expParamValue = parametersMonitoring.onGetValue(expPIdentityId);
             } else {
                 expParamValue = parametersMonitoring.onGetValue(super.getName(expPIdentityId), null);
             }
-
-        } catch (IOException | NoSuchMethodException | SecurityException ex) {
+        } catch (IOException ex) {
             Logger.getLogger(ParameterManager.class.getName()).log(Level.SEVERE, null, ex);
             return getAsUOctet(ValidityState.INVALID_RAW);
         }
@@ -740,13 +830,8 @@ public class ParameterManager extends MCManager {
     protected ParameterValueList setValues(ParameterRawValueList newRawValues) {
 
         // check if new interface method is implemented, if yes, call it
-        try {
-            Class cla = parametersMonitoring.getClass().getMethod("onSetValue", IdentifierList.class,
-                ParameterRawValueList.class).getDeclaringClass();
-            if (cla == ParameterStatusListener.class) {
-                Boolean setSuccessful = parametersMonitoring.onSetValue(newRawValues);
-            }
-        } catch (NoSuchMethodException | SecurityException ex) {
+        if (setValueByIdentityId) {
+            Boolean setSuccessful = parametersMonitoring.onSetValue(newRawValues);
         }
         // else use old procedure:
 
@@ -836,14 +921,8 @@ public class ParameterManager extends MCManager {
         if (parametersMonitoring == null) {
             return null;
         }
-        try {
-            Class cla = parametersMonitoring.getClass().getMethod("onGetValue", Identifier.class, Byte.class)
-                .getDeclaringClass();
-            if (cla == ParameterStatusListener.class) {
-                return parametersMonitoring.onGetValue(identityId);
-            }
-        } catch (NoSuchMethodException | SecurityException ex) {
-            Logger.getLogger(ParameterManager.class.getName()).log(Level.SEVERE, null, ex);
+        if (getValueByIdentityId) {
+            return parametersMonitoring.onGetValue(identityId);
         }
         return parametersMonitoring.onGetValue(this.getName(identityId), pDef.getRawType());
 
@@ -25,7 +25,7 @@ import esa.mo.com.impl.util.HelperArchive;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.ConnectionProvider;
 import esa.mo.helpertools.helpers.HelperTime;
-import esa.mo.helpertools.misc.TaskScheduler;
+import esa.mo.helpertools.misc.PeriodicTimer;
 import esa.mo.mc.impl.util.GroupRetrieval;
 import esa.mo.mc.impl.util.MCServicesHelper;
 import esa.mo.reconfigurable.service.ConfigurationChangeListener;
@@ -102,13 +102,17 @@ import org.ccsds.moims.mo.mc.structures.ObjectInstancePairList;
 public class ParameterProviderServiceImpl extends ParameterInheritanceSkeleton implements ReconfigurableService {
 
     private final static double MIN_REPORTING_INTERVAL = 0.2;
+    private final static int INGESTION_QUEUE_SIZE_DEFAULT = 65536;
+    private final static int INGESTION_BATCH_SIZE_DEFAULT = 1024;
     private MALProvider parameterServiceProvider;
     private boolean initialiased = false;
     private boolean running = false;
     private boolean storeParametersInCOMArchive = true;
     private MonitorValuePublisher publisher;
-    private boolean isRegistered = false;
-    private final Object lock = new Object();
+    private volatile boolean isRegistered = false;
+    private final Object lock = new Object(); // Held to store and publish the values of a push
+    private final Object definitionLock = new Object(); // Held to create the definitions of pushed parameters
+    private volatile ParameterIngestionPipeline ingestionPipeline;
     private final AtomicLong pValUniqueObjId = new AtomicLong(System.currentTimeMillis());
     protected ParameterManager manager;
     private PeriodicReportingManager periodicReportingManager;
@@ -185,6 +189,10 @@ public class ParameterProviderServiceImpl extends ParameterInheritanceSkeleton i
 
             connection.closeAll();
             running = false;
+
+            if (null != ingestionPipeline) {
+                ingestionPipeline.close();
+            }
         } catch (MALException ex) {
             Logger.getLogger(ParameterProviderServiceImpl.class.getName()).log(Level.WARNING,
                 "Exception during close down of the provider {0}", ex);
@@ -775,7 +783,7 @@ public class ParameterProviderServiceImpl extends ParameterInheritanceSkeleton i
 
     private class PeriodicReportingManager { // requirement: 3.3.2.a.a
 
-        private HashMap<Long, TaskScheduler> timerList; // Timers list
+        private HashMap<Long, PeriodicTimer.Task> timerList; // Timers list
         boolean active = false; // Flag that determines if the Manager publishes or not
 
         public PeriodicReportingManager() {
@@ -838,8 +846,6 @@ public class ParameterProviderServiceImpl extends ParameterInheritanceSkeleton i
          * periodically
          */
         private void addPeriodicReporting(Long identityId) {
-            TaskScheduler timer = new TaskScheduler(1);
-            timerList.put(identityId, timer);
             publishPeriodicParameterUpdate(identityId);
             //requirement: 3.3.3.c
             startTimer(identityId, manager.getParameterDefinition(identityId).getReportInterval());
@@ -856,7 +862,7 @@ public class ParameterProviderServiceImpl extends ParameterInheritanceSkeleton i
          * @param interval
          */
         private void startTimer(final Long identityId, final Duration interval) {  // requirement: 3.3.3.c
-            timerList.get(identityId).scheduleTask(new Thread(() -> {
+            timerList.put(identityId, PeriodicTimer.getSharedInstance().schedule(() -> {
                 if (active) {
                     if (identityId == -1) {
                         return;
@@ -865,11 +871,11 @@ public class ParameterProviderServiceImpl extends ParameterInheritanceSkeleton i
                         publishPeriodicParameterUpdate(identityId);
                     }
                 }
-            }), 0, (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS, true); // the time has to be converted to milliseconds by multiplying by 1000
+            }, 0, (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS)); // the time has to be converted to milliseconds by multiplying by 1000
         }
 
         private void stopTimer(final Long identityId) {
-            timerList.get(identityId).stopLast();
+            timerList.get(identityId).cancel();
         }
 
     }
@@ -961,13 +967,35 @@ public class ParameterProviderServiceImpl extends ParameterInheritanceSkeleton i
      * of true will be returned because not error happened.
      */
     public Boolean pushMultipleParameterValues(final List<ParameterInstance> parameters, final boolean storeIt) {
+        return this.pushParameterValues(parameters, storeIt, false);
+    }
+
+    /**
+     * Pushes parameter values, see pushMultipleParameterValues. The names are
+     * resolved and the converted values are generated without holding the
+     * lock. The lock is only held to store and publish the values, so the
+     * pushes of different callers and of the ingestion thread are not
+     * interleaved in the archive and in the published updates.
+     *
+     * @param parameters The parameter values
+     * @param storeIt A flag that defines if the Parameters are going to be
+     * stored in the COM Archive
+     * @param skipFailing If true, the values whose definition could not be
+     * created are dropped and the other ones are still pushed. Used for the
+     * queued values, that come from several producers.
+     * @return Returns true if the push was successful. False otherwise.
+     */
+    private Boolean pushParameterValues(final List<ParameterInstance> parameters, final boolean storeIt,
+        final boolean skipFailing) {
         try {
-            synchronized (lock) {
-                if (!isRegistered) {
-                    final EntityKeyList lst = new EntityKeyList();
-                    lst.add(new EntityKey(new Identifier("*"), 0L, 0L, 0L));
-                    publisher.register(lst, new PublishInteractionListener());
-                    isRegistered = true;
+            if (!isRegistered) {
+                synchronized (lock) {
+                    if (!isRegistered) {
+                        final EntityKeyList lst = new EntityKeyList();
+                        lst.add(new EntityKey(new Identifier("*"), 0L, 0L, 0L));
+                        publisher.register(lst, new PublishInteractionListener());
+                        isRegistered = true;
+                    }
                 }
             }
 
@@ -976,37 +1004,18 @@ public class ParameterProviderServiceImpl extends ParameterInheritanceSkeleton i
             final List<ParameterInstance> parameterInstances = new ArrayList<>(parameters.size());
 
             for (int i = 0; i < parameters.size(); i++) {
-                ObjectInstancePair objId = manager.getIdentityDefinition(parameters.get(i).getName());  // Does the submitted name exists in the manager? 
+                final ObjectInstancePair objId;
 
-                if (objId == null) { // If the definition is not in the manager, then create it
-                    ParameterDefinitionDetails pDef = new ParameterDefinitionDetails();
-                    pDef.setDescription("This def. was auto-generated by the Parameter service");
+                try {
+                    objId = this.getOrAddIdentity(parameters.get(i));
+                } catch (MALInteractionException | MALException ex) {
+                    Logger.getLogger(ParameterProviderServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
 
-                    if (parameters.get(i).getParameterValue().getRawValue() == null) {  // Well, let's then consider that it is a Double
-                        pDef.setRawType(Union.DOUBLE_TYPE_SHORT_FORM.byteValue());
-                    } else {
-                        pDef.setRawType(parameters.get(i).getParameterValue().getRawValue().getTypeShortForm()
-                            .byteValue()); // Check what is the type and stamp it
+                    if (skipFailing) {
+                        continue; // Only this value is dropped
                     }
 
-                    pDef.setRawUnit(null);
-                    pDef.setGenerationEnabled(true); // Auto enable the generation
-                    pDef.setReportInterval(new Duration(0));
-                    pDef.setValidityExpression(null);
-                    pDef.setConversion(null);
-
-                    ParameterCreationRequestList pDefCreationReqs = new ParameterCreationRequestList(1);
-                    ParameterCreationRequest pDefCreationReq = new ParameterCreationRequest(parameters.get(i).getName(),
-                        pDef);
-                    pDefCreationReqs.add(pDefCreationReq);
-
-                    try {
-                        ObjectInstancePairList returnedObjIds = this.addParameter(pDefCreationReqs, null); // Enable the reporting for this Alert Definition 
-                        objId = returnedObjIds.get(0);
-                    } catch (MALInteractionException | MALException ex) {
-                        Logger.getLogger(ParameterProviderServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
-                        return false;
-                    }
+                    return false;
                 }
 
                 ParameterDefinitionDetails pDef2 = (ParameterDefinitionDetails) manager.getDefinition(objId
@@ -1041,46 +1050,48 @@ public class ParameterProviderServiceImpl extends ParameterInheritanceSkeleton i
 
             for (int i = 0; i < outIds.size(); i++) {
                 relatedIds.add(outIds.get(i).getObjDefInstanceId());
-                sourceIds.add(parameters.get(i).getSource());
-                final FineTime timestamp = (parameters.get(i).getTimestamp() != null) ? HelperTime.timeToFineTime(
-                    parameters.get(i).getTimestamp()) : defaultTimestamp;
+                sourceIds.add(parameterInstances.get(i).getSource());
+                final FineTime timestamp = (parameterInstances.get(i).getTimestamp() != null) ? HelperTime
+                    .timeToFineTime(parameterInstances.get(i).getTimestamp()) : defaultTimestamp;
                 timestamps.add(timestamp);
             }
 
-            final LongList pValObjIds;
+            synchronized (lock) {
+                final LongList pValObjIds;
 
-            if (storeIt) {
-                pValObjIds = manager.storeAndGenerateMultiplePValobjId(parameterValueList, relatedIds, sourceIds,
-                    connection.getConnectionDetails(), timestamps);
-            } else {
-                // Well, if we don't store it, then we shall use the local unique variable
-                pValObjIds = new LongList(parameterValueList.size());
-                for (ParameterValue parameterVal : parameterValueList) {
-                    pValObjIds.add(pValUniqueObjId.incrementAndGet());
+                if (storeIt) {
+                    pValObjIds = manager.storeAndGenerateMultiplePValobjId(parameterValueList, relatedIds, sourceIds,
+                        connection.getConnectionDetails(), timestamps);
+                } else {
+                    // Well, if we don't store it, then we shall use the local unique variable
+                    pValObjIds = new LongList(parameterValueList.size());
+                    for (ParameterValue parameterVal : parameterValueList) {
+                        pValObjIds.add(pValUniqueObjId.incrementAndGet());
+                    }
                 }
-            }
 
-            final UpdateHeaderList hdrlst = new UpdateHeaderList(parameters.size());
-            final ObjectIdList objectIdlst = new ObjectIdList(parameters.size());
-            final ParameterValueList pVallst = new ParameterValueList(parameters.size());
+                final UpdateHeaderList hdrlst = new UpdateHeaderList(parameters.size());
+                final ObjectIdList objectIdlst = new ObjectIdList(parameters.size());
+                final ParameterValueList pVallst = new ParameterValueList(parameters.size());
 
-            for (int i = 0; i < parameterInstances.size(); i++) {
-                //  requirements: 3.3.7.2.a , 3.3.7.2.b , 3.3.7.2.c , 3.3.7.2.d 
-                final EntityKey ekey = new EntityKey(new Identifier(manager.getName(outIds.get(i)
-                    .getObjIdentityInstanceId()).toString()), outIds.get(i).getObjIdentityInstanceId(), outIds.get(i)
-                        .getObjDefInstanceId(), pValObjIds.get(i));
+                for (int i = 0; i < parameterInstances.size(); i++) {
+                    //  requirements: 3.3.7.2.a , 3.3.7.2.b , 3.3.7.2.c , 3.3.7.2.d 
+                    final EntityKey ekey = new EntityKey(new Identifier(manager.getName(outIds.get(i)
+                        .getObjIdentityInstanceId()).toString()), outIds.get(i).getObjIdentityInstanceId(), outIds
+                            .get(i).getObjDefInstanceId(), pValObjIds.get(i));
 
-                Time time = parameterInstances.get(i).getTimestamp();
-                time = (time == null) ? defaultTimestamp2 : time; //  requirement: 3.3.5.2.5
+                    Time time = parameterInstances.get(i).getTimestamp();
+                    time = (time == null) ? defaultTimestamp2 : time; //  requirement: 3.3.5.2.5
 
-                //requirement: 3.3.7.2.e : timestamp must be the same as for the creation of the ParameterValue
-                hdrlst.add(new UpdateHeader(time, connection.getConnectionDetails().getProviderURI(), UpdateType.UPDATE,
-                    ekey));
-                objectIdlst.add(parameterInstances.get(i).getSource()); // requirement: 3.3.7.2.g (3.3.5.2.f not necessary) 
-                pVallst.add(parameterInstances.get(i).getParameterValue()); // requirement: 3.3.7.2.h 
-            }
+                    //requirement: 3.3.7.2.e : timestamp must be the same as for the creation of the ParameterValue
+                    hdrlst.add(new UpdateHeader(time, connection.getConnectionDetails().getProviderURI(),
+                        UpdateType.UPDATE, ekey));
+                    objectIdlst.add(parameterInstances.get(i).getSource()); // requirement: 3.3.7.2.g (3.3.5.2.f not necessary) 
+                    pVallst.add(parameterInstances.get(i).getParameterValue()); // requirement: 3.3.7.2.h 
+                }
 
-            publisher.publish(hdrlst, objectIdlst, pVallst);
+                publisher.publish(hdrlst, objectIdlst, pVallst);
+            }
         } catch (IllegalArgumentException | MALInteractionException | MALException ex) {
             Logger.getLogger(ParameterProviderServiceImpl.class.getName()).log(Level.WARNING,
                 "Pushed Parameter: Exception during publishing process on the provider {0}", ex);
@@ -1090,6 +1101,121 @@ public class ParameterProviderServiceImpl extends ParameterInheritanceSkeleton i
         return true;
     }
 
+    /**
+     * Returns the identity and definition ids of a pushed parameter, and
+     * creates its definition if there is none with its name yet. The
+     * definition is created only once even if the name is pushed by several
+     * threads at the same time.
+     *
+     * @param parameter The pushed parameter
+     * @return The identity and definition ids
+     * @throws MALInteractionException if the definition could not be created
+     * @throws MALException if the definition could not be created
+     */
+    private ObjectInstancePair getOrAddIdentity(final ParameterInstance parameter) throws MALInteractionException,
+        MALException {
+        ObjectInstancePair objId = manager.getIdentityDefinition(parameter.getName());  // Does the submitted name exists in the manager? 
+
+        if (objId != null) {
+            return objId;
+        }
+
+        synchronized (definitionLock) {
+            objId = manager.getIdentityDefinition(parameter.getName()); // Created in the meantime by another push
+
+            if (objId != null) {
+                return objId;
+            }
+
+            // The definition is not in the manager, then create it
+            ParameterDefinitionDetails pDef = new ParameterDefinitionDetails();
+            pDef.setDescription("This def. was auto-generated by the Parameter service");
+
+            if (parameter.getParameterValue().getRawValue() == null) {  // Well, let's then consider that it is a Double
+                pDef.setRawType(Union.DOUBLE_TYPE_SHORT_FORM.byteValue());
+            } else {
+                pDef.setRawType(parameter.getParameterValue().getRawValue().getTypeShortForm().byteValue()); // Check what is the type and stamp it
+            }
+
+            pDef.setRawUnit(null);
+            pDef.setGenerationEnabled(true); // Auto enable the generation
+            pDef.setReportInterval(new Duration(0));
+            pDef.setValidityExpression(null);
+            pDef.setConversion(null);
+
+            ParameterCreationRequestList pDefCreationReqs = new ParameterCreationRequestList(1);
+            pDefCreationReqs.add(new ParameterCreationRequest(parameter.getName(), pDef));
+
+            ObjectInstancePairList returnedObjIds = this.addParameter(pDefCreationReqs, null); // Enable the reporting for this Alert Definition 
+            return returnedObjIds.get(0);
+        }
+    }
+
+    /**
+     * Queues parameter values to be pushed by the ingestion thread, and stored
+     * in the COM Archive depending on the {@link
+     * MCServicesHelper#STORE_IN_ARCHIVE_PROPERTY} property.
+     *
+     * @param parameters The parameter values
+     * @return Returns true if the values were queued. False otherwise.
+     * @see #queueParameterValues(java.util.List, boolean)
+     */
+    public Boolean queueParameterValues(final List<ParameterInstance> parameters) {
+        return this.queueParameterValues(parameters, storeParametersInCOMArchive);
+    }
+
+    /**
+     * Queues parameter values to be pushed by the ingestion thread. Unlike
+     * pushMultipleParameterValues, the method returns as soon as the values
+     * are queued. The values queued by all the producers in the meantime are
+     * stored in the COM Archive and published together. The method blocks
+     * while the queue is full. The parameter values are copied when they are
+     * queued, so the caller keeps the ownership of its objects.
+     *
+     * @param parameters The parameter values
+     * @param storeIt A flag that defines if the Parameters are going to be
+     * stored in the COM Archive
+     * @return Returns true if the values were queued. False if the service
+     * was closed, if a value has no name or no parameter value, or if the
+     * thread was interrupted while waiting.
+     */
+    public Boolean queueParameterValues(final List<ParameterInstance> parameters, final boolean storeIt) {
+        if (!running) {
+            return false;
+        }
+
+        ParameterIngestionPipeline pipeline = ingestionPipeline;
+
+        if (pipeline == null) {
+            synchronized (lock) {
+                if (ingestionPipeline == null) {
+                    ingestionPipeline = new ParameterIngestionPipeline((values, store) -> this.pushParameterValues(
+                        values, store, true), getIntProperty(MCServicesHelper.INGESTION_QUEUE_SIZE_PROPERTY,
+                            INGESTION_QUEUE_SIZE_DEFAULT), getIntProperty(
+                                MCServicesHelper.INGESTION_BATCH_SIZE_PROPERTY, INGESTION_BATCH_SIZE_DEFAULT));
+                }
+                pipeline = ingestionPipeline;
+            }
+        }
+
+        return pipeline.queue(parameters, storeIt);
+    }
+
+    private static int getIntProperty(final String property, final int defaultValue) {
+        final String value = System.getProperty(property);
+
+        if (null != value && !"".equals(value)) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException ex) {
+                Logger.getLogger(ParameterProviderServiceImpl.class.getName()).log(Level.WARNING,
+                    "Invalid value for " + property + ": " + value + ". Using the default: " + defaultValue);
+            }
+        }
+
+        return defaultValue;
+    }
+
     /**
      * publishes a periodic parameter update for the given parameter
      *
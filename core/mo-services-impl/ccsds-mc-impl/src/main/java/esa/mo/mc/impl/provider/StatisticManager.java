@@ -22,17 +22,16 @@ package esa.mo.mc.impl.provider;
 
 import esa.mo.com.impl.util.COMServicesProvider;
 import esa.mo.com.impl.util.HelperArchive;
-import esa.mo.com.impl.util.HelperCOM;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.SingleConnectionDetails;
 import esa.mo.helpertools.helpers.HelperAttributes;
 import esa.mo.mc.impl.interfaces.ExternalStatisticFunctionsInterface;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.ccsds.moims.mo.com.archive.structures.ExpressionOperator;
 import org.ccsds.moims.mo.com.structures.ObjectId;
 import org.ccsds.moims.mo.mal.MALException;
 import org.ccsds.moims.mo.mal.MALInteractionException;
@@ -55,7 +54,6 @@ import org.ccsds.moims.mo.mc.statistic.structures.StatisticFunctionDetailsList;
 import org.ccsds.moims.mo.mc.statistic.structures.StatisticLinkDetailsList;
 import org.ccsds.moims.mo.mc.statistic.structures.StatisticValue;
 import org.ccsds.moims.mo.mc.statistic.structures.StatisticValueList;
-import org.ccsds.moims.mo.mc.structures.AttributeValue;
 import org.ccsds.moims.mo.mc.structures.AttributeValueList;
 import org.ccsds.moims.mo.mc.structures.ObjectInstancePair;
 
@@ -366,184 +364,60 @@ public final class StatisticManager {
         this.statEvaluationReports.remove(statLinkId);
     }
 
-    protected StatisticValue generateStatisticValue(Long statFuncId, long paramIdentityId, TimeList times,
-        AttributeValueList values) {
+    protected StatisticValue generateStatisticValue(Long statFuncId, long paramIdentityId, StatisticWindow window) {
         StatisticFunctionDetails statFunction = this.getStatisticFunction(statFuncId);
 
-        if (statFunction == null) {
+        if (statFunction == null || window == null) {
             return null;
         }
 
-        //requirment: 3.6.2.b, c
-        if (statFunction.getName().toString().equals(STR_STAT_FUNC_NAME_MAXIMUM)) { // Maximum
-            return this.generateStatisticValueMaximum(paramIdentityId, times, values);
-        }
-
-        if (statFunction.getName().toString().equals(STR_STAT_FUNC_NAME_MINIMUM)) { // Minimum
-            return this.generateStatisticValueMinimum(paramIdentityId, times, values);
-        }
-
-        if (statFunction.getName().toString().equals(STR_STAT_FUNC_NAME_MEAN_AVERAGE)) { // Mean average
-            return this.generateStatisticValueMeanAverage(paramIdentityId, times, values);
-        }
-
-        if (statFunction.getName().toString().equals(STR_STAT_FUNC_NAME_STD_DEVIATION)) { // Standard deviation
-            return this.generateStatisticValueStandardDeviation(paramIdentityId, times, values);
-        }
-
-        // Generate Statistic Value from external
-        if (externalStatFunctions != null) {
-            return externalStatFunctions.generateCustomStatisticValue(statFuncId, times, values);
-        }
-
-        return null;
-    }
-
-    private StatisticValue generateStatisticValueMaximum(long paramIdentityId, TimeList times,
-        AttributeValueList values) {
-        StatisticValue statValue = this.newStatisticValue(paramIdentityId, times, values);
-
-        if (statValue == null) {
-            return null;
-        }
-
-        int maximum = 0;
-
-        // Go through all the data sets and find the maximum value...
-        for (int i = 0; i < values.size(); i++) {
-            if (values.get(i) == null) {
-                continue;
+        synchronized (window) {
+            //requirment: 3.6.2.b, c
+            if (statFunction.getName().toString().equals(STR_STAT_FUNC_NAME_MAXIMUM)) { // Maximum
+                //requirement: 3.6.3.h report first occurance of max value
+                return this.newStatisticValue(paramIdentityId, window, window.getMaximum(), window.getMaximumTime());
             }
 
-            // Comparison must be done here
-            //requirement: 3.6.3.h report first occurance of max value
-            if (HelperCOM.evaluateExpression(values.get(i).getValue(), ExpressionOperator.GREATER, values.get(maximum)
-                .getValue())) {
-                maximum = i;
+            if (statFunction.getName().toString().equals(STR_STAT_FUNC_NAME_MINIMUM)) { // Minimum
+                //requirement: 3.6.3.i report first occurance of min value
+                return this.newStatisticValue(paramIdentityId, window, window.getMinimum(), window.getMinimumTime());
             }
-        }
-
-        statValue.setValue(values.get(maximum).getValue());
-        statValue.setValueTime(times.get(maximum));
 
-        return statValue;
-    }
-
-    private StatisticValue generateStatisticValueMinimum(long paramIdentityId, TimeList times,
-        AttributeValueList values) {
-        StatisticValue statValue = this.newStatisticValue(paramIdentityId, times, values);
-
-        if (statValue == null) {
-            return null;
-        }
-
-        int minimum = 0;
-
-        // Go through all the data sets and find the maximum value...
-        for (int i = 0; i < values.size(); i++) {
-            if (values.get(i) == null) {
-                continue;
+            if (statFunction.getName().toString().equals(STR_STAT_FUNC_NAME_MEAN_AVERAGE)) { // Mean average
+                //requirement: 3.6.3.j report double value
+                // StatisticValue structure: "Shall be NULL if not applicable for cases such as 'mean average'."
+                return this.newStatisticValue(paramIdentityId, window, (Attribute) HelperAttributes.javaType2Attribute(
+                    window.getMean()), null);
             }
 
-            // Comparison must be done here
-            //requirement: 3.6.3.i report first occurance of min value
-            if (HelperCOM.evaluateExpression(values.get(i).getValue(), ExpressionOperator.LESS, values.get(minimum)
-                .getValue())) {
-                minimum = i;
+            if (statFunction.getName().toString().equals(STR_STAT_FUNC_NAME_STD_DEVIATION)) { // Standard deviation
+                //requirement: 3.6.3.k report double value
+                return this.newStatisticValue(paramIdentityId, window, (Attribute) HelperAttributes.javaType2Attribute(
+                    window.getStandardDeviation()), null);
             }
-        }
-
-        statValue.setValue(values.get(minimum).getValue());
-        statValue.setValueTime(times.get(minimum));
 
-        return statValue;
-    }
-
-    private StatisticValue generateStatisticValueMeanAverage(long paramIdentityId, TimeList times,
-        AttributeValueList values) {
-        StatisticValue statValue = this.newStatisticValue(paramIdentityId, times, values);
-
-        if (statValue == null) {
-            return null;
-        }
-
-        //----------------------Mean Calculation--------------------------
-        double mean = 0;
-
-        // Go through all the data sets and find the maximum value...
-        for (int i = 0; i < values.size(); i++) {
-            if (values.get(i) == null) {
-                continue;
+            // Generate Statistic Value from external
+            if (externalStatFunctions != null && window.size() != 0) {
+                return externalStatFunctions.generateCustomStatisticValue(statFuncId, window.getTimes(), window
+                    .getValues());
             }
-
-            mean += HelperAttributes.attribute2double(values.get(i).getValue());
         }
 
-        mean = mean / ((double) values.size());
-        //----------------------------------------------------------------
-
-        //requirement: 3.6.3.j report double value
-        statValue.setValue((Attribute) HelperAttributes.javaType2Attribute(mean));
-        statValue.setValueTime(null); // StatisticValue structure: "Shall be NULL if not applicable for cases such as 'mean average'."
-
-        return statValue;
-    }
-
-    private StatisticValue generateStatisticValueStandardDeviation(long paramIdentityId, TimeList times,
-        AttributeValueList values) {
-        StatisticValue statValue = this.newStatisticValue(paramIdentityId, times, values);
-
-        if (statValue == null) {
-            return null;
-        }
-
-        //----------------------Mean Calculation--------------------------
-        double mean = 0;
-
-        // Go through all the data sets and find the maximum value...
-        for (int i = 0; i < values.size(); i++) {
-            if (values.get(i) == null) {
-                continue;
-            }
-
-            mean += HelperAttributes.attribute2double(values.get(i).getValue());
-        }
-
-        mean = mean / ((double) values.size());
-        //----------------------------------------------------------------
-
-        double variance = 0;
-
-        // Go through all the data sets and find the maximum value...
-        for (int i = 0; i < values.size(); i++) {
-            double tmp = HelperAttributes.attribute2double(values.get(i).getValue()) - mean;
-            variance += Math.pow(tmp, 2);
-        }
-
-        variance = variance / ((double) (values.size() - 1));
-        variance = Math.sqrt(variance);
-
-        //requirement: 3.6.3.k report double value
-        statValue.setValue((Attribute) HelperAttributes.javaType2Attribute(variance));
-        statValue.setValueTime(null); // StatisticValue structure: "Shall be NULL if not applicable for cases such as 'mean average'."
-
-        return statValue;
+        return null;
     }
 
-    private StatisticValue newStatisticValue(long paramIdentityId, TimeList times, AttributeValueList values) {
-        if (times == null || values == null) { // Nothing to do here...
-            return null;
-        }
-
-        // Different list sizes or zero elements?
-        if (times.size() != values.size() || values.size() == 0) {
+    private StatisticValue newStatisticValue(long paramIdentityId, StatisticWindow window, Attribute value,
+        Time valueTime) {
+        if (window.size() == 0) { // Nothing to do here...
             return null;
         }
 
         StatisticValue statValue = new StatisticValue();
-        statValue.setStartTime(times.get(0));
-        statValue.setEndTime(times.get(times.size() - 1)); // Last element
-        statValue.setSampleCount(new UInteger(times.size()));
+        statValue.setStartTime(window.getStartTime());
+        statValue.setEndTime(window.getEndTime()); // Last element
+        statValue.setValueTime(valueTime);
+        statValue.setValue(value);
+        statValue.setSampleCount(new UInteger(window.size()));
         long paramDefInstId = parameterManager.getDefinitionId(paramIdentityId);
         statValue.setParamDefInstId(paramDefInstId);
 
@@ -568,8 +442,7 @@ public final class StatisticManager {
 
     public static class DataSets {
 
-        private final HashMap<Long, AttributeValueList> dataSets = new HashMap<>();
-        private final HashMap<Long, TimeList> timeSets = new HashMap<>();
+        private final ConcurrentHashMap<Long, StatisticWindow> windows = new ConcurrentHashMap<>();
         private final Semaphore semaphore = new Semaphore(1);
 
         public void lock() {
@@ -584,55 +457,52 @@ public final class StatisticManager {
             this.semaphore.release();
         }
 
+        StatisticWindow getWindow(Long objId) {
+            return this.windows.get(objId);
+        }
+
+        /**
+         * Returns a copy of the times of the data set. Built on every call,
+         * the statistics are read from the window instead.
+         *
+         * @param objId The statistic link.
+         * @return The times, or null if there is no data set.
+         */
         public TimeList getTimeSet(Long objId) {
-            return this.timeSets.get(objId);
+            StatisticWindow window = this.windows.get(objId);
+            return (window == null) ? null : window.getTimes();
         }
 
+        /**
+         * Returns a copy of the values of the data set. Built on every call,
+         * the statistics are read from the window instead.
+         *
+         * @param objId The statistic link.
+         * @return The values, or null if there is no data set.
+         */
         public AttributeValueList getDataSet(Long objId) {
-            return this.dataSets.get(objId);
+            StatisticWindow window = this.windows.get(objId);
+            return (window == null) ? null : window.getValues();
         }
 
         public void resetDataSet(Long objId) {
-            this.dataSets.put(objId, new AttributeValueList());
-            this.timeSets.put(objId, new TimeList());
-        }
-
-        public void addAttributeToDataSet(Long objId, Attribute attribute, Time time) {
-            this.lock();
+            StatisticWindow window = this.windows.get(objId);
 
-            if (this.dataSets.get(objId) == null) {
-                this.dataSets.put(objId, new AttributeValueList());
-                this.timeSets.put(objId, new TimeList());
-            }
-
-            if (attribute == null) {
-                this.dataSets.get(objId).add(null);
-                this.timeSets.get(objId).add(time);
+            if (window == null) {
+                this.windows.put(objId, new StatisticWindow());
             } else {
-                AttributeValue value = new AttributeValue();
-                value.setValue(attribute);
-                this.dataSets.get(objId).add(value);
-                this.timeSets.get(objId).add(time);
+                window.clear();
             }
+        }
 
+        public void addAttributeToDataSet(Long objId, Attribute attribute, Time time) {
+            this.lock();
+            this.windows.computeIfAbsent(objId, id -> new StatisticWindow()).add(attribute, time.getValue());
             this.unlock();
         }
 
         public void removeDataSet(Long objId) {
-            this.dataSets.remove(objId);
-            this.timeSets.remove(objId);
-        }
-
-        public Integer getOldestIndex(Long objId, double oldestTimeInMs) {
-            // get index of oldestTimeInMs (or the next higher index, if oldestTimeInMs not in list)
-            TimeList allTimes = timeSets.get(objId);
-            if (allTimes == null) {
-                return null;
-            }
-            int i = 0;
-            for (; i < allTimes.size() && allTimes.get(i).getValue() < oldestTimeInMs; i++)
-                ;
-            return i;
+            this.windows.remove(objId);
         }
 
     }
@@ -24,11 +24,10 @@ import esa.mo.com.impl.util.COMServicesProvider;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.ConnectionProvider;
 import esa.mo.helpertools.helpers.HelperTime;
-import esa.mo.helpertools.misc.TaskScheduler;
+import esa.mo.helpertools.misc.PeriodicTimer;
 import esa.mo.mc.impl.interfaces.ExternalStatisticFunctionsInterface;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -59,7 +58,6 @@ import org.ccsds.moims.mo.mal.structures.LongList;
 import org.ccsds.moims.mo.mal.structures.QoSLevel;
 import org.ccsds.moims.mo.mal.structures.SessionType;
 import org.ccsds.moims.mo.mal.structures.Time;
-import org.ccsds.moims.mo.mal.structures.TimeList;
 import org.ccsds.moims.mo.mal.structures.UInteger;
 import org.ccsds.moims.mo.mal.structures.UIntegerList;
 import org.ccsds.moims.mo.mal.structures.UpdateHeader;
@@ -86,8 +84,6 @@ import org.ccsds.moims.mo.mc.statistic.structures.StatisticLinkSummary;
 import org.ccsds.moims.mo.mc.statistic.structures.StatisticLinkSummaryList;
 import org.ccsds.moims.mo.mc.statistic.structures.StatisticValue;
 import org.ccsds.moims.mo.mc.statistic.structures.StatisticValueList;
-import org.ccsds.moims.mo.mc.structures.AttributeValue;
-import org.ccsds.moims.mo.mc.structures.AttributeValueList;
 import org.ccsds.moims.mo.mc.structures.ObjectInstancePair;
 import org.ccsds.moims.mo.mc.structures.ObjectInstancePairList;
 
@@ -438,27 +434,15 @@ public class StatisticProviderServiceImpl extends StatisticInheritanceSkeleton {
         if (link == null) {
             return null;
         }
-        // slice the times and values in order to only use those values gathered during the last collection period
+        // only use those values gathered during the last collection period
         double oldestTime = System.currentTimeMillis() - link.getLinkDetails().getCollectionInterval().getValue() *
             1000.0;
-        Integer oldestIndex = manager.getDataSets().getOldestIndex(statLinkId, oldestTime);
-        // Retrieve the corresponding data set
-        TimeList times = new TimeList();
-        AttributeValueList values = new AttributeValueList();
-        TimeList allTimes = manager.getDataSets().getTimeSet(statLinkId);
-        AttributeValueList allValues = manager.getDataSets().getDataSet(statLinkId);
-        if (oldestIndex == null) {
-            times = allTimes;
-            values = allValues;
-        } else {
-            List<Time> timesArr = allTimes.subList(oldestIndex, allTimes.size());
-            times.addAll(timesArr);
-            List<AttributeValue> valuesArr = allValues.subList(oldestIndex, allValues.size());
-            values.addAll(valuesArr);
+        StatisticWindow window = manager.getDataSets().getWindow(statLinkId);
+        if (window != null) {
+            window.dropOlderThan(oldestTime);
         }
         // Generate the Statistic Report
-        return manager.generateStatisticValue(link.getStatFuncInstId(), link.getParameterId().getInstId(), times,
-            values);
+        return manager.generateStatisticValue(link.getStatFuncInstId(), link.getParameterId().getInstId(), window);
     }
 
     @Override
@@ -995,7 +979,7 @@ public class StatisticProviderServiceImpl extends StatisticInheritanceSkeleton {
          * Key: the id of the ParameterIdentity, Value: the
          * sample-reporting-timer
          */
-        private HashMap<Long, TaskScheduler> sampleTimerList; // Timers list
+        private HashMap<Long, PeriodicTimer.Task> sampleTimerList; // Timers list
         private boolean active = false; // Flag that determines if the Manager is on or off
 
         public PeriodicSamplingManager() {
@@ -1078,8 +1062,6 @@ public class StatisticProviderServiceImpl extends StatisticInheritanceSkeleton {
             // NOTE: The standard says its "perfectly possible" to set a sampleInterval greater than a reporting or collection interval so no other checks of the sampleinterval necessary here
             Duration sampleInterval = statLink.getLinkDetails().getSamplingInterval();
             if (sampleInterval.getValue() != 0) {
-                TaskScheduler timer = new TaskScheduler(1, true);  // Take care of adding a new timer
-                sampleTimerList.put(identityId, timer);
                 startTimer(identityId, sampleInterval, statLink.getLinkDetails().getUseConverted());
             }
 
@@ -1087,11 +1069,11 @@ public class StatisticProviderServiceImpl extends StatisticInheritanceSkeleton {
 
         private void startTimer(final Long identityId, final Duration interval, final boolean useConverted) {  // requirement: 3.6.2.g
             // the time has to be converted to milliseconds by multiplying by 1000
-            sampleTimerList.get(identityId).scheduleTask(new Thread(() -> { // Periodic sampling
+            sampleTimerList.put(identityId, PeriodicTimer.getSharedInstance().schedule(() -> { // Periodic sampling
                 if (active) {
                     sampleParamValue(identityId, useConverted);
                 }
-            }), 0, (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS, true); // requirement: 3.6.2.g
+            }, 0, (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS)); // requirement: 3.6.2.g
         }
 
         private void sampleParamValue(final Long identityId, final boolean useConverted) {
@@ -1117,14 +1099,14 @@ public class StatisticProviderServiceImpl extends StatisticInheritanceSkeleton {
         }
 
         private void stopTimer(Long objId) {
-            sampleTimerList.get(objId).stopLast();
+            sampleTimerList.get(objId).cancel();
         }
 
     }
 
     private class PeriodicCollectionManager {
 
-        private HashMap<Long, TaskScheduler> collectionTimerList; // Timers list
+        private HashMap<Long, PeriodicTimer.Task> collectionTimerList; // Timers list
         private boolean active = false; // Flag that determines if the Manager is on or off
 
         public PeriodicCollectionManager() {
@@ -1180,8 +1162,6 @@ public class StatisticProviderServiceImpl extends StatisticInheritanceSkeleton {
 
             // Add to the Periodic Collection Manager
             if (collectionInterval.getValue() != 0) {
-                TaskScheduler timer = new TaskScheduler(1, true);  // Take care of adding a new timer
-                collectionTimerList.put(objId, timer);
                 startTimer(objId, collectionInterval);
             }
 
@@ -1194,7 +1174,7 @@ public class StatisticProviderServiceImpl extends StatisticInheritanceSkeleton {
 
         private void startTimer(final Long statLinkId, Duration interval) {
 
-            collectionTimerList.get(statLinkId).scheduleTask(new Thread() {
+            collectionTimerList.put(statLinkId, PeriodicTimer.getSharedInstance().schedule(new Runnable() {
                 @Override
                 public void run() { // Periodic sampling
                     if (active) {
@@ -1227,18 +1207,18 @@ public class StatisticProviderServiceImpl extends StatisticInheritanceSkeleton {
                 }
 
                 // the time has to be converted to milliseconds by multiplying by 1000
-            }, (int) (interval.getValue() * 1000), (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS, true);
+            }, (int) (interval.getValue() * 1000), (int) (interval.getValue() * 1000), TimeUnit.MILLISECONDS));
         }
 
         private void stopTimer(Long objId) {
-            collectionTimerList.get(objId).stopLast();
+            collectionTimerList.get(objId).cancel();
         }
 
     }
 
     private class PeriodicReportingManager { // requirement: 3.7.2.1a
 
-        private HashMap<Long, TaskScheduler> updateTimerList; // updateInterval Timers list
+        private HashMap<Long, PeriodicTimer.Task> updateTimerList; // updateInterval Timers list
         private boolean active = false; // Flag that determines if the Manager is on or off
 
         public PeriodicReportingManager() {
@@ -1300,8 +1280,6 @@ public class StatisticProviderServiceImpl extends StatisticInheritanceSkeleton {
         }
 
         private void addPeriodicReporting(Long statLinkId, boolean immediateReport) {
-            TaskScheduler timer = new TaskScheduler(1, true);
-            updateTimerList.put(statLinkId, timer);
             this.startReportingTimer(statLinkId, manager.getStatisticLink(statLinkId).getLinkDetails()
                 .getReportingInterval(), immediateReport); //requirement: 3.6.2.h, 3.6.3.b
         }
@@ -1312,12 +1290,12 @@ public class StatisticProviderServiceImpl extends StatisticInheritanceSkeleton {
         }
 
         private void startReportingTimer(final Long statLinkId, final Duration interval, boolean immediateReport) {
-            updateTimerList.get(statLinkId).scheduleTask(new Thread(() -> {  //requirement: 3.6.2.h, 3.6.3.b
+            updateTimerList.put(statLinkId, PeriodicTimer.getSharedInstance().schedule(() -> {  //requirement: 3.6.2.h, 3.6.3.b
                 if (active) {
                     reportStatistic(statLinkId);
                 }
-            }), immediateReport ? 0 : (int) (interval.getValue() * 1000), (int) (interval.getValue() * 1000),
-                TimeUnit.MILLISECONDS, true); //requirement: 3.6.2.h, 3.6.3.b
+            }, immediateReport ? 0 : (int) (interval.getValue() * 1000), (int) (interval.getValue() * 1000),
+                TimeUnit.MILLISECONDS)); //requirement: 3.6.2.h, 3.6.3.b
         }
 
         private void reportStatistic(final Long statLinkId) {
@@ -1335,7 +1313,7 @@ public class StatisticProviderServiceImpl extends StatisticInheritanceSkeleton {
         }
 
         private void stopUpdatesTimer(final Long objId) {
-            updateTimerList.get(objId).stopLast();
+            updateTimerList.get(objId).cancel();
         }
 
     }
@@ -0,0 +1,335 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mc.impl.provider;
+
+import esa.mo.helpertools.helpers.HelperAttributes;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Time;
+import org.ccsds.moims.mo.mal.structures.TimeList;
+import org.ccsds.moims.mo.mc.structures.AttributeValue;
+import org.ccsds.moims.mo.mc.structures.AttributeValueList;
+
+/**
+ * The samples of a statistic link, kept in ring buffers together with the
+ * streaming state of the standard statistic functions. Adding a sample,
+ * dropping the oldest one and reading the maximum, minimum, mean average or
+ * standard deviation are all O(1) amortised.
+ *
+ * The mean average and the variance are maintained with Welford's algorithm,
+ * the maximum and the minimum with monotonic deques of sample sequence
+ * numbers. Removing a sample from the Welford accumulators cancels its
+ * terms, which leaves a rounding error proportional to the spread before the
+ * removal. A bound of this error is kept, and the accumulators are recomputed
+ * from the window as soon as it is no longer small compared to the spread
+ * that remains, for instance when large values leave the window. Samples
+ * without a value, or with a value that cannot be converted to a double, are
+ * counted in the window but do not take part in the statistics.
+ */
+final class StatisticWindow {
+
+    private static final int INITIAL_CAPACITY = 16;
+    // Rounding error of one operation, with a safety margin
+    private static final double EPSILON = 4 * Math.ulp(1.0);
+    // Largest accepted error bound, relative to the mean and to m2
+    private static final double RELATIVE_ERROR = 1e-9;
+
+    private long[] times;
+    private double[] values;
+    private Attribute[] attributes;
+    private int mask;
+
+    // Sequence numbers of the oldest sample and of the next sample to be added
+    private long first = 0;
+    private long next = 0;
+
+    // Sequence numbers of the candidate maxima (decreasing values) and minima (increasing values)
+    private long[] maxima;
+    private int maximaHead = 0;
+    private int maximaSize = 0;
+    private long[] minima;
+    private int minimaHead = 0;
+    private int minimaSize = 0;
+
+    // Welford accumulators over the samples with a value
+    private int count = 0;
+    private double mean = 0;
+    private double m2 = 0;
+    // Bounds of the rounding errors left in the accumulators by the removals since they were last recomputed
+    private double meanError = 0;
+    private double m2Error = 0;
+
+    StatisticWindow() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Adds a sample at the end of the window.
+     *
+     * @param attribute The value of the sample, or null if it could not be
+     * sampled.
+     * @param time The time of the sample in milliseconds.
+     */
+    synchronized void add(final Attribute attribute, final long time) {
+        if (next - first == times.length) {
+            grow();
+        }
+
+        final Double converted = (attribute == null) ? null : HelperAttributes.attribute2double(attribute);
+        final double value = (converted == null) ? Double.NaN : converted;
+        final long seq = next++;
+        final int index = (int) seq & mask;
+        times[index] = time;
+        values[index] = value;
+        attributes[index] = attribute;
+
+        if (Double.isNaN(value)) {
+            return;
+        }
+
+        count++;
+        final double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+
+        // The earlier samples with an equal value are kept, so that the first occurrence is reported
+        while (maximaSize != 0 && values[(int) maxima[(maximaHead + maximaSize - 1) & mask] & mask] < value) {
+            maximaSize--;
+        }
+        maxima[(maximaHead + maximaSize++) & mask] = seq;
+
+        while (minimaSize != 0 && values[(int) minima[(minimaHead + minimaSize - 1) & mask] & mask] > value) {
+            minimaSize--;
+        }
+        minima[(minimaHead + minimaSize++) & mask] = seq;
+    }
+
+    /**
+     * Drops the samples taken before a given time. The samples are expected
+     * to be added in chronological order.
+     *
+     * @param oldestTime The time of the oldest sample to be kept, in
+     * milliseconds.
+     */
+    synchronized void dropOlderThan(final double oldestTime) {
+        while (first != next && times[(int) first & mask] < oldestTime) {
+            final int index = (int) first & mask;
+            final double value = values[index];
+            attributes[index] = null;
+
+            if (!Double.isNaN(value)) {
+                count--;
+
+                if (count == 0) {
+                    mean = 0;
+                    m2 = 0;
+                    meanError = 0;
+                    m2Error = 0;
+                } else {
+                    final double delta = value - mean;
+                    mean -= delta / count;
+                    final double term = delta * (value - mean);
+                    m2Error += EPSILON * (m2 + term) + 2 * Math.abs(delta) * meanError;
+                    meanError += EPSILON * (Math.abs(value) + Math.abs(mean));
+                    m2 = Math.max(0, m2 - term);
+                }
+
+                if (maximaSize != 0 && maxima[maximaHead] == first) {
+                    maximaHead = (maximaHead + 1) & mask;
+                    maximaSize--;
+                }
+
+                if (minimaSize != 0 && minima[minimaHead] == first) {
+                    minimaHead = (minimaHead + 1) & mask;
+                    minimaSize--;
+                }
+            }
+
+            first++;
+        }
+
+        if (count != 0 && (m2Error > RELATIVE_ERROR * m2 || meanError > RELATIVE_ERROR * (Math.abs(mean) +
+            Math.sqrt(m2 / count)))) {
+            recompute();
+        }
+    }
+
+    synchronized void clear() {
+        for (long seq = first; seq != next; seq++) {
+            attributes[(int) seq & mask] = null;
+        }
+
+        first = next;
+        maximaSize = 0;
+        minimaSize = 0;
+        count = 0;
+        mean = 0;
+        m2 = 0;
+        meanError = 0;
+        m2Error = 0;
+    }
+
+    /**
+     * @return The number of samples in the window, including the ones
+     * without a value.
+     */
+    synchronized int size() {
+        return (int) (next - first);
+    }
+
+    synchronized Time getStartTime() {
+        return (first == next) ? null : new Time(times[(int) first & mask]);
+    }
+
+    synchronized Time getEndTime() {
+        return (first == next) ? null : new Time(times[(int) (next - 1) & mask]);
+    }
+
+    /**
+     * @return The first occurrence of the maximum value, or null if no sample
+     * has a value.
+     */
+    synchronized Attribute getMaximum() {
+        return (maximaSize == 0) ? null : attributes[(int) maxima[maximaHead] & mask];
+    }
+
+    synchronized Time getMaximumTime() {
+        return (maximaSize == 0) ? null : new Time(times[(int) maxima[maximaHead] & mask]);
+    }
+
+    /**
+     * @return The first occurrence of the minimum value, or null if no sample
+     * has a value.
+     */
+    synchronized Attribute getMinimum() {
+        return (minimaSize == 0) ? null : attributes[(int) minima[minimaHead] & mask];
+    }
+
+    synchronized Time getMinimumTime() {
+        return (minimaSize == 0) ? null : new Time(times[(int) minima[minimaHead] & mask]);
+    }
+
+    /**
+     * @return The mean average of the samples with a value, or NaN if there
+     * are none.
+     */
+    synchronized double getMean() {
+        return (count == 0) ? Double.NaN : mean;
+    }
+
+    /**
+     * @return The sample standard deviation of the samples with a value, or
+     * NaN if there are less than two.
+     */
+    synchronized double getStandardDeviation() {
+        return (count < 2) ? Double.NaN : Math.sqrt(m2 / (count - 1));
+    }
+
+    /**
+     * @return A copy of the times of the samples, in milliseconds.
+     */
+    synchronized TimeList getTimes() {
+        final TimeList list = new TimeList(size());
+
+        for (long seq = first; seq != next; seq++) {
+            list.add(new Time(times[(int) seq & mask]));
+        }
+
+        return list;
+    }
+
+    /**
+     * @return A copy of the values of the samples, with null for the samples
+     * without a value.
+     */
+    synchronized AttributeValueList getValues() {
+        final AttributeValueList list = new AttributeValueList(size());
+
+        for (long seq = first; seq != next; seq++) {
+            final Attribute attribute = attributes[(int) seq & mask];
+            list.add((attribute == null) ? null : new AttributeValue(attribute));
+        }
+
+        return list;
+    }
+
+    /**
+     * Recomputes the mean average and the sum of the squared deviations from
+     * the samples in the window, with two passes over the values.
+     */
+    private void recompute() {
+        double sum = 0;
+        for (long seq = first; seq != next; seq++) {
+            final double value = values[(int) seq & mask];
+            if (!Double.isNaN(value)) {
+                sum += value;
+            }
+        }
+        mean = sum / count;
+
+        double squares = 0;
+        for (long seq = first; seq != next; seq++) {
+            final double value = values[(int) seq & mask];
+            if (!Double.isNaN(value)) {
+                squares += (value - mean) * (value - mean);
+            }
+        }
+        m2 = squares;
+        meanError = 0;
+        m2Error = 0;
+    }
+
+    private void allocate(final int capacity) {
+        times = new long[capacity];
+        values = new double[capacity];
+        attributes = new Attribute[capacity];
+        maxima = new long[capacity];
+        minima = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private void grow() {
+        final long[] oldTimes = times;
+        final double[] oldValues = values;
+        final Attribute[] oldAttributes = attributes;
+        final long[] oldMaxima = maxima;
+        final long[] oldMinima = minima;
+        final int oldMask = mask;
+        allocate(oldTimes.length * 2);
+
+        // The slots are addressed by sequence number, so they move to their new position
+        for (long seq = first; seq != next; seq++) {
+            times[(int) seq & mask] = oldTimes[(int) seq & oldMask];
+            values[(int) seq & mask] = oldValues[(int) seq & oldMask];
+            attributes[(int) seq & mask] = oldAttributes[(int) seq & oldMask];
+        }
+
+        for (int i = 0; i < maximaSize; i++) {
+            maxima[i] = oldMaxima[(maximaHead + i) & oldMask];
+        }
+
+        for (int i = 0; i < minimaSize; i++) {
+            minima[i] = oldMinima[(minimaHead + i) & oldMask];
+        }
+
+        maximaHead = 0;
+        minimaHead = 0;
+    }
+}
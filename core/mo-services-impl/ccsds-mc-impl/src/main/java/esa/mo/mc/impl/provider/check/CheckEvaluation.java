@@ -102,6 +102,30 @@ public class CheckEvaluation {
         return evaluationResult;
     }
 
+    /**
+     * Evaluates a Limit check with the compiled thresholds of the check link
+     * when the value is numeric.
+     *
+     * @param checkDef
+     * @param value
+     * @param currCheckLinkEvaluation
+     * @param evaluationResult
+     * @return see evaluateLimitCheck
+     */
+    public static EvaluationResult evaluateLimitCheck(LimitCheckDefinition checkDef, Attribute value,
+        final CheckLinkEvaluation currCheckLinkEvaluation, EvaluationResult evaluationResult) {
+        final CompiledCheck compiledCheck = currCheckLinkEvaluation.getCompiledCheck(checkDef);
+        final double numericValue = CompiledCheck.toDouble(value);
+
+        if (compiledCheck == null || Double.isNaN(numericValue)) {
+            return evaluateLimitCheck(checkDef, value, evaluationResult);
+        }
+
+        evaluationResult.setCheckedValue(value);
+        evaluationResult.setEvaluationResult(compiledCheck.evaluateLimit(numericValue));
+        return evaluationResult;
+    }
+
     /**
      *
      * @param referenceCheckDefinition
@@ -156,6 +180,21 @@ public class CheckEvaluation {
         //        manageBeforeRefCheck(referenceValue, checkLinkEvaluation, sampleTimes, useConverted);
         Attribute refValue = currCheckLinkEvaluation.getRefParamValue();
 
+        final CompiledCheck compiledCheck = currCheckLinkEvaluation.getCompiledCheck(deltaCheckDefinition);
+        final double numericValue = CompiledCheck.toDouble(value);
+        final double numericRefValue = CompiledCheck.toDouble(refValue);
+
+        if (compiledCheck != null && !Double.isNaN(numericValue) && !Double.isNaN(numericRefValue)) {
+            final Boolean result = compiledCheck.evaluateDelta(numericValue, numericRefValue);
+            if (referenceValue.getParameterId() == null) {
+                manageAfterRefCheck(referenceValue, currCheckLinkEvaluation, sampleTimes, value);
+            }
+
+            newEvaluationResult.setCheckedValue(value);
+            newEvaluationResult.setEvaluationResult(result);
+            return newEvaluationResult;
+        }
+
         //requirement: 3.5.3.z
         Double delta = HelperAttributes.attribute2double(value) - HelperAttributes.attribute2double(refValue);
 
@@ -24,9 +24,13 @@ import java.util.HashMap;
 import java.util.List;
 import org.ccsds.moims.mo.mal.structures.Attribute;
 import org.ccsds.moims.mo.mal.structures.Time;
+import org.ccsds.moims.mo.mc.check.structures.CheckDefinitionDetails;
 import org.ccsds.moims.mo.mc.check.structures.CheckResult;
 
 /**
+ * The evaluation state of a check link. It is accessed with the lock of the
+ * object while the check link is executed. The last check result and the
+ * reference value are also read and set by other threads, without the lock.
  *
  * @author Vorwerg
  */
@@ -39,11 +43,13 @@ public class CheckLinkEvaluation {
     }
 
     private List<EvaluationResult> evaluationResults;
-    private CheckResult lastCheckResult;
-    private Time lastCheckResultTime;
+    private volatile CheckResult lastCheckResult;
+    private volatile Time lastCheckResultTime;
     private int refValueCounter;
-    private Attribute refParamValue;
+    private volatile Attribute refParamValue;
     HashMap<Long, Attribute> sampleTimes = new HashMap<>();
+    private CheckDefinitionDetails compiledCheckDef;
+    private CompiledCheck compiledCheck;
 
     public Time getLastCheckResultTime() {
         return lastCheckResultTime;
@@ -109,4 +115,19 @@ public class CheckLinkEvaluation {
         this.sampleTimes = sampleTimes;
     }
 
+    /**
+     * Gets the compiled thresholds of the check. They are compiled again when
+     * the check definition changed.
+     *
+     * @param checkDef the current definition of the check
+     * @return the compiled check, null if it cannot be compiled
+     */
+    CompiledCheck getCompiledCheck(CheckDefinitionDetails checkDef) {
+        if (compiledCheckDef != checkDef) {
+            compiledCheck = CompiledCheck.compile(checkDef);
+            compiledCheckDef = checkDef;
+        }
+        return compiledCheck;
+    }
+
 }
@@ -24,7 +24,6 @@
 package esa.mo.mc.impl.provider.check;
 
 import esa.mo.mc.impl.provider.ParameterManager;
-import java.util.HashMap;
 import org.ccsds.moims.mo.mal.MALHelper;
 import org.ccsds.moims.mo.mal.MALInteractionException;
 import org.ccsds.moims.mo.mal.MALStandardError;
@@ -40,7 +39,9 @@ import org.ccsds.moims.mo.mc.check.structures.ReferenceCheckDefinition;
 import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.structures.ObjectDetails;
@@ -49,14 +50,14 @@ import org.ccsds.moims.mo.mc.parameter.structures.ParameterDefinitionDetails;
 
 public class CheckLinkEvaluationManager {
 
-    private final HashMap<Long, CheckLinkEvaluation> checkLinkEvaluations = new HashMap<>(); //contains fields belonging the evaluations (CheckLinkEvaluation) of a checkLink (Long)
+    private final ConcurrentHashMap<Long, CheckLinkEvaluation> checkLinkEvaluations = new ConcurrentHashMap<>(); //contains fields belonging the evaluations (CheckLinkEvaluation) of a checkLink (Long), read by the concurrent parameter updates
     private ParameterManager parameterManager;
 
     public CheckLinkEvaluationManager(ParameterManager parameterManager) {
         this.parameterManager = parameterManager;
     }
 
-    public HashMap<Long, CheckLinkEvaluation> getCheckLinkEvaluations() {
+    public Map<Long, CheckLinkEvaluation> getCheckLinkEvaluations() {
         return checkLinkEvaluations;
     }
 
@@ -241,7 +242,7 @@ public class CheckLinkEvaluationManager {
 
         if (actCheckDefinition instanceof LimitCheckDefinition) {
             return CheckEvaluation.evaluateLimitCheck((LimitCheckDefinition) actCheckDefinition, value,
-                evaluationResult);
+                checkLinkEvaluations.get(checkLinkId), evaluationResult);
         }
 
         if (actCheckDefinition instanceof ReferenceCheckDefinition) {
@@ -0,0 +1,196 @@
+/*
+ * M&C Services for CCSDS Mission Operations Framework
+ * Copyright (C) 2021 Deutsches Zentrum für Luft- und Raumfahrt e.V. (DLR).
+ *
+ *  This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package esa.mo.mc.impl.provider.check;
+
+import esa.mo.helpertools.helpers.HelperAttributes;
+import esa.mo.helpertools.helpers.HelperMisc;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Union;
+import org.ccsds.moims.mo.mc.check.structures.CheckDefinitionDetails;
+import org.ccsds.moims.mo.mc.check.structures.DeltaCheckDefinition;
+import org.ccsds.moims.mo.mc.check.structures.LimitCheckDefinition;
+
+/**
+ * The thresholds of a Limit or Delta check, converted once to primitive
+ * values. The numeric parameter values are then checked without converting
+ * the thresholds again on every sample. Checks with string thresholds, and
+ * the samples that are not numeric, are left to CheckEvaluation.
+ */
+final class CompiledCheck {
+
+    private final boolean hasUpper;
+    private final boolean hasLower;
+    private final double upper;
+    private final double lower;
+    private final boolean violateInRange;
+    private final boolean valueDelta;
+
+    private CompiledCheck(Attribute upperLimit, Attribute lowerLimit, boolean violateInRange, boolean valueDelta) {
+        this.hasUpper = (upperLimit != null);
+        this.hasLower = (lowerLimit != null);
+        this.upper = hasUpper ? HelperAttributes.attribute2double(upperLimit) : Double.NaN;
+        this.lower = hasLower ? HelperAttributes.attribute2double(lowerLimit) : Double.NaN;
+        this.violateInRange = violateInRange;
+        this.valueDelta = valueDelta;
+    }
+
+    /**
+     * Compiles a check definition.
+     *
+     * @param checkDef the definition of the check
+     * @return the compiled check, or null if the check cannot be evaluated
+     * with primitive values
+     */
+    static CompiledCheck compile(CheckDefinitionDetails checkDef) {
+        if (checkDef instanceof LimitCheckDefinition) {
+            final LimitCheckDefinition limitCheck = (LimitCheckDefinition) checkDef;
+            if (isNumeric(limitCheck.getUpperLimit()) && isNumeric(limitCheck.getLowerLimit())) {
+                return new CompiledCheck(limitCheck.getUpperLimit(), limitCheck.getLowerLimit(),
+                    limitCheck.getViolateInRange(), true);
+            }
+        }
+
+        if (checkDef instanceof DeltaCheckDefinition) {
+            final DeltaCheckDefinition deltaCheck = (DeltaCheckDefinition) checkDef;
+            if (isNumeric(deltaCheck.getUpperThreshold()) && isNumeric(deltaCheck.getLowerThreshold())) {
+                return new CompiledCheck(deltaCheck.getUpperThreshold(), deltaCheck.getLowerThreshold(),
+                    deltaCheck.getViolateInRange(), deltaCheck.getValueDelta());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * A missing threshold is not checked, so it counts as numeric.
+     */
+    private static boolean isNumeric(Attribute threshold) {
+        return threshold == null || (!HelperMisc.isStringAttribute(threshold) && HelperAttributes.attribute2double(
+            threshold) != null);
+    }
+
+    /**
+     * Evaluates a Limit check, see CheckEvaluation.evaluateLimitCheck.
+     *
+     * @param value the numeric value to be checked
+     * @return null if successful, true if the upper limit is exceeded, false
+     * if the lower limit is exceeded, inverted if it shall violate in range
+     */
+    Boolean evaluateLimit(double value) {
+        Boolean result = null;
+
+        if (hasUpper && !(value <= upper)) {
+            result = Boolean.TRUE;
+        }
+        if (hasLower && !(value >= lower)) {
+            result = Boolean.FALSE;
+        }
+
+        return applyViolateInRange(result);
+    }
+
+    /**
+     * Evaluates a Delta check, see CheckEvaluation.evaluateDeltaCheck.
+     *
+     * @param value the numeric value to be checked
+     * @param reference the numeric reference value
+     * @return null if successful, true if the upper threshold is exceeded,
+     * false if the lower threshold is exceeded, inverted if it shall violate
+     * in range
+     */
+    Boolean evaluateDelta(double value, double reference) {
+        final double delta = value - reference;
+
+        if (valueDelta) {
+            return evaluateThresholds(delta, upper, lower);
+        }
+
+        //requirement: 3.5.3.bb
+        if (reference == 0) {
+            return evaluateThresholds(delta, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY);
+        }
+
+        //requirement: 3.5.3.aa
+        return evaluateThresholds(delta, upper * reference, lower * reference);
+    }
+
+    private Boolean evaluateThresholds(double value, double upperThreshold, double lowerThreshold) {
+        Boolean result = null;
+
+        if (hasUpper && !(value <= upperThreshold)) {
+            result = Boolean.TRUE;
+        } else if (hasLower && !(value >= lowerThreshold)) {
+            result = Boolean.FALSE;
+        }
+
+        return applyViolateInRange(result);
+    }
+
+    private Boolean applyViolateInRange(Boolean result) {
+        //requirement: 3.5.3.dd
+        if (violateInRange) {
+            return (result == null ? Boolean.TRUE : null);
+        }
+        return result;
+    }
+
+    /**
+     * Converts a numeric value without boxing it for the common Union types.
+     *
+     * @param value the value
+     * @return the value as a double, or NaN if it is null or not numeric
+     */
+    static double toDouble(Attribute value) {
+        if (value instanceof Union) {
+            final Union union = (Union) value;
+            final int type = union.getTypeShortForm();
+
+            if (type == Union.DOUBLE_TYPE_SHORT_FORM) {
+                return union.getDoubleValue();
+            }
+            if (type == Union.FLOAT_TYPE_SHORT_FORM) {
+                return union.getFloatValue();
+            }
+            if (type == Union.LONG_TYPE_SHORT_FORM) {
+                return union.getLongValue();
+            }
+            if (type == Union.INTEGER_TYPE_SHORT_FORM) {
+                return union.getIntegerValue();
+            }
+            if (type == Union.SHORT_TYPE_SHORT_FORM) {
+                return union.getShortValue();
+            }
+            if (type == Union.OCTET_TYPE_SHORT_FORM) {
+                return union.getOctetValue();
+            }
+            if (type == Union.BOOLEAN_TYPE_SHORT_FORM) {
+                return union.getBooleanValue() ? 1 : 0;
+            }
+            return Double.NaN; // Strings are compared by CheckEvaluation
+        }
+
+        if (value == null || HelperMisc.isStringAttribute(value)) {
+            return Double.NaN;
+        }
+
+        final Double converted = HelperAttributes.attribute2double(value);
+        return (converted == null) ? Double.NaN : converted;
+    }
+}
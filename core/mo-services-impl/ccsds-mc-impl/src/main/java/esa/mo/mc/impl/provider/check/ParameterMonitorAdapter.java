@@ -73,8 +73,8 @@ public class ParameterMonitorAdapter extends ParameterAdapter {
         Map qosProperties) {
 
         final Long paramIdentityId = _UpdateHeaderList1.get(0).getKey().getSecondSubKey();
-        Logger.getLogger(CheckProviderServiceImpl.class.getName()).log(Level.INFO,
-            "monitorvalue-update for parameter with identity id: {0} received", new Object[]{paramIdentityId});
+        Logger.getLogger(CheckProviderServiceImpl.class.getName()).log(Level.FINE,
+            "monitorvalue-update for parameter with identity id: {0} received", paramIdentityId);
         final ParameterValue newParamValue = parameterValueList.get(0);
         final ObjectId paramValObjId = new ObjectId(ParameterHelper.PARAMETERVALUEINSTANCE_OBJECT_TYPE, new ObjectKey(
             msgHeader.getDomain(), _UpdateHeaderList1.get(0).getKey().getFourthSubKey()));
@@ -25,6 +25,7 @@ import esa.mo.mc.impl.util.MCServicesConsumer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import org.ccsds.moims.mo.com.structures.ObjectId;
 import org.ccsds.moims.mo.mal.MALException;
 import org.ccsds.moims.mo.mal.MALInteractionException;
@@ -35,7 +36,6 @@ import org.ccsds.moims.mo.mal.structures.EntityRequestList;
 import org.ccsds.moims.mo.mal.structures.Identifier;
 import org.ccsds.moims.mo.mal.structures.IdentifierList;
 import org.ccsds.moims.mo.mal.structures.Subscription;
-import org.ccsds.moims.mo.mal.structures.Time;
 import org.ccsds.moims.mo.mc.check.structures.CheckDefinitionDetails;
 import org.ccsds.moims.mo.mc.check.structures.CheckLinkDetails;
 import org.ccsds.moims.mo.mc.check.structures.DeltaCheckDefinition;
@@ -48,6 +48,10 @@ import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
  * This class manages all monitorings for parameter-updates. The new
  * parameter-values are needed for the evaluation of the CheckLinks. Each
  * CheckLinks parameter will be monitored here. 
+ *
+ * The check links are added and removed with the lock of the manager. The
+ * updates of a parameter are serialized on one of a set of striped locks, so
+ * that the updates of different parameters are evaluated concurrently.
  */
 public class ParameterMonitoringManager {
 
@@ -65,9 +69,17 @@ public class ParameterMonitoringManager {
      */
     private final HashMap<Long, List<Long>> parameterChecks = new HashMap<>();
     /**
-     * Current list of parameterValues
+     * The monitored parameters. Key: Parameter Identity Id; Value: its latest
+     * value and the check links to be evaluated when it is updated.
+     */
+    private final ConcurrentHashMap<Long, MonitoredParameter> monitoredParameters = new ConcurrentHashMap<>();
+
+    /**
+     * The updates of a parameter are serialized on one of these locks,
+     * selected by its identity id.
      */
-    private final HashMap<Long, List<ParameterValueEntry>> parameterValues = new HashMap<>();
+    private static final int LOCK_STRIPES = 64;
+    private final Object[] parameterLocks = new Object[LOCK_STRIPES];
 
     /**
      * key: the parameter-identity-Id; value: the checkLinkId
@@ -86,6 +98,10 @@ public class ParameterMonitoringManager {
         this.paramManager = paramManager;
         this.parameterStub = mcServicesConsumer.getParameterService().getParameterStub();
         this.adapter = new ParameterMonitorAdapter(this);
+
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            parameterLocks[i] = new Object();
+        }
     }
 
     /**
@@ -102,7 +118,7 @@ public class ParameterMonitoringManager {
      * @throws MALException
      * @throws MALInteractionException
      */
-    public void add(Long checkLinkId) throws MALException, MALInteractionException {
+    public synchronized void add(Long checkLinkId) throws MALException, MALInteractionException {
         final CheckLinkDetails checkLinkDetails = manager.getCheckLinkDetails(manager.getCheckLinkDefId(checkLinkId));
         //add linked parameter
         Long paramIdentityId = manager.getCheckLinkLinks(checkLinkId).getSource().getKey().getInstId();
@@ -122,8 +138,11 @@ public class ParameterMonitoringManager {
                 final Long refParamIdentityId = checkReference.getParameterId().getInstId();
                 addParameterReferenceToMonitor(refParamIdentityId, checkLinkId);
                 //set the first Reference Value
-                manager.getCheckLinkEvaluations().get(checkLinkId).setRefParamValue(parameterValues.get(
-                    refParamIdentityId).get(0).getValue().getRawValue());
+                final MonitoredParameter refParameter = monitoredParameters.get(refParamIdentityId);
+                synchronized (lockOf(refParamIdentityId)) {
+                    manager.getCheckLinkEvaluations().get(checkLinkId).setRefParamValue(refParameter.lastValue
+                        .getRawValue());
+                }
             }
         }
 
@@ -136,7 +155,7 @@ public class ParameterMonitoringManager {
      * @throws MALException
      * @throws MALInteractionException
      */
-    public void remove(Long checkLinkId) throws MALException, MALInteractionException {
+    public synchronized void remove(Long checkLinkId) throws MALException, MALInteractionException {
         //remove referenced parameter
         final Long paramIdentityId = manager.getCheckLinkLinks(checkLinkId).getSource().getKey().getInstId();
         removeParameterFromLists(paramIdentityId, checkLinkId);
@@ -173,10 +192,7 @@ public class ParameterMonitoringManager {
         if (checkLinkDetails.getCheckOnChange()) {
             addToOnChangeNotifierList(paramIdentityId, checkLinkId);
         }
-        //add to list of monitored parameterValues if necessary
-        if (!parameterValues.containsKey(paramIdentityId)) {
-            addToParameterValuesListAndRegister(paramIdentityId);
-        }
+        monitorParameter(paramIdentityId);
     }
 
     private void addParameterReferenceToMonitor(Long paramIdentityId, Long checkLinkId) throws MALException,
@@ -194,20 +210,26 @@ public class ParameterMonitoringManager {
                 parameterReferences.put(paramIdentityId, currentRefCheckLinks);
             }
         }
-        //add to list of monitored parameterValues if necessary
-        if (!parameterValues.containsKey(paramIdentityId)) {
-            addToParameterValuesListAndRegister(paramIdentityId);
-        }
+        monitorParameter(paramIdentityId);
     }
 
-    private void addToParameterValuesListAndRegister(Long paramIdentityId) throws MALException,
-        MALInteractionException {
-        //add to list of monitored parameterValues
-        List<ParameterValueEntry> values = new ArrayList<>();
-        //get the first Values
-        values.add(new ParameterValueEntry(paramManager.getParameterValue(paramIdentityId), new Time(System
-            .currentTimeMillis())));
-        parameterValues.put(paramIdentityId, values);
+    /**
+     * adds the parameter to the monitored ones, if necessary, and updates its
+     * check links.
+     *
+     * @param paramIdentityId
+     * @throws MALException
+     * @throws MALInteractionException
+     */
+    private void monitorParameter(Long paramIdentityId) throws MALException, MALInteractionException {
+        if (monitoredParameters.containsKey(paramIdentityId)) {
+            updateCheckLinkIndex(paramIdentityId);
+            return;
+        }
+        //get the first Value, which is also the first sample of the reference checks
+        monitoredParameters.put(paramIdentityId, new MonitoredParameter(paramManager.getParameterValue(
+            paramIdentityId), System.currentTimeMillis()));
+        updateCheckLinkIndex(paramIdentityId);
         //parameter will be registered at the adapter
         Subscription sub = subscriptionKeys(new Identifier("" + paramIdentityId), new Identifier("*"), paramIdentityId,
             0L, 0L);
@@ -267,7 +289,7 @@ public class ParameterMonitoringManager {
         if (checkLinks == null || checkLinks.isEmpty()) {
             //parameter is not needed to be monitored anymore
             parameterChecks.remove(paramIdentityId);
-            parameterValues.remove(paramIdentityId);
+            monitoredParameters.remove(paramIdentityId);
             onChangeNotifierList.remove(paramIdentityId);
             //parameter will be deregistered at the adapter
             IdentifierList subIdList = new IdentifierList();
@@ -290,6 +312,33 @@ public class ParameterMonitoringManager {
                 parameterReferences.remove(paramIdentityId);
             }
         }
+        updateCheckLinkIndex(paramIdentityId);
+    }
+
+    /**
+     * copies the current check links of the parameter to its entry in the
+     * monitored parameters, so that an update does not look them up in the
+     * lists.
+     *
+     * @param paramIdentityId
+     */
+    private void updateCheckLinkIndex(Long paramIdentityId) {
+        final MonitoredParameter parameter = monitoredParameters.get(paramIdentityId);
+        if (parameter != null) {
+            parameter.onChangeCheckLinks = toArray(onChangeNotifierList.get(paramIdentityId));
+            parameter.referenceCheckLinks = toArray(parameterReferences.get(paramIdentityId));
+        }
+    }
+
+    private static long[] toArray(List<Long> checkLinkIds) {
+        if (checkLinkIds == null) {
+            return new long[0];
+        }
+        final long[] array = new long[checkLinkIds.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = checkLinkIds.get(i);
+        }
+        return array;
     }
 
     /**
@@ -298,7 +347,7 @@ public class ParameterMonitoringManager {
      * @throws MALException
      * @throws MALInteractionException
      */
-    public void startAll() throws MALException, MALInteractionException {
+    public synchronized void startAll() throws MALException, MALInteractionException {
         for (Long paramIdentityId : parameterChecks.keySet()) {
             Subscription sub = subscriptionKeys(new Identifier("" + paramIdentityId), new Identifier("*"),
                 paramIdentityId, 0L, 0L);
@@ -329,44 +378,59 @@ public class ParameterMonitoringManager {
      * standard says: "The Obejct that caused the check evaluation to occur,
      * most liely the relevant ParamterValueinstance object."
      */
-    public synchronized void setParameterValue(Long paramIdentityId, ParameterValue newParamValue, ObjectId source) {
-        final List<ParameterValueEntry> paramValues = parameterValues.get(paramIdentityId);
-        ParameterValue oldParamValue = paramValues.get(paramValues.size() - 1).getValue();
-        paramValues.add(new ParameterValueEntry(newParamValue, new Time(System.currentTimeMillis())));
+    public void setParameterValue(Long paramIdentityId, ParameterValue newParamValue, ObjectId source) {
+        final MonitoredParameter parameter = monitoredParameters.get(paramIdentityId);
+        if (parameter == null) {
+            return; // The parameter is not monitored anymore
+        }
+
+        synchronized (lockOf(paramIdentityId)) {
+            updateParameterValue(parameter, newParamValue, source);
+        }
+    }
+
+    private void updateParameterValue(MonitoredParameter parameter, ParameterValue newParamValue, ObjectId source) {
+        final ParameterValue oldParamValue = parameter.lastValue;
+        parameter.lastValue = newParamValue;
         //check the onChange-CheckLinks 
         if (!oldParamValue.equals(newParamValue)) {
-            final List<Long> checkLinkIdsToNotify = onChangeNotifierList.get(paramIdentityId);
-            if (checkLinkIdsToNotify != null)
-                for (Long checkLinkId : checkLinkIdsToNotify) {
-                    manager.executeCheck(checkLinkId, newParamValue, false, false, source);
-                }
+            for (long checkLinkId : parameter.onChangeCheckLinks) {
+                manager.executeCheck(checkLinkId, newParamValue, false, false, source);
+            }
         }
         //the parameter is a reference-parameter
-        final List<Long> refCheckLinks = parameterReferences.get(paramIdentityId);
-        if (refCheckLinks != null) {
-            //set the new value to the referenceValue if there are validCount samples in the last deltaTime seconds
-            for (Long refCheckLink : refCheckLinks) {
-                final CheckDefinitionDetails actCheckDef = manager.getActualCheckDefinitionFromCheckLinks(refCheckLink);
-                ReferenceValue refValue = actCheckDef instanceof ReferenceCheckDefinition ?
-                    ((ReferenceCheckDefinition) actCheckDef).getCheckReference() : ((DeltaCheckDefinition) actCheckDef)
-                        .getCheckReference();
-                List<ParameterValueEntry> values = parameterValues.get(paramIdentityId);
-                //task: make it more effective and delete the expired ones
-                long now = System.currentTimeMillis();
-                int counter = 0;
-                for (ParameterValueEntry value : values) {
-                    if (now - value.getCreationTime().getValue() < Math.round(refValue.getDeltaTime().getValue() *
-                        1000)) {
-                        counter++;
-                    }
-                }
-                if (counter >= refValue.getValidCount().getValue()) {
-                    manager.getCheckLinkEvaluations().get(refCheckLink).setRefParamValue(newParamValue.getRawValue());
-                    //                    values = values.subList(0, values.size()-2);
-                    //                    parameterValues.put(paramIdentityId, values);
-                }
+        final long[] refCheckLinks = parameter.referenceCheckLinks;
+        if (refCheckLinks.length == 0) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        long longestDeltaTime = 0;
+        long largestValidCount = 0;
+        parameter.addSampleTime(now);
+        //set the new value to the referenceValue if there are validCount samples in the last deltaTime seconds
+        for (long refCheckLink : refCheckLinks) {
+            final CheckDefinitionDetails actCheckDef = manager.getActualCheckDefinitionFromCheckLinks(refCheckLink);
+            final CheckLinkEvaluation checkLinkEvaluation = manager.getCheckLinkEvaluations().get(refCheckLink);
+            if (actCheckDef == null || checkLinkEvaluation == null) {
+                continue; // The check link is being removed
+            }
+            ReferenceValue refValue = actCheckDef instanceof ReferenceCheckDefinition ?
+                ((ReferenceCheckDefinition) actCheckDef).getCheckReference() : ((DeltaCheckDefinition) actCheckDef)
+                    .getCheckReference();
+            final long deltaTime = Math.round(refValue.getDeltaTime().getValue() * 1000);
+            final long validCount = refValue.getValidCount().getValue();
+            longestDeltaTime = Math.max(longestDeltaTime, deltaTime);
+            largestValidCount = Math.max(largestValidCount, validCount);
+            if (parameter.countSampleTimesAfter(now - deltaTime, validCount) >= validCount) {
+                checkLinkEvaluation.setRefParamValue(newParamValue.getRawValue());
             }
         }
+        //the samples older than every deltaTime, or beyond every validCount, will not be counted anymore
+        parameter.removeSampleTimes(now - longestDeltaTime, largestValidCount);
+    }
+
+    private Object lockOf(Long paramIdentityId) {
+        return parameterLocks[Long.hashCode(paramIdentityId) & (LOCK_STRIPES - 1)];
     }
 
     /**
@@ -393,4 +457,73 @@ public class ParameterMonitoringManager {
         return new Subscription(subId, entities);
     }
 
+    /**
+     * The latest value of a monitored parameter, the check links to be
+     * evaluated when it is updated, and the times of its recent samples. The
+     * check links are replaced as a whole, with the lock of the manager. The
+     * other fields are only accessed with the lock of the parameter.
+     */
+    private static final class MonitoredParameter {
+
+        private ParameterValue lastValue;
+        private volatile long[] onChangeCheckLinks = new long[0];
+        private volatile long[] referenceCheckLinks = new long[0];
+        // Ring buffer of the sample times, from the oldest to the newest one. It holds at most the largest
+        // validCount of the reference checks, as the older samples are never counted.
+        private long[] sampleTimes = new long[16];
+        private int firstSample;
+        private int sampleCount;
+
+        MonitoredParameter(ParameterValue firstValue, long firstSampleTime) {
+            this.lastValue = firstValue;
+            this.addSampleTime(firstSampleTime);
+        }
+
+        void addSampleTime(long time) {
+            if (sampleCount == sampleTimes.length) {
+                final long[] grown = new long[sampleTimes.length * 2];
+                for (int i = 0; i < sampleCount; i++) {
+                    grown[i] = sampleTimes[(firstSample + i) & (sampleTimes.length - 1)];
+                }
+                sampleTimes = grown;
+                firstSample = 0;
+            }
+            sampleTimes[(firstSample + sampleCount) & (sampleTimes.length - 1)] = time;
+            sampleCount++;
+        }
+
+        /**
+         * Counts the samples taken after the given time, starting from the
+         * newest one.
+         *
+         * @param time the time in milliseconds
+         * @param max the count after which there is no need to continue
+         * @return the number of samples, up to max
+         */
+        long countSampleTimesAfter(long time, long max) {
+            long count = 0;
+            for (int i = sampleCount - 1; i >= 0 && count < max; i--) {
+                if (sampleTimes[(firstSample + i) & (sampleTimes.length - 1)] <= time) {
+                    break;
+                }
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Removes the samples taken until the given time, and the oldest
+         * samples beyond the given number.
+         *
+         * @param time the time in milliseconds
+         * @param max the number of newest samples to keep at most
+         */
+        void removeSampleTimes(long time, long max) {
+            while (sampleCount > 0 && (sampleCount > max || sampleTimes[firstSample] <= time)) {
+                firstSample = (firstSample + 1) & (sampleTimes.length - 1);
+                sampleCount--;
+            }
+        }
+    }
+
 }
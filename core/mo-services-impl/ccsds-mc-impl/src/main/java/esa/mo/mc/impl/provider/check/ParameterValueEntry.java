@@ -1,54 +0,0 @@
-/* 
- * M&C Services for CCSDS Mission Operations Framework
- * Copyright (C) 2021 Deutsches Zentrum fuer Luft- und Raumfahrt e.V. (DLR).
- *
- * This library is free software; you can redistribute it and/or
- * modify it under the terms of the GNU Lesser General Public
- * License as published by the Free Software Foundation; either
- * version 2.1 of the License, or (at your option) any later version.
- *
- * This library is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
- * Lesser General Public License for more details.
- *
- * You should have received a copy of the GNU Lesser General Public
- * License along with this library; if not, write to the Free Software
- * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
- * MA 02110-1301  USA
- */
-package esa.mo.mc.impl.provider.check;
-
-import org.ccsds.moims.mo.mal.structures.Time;
-import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
-
-public class ParameterValueEntry {
-
-    private ParameterValue value;
-    private Time creationTime;
-
-    public ParameterValueEntry() {
-    }
-
-    public ParameterValueEntry(ParameterValue value, Time creationTime) {
-        this.value = value;
-        this.creationTime = creationTime;
-    }
-
-    public ParameterValue getValue() {
-        return value;
-    }
-
-    public void setValue(ParameterValue value) {
-        this.value = value;
-    }
-
-    public Time getCreationTime() {
-        return creationTime;
-    }
-
-    public void setCreationTime(Time creationTime) {
-        this.creationTime = creationTime;
-    }
-
-}
@@ -109,6 +109,15 @@ public class MCServicesHelper {
     public static final int GROUP_DEFINITION_OBJECT_NUMBER = 2;
 
     public static final String STORE_IN_ARCHIVE_PROPERTY = "esa.nmf.parameters.storeInArchive";
+    // Maximum number of parameter values waiting to be pushed by the ingestion thread
+    public static final String INGESTION_QUEUE_SIZE_PROPERTY = "esa.nmf.parameters.ingestion.queue";
+    // Maximum number of parameter values stored and published together by the ingestion thread
+    public static final String INGESTION_BATCH_SIZE_PROPERTY = "esa.nmf.parameters.ingestion.batch";
+    // Number of threads sampling the parameters of the aggregations in parallel, 0 samples them serially.
+    // A provider that never returns holds a thread: once all of them are held, every aggregation is INVALID.
+    public static final String AGGREGATION_SAMPLING_THREADS_PROPERTY = "esa.nmf.aggregations.sampling.threads";
+    // Maximum time in milliseconds to sample an aggregation in parallel (250 by default), capped at its report interval
+    public static final String AGGREGATION_SAMPLING_DEADLINE_PROPERTY = "esa.nmf.aggregations.sampling.deadline";
 
     // alert objects
     private static final ObjectType alertIdentityObjType = new ObjectType(AlertDefinitionDetails.AREA_SHORT_FORM,
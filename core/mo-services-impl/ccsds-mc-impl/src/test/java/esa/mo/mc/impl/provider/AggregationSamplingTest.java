@@ -0,0 +1,335 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mc.impl.provider;
+
+import esa.mo.mc.impl.interfaces.ParameterStatusListener;
+import esa.mo.mc.impl.util.MCServicesHelper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Duration;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.Union;
+import org.ccsds.moims.mo.mc.aggregation.structures.AggregationDefinitionDetails;
+import org.ccsds.moims.mo.mc.aggregation.structures.AggregationParameterSet;
+import org.ccsds.moims.mo.mc.aggregation.structures.AggregationParameterSetList;
+import org.ccsds.moims.mo.mc.aggregation.structures.AggregationParameterValueList;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterDefinitionDetails;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterDefinitionDetailsList;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
+import org.ccsds.moims.mo.mc.parameter.structures.ValidityState;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests the parallel sampling of the aggregations with stand-in providers
+ * that block until the test releases them.
+ */
+public class AggregationSamplingTest {
+
+    private static final int PARAMETERS = 4;
+    private static final double REPORT_INTERVAL = 30; // seconds
+    private static final long DEADLINE = 1000; // milliseconds
+    private static final long MARGIN = 4000; // milliseconds, for slow machines
+    private static final long TIMEOUT = 10; // seconds
+
+    private final List<AggregationManager> managers = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (AggregationManager manager : managers) {
+            manager.close();
+        }
+        System.clearProperty(MCServicesHelper.AGGREGATION_SAMPLING_THREADS_PROPERTY);
+        System.clearProperty(MCServicesHelper.AGGREGATION_SAMPLING_DEADLINE_PROPERTY);
+    }
+
+    @Test
+    public void testSlowProvidersMissTheDeadline() throws Exception {
+        // Parameters 1 and 2 are fast, 3 and 4 block until they are released after the sampling
+        System.setProperty(MCServicesHelper.AGGREGATION_SAMPLING_DEADLINE_PROPERTY, String.valueOf(DEADLINE));
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(2);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        AggregationManager manager = newManager(4, new Adapter() {
+            @Override
+            public Attribute onGetValue(Long parameterID) {
+                if (parameterID > 2) {
+                    try {
+                        release.await(TIMEOUT, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        interrupted.set(true);
+                    }
+                    finished.countDown();
+                }
+                return new Union(parameterID);
+            }
+        });
+
+        AggregationParameterValueList values;
+        long elapsed;
+        try {
+            long start = System.nanoTime();
+            values = manager.getValue(1L).getParameterSetValues().get(0).getValues();
+            elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            // The sampling returned while the slow providers were still blocked
+            assertEquals(2, finished.getCount());
+        } finally {
+            release.countDown();
+        }
+
+        assertTrue("The sampling took " + elapsed + " ms", elapsed < DEADLINE + MARGIN);
+        assertEquals(PARAMETERS, values.size());
+        assertValid(1L, values.get(0).getValue());
+        assertValid(2L, values.get(1).getValue());
+        assertInvalid(values.get(2).getValue());
+        assertInvalid(values.get(3).getValue());
+
+        // The late providers are left to complete
+        assertTrue(finished.await(TIMEOUT, TimeUnit.SECONDS));
+        assertFalse(interrupted.get());
+    }
+
+    @Test
+    public void testSlowProvidersAreSampledInParallel() {
+        // Each provider waits for all the others to have started, which only happens in parallel
+        System.setProperty(MCServicesHelper.AGGREGATION_SAMPLING_DEADLINE_PROPERTY, String.valueOf(TIMEOUT * 2000));
+        final CountDownLatch started = new CountDownLatch(PARAMETERS);
+        AggregationManager manager = newManager(PARAMETERS, new Adapter() {
+            @Override
+            public Attribute onGetValue(Long parameterID) {
+                started.countDown();
+                try {
+                    if (!started.await(TIMEOUT, TimeUnit.SECONDS)) {
+                        return new Union(-1L);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return new Union(parameterID);
+            }
+        });
+
+        AggregationParameterValueList values = manager.getValue(1L).getParameterSetValues().get(0).getValues();
+
+        for (int i = 0; i < PARAMETERS; i++) {
+            assertValid(i + 1L, values.get(i).getValue());
+        }
+    }
+
+    @Test
+    public void testInvalidDeadlineFallsBackToTheDefault() {
+        System.setProperty(MCServicesHelper.AGGREGATION_SAMPLING_DEADLINE_PROPERTY, "soon");
+        AggregationManager manager = newManager(PARAMETERS, new Adapter() {
+            @Override
+            public Attribute onGetValue(Long parameterID) {
+                return new Union(parameterID);
+            }
+        });
+
+        AggregationParameterValueList values = manager.getValue(1L).getParameterSetValues().get(0).getValues();
+
+        for (int i = 0; i < PARAMETERS; i++) {
+            assertValid(i + 1L, values.get(i).getValue());
+        }
+    }
+
+    @Test
+    public void testBatchProviderIsCalledOnce() {
+        final AtomicInteger calls = new AtomicInteger();
+        AggregationManager manager = newManager(4, new Adapter() {
+            @Override
+            public List<Attribute> onGetValues(LongList parameterIDs) {
+                calls.incrementAndGet();
+                List<Attribute> values = new ArrayList<>();
+                for (Long parameterID : parameterIDs) {
+                    values.add(new Union(parameterID));
+                }
+                return values;
+            }
+        });
+
+        AggregationParameterValueList values = manager.getValue(1L).getParameterSetValues().get(0).getValues();
+
+        assertEquals(1, calls.get());
+        for (int i = 0; i < PARAMETERS; i++) {
+            assertValid(i + 1L, values.get(i).getValue());
+        }
+    }
+
+    @Test
+    public void testSlowBatchProviderMissesTheDeadline() {
+        System.setProperty(MCServicesHelper.AGGREGATION_SAMPLING_DEADLINE_PROPERTY, String.valueOf(DEADLINE));
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        AggregationManager manager = newManager(4, new Adapter() {
+            @Override
+            public List<Attribute> onGetValues(LongList parameterIDs) {
+                try {
+                    release.await(TIMEOUT, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                finished.countDown();
+                return new ArrayList<>();
+            }
+        });
+
+        AggregationParameterValueList values;
+        long elapsed;
+        try {
+            long start = System.nanoTime();
+            values = manager.getValue(1L).getParameterSetValues().get(0).getValues();
+            elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            // The sampling returned while the provider was still blocked
+            assertEquals(1, finished.getCount());
+        } finally {
+            release.countDown();
+        }
+
+        assertTrue("The sampling took " + elapsed + " ms", elapsed < DEADLINE + MARGIN);
+
+        for (int i = 0; i < PARAMETERS; i++) {
+            assertInvalid(values.get(i).getValue());
+        }
+    }
+
+    @Test
+    public void testHungProvidersExhaustTheSamplingThreads() throws Exception {
+        // Parameters 3 and 4 hang and hold both sampling threads
+        System.setProperty(MCServicesHelper.AGGREGATION_SAMPLING_DEADLINE_PROPERTY, String.valueOf(DEADLINE));
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch hung = new CountDownLatch(2);
+        AggregationManager manager = newManager(2, new Adapter() {
+            @Override
+            public Attribute onGetValue(Long parameterID) {
+                if (parameterID > 2) {
+                    hung.countDown();
+                    try {
+                        release.await(TIMEOUT, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return new Union(parameterID);
+            }
+        });
+
+        try {
+            AggregationParameterValueList first = manager.getValue(1L).getParameterSetValues().get(0).getValues();
+            assertValid(1L, first.get(0).getValue());
+            assertValid(2L, first.get(1).getValue());
+            assertTrue(hung.await(TIMEOUT, TimeUnit.SECONDS));
+
+            // The fast providers are now queued behind the hung ones
+            AggregationParameterValueList second = manager.getValue(1L).getParameterSetValues().get(0).getValues();
+            for (int i = 0; i < PARAMETERS; i++) {
+                assertInvalid(second.get(i).getValue());
+            }
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void assertValid(Long expected, ParameterValue value) {
+        assertEquals(new UOctet((short) ValidityState.VALID_NUM_VALUE.getValue()), value.getValidityState());
+        assertEquals(new Union(expected), value.getRawValue());
+    }
+
+    private static void assertInvalid(ParameterValue value) {
+        assertEquals(new UOctet((short) ValidityState.INVALID_RAW_NUM_VALUE.getValue()), value.getValidityState());
+        assertNull(value.getRawValue());
+    }
+
+    /**
+     * Creates an Aggregation manager with a single aggregation, of identity
+     * id 1, sampling the parameters 1 to PARAMETERS.
+     */
+    private AggregationManager newManager(int samplingThreads, ParameterStatusListener adapter) {
+        System.setProperty(MCServicesHelper.AGGREGATION_SAMPLING_THREADS_PROPERTY, String.valueOf(samplingThreads));
+
+        ParameterManager parameterManager = new ParameterManager(null, adapter);
+        LongList ids = new LongList();
+        IdentifierList names = new IdentifierList();
+        LongList defIds = new LongList();
+        ParameterDefinitionDetailsList definitions = new ParameterDefinitionDetailsList();
+
+        for (long i = 1; i <= PARAMETERS; i++) {
+            ids.add(i);
+            names.add(new Identifier("param" + i));
+            defIds.add(PARAMETERS + i);
+            ParameterDefinitionDetails pDef = new ParameterDefinitionDetails();
+            pDef.setRawType((byte) 12);
+            pDef.setGenerationEnabled(false);
+            pDef.setReportInterval(new Duration(0));
+            definitions.add(pDef);
+        }
+        parameterManager.reconfigureDefinitions(ids, names, defIds, definitions);
+
+        AggregationParameterSet parameterSet = new AggregationParameterSet();
+        parameterSet.setParameters(ids);
+        parameterSet.setSampleInterval(new Duration(0));
+        AggregationParameterSetList parameterSets = new AggregationParameterSetList();
+        parameterSets.add(parameterSet);
+
+        AggregationDefinitionDetails def = new AggregationDefinitionDetails();
+        def.setDescription("slow providers");
+        def.setCategory(new UOctet((short) 1));
+        def.setReportInterval(new Duration(REPORT_INTERVAL));
+        def.setSendUnchanged(false);
+        def.setSendDefinitions(false);
+        def.setFilterEnabled(false);
+        def.setFilteredTimeout(new Duration(0));
+        def.setGenerationEnabled(true);
+        def.setParameterSets(parameterSets);
+
+        AggregationManager manager = new AggregationManager(null, parameterManager);
+        manager.add(new Identifier("aggregation"), def, null, null);
+        managers.add(manager);
+        return manager;
+    }
+
+    private abstract static class Adapter implements ParameterStatusListener {
+
+        @Override
+        public ParameterValue getValueWithCustomValidityState(Attribute rawValue, ParameterDefinitionDetails pDef) {
+            return null;
+        }
+
+        @Override
+        public boolean isReadOnly(Identifier name) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mc.impl.provider;
+
+import java.util.Random;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Pair;
+import org.ccsds.moims.mo.mal.structures.PairList;
+import org.ccsds.moims.mo.mal.structures.Union;
+import org.ccsds.moims.mo.mc.conversion.structures.DiscreteConversionDetails;
+import org.ccsds.moims.mo.mc.conversion.structures.LineConversionDetails;
+import org.ccsds.moims.mo.mc.conversion.structures.PolyConversionDetails;
+import org.ccsds.moims.mo.mc.conversion.structures.RangeConversionDetails;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+/**
+ * Compares the compiled conversions with a scan of the points, as done by
+ * the Conversion service before the conversions were compiled.
+ */
+public class CompiledConversionTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void testLineConversionMatchesScan() {
+        final Random random = new Random(7);
+
+        for (int run = 0; run < 200; run++) {
+            final PairList points = randomPoints(random, 2 + random.nextInt(20));
+            final boolean extrapolate = random.nextBoolean();
+            final LineConversionDetails details = new LineConversionDetails();
+            details.setExtrapolate(extrapolate);
+            details.setPoints(points);
+            final CompiledConversion compiled = CompiledConversion.compile(details);
+
+            for (int i = 0; i < 50; i++) {
+                final double x = random.nextInt(60) - 5;
+                final Attribute expected = scanLine(points, x, extrapolate);
+                final Attribute actual = compiled.apply(new Union(x));
+
+                if (expected == null) {
+                    assertNull(actual);
+                } else {
+                    assertEquals(value(expected), value(actual), TOLERANCE);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRangeConversionMatchesScan() {
+        final Random random = new Random(11);
+
+        for (int run = 0; run < 200; run++) {
+            final PairList points = randomPoints(random, random.nextInt(20));
+            final CompiledConversion compiled = CompiledConversion.compile(new RangeConversionDetails(points));
+
+            for (int i = 0; i < 50; i++) {
+                final double x = random.nextInt(60) - 5;
+                assertSame(scanRange(points, x), compiled.apply(new Union(x)));
+            }
+        }
+    }
+
+    @Test
+    public void testPolyConversion() {
+        final PairList points = new PairList();
+        points.add(new Pair(new Union(0), new Union(1.5)));
+        points.add(new Pair(new Union(3), new Union(-2.0)));
+        points.add(new Pair(new Union(1), new Union(0.25)));
+        points.add(new Pair(new Union(3), new Union(0.5)));
+        final CompiledConversion compiled = CompiledConversion.compile(new PolyConversionDetails(points));
+
+        for (double x = -10; x <= 10; x += 0.5) {
+            final double expected = 1.5 + 0.25 * x - 1.5 * Math.pow(x, 3);
+            assertEquals(expected, value(compiled.apply(new Union(x))), 1e-9 * Math.max(1, Math.abs(expected)));
+        }
+
+        final PairList negative = new PairList();
+        negative.add(new Pair(new Union(-1), new Union(2.0)));
+        assertEquals(0.5, value(CompiledConversion.compile(new PolyConversionDetails(negative)).apply(new Union(
+            4.0))), TOLERANCE);
+        assertSame(CompiledConversion.NONE, CompiledConversion.compile(new PolyConversionDetails(new PairList())));
+    }
+
+    @Test
+    public void testDiscreteConversionUsesFirstMapping() {
+        final PairList mapping = new PairList();
+        final Union first = new Union(10.0);
+        mapping.add(new Pair(new Union(1.0), first));
+        mapping.add(new Pair(new Union(1.0), new Union(20.0)));
+        mapping.add(new Pair(new Union(2.0), new Union(30.0)));
+        final CompiledConversion compiled = CompiledConversion.compile(new DiscreteConversionDetails(mapping));
+
+        assertSame(first, compiled.apply(new Union(1.0)));
+        assertEquals(30.0, value(compiled.apply(new Union(2.0))), TOLERANCE);
+        assertNull(compiled.apply(new Union(3.0)));
+    }
+
+    private static PairList randomPoints(final Random random, final int size) {
+        final PairList points = new PairList();
+
+        for (int i = 0; i < size; i++) {
+            // Few distinct raw values, so that duplicates and direct hits are common
+            points.add(new Pair(new Union((double) random.nextInt(50)), new Union(random.nextDouble() * 100)));
+        }
+
+        return points;
+    }
+
+    private static double value(final Attribute attribute) {
+        return ((Union) attribute).getDoubleValue();
+    }
+
+    private static double first(final Pair pair) {
+        return ((Union) pair.getFirst()).getDoubleValue();
+    }
+
+    private static Pair findTop(final PairList points, final double x) {
+        Pair top = null;
+        for (Pair point : points) {
+            if (first(point) > x && (top == null || first(point) < first(top))) {
+                top = point;
+            }
+        }
+        return top;
+    }
+
+    private static Pair findBottom(final PairList points, final double x) {
+        Pair bottom = null;
+        for (Pair point : points) {
+            if (first(point) < x && (bottom == null || first(point) > first(bottom))) {
+                bottom = point;
+            }
+        }
+        return bottom;
+    }
+
+    private static Attribute scanLine(final PairList points, final double x, final boolean extrapolate) {
+        for (Pair point : points) {
+            if (first(point) == x) {
+                return point.getSecond();
+            }
+        }
+
+        Pair top = findTop(points, x);
+        Pair bottom = findBottom(points, x);
+
+        if (top == null || bottom == null) {
+            if (!extrapolate) {
+                return null;
+            }
+            if (top != null) {
+                bottom = top;
+                top = findTop(points, first(bottom));
+            } else {
+                top = bottom;
+                bottom = findBottom(points, first(top));
+            }
+            if (top == null || bottom == null) {
+                return null;
+            }
+        }
+
+        final double y0 = value(bottom.getSecond());
+        final double y1 = value(top.getSecond());
+        return new Union(y0 + (y1 - y0) * (x - first(bottom)) / (first(top) - first(bottom)));
+    }
+
+    private static Attribute scanRange(final PairList points, final double x) {
+        for (Pair point : points) {
+            if (first(point) == x) {
+                return point.getSecond();
+            }
+        }
+
+        final Pair bottom = findBottom(points, x);
+        return (bottom == null) ? null : bottom.getSecond();
+    }
+}
@@ -0,0 +1,266 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mc.impl.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.Time;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.Union;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Tests the parameter ingestion pipeline with a sink that only counts the
+ * pushed values. The manual test measures the sustained pushes per second of
+ * 8 producers.
+ */
+public class ParameterIngestionPipelineTest {
+
+    private static final int PRODUCERS = 8;
+    private static final int PUSHES = 50000;
+
+    @Test
+    public void testProducersAreCoalesced() throws InterruptedException {
+        assertCoalesced(1000, true);
+    }
+
+    @Ignore("Manual test only")
+    @Test
+    public void testThroughput() throws InterruptedException {
+        long elapsed = assertCoalesced(PUSHES, false);
+        System.out.println("Pushes per second: " + (PRODUCERS * PUSHES * TimeUnit.SECONDS.toNanos(1) / elapsed));
+    }
+
+    @Test
+    public void testInvalidValuesAreRejectedWithTheirProducer() throws InterruptedException {
+        final AtomicInteger values = new AtomicInteger();
+        ParameterIngestionPipeline pipeline = new ParameterIngestionPipeline((parameters, storeIt) -> {
+            for (ParameterInstance parameter : parameters) {
+                // Would fail the whole batch if it was queued
+                parameter.getParameterValue().getRawValue();
+            }
+            values.addAndGet(parameters.size());
+            return true;
+        }, 100, 100);
+
+        List<ParameterInstance> valid = new ArrayList<>();
+        valid.add(new ParameterInstance(new Identifier("param1"), value(1), null, null));
+        List<ParameterInstance> invalid = new ArrayList<>();
+        invalid.add(new ParameterInstance(new Identifier("param2"), value(2), null, null));
+        invalid.add(new ParameterInstance(new Identifier("param3"), (ParameterValue) null, null, null));
+
+        assertTrue(pipeline.queue(valid, true));
+        assertFalse(pipeline.queue(invalid, true));
+        assertTrue(pipeline.queue(valid, true));
+        waitFor(values, 2);
+        pipeline.close();
+
+        assertEquals(2, values.get());
+    }
+
+    /**
+     * Queues values from several producers and checks that they are all
+     * pushed, in order per producer and in fewer batches than values.
+     *
+     * @param pushes The number of values queued by each producer.
+     * @param holdFirstBatch If true, the first batch is only pushed once all
+     * the values are queued, so that the next ones are always coalesced. All
+     * the values must then fit in the queue.
+     * @return The time taken in nanoseconds.
+     */
+    private static long assertCoalesced(final int pushes, final boolean holdFirstBatch)
+        throws InterruptedException {
+        final CountDownLatch allQueued = new CountDownLatch(holdFirstBatch ? 1 : 0);
+        final AtomicInteger values = new AtomicInteger();
+        final AtomicInteger batches = new AtomicInteger();
+        final ConcurrentHashMap<String, Integer> lastPushed = new ConcurrentHashMap<>();
+        final AtomicInteger outOfOrder = new AtomicInteger();
+
+        ParameterIngestionPipeline pipeline = new ParameterIngestionPipeline((parameters, storeIt) -> {
+            try {
+                allQueued.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            for (ParameterInstance parameter : parameters) {
+                int index = (int) ((Union) parameter.getParameterValue().getRawValue()).getIntegerValue();
+                Integer previous = lastPushed.put(parameter.getName().getValue(), index);
+
+                if (previous != null && previous >= index) {
+                    outOfOrder.incrementAndGet();
+                }
+            }
+            values.addAndGet(parameters.size());
+            batches.incrementAndGet();
+            return true;
+        }, 65536, 1024);
+
+        List<Thread> producers = new ArrayList<>();
+        long start = System.nanoTime();
+
+        for (int p = 0; p < PRODUCERS; p++) {
+            final Identifier name = new Identifier("param" + p);
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < pushes; i++) {
+                    List<ParameterInstance> parameters = new ArrayList<>(1);
+                    parameters.add(new ParameterInstance(name, value(i), null, new Time(i)));
+                    assertTrue(pipeline.queue(parameters, true));
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        allQueued.countDown();
+        waitFor(values, PRODUCERS * pushes);
+        long elapsed = System.nanoTime() - start;
+        pipeline.close();
+
+        assertEquals(PRODUCERS * pushes, values.get());
+        assertEquals(0, outOfOrder.get());
+        assertTrue(batches.get() < values.get());
+        return elapsed;
+    }
+
+    @Test
+    public void testBackpressure() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger values = new AtomicInteger();
+
+        ParameterIngestionPipeline pipeline = new ParameterIngestionPipeline((parameters, storeIt) -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            values.addAndGet(parameters.size());
+            return true;
+        }, 10, 10);
+
+        final AtomicInteger queued = new AtomicInteger();
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 100; i++) {
+                List<ParameterInstance> parameters = new ArrayList<>(1);
+                parameters.add(new ParameterInstance(new Identifier("param"), value(i), null, null));
+                pipeline.queue(parameters, false);
+                queued.incrementAndGet();
+            }
+        });
+        producer.start();
+        Thread.sleep(300);
+
+        // One batch is held by the sink, the queue is full and the producer waits
+        assertTrue(producer.isAlive());
+        assertTrue(queued.get() <= 21);
+
+        release.countDown();
+        producer.join(5000);
+        waitFor(values, 100);
+        pipeline.close();
+
+        assertFalse(producer.isAlive());
+        assertEquals(100, values.get());
+    }
+
+    @Test
+    public void testQueuedValuesAreCopied() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<ParameterValue> pushed = new ArrayList<>();
+
+        ParameterIngestionPipeline pipeline = new ParameterIngestionPipeline((parameters, storeIt) -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            for (ParameterInstance parameter : parameters) {
+                // Like the ingestion thread when it generates the converted value
+                parameter.getParameterValue().setConvertedValue(new Union(-1));
+                synchronized (pushed) {
+                    pushed.add(parameter.getParameterValue());
+                }
+            }
+            return true;
+        }, 10, 10);
+
+        ParameterValue owned = value(1);
+        List<ParameterInstance> parameters = new ArrayList<>(1);
+        parameters.add(new ParameterInstance(new Identifier("param"), owned, null, null));
+        assertTrue(pipeline.queue(parameters, true));
+
+        // The caller reuses its value once it is queued
+        owned.setRawValue(new Union(2));
+        release.countDown();
+
+        for (int i = 0; i < 1000; i++) {
+            synchronized (pushed) {
+                if (!pushed.isEmpty()) {
+                    break;
+                }
+            }
+            Thread.sleep(10);
+        }
+        pipeline.close();
+
+        synchronized (pushed) {
+            assertEquals(1, pushed.size());
+            assertEquals(new Union(1), pushed.get(0).getRawValue());
+        }
+        assertEquals(new Union(2), owned.getRawValue());
+        assertNull(owned.getConvertedValue());
+    }
+
+    @Test
+    public void testClosedPipelineRejectsValues() {
+        ParameterIngestionPipeline pipeline = new ParameterIngestionPipeline((parameters, storeIt) -> true, 10, 10);
+        pipeline.close();
+
+        List<ParameterInstance> parameters = new ArrayList<>(1);
+        parameters.add(new ParameterInstance(new Identifier("param"), value(0), null, null));
+        assertFalse(pipeline.queue(parameters, true));
+    }
+
+    private static ParameterValue value(final int i) {
+        return new ParameterValue(new UOctet((short) 0), new Union(i), null);
+    }
+
+    private static void waitFor(final AtomicInteger counter, final int expected) throws InterruptedException {
+        for (int i = 0; i < 1000 && counter.get() < expected; i++) {
+            Thread.sleep(10);
+        }
+    }
+}
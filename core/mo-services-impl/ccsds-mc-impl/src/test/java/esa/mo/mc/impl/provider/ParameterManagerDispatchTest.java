@@ -0,0 +1,176 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mc.impl.provider;
+
+import esa.mo.mc.impl.interfaces.ParameterStatusListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.mal.structures.Union;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterDefinitionDetails;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterDefinitionDetailsList;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterRawValue;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterRawValueList;
+import org.ccsds.moims.mo.mc.parameter.structures.ParameterValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Tests the dispatch of the callbacks of the adapter, depending on whether it
+ * implements the callbacks based on identity ids or the deprecated ones based
+ * on names. The manual test compares 1M calls to getValue with the reflective
+ * lookup that was done per call.
+ */
+public class ParameterManagerDispatchTest {
+
+    private static final int CALLS = 1000000;
+
+    @Test
+    public void testAdapterByIdentityId() throws IOException {
+        final List<Object> calls = new ArrayList<>();
+        ParameterManager manager = newManager(new Adapter() {
+            @Override
+            public Attribute onGetValue(Long parameterID) {
+                return new Union(parameterID);
+            }
+
+            @Override
+            public boolean isReadOnly(Long parameterID) {
+                calls.add(parameterID);
+                return false;
+            }
+
+            @Override
+            public Boolean onSetValue(ParameterRawValueList newRawValues) {
+                calls.add(newRawValues.get(0).getParamInstId());
+                return true;
+            }
+        });
+
+        assertEquals(new Union(1L), manager.getValue(1L));
+        assertFalse(manager.isReadOnly(1L));
+
+        ParameterRawValueList rawValues = new ParameterRawValueList();
+        rawValues.add(new ParameterRawValue(1L, new Union(5)));
+        assertEquals(1, manager.setValues(rawValues).size());
+
+        // Read-only check and set by identity id, the deprecated set is not implemented and not needed
+        assertEquals(Arrays.asList(1L, 1L), calls);
+    }
+
+    @Test
+    public void testAdapterByName() throws IOException {
+        final List<Object> calls = new ArrayList<>();
+        ParameterManager manager = newManager(new Adapter() {
+            @Override
+            public Attribute onGetValue(Identifier identifier, Byte rawType) {
+                return new Union(identifier.getValue() + rawType);
+            }
+
+            @Override
+            public Boolean onSetValue(IdentifierList identifiers, ParameterRawValueList values) {
+                calls.addAll(identifiers);
+                return true;
+            }
+        });
+
+        assertEquals(new Union("param4"), manager.getValue(1L));
+        assertTrue(manager.isReadOnly(1L));
+
+        ParameterRawValueList rawValues = new ParameterRawValueList();
+        rawValues.add(new ParameterRawValue(1L, new Union(5)));
+        assertEquals(1, manager.setValues(rawValues).size());
+
+        // The set by identity id is not implemented, so only the deprecated one is called
+        assertEquals(Collections.singletonList(new Identifier("param")), calls);
+    }
+
+    @Ignore("Manual test only")
+    @Test
+    public void testGetValueCost() throws IOException {
+        ParameterManager manager = newManager(new Adapter() {
+            @Override
+            public Attribute onGetValue(Long parameterID) {
+                return new Union(parameterID);
+            }
+        });
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            manager.getValue(1L);
+        }
+        long cached = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            try {
+                Adapter.class.getMethod("onGetValue", Identifier.class, Byte.class).getDeclaringClass();
+            } catch (NoSuchMethodException ex) {
+                throw new AssertionError(ex);
+            }
+        }
+        long reflective = System.nanoTime() - start;
+
+        System.out.println(CALLS + " getValue calls: " + TimeUnit.NANOSECONDS.toMillis(cached) +
+            " ms. The per-call method lookup alone: " + TimeUnit.NANOSECONDS.toMillis(reflective) + " ms");
+    }
+
+    private static ParameterManager newManager(final ParameterStatusListener adapter) {
+        ParameterManager manager = new ParameterManager(null, adapter);
+
+        LongList ids = new LongList();
+        ids.add(1L);
+        IdentifierList names = new IdentifierList();
+        names.add(new Identifier("param"));
+        LongList defIds = new LongList();
+        defIds.add(2L);
+        ParameterDefinitionDetails pDef = new ParameterDefinitionDetails();
+        pDef.setRawType((byte) 4);
+        ParameterDefinitionDetailsList definitions = new ParameterDefinitionDetailsList();
+        definitions.add(pDef);
+        manager.reconfigureDefinitions(ids, names, defIds, definitions);
+
+        return manager;
+    }
+
+    private abstract static class Adapter implements ParameterStatusListener {
+
+        @Override
+        public ParameterValue getValueWithCustomValidityState(Attribute rawValue, ParameterDefinitionDetails pDef) {
+            return new ParameterValue(); // The values set are not converted
+        }
+
+        @Override
+        public boolean isReadOnly(Identifier name) {
+            return true;
+        }
+    }
+}
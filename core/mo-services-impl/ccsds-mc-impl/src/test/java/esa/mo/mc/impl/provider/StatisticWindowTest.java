@@ -0,0 +1,192 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.mc.impl.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Union;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Compares the streaming statistics of the window with the statistics
+ * computed over all the samples of the window.
+ */
+public class StatisticWindowTest {
+
+    private static final double TOLERANCE = 1e-6;
+
+    @Test
+    public void testSlidingStatisticsMatchFullRescan() {
+        final Random random = new Random(42);
+        final StatisticWindow window = new StatisticWindow();
+        final List<Attribute> attributes = new ArrayList<>();
+        final List<Long> times = new ArrayList<>();
+        int first = 0;
+
+        for (int i = 0; i < 20000; i++) {
+            // Few distinct values, so that the first occurrence of the extrema matters
+            final Attribute attribute = (random.nextInt(10) == 0) ? null : new Union((double) random.nextInt(50));
+            window.add(attribute, i);
+            attributes.add(attribute);
+            times.add((long) i);
+
+            if (random.nextInt(4) == 0) {
+                final int oldest = i - random.nextInt(1000);
+                window.dropOlderThan(oldest);
+                while (first < times.size() && times.get(first) < oldest) {
+                    first++;
+                }
+            }
+
+            if (i % 97 == 0) {
+                assertMatches(window, attributes.subList(first, attributes.size()));
+            }
+        }
+
+        window.clear();
+        assertEquals(0, window.size());
+        assertNull(window.getMaximum());
+        assertTrue(Double.isNaN(window.getMean()));
+    }
+
+    @Test
+    public void testStatisticsDoNotDriftAfterLargeValuesLeave() {
+        final StatisticWindow window = new StatisticWindow();
+        final List<Attribute> attributes = new ArrayList<>();
+        long time = 0;
+
+        // Large values, then small values with a small spread, in a window of 10 samples
+        for (int i = 0; i < 1100; i++) {
+            final Attribute attribute = new Union((i < 1000) ? 1e9 + i % 7 : 1.0 + (i % 3) * 1e-3);
+            window.add(attribute, time++);
+            window.dropOlderThan(time - 10);
+            attributes.add(attribute);
+
+            // Checked after every drop, including while the large values leave the window
+            assertRescanned(window, attributes.subList(Math.max(0, attributes.size() - 10), attributes.size()));
+        }
+    }
+
+    @Test
+    @Ignore("Manual test only")
+    public void testStatisticsCostDoesNotDependOnWindowSize() {
+        final StatisticWindow small = new StatisticWindow();
+        final StatisticWindow large = new StatisticWindow();
+
+        for (int i = 0; i < 100; i++) {
+            small.add(new Union((double) i), i);
+        }
+        for (int i = 0; i < 100000; i++) {
+            large.add(new Union((double) i), i);
+        }
+
+        final long smallNs = timeReads(small);
+        final long largeNs = timeReads(large);
+        System.out.println("Statistic reads - window of 100: " + smallNs / 1000 + " us, window of 100000: " +
+            largeNs / 1000 + " us");
+        assertEquals(99999.0, ((Union) large.getMaximum()).getDoubleValue(), TOLERANCE);
+        assertEquals(49999.5, large.getMean(), TOLERANCE);
+    }
+
+    private static long timeReads(final StatisticWindow window) {
+        final long start = System.nanoTime();
+        double sink = 0;
+
+        for (int i = 0; i < 100000; i++) {
+            sink += window.getMean() + window.getStandardDeviation();
+            window.getMaximum();
+            window.getMinimum();
+        }
+
+        assertTrue(sink > 0);
+        return System.nanoTime() - start;
+    }
+
+    private static void assertRescanned(final StatisticWindow window, final List<Attribute> samples) {
+        double sum = 0;
+        for (Attribute sample : samples) {
+            sum += ((Union) sample).getDoubleValue();
+        }
+        final double mean = sum / samples.size();
+        assertEquals(mean, window.getMean(), Math.abs(mean) * 1e-12 + 1e-9);
+
+        if (samples.size() > 1) {
+            double squares = 0;
+            for (Attribute sample : samples) {
+                squares += Math.pow(((Union) sample).getDoubleValue() - mean, 2);
+            }
+            final double deviation = Math.sqrt(squares / (samples.size() - 1));
+            assertEquals(deviation, window.getStandardDeviation(), deviation * 1e-6);
+        }
+    }
+
+    private static void assertMatches(final StatisticWindow window, final List<Attribute> samples) {
+        assertEquals(samples.size(), window.size());
+
+        int maximum = -1;
+        int minimum = -1;
+        int count = 0;
+        double sum = 0;
+
+        for (int i = 0; i < samples.size(); i++) {
+            if (samples.get(i) == null) {
+                continue;
+            }
+            final double value = ((Union) samples.get(i)).getDoubleValue();
+            if (maximum == -1 || value > ((Union) samples.get(maximum)).getDoubleValue()) {
+                maximum = i;
+            }
+            if (minimum == -1 || value < ((Union) samples.get(minimum)).getDoubleValue()) {
+                minimum = i;
+            }
+            count++;
+            sum += value;
+        }
+
+        if (count == 0) {
+            assertNull(window.getMaximum());
+            assertNull(window.getMinimum());
+            return;
+        }
+
+        final double mean = sum / count;
+        double squares = 0;
+        for (Attribute sample : samples) {
+            if (sample != null) {
+                squares += Math.pow(((Union) sample).getDoubleValue() - mean, 2);
+            }
+        }
+
+        assertSame(samples.get(maximum), window.getMaximum());
+        assertSame(samples.get(minimum), window.getMinimum());
+        assertEquals(mean, window.getMean(), TOLERANCE);
+        if (count > 1) {
+            assertEquals(Math.sqrt(squares / (count - 1)), window.getStandardDeviation(), TOLERANCE);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * M&C Services for CCSDS Mission Operations Framework
+ * Copyright (C) 2021 Deutsches Zentrum für Luft- und Raumfahrt e.V. (DLR).
+ *
+ *  This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package esa.mo.mc.impl.provider.check;
+
+import java.util.concurrent.TimeUnit;
+import org.ccsds.moims.mo.com.structures.ObjectKey;
+import org.ccsds.moims.mo.mal.MALInteractionException;
+import org.ccsds.moims.mo.mal.structures.Attribute;
+import org.ccsds.moims.mo.mal.structures.Duration;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.mal.structures.Union;
+import org.ccsds.moims.mo.mc.check.structures.DeltaCheckDefinition;
+import org.ccsds.moims.mo.mc.check.structures.LimitCheckDefinition;
+import org.ccsds.moims.mo.mc.check.structures.ReferenceValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Compares the evaluation of the compiled Limit and Delta checks with the
+ * evaluation of the check definitions, and times 1M Limit check evaluations.
+ */
+public class CompiledCheckTest {
+
+    private static final int EVALUATIONS = 1000000;
+
+    @Test
+    public void testLimitCheck() {
+        for (Attribute upper : new Attribute[]{null, new Union(5), new Union(2.5)}) {
+            for (Attribute lower : new Attribute[]{null, new Union(-5L), new UInteger(1)}) {
+                for (boolean violateInRange : new boolean[]{false, true}) {
+                    LimitCheckDefinition checkDef = newLimitCheck(upper, lower, violateInRange);
+                    assertNotNull(CompiledCheck.compile(checkDef));
+
+                    for (int i = -20; i <= 20; i++) {
+                        assertLimitCheck(checkDef, new Union(i * 0.5));
+                        assertLimitCheck(checkDef, new Union(i));
+                        assertLimitCheck(checkDef, new Union((float) i / 3));
+                        assertLimitCheck(checkDef, new Union((long) i));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLimitCheckWithStrings() {
+        // String limits are compared by CheckEvaluation
+        assertNull(CompiledCheck.compile(newLimitCheck(new Union("5"), null, false)));
+
+        // String values too
+        LimitCheckDefinition checkDef = newLimitCheck(new Union(5), new Union(1), false);
+        assertLimitCheck(checkDef, new Union("7"));
+        assertLimitCheck(checkDef, new Union("3"));
+    }
+
+    @Test
+    public void testDeltaCheck() throws MALInteractionException {
+        DeltaCheckDefinition valueDelta = newDeltaCheck(new Union(2), new Union(-1), true, false);
+        assertEquals(null, evaluateDeltaCheck(valueDelta, 11, 10));
+        assertEquals(Boolean.TRUE, evaluateDeltaCheck(valueDelta, 12.5, 10));
+        assertEquals(Boolean.FALSE, evaluateDeltaCheck(valueDelta, 8.5, 10));
+
+        // Percentage deltas, relative to the reference value
+        DeltaCheckDefinition percentage = newDeltaCheck(new Union(0.5), new Union(-0.5), false, false);
+        assertEquals(null, evaluateDeltaCheck(percentage, 14, 10));
+        assertEquals(Boolean.TRUE, evaluateDeltaCheck(percentage, 16, 10));
+        assertEquals(Boolean.FALSE, evaluateDeltaCheck(percentage, 4, 10));
+        // requirement: 3.5.3.bb
+        assertEquals(Boolean.TRUE, evaluateDeltaCheck(percentage, 1, 0));
+
+        DeltaCheckDefinition inRange = newDeltaCheck(new Union(2), new Union(-1), true, true);
+        assertEquals(Boolean.TRUE, evaluateDeltaCheck(inRange, 11, 10));
+        assertEquals(null, evaluateDeltaCheck(inRange, 12.5, 10));
+    }
+
+    @Test
+    public void testCompiledOncePerDefinition() {
+        CheckLinkEvaluation checkLinkEvaluation = new CheckLinkEvaluation(null);
+        LimitCheckDefinition checkDef = newLimitCheck(new Union(5), null, false);
+        CompiledCheck compiled = checkLinkEvaluation.getCompiledCheck(checkDef);
+
+        assertEquals(compiled, checkLinkEvaluation.getCompiledCheck(checkDef));
+
+        // An updated definition is compiled again
+        LimitCheckDefinition updatedDef = newLimitCheck(new Union(1), null, false);
+        assertEquals(Boolean.TRUE, CheckEvaluation.evaluateLimitCheck(updatedDef, new Union(3), checkLinkEvaluation,
+            new EvaluationResult()).getEvaluationResult());
+    }
+
+    @Test
+    @Ignore("Manual test only")
+    public void testLimitCheckEvaluations() {
+        LimitCheckDefinition checkDef = newLimitCheck(new Union(5.0), new Union(-5.0), false);
+        CheckLinkEvaluation checkLinkEvaluation = new CheckLinkEvaluation(null);
+        EvaluationResult evaluationResult = new EvaluationResult();
+        Attribute[] values = new Attribute[64];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new Union(i - 32.0);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < EVALUATIONS; i++) {
+            CheckEvaluation.evaluateLimitCheck(checkDef, values[i & 63], checkLinkEvaluation, evaluationResult);
+        }
+        long compiled = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < EVALUATIONS; i++) {
+            CheckEvaluation.evaluateLimitCheck(checkDef, values[i & 63], evaluationResult);
+        }
+        long interpreted = System.nanoTime() - start;
+
+        System.out.println(EVALUATIONS + " Limit check evaluations: " + TimeUnit.NANOSECONDS.toMillis(compiled) +
+            " ms compiled, " + TimeUnit.NANOSECONDS.toMillis(interpreted) + " ms from the definition");
+    }
+
+    private static void assertLimitCheck(LimitCheckDefinition checkDef, Attribute value) {
+        Boolean expected = CheckEvaluation.evaluateLimitCheck(checkDef, value, new EvaluationResult())
+            .getEvaluationResult();
+        EvaluationResult result = CheckEvaluation.evaluateLimitCheck(checkDef, value, new CheckLinkEvaluation(null),
+            new EvaluationResult());
+
+        assertEquals("Value " + value, expected, result.getEvaluationResult());
+        assertEquals(value, result.getCheckedValue());
+    }
+
+    private static Boolean evaluateDeltaCheck(DeltaCheckDefinition checkDef, double value, double reference)
+        throws MALInteractionException {
+        CheckLinkEvaluation checkLinkEvaluation = new CheckLinkEvaluation(null);
+        checkLinkEvaluation.setRefParamValue(new Union(reference));
+        return CheckEvaluation.evaluateDeltaCheck(checkDef, new Union(value), checkLinkEvaluation,
+            new EvaluationResult()).getEvaluationResult();
+    }
+
+    private static LimitCheckDefinition newLimitCheck(Attribute upper, Attribute lower, boolean violateInRange) {
+        LimitCheckDefinition checkDef = new LimitCheckDefinition();
+        checkDef.setUpperLimit(upper);
+        checkDef.setLowerLimit(lower);
+        checkDef.setViolateInRange(violateInRange);
+        return checkDef;
+    }
+
+    private static DeltaCheckDefinition newDeltaCheck(Attribute upper, Attribute lower, boolean valueDelta,
+        boolean violateInRange) {
+        DeltaCheckDefinition checkDef = new DeltaCheckDefinition();
+        checkDef.setUpperThreshold(upper);
+        checkDef.setLowerThreshold(lower);
+        checkDef.setValueDelta(valueDelta);
+        checkDef.setViolateInRange(violateInRange);
+        // The reference is another parameter, so the reference value is managed by the ParameterMonitoringManager
+        checkDef.setCheckReference(new ReferenceValue(new ObjectKey(), new Duration(0), new UInteger(1)));
+        return checkDef;
+    }
+}
@@ -57,6 +57,35 @@ public interface CameraAdapterInterface {
 
     Picture takeAutoExposedPicture(final CameraSettings settings) throws IOException, MALException;
 
+    /**
+     * Takes a picture of the stream. The adapters that convert the pictures
+     * can return it RAW and convert it in convertStreamPicture, while the next
+     * picture of the stream is taken. By default, it is takePicture.
+     *
+     * @param settings the settings of the stream
+     * @return the picture, RAW or in the format of the settings
+     * @throws IOException if the picture could not be taken
+     */
+    default Picture takeStreamPicture(final CameraSettings settings) throws IOException {
+        return takePicture(settings);
+    }
+
+    /**
+     * Converts a picture returned by takeStreamPicture into the format of the
+     * settings. It is called from the encoder thread of the stream, outside of
+     * the lock of the camera. By default, the picture is already converted.
+     *
+     * @param picture the picture returned by takeStreamPicture
+     * @param settings the settings of the stream
+     * @param buffers the buffers that can be reused for the conversion
+     * @return the converted picture
+     * @throws IOException if the picture could not be converted
+     */
+    default Picture convertStreamPicture(final Picture picture, final CameraSettings settings,
+        final FrameBuffers buffers) throws IOException {
+        return picture;
+    }
+
     /**
      * The getMinimumPeriod method shall return the duration of taking a picture. This value is
      * intended to be used to limit the number of consecutive calls for the takePicture method and
@@ -24,6 +24,7 @@ import esa.mo.com.impl.util.COMServicesProvider;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
 import esa.mo.helpertools.connections.ConnectionProvider;
 import esa.mo.helpertools.helpers.HelperTime;
+import esa.mo.helpertools.misc.Const;
 import esa.mo.helpertools.misc.TaskScheduler;
 import java.io.IOException;
 import java.util.Map;
@@ -87,6 +88,26 @@ public class CameraProviderServiceImpl extends CameraInheritanceSkeleton {
     private final AtomicLong uniqueObjId = new AtomicLong(System.currentTimeMillis());
     private CameraAdapterInterface adapter;
     private PictureFormatList availableFormats;
+    private PictureStreamPipeline streamPipeline;
+    private final int streamFrames = getStreamFrames();
+
+    private static int getStreamFrames() {
+        final String value = System.getProperty(Const.PLATFORM_CAMERA_STREAM_FRAMES_PROPERTY,
+            Const.PLATFORM_CAMERA_STREAM_FRAMES_DEFAULT);
+
+        try {
+            final int frames = Integer.parseInt(value.trim());
+            if (frames >= 1) {
+                return frames;
+            }
+        } catch (NumberFormatException ex) {
+            // Logged below
+        }
+
+        LOGGER.log(Level.WARNING, "Invalid value for " + Const.PLATFORM_CAMERA_STREAM_FRAMES_PROPERTY + ": " +
+            value + ". Using the default: " + Const.PLATFORM_CAMERA_STREAM_FRAMES_DEFAULT);
+        return Integer.parseInt(Const.PLATFORM_CAMERA_STREAM_FRAMES_DEFAULT);
+    }
 
     /**
      * creates the MAL objects, the publisher used to create updates and starts the publishing thread
@@ -147,16 +168,15 @@ public class CameraProviderServiceImpl extends CameraInheritanceSkeleton {
 
             connection.closeAll();
             running = false;
+            setStreamPipeline(null);
         } catch (MALException ex) {
             LOGGER.log(Level.WARNING, "Exception during close down of the provider {0}", ex);
         }
     }
 
-    private void streamPicturesUpdate(final Identifier firstEntityKey, final CameraSettings settings) {
+    private void publishPicture(final Identifier firstEntityKey, final CameraSettings settings,
+        final Picture picture) {
         try {
-            final Long objId;
-            Picture picture = null;
-
             synchronized (lock) {
                 if (!isRegistered) {
                     final EntityKeyList lst = new EntityKeyList();
@@ -164,36 +184,39 @@ public class CameraProviderServiceImpl extends CameraInheritanceSkeleton {
                     publisher.register(lst, new PublishInteractionListener());
                     isRegistered = true;
                 }
-
-                objId = uniqueObjId.incrementAndGet();
-                try {
-                    picture = adapter.takePicture(settings);
-                } catch (IOException ex) {
-                    LOGGER.log(Level.SEVERE, null, ex);
-                }
             }
 
-            if (picture == null) {
-                LOGGER.log(Level.FINE, "Could not retrieve a picture. Skipping publishing.");
-            } else {
-                LOGGER.log(Level.FINER, "Generating streaming Picture update with objId: {0}", objId);
+            final Long objId = uniqueObjId.incrementAndGet();
+            LOGGER.log(Level.FINER, "Generating streaming Picture update with objId: {0}", objId);
 
-                final EntityKey ekey = new EntityKey(firstEntityKey, objId, settings.getResolution().getWidth()
-                    .getValue(), settings.getResolution().getHeight().getValue());
+            final EntityKey ekey = new EntityKey(firstEntityKey, objId, settings.getResolution().getWidth().getValue(),
+                settings.getResolution().getHeight().getValue());
 
-                final UpdateHeaderList hdrlst = new UpdateHeaderList();
-                hdrlst.add(new UpdateHeader(HelperTime.getTimestampMillis(), connection.getConnectionDetails()
-                    .getProviderURI(), UpdateType.UPDATE, ekey));
+            final UpdateHeaderList hdrlst = new UpdateHeaderList();
+            hdrlst.add(new UpdateHeader(HelperTime.getTimestampMillis(), connection.getConnectionDetails()
+                .getProviderURI(), UpdateType.UPDATE, ekey));
 
-                PictureList picList = new PictureList();
-                picList.add(picture);
-                publisher.publish(hdrlst, picList);
-            }
+            PictureList picList = new PictureList(1);
+            picList.add(picture);
+            publisher.publish(hdrlst, picList);
         } catch (IllegalArgumentException | MALException | MALInteractionException ex) {
             LOGGER.log(Level.WARNING, "Exception during publishing process on the provider {0}", ex);
         }
     }
 
+    /**
+     * Replaces the pipeline of the picture stream. The old one publishes the
+     * pictures already taken, and stops.
+     *
+     * @param pipeline the new pipeline, or null if the stream is disabled
+     */
+    private synchronized void setStreamPipeline(final PictureStreamPipeline pipeline) {
+        if (streamPipeline != null) {
+            streamPipeline.close();
+        }
+        streamPipeline = pipeline;
+    }
+
     private void isCapturePossible(final CameraSettings settings) throws MALInteractionException {
         if (!adapter.isUnitAvailable()) {
             throw new MALInteractionException(new MALStandardError(PlatformHelper.DEVICE_NOT_AVAILABLE_ERROR_NUMBER,
@@ -239,6 +262,7 @@ public class CameraProviderServiceImpl extends CameraInheritanceSkeleton {
         if (!enable) {
             cameraInUse = false;
             publishTimer.stopLast();
+            setStreamPipeline(null);
         } else {
             if (null == firstEntityKey) { // Is the input null?
                 throw new IllegalArgumentException("firstEntityKey argument must not be null");
@@ -267,11 +291,16 @@ public class CameraProviderServiceImpl extends CameraInheritanceSkeleton {
             publishTimer.stopLast();
             int period = (int) (streamingRate.getValue() * 1000); // In milliseconds
 
+            // The pictures are converted and published while the next one is taken
+            final PictureStreamPipeline pipeline = new PictureStreamPipeline(adapter, lock, settings, streamFrames,
+                picture -> publishPicture(firstEntityKey, settings, picture));
+            setStreamPipeline(pipeline);
+
             //publishTimer = new TaskScheduler(1);
             publishTimer.scheduleTask(new Thread(() -> {
                 if (running) {
                     if (cameraInUse) {
-                        streamPicturesUpdate(firstEntityKey, settings);
+                        pipeline.capture();
                     }
                 }
             }), period, period, TimeUnit.MILLISECONDS, true);
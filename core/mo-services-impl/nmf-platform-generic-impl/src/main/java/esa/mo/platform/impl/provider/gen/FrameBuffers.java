@@ -0,0 +1,60 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.platform.impl.provider.gen;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * The buffers used to convert a frame of the picture stream. They are reused
+ * from one frame to the next, so they shall not end up in the published
+ * picture: its content has to be a new array, as the update might still be
+ * encoded after the next frame was converted.
+ */
+public final class FrameBuffers {
+
+    private int[] pixels = new int[0];
+    private final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+    /**
+     * Gets a buffer of packed RGB pixels, for instance for
+     * BufferedImage.getRGB.
+     *
+     * @param length the number of pixels
+     * @return the buffer, with undefined content
+     */
+    public int[] getPixels(final int length) {
+        if (pixels.length != length) {
+            pixels = new int[length];
+        }
+        return pixels;
+    }
+
+    /**
+     * Gets an empty stream for the encoded picture. The stream keeps its
+     * buffer from one frame to the next.
+     *
+     * @return the stream
+     */
+    public ByteArrayOutputStream getStream() {
+        stream.reset();
+        return stream;
+    }
+}
@@ -24,13 +24,16 @@ import esa.mo.com.impl.util.DefinitionsManager;
 import esa.mo.com.impl.util.COMServicesProvider;
 import esa.mo.com.impl.util.HelperArchive;
 import esa.mo.helpertools.connections.ConfigurationProviderSingleton;
+import esa.mo.platform.impl.util.NearbyPositionIndex;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.structures.ObjectId;
 import org.ccsds.moims.mo.mal.MALException;
 import org.ccsds.moims.mo.mal.MALInteractionException;
 import org.ccsds.moims.mo.mal.structures.BooleanList;
+import org.ccsds.moims.mo.mal.structures.Element;
 import org.ccsds.moims.mo.mal.structures.ElementList;
 import org.ccsds.moims.mo.mal.structures.Identifier;
 import org.ccsds.moims.mo.mal.structures.LongList;
@@ -47,11 +50,16 @@ public final class GPSManager extends DefinitionsManager {
 
     private Long uniqueObjIdDef; // Unique objId Definition (different for every Definition)
     private final HashMap<Long, Boolean> previousIsInsideStatus;
+    private final HashSet<Long> insideObjIds; // The definitions with a previous status of true
+    private final HashSet<Long> uncheckedObjIds; // The definitions without a previous status
+    private NearbyPositionIndex nearbyPositionIndex; // Null if the definitions have changed
 
     public GPSManager(COMServicesProvider comServices) {
         super(comServices);
 
         this.previousIsInsideStatus = new HashMap<>();
+        this.insideObjIds = new HashSet<>();
+        this.uncheckedObjIds = new HashSet<>();
 
         if (super.getArchiveService() == null) {  // No Archive?
             this.uniqueObjIdDef = 0L; // The zeroth value will not be used (reserved for the wildcard)
@@ -80,7 +88,94 @@ public final class GPSManager extends DefinitionsManager {
     }
 
     public synchronized boolean setPreviousStatus(final Long input, final boolean isInside) {
-        return previousIsInsideStatus.put(input, isInside);
+        uncheckedObjIds.remove(input);
+
+        if (isInside) {
+            insideObjIds.add(input);
+        } else {
+            insideObjIds.remove(input);
+        }
+
+        final Boolean previous = previousIsInsideStatus.put(input, isInside);
+        return (previous != null && previous);
+    }
+
+    /**
+     * Gets the spatial index of the current definitions. It is only created
+     * again after the definitions have changed.
+     *
+     * @return The index
+     */
+    public synchronized NearbyPositionIndex getNearbyPositionIndex() {
+        if (nearbyPositionIndex == null) {
+            final LongList objIds = this.listAll();
+            final NearbyPositionDefinitionList defs = new NearbyPositionDefinitionList(objIds.size());
+            for (Long objId : objIds) {
+                defs.add(this.get(objId));
+            }
+            nearbyPositionIndex = new NearbyPositionIndex(objIds, defs);
+        }
+
+        return nearbyPositionIndex;
+    }
+
+    /**
+     * Lists the definitions that can change their status with the given
+     * position: the ones with the position inside, the ones that were inside
+     * before and the ones that were never checked.
+     *
+     * @param inside The definitions with the position inside
+     * @return The object instance identifiers of the definitions
+     */
+    public synchronized LongList listStatusCandidates(final LongList inside) {
+        final HashSet<Long> candidates = new HashSet<>(inside);
+        candidates.addAll(insideObjIds);
+        candidates.addAll(uncheckedObjIds);
+
+        final LongList list = new LongList(candidates.size());
+        list.addAll(candidates);
+        return list;
+    }
+
+    @Override
+    public synchronized Boolean addDef(Long objId, Element definition) {
+        nearbyPositionIndex = null;
+        this.trackStatus(objId);
+        return super.addDef(objId, definition);
+    }
+
+    @Override
+    public synchronized boolean deleteDef(Long objId) {
+        nearbyPositionIndex = null;
+        insideObjIds.remove(objId);
+        uncheckedObjIds.remove(objId);
+        return super.deleteDef(objId);
+    }
+
+    @Override
+    public synchronized Boolean reconfigureDefinitions(LongList objIds, ElementList definitions) {
+        nearbyPositionIndex = null;
+        final Boolean success = super.reconfigureDefinitions(objIds, definitions);
+
+        if (success) {
+            insideObjIds.clear();
+            uncheckedObjIds.clear();
+            for (Long objId : objIds) {
+                this.trackStatus(objId);
+            }
+        }
+
+        return success;
+    }
+
+    private void trackStatus(final Long objId) {
+        final Boolean previous = previousIsInsideStatus.get(objId);
+
+        if (previous == null) {
+            uncheckedObjIds.add(objId);
+        } else if (previous) {
+            insideObjIds.add(objId);
+        }
     }
 
     public NearbyPositionDefinitionList getAll() {
@@ -29,8 +29,10 @@ import esa.mo.helpertools.helpers.HelperTime;
 import esa.mo.helpertools.misc.Const;
 import esa.mo.helpertools.misc.TaskScheduler;
 import esa.mo.nmf.sdk.OrekitResources;
+import esa.mo.platform.impl.util.GPSSentenceParser;
 import esa.mo.platform.impl.util.HelperGPS;
-import esa.mo.platform.impl.util.PositionsCalculator;
+import esa.mo.platform.impl.util.NearbyPositionIndex;
+import esa.mo.platform.impl.util.OrbitPropagationCache;
 import esa.mo.reconfigurable.service.ConfigurationChangeListener;
 import esa.mo.reconfigurable.service.ReconfigurableService;
 import java.io.IOException;
@@ -94,13 +96,12 @@ import org.orekit.bodies.OneAxisEllipsoid;
 import org.orekit.data.DataProvidersManager;
 import org.orekit.frames.Frame;
 import org.orekit.frames.FramesFactory;
-import org.orekit.propagation.SpacecraftState;
 import org.orekit.propagation.analytical.tle.TLE;
-import org.orekit.propagation.analytical.tle.TLEPropagator;
 import org.orekit.time.AbsoluteDate;
 import org.orekit.time.TimeScalesFactory;
 import org.orekit.utils.Constants;
 import org.orekit.utils.IERSConventions;
+import org.orekit.utils.TimeStampedPVCoordinates;
 
 /**
  * GPS service Provider.
@@ -135,6 +136,8 @@ public class GPSProviderServiceImpl extends GPSInheritanceSkeleton implements Re
     private Double utcOffset = Double.parseDouble(System.getProperty(Const.PLATFORM_GNSS_UTC_OFFSET_PROPERTY,
         Const.PLATFORM_GNSS_UTC_OFFSET_DEFAULT));
     private static boolean isOrekitDataInitialized = false;
+    private final OrbitPropagationCache orbitCache = new OrbitPropagationCache(Double.parseDouble(System.getProperty(
+        Const.PLATFORM_GNSS_TLE_CACHE_STEP_PROPERTY, Const.PLATFORM_GNSS_TLE_CACHE_STEP_DEFAULT)));
 
     /**
      * creates the MAL objects, the publisher used to create updates and starts the publishing thread
@@ -561,34 +564,34 @@ public class GPSProviderServiceImpl extends GPSInheritanceSkeleton implements Re
 
             if (useTLEpropagation) {
                 Calendar targetDate = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
-                SpacecraftState state = getSpacecraftState(targetDate);
-                Vector3D pos = state.getPVCoordinates().getPosition();
+                TimeStampedPVCoordinates state = getPropagatedPVCoordinates(targetDate);
+                Vector3D pos = state.getPosition();
                 position = new VectorD3D(pos.getX(), pos.getY(), pos.getZ());
 
                 positionDeviation = new VectorF3D(0f, 0f, 0f);
 
-                Vector3D velocity3D = state.getPVCoordinates().getVelocity();
+                Vector3D velocity3D = state.getVelocity();
                 velocity = new VectorD3D(velocity3D.getX(), velocity3D.getY(), velocity3D.getZ());
 
                 velocityDeviation = new VectorF3D(0f, 0f, 0f);
             } else {
                 String bestxyz = adapter.getBestXYZSentence();
 
-                String[] fields = HelperGPS.getDataFieldsFromBestXYZ(bestxyz);
+                GPSSentenceParser fields = HelperGPS.parseBestXYZ(bestxyz);
 
-                position = new VectorD3D(Double.parseDouble(fields[HelperGPS.BESTXYZ_FIELD.PX]), Double.parseDouble(
-                    fields[HelperGPS.BESTXYZ_FIELD.PY]), Double.parseDouble(fields[HelperGPS.BESTXYZ_FIELD.PZ]));
+                position = new VectorD3D(fields.getDouble(HelperGPS.BESTXYZ_FIELD.PX), fields.getDouble(
+                    HelperGPS.BESTXYZ_FIELD.PY), fields.getDouble(HelperGPS.BESTXYZ_FIELD.PZ));
 
-                positionDeviation = new VectorF3D(Float.parseFloat(fields[HelperGPS.BESTXYZ_FIELD.PX_DEVIATION]), Float
-                    .parseFloat(fields[HelperGPS.BESTXYZ_FIELD.PY_DEVIATION]), Float.parseFloat(
-                        fields[HelperGPS.BESTXYZ_FIELD.PZ_DEVIATION]));
+                positionDeviation = new VectorF3D(fields.getFloat(HelperGPS.BESTXYZ_FIELD.PX_DEVIATION), fields
+                    .getFloat(HelperGPS.BESTXYZ_FIELD.PY_DEVIATION), fields.getFloat(
+                        HelperGPS.BESTXYZ_FIELD.PZ_DEVIATION));
 
-                velocity = new VectorD3D(Double.parseDouble(fields[HelperGPS.BESTXYZ_FIELD.VX]), Double.parseDouble(
-                    fields[HelperGPS.BESTXYZ_FIELD.VY]), Double.parseDouble(fields[HelperGPS.BESTXYZ_FIELD.VZ]));
+                velocity = new VectorD3D(fields.getDouble(HelperGPS.BESTXYZ_FIELD.VX), fields.getDouble(
+                    HelperGPS.BESTXYZ_FIELD.VY), fields.getDouble(HelperGPS.BESTXYZ_FIELD.VZ));
 
-                velocityDeviation = new VectorF3D(Float.parseFloat(fields[HelperGPS.BESTXYZ_FIELD.VX_DEVIATION]), Float
-                    .parseFloat(fields[HelperGPS.BESTXYZ_FIELD.VY_DEVIATION]), Float.parseFloat(
-                        fields[HelperGPS.BESTXYZ_FIELD.VZ_DEVIATION]));
+                velocityDeviation = new VectorF3D(fields.getFloat(HelperGPS.BESTXYZ_FIELD.VX_DEVIATION), fields
+                    .getFloat(HelperGPS.BESTXYZ_FIELD.VY_DEVIATION), fields.getFloat(
+                        HelperGPS.BESTXYZ_FIELD.VZ_DEVIATION));
             }
             synchronized (MUTEX) { // Store the latest Position
                 currentCartesianPosition = position;
@@ -767,31 +770,38 @@ public class GPSProviderServiceImpl extends GPSInheritanceSkeleton implements Re
                     } catch (IOException | NumberFormatException ignored) {
                     }
 
-                    // Compare with all the available definitions and raise
+                    if (pos == null) {
+                        LOGGER.log(Level.SEVERE, "Not a valid position. Neither p1 nor p2 can be null");
+                        return;
+                    }
+
+                    // Compare with the definitions close enough to the position and raise
                     // NearbyPositionAlerts in case something has changed
-                    LongList ids = manager.listAll();
+                    final NearbyPositionIndex index = manager.getNearbyPositionIndex();
+                    final LongList inside = index.getInside(pos);
+                    final HashSet<Long> insideSet = new HashSet<>(inside);
+                    final LongList ids = manager.listStatusCandidates(inside);
 
                     for (int i = 0; i < ids.size(); i++) {
                         Long objId = ids.get(i);
-                        NearbyPositionDefinition def = manager.get(objId);
                         Boolean previousState = manager.getPreviousStatus(objId);
 
-                        try {
-                            double distance = PositionsCalculator.deltaDistanceFrom2Points(def.getPosition(), pos);
-                            boolean isInside = (distance < def.getDistanceBoundary());
-
-                            if (previousState == null) { // Maybe it's the first run...
-                                manager.setPreviousStatus(objId, isInside);
-                                continue;
-                            }
-
-                            // If the status changed, then publish a Nearby Event
-                            if (previousState != isInside) {
-                                publishNearbyPositionUpdate(objId, isInside);
-                                manager.setPreviousStatus(objId, isInside);
-                            }
-                        } catch (IOException ex) {
-                            LOGGER.log(Level.SEVERE, ex.getMessage());
+                        if (index.isInvalid(objId)) {
+                            LOGGER.log(Level.SEVERE, "Not a valid Nearby Position definition: {0}", objId);
+                            continue;
+                        }
+
+                        boolean isInside = insideSet.contains(objId);
+
+                        if (previousState == null) { // Maybe it's the first run...
+                            manager.setPreviousStatus(objId, isInside);
+                            continue;
+                        }
+
+                        // If the status changed, then publish a Nearby Event
+                        if (previousState != isInside) {
+                            publishNearbyPositionUpdate(objId, isInside);
+                            manager.setPreviousStatus(objId, isInside);
                         }
                     }
                 }
@@ -848,14 +858,13 @@ public class GPSProviderServiceImpl extends GPSInheritanceSkeleton implements Re
 
     private Position getTLEPropagatedPosition() {
         Calendar targetDate = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
-        SpacecraftState state = getSpacecraftState(targetDate);
+        TimeStampedPVCoordinates state = getPropagatedPVCoordinates(targetDate);
 
         // Converting to geodetic lat/lon/alt
         Frame ecf = FramesFactory.getITRF(IERSConventions.IERS_2010, true);
         OneAxisEllipsoid earth = new OneAxisEllipsoid(Constants.WGS84_EARTH_EQUATORIAL_RADIUS,
             Constants.WGS84_EARTH_FLATTENING, ecf);
-        GeodeticPoint satLatLonAlt = earth.transform(state.getPVCoordinates().getPosition(), FramesFactory.getEME2000(),
-            state.getDate());
+        GeodeticPoint satLatLonAlt = earth.transform(state.getPosition(), FramesFactory.getEME2000(), state.getDate());
 
         PositionExtraDetails extraDetails = new PositionExtraDetails(new Time(targetDate.getTimeInMillis()), 0, 0, 0.0f,
             0.0f, PositionSourceType.TLE);
@@ -864,7 +873,7 @@ public class GPSProviderServiceImpl extends GPSInheritanceSkeleton implements Re
             satLatLonAlt.getLongitude()), (float) satLatLonAlt.getAltitude(), extraDetails);
     }
 
-    private SpacecraftState getSpacecraftState(Calendar targetDate) {
+    private TimeStampedPVCoordinates getPropagatedPVCoordinates(Calendar targetDate) {
 
         if (!isOrekitDataInitialized) {
             //setup orekit if not yet initialized
@@ -875,12 +884,12 @@ public class GPSProviderServiceImpl extends GPSInheritanceSkeleton implements Re
             isOrekitDataInitialized = true;
         }
 
-        TLE tle = adapter.getTLE();
-        TLEPropagator propagator = TLEPropagator.selectExtrapolator(tle);
+        // The cached orbit is discarded if the TLE has changed
+        orbitCache.setTLE(adapter.getTLE());
 
-        return propagator.propagate(new AbsoluteDate(targetDate.get(Calendar.YEAR), targetDate.get(Calendar.MONTH) + 1,
-            targetDate.get(Calendar.DAY_OF_MONTH), targetDate.get(Calendar.HOUR_OF_DAY), targetDate.get(
-                Calendar.MINUTE), targetDate.get(Calendar.SECOND), TimeScalesFactory.getUTC()));
+        return orbitCache.getPVCoordinates(new AbsoluteDate(targetDate.get(Calendar.YEAR), targetDate.get(
+            Calendar.MONTH) + 1, targetDate.get(Calendar.DAY_OF_MONTH), targetDate.get(Calendar.HOUR_OF_DAY),
+            targetDate.get(Calendar.MINUTE), targetDate.get(Calendar.SECOND), TimeScalesFactory.getUTC()));
     }
 
 }
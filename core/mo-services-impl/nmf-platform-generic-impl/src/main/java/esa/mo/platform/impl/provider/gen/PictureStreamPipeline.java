@@ -0,0 +1,179 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.platform.impl.provider.gen;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.ccsds.moims.mo.platform.camera.structures.CameraSettings;
+import org.ccsds.moims.mo.platform.camera.structures.Picture;
+
+/**
+ * The picture stream of the Camera service, in 2 stages: the pictures are
+ * taken by the thread calling capture, then converted and published by a
+ * dedicated encoder thread, while the next picture is taken.
+ *
+ * Every picture in the pipeline holds one of a fixed number of frames, with
+ * the buffers to convert it. When all the frames are in use, because the
+ * conversion or the publishing is slower than the stream, the new pictures are
+ * dropped instead of queued.
+ */
+public final class PictureStreamPipeline {
+
+    private static final Logger LOGGER = Logger.getLogger(PictureStreamPipeline.class.getName());
+
+    /**
+     * Publishes the converted pictures of the stream.
+     */
+    public interface PicturePublisher {
+
+        void publish(Picture picture);
+    }
+
+    private final CameraAdapterInterface adapter;
+    private final Object cameraLock;
+    private final CameraSettings settings;
+    private final PicturePublisher publisher;
+    private final ArrayBlockingQueue<FrameBuffers> freeFrames;
+    private final ThreadPoolExecutor encoder;
+    private final AtomicLong publishedPictures = new AtomicLong();
+    private final AtomicLong droppedPictures = new AtomicLong();
+
+    /**
+     * Creates the pipeline of a stream.
+     *
+     * @param adapter the Camera adapter
+     * @param cameraLock the lock held while a picture is taken
+     * @param settings the settings of the stream
+     * @param frames the number of pictures that can be in the pipeline
+     * @param publisher the publisher of the converted pictures
+     */
+    public PictureStreamPipeline(final CameraAdapterInterface adapter, final Object cameraLock,
+        final CameraSettings settings, final int frames, final PicturePublisher publisher) {
+        if (frames < 1) {
+            throw new IllegalArgumentException("The pipeline needs at least 1 frame: " + frames);
+        }
+        this.adapter = adapter;
+        this.cameraLock = cameraLock;
+        this.settings = settings;
+        this.publisher = publisher;
+        this.freeFrames = new ArrayBlockingQueue<>(frames);
+        for (int i = 0; i < frames; i++) {
+            freeFrames.add(new FrameBuffers());
+        }
+
+        // The queue cannot be full: there are never more tasks than frames
+        this.encoder = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(frames), r -> {
+            Thread thread = new Thread(r, "CameraStreamEncoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Takes the next picture of the stream and hands it to the encoder
+     * thread. The picture is dropped if all the frames are in use.
+     */
+    public void capture() {
+        final FrameBuffers frame = freeFrames.poll();
+        if (frame == null) {
+            long dropped = droppedPictures.incrementAndGet();
+            LOGGER.log(Level.FINE, "The stream is behind, dropping the picture. Dropped pictures: {0}", dropped);
+            return;
+        }
+
+        final Picture picture;
+        try {
+            synchronized (cameraLock) {
+                picture = adapter.takeStreamPicture(settings);
+            }
+        } catch (IOException ex) {
+            freeFrames.add(frame);
+            LOGGER.log(Level.SEVERE, null, ex);
+            return;
+        }
+
+        if (picture == null) {
+            freeFrames.add(frame);
+            LOGGER.log(Level.FINE, "Could not retrieve a picture. Skipping publishing.");
+            return;
+        }
+
+        try {
+            encoder.execute(() -> encode(picture, frame));
+        } catch (RejectedExecutionException ex) {
+            freeFrames.add(frame); // The pipeline was closed
+        }
+    }
+
+    private void encode(final Picture picture, final FrameBuffers frame) {
+        try {
+            final Picture converted = adapter.convertStreamPicture(picture, settings, frame);
+            if (converted != null) {
+                publisher.publish(converted);
+                publishedPictures.incrementAndGet();
+            }
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "The picture could not be converted or published.", ex);
+        } finally {
+            freeFrames.add(frame);
+        }
+    }
+
+    /**
+     * @return the number of pictures published
+     */
+    public long getPublishedPictures() {
+        return publishedPictures.get();
+    }
+
+    /**
+     * @return the number of pictures dropped because all the frames were in
+     * use
+     */
+    public long getDroppedPictures() {
+        return droppedPictures.get();
+    }
+
+    /**
+     * Stops the encoder thread once the pictures already taken are published.
+     */
+    public void close() {
+        encoder.shutdown();
+    }
+
+    /**
+     * Waits for the pictures already taken to be published, after close.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if they were published, false if the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return encoder.awaitTermination(timeout, unit);
+    }
+}
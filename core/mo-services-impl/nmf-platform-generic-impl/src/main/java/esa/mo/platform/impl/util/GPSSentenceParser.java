@@ -0,0 +1,582 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.platform.impl.util;
+
+import esa.mo.platform.impl.util.HelperGPS.GPGGA_GEN_COL;
+import esa.mo.platform.impl.util.HelperGPS.GPGSV_COL;
+import java.io.IOException;
+import java.util.Arrays;
+import org.ccsds.moims.mo.mal.structures.Time;
+import org.ccsds.moims.mo.platform.gps.structures.Position;
+import org.ccsds.moims.mo.platform.gps.structures.PositionExtraDetails;
+import org.ccsds.moims.mo.platform.gps.structures.PositionSourceType;
+import org.ccsds.moims.mo.platform.gps.structures.SatelliteInfo;
+import org.ccsds.moims.mo.platform.gps.structures.SatelliteInfoList;
+
+/**
+ * Parses NMEA and NovAtel ASCII sentences in place. The sentence is not split
+ * into strings: the parser keeps the offsets of its fields and converts them
+ * with its own number parser, so only the resulting structures are allocated.
+ *
+ * The checksum of every sentence is verified before its fields are used. A
+ * parser instance can be reused for any number of sentences, but it is not
+ * thread-safe.
+ */
+public final class GPSSentenceParser {
+
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+                                                   1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final float[] FLOAT_POWERS_OF_TEN = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f,
+                                                        1e10f};
+    private static final int[] CRC32_TABLE = new int[256];
+
+    static {
+        // The CRC-32 of the NovAtel logs: reflected 0xEDB88320, without the initial and final inversion
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int j = 0; j < 8; j++) {
+                crc = ((crc & 1) != 0) ? (crc >>> 1) ^ 0xEDB88320 : crc >>> 1;
+            }
+            CRC32_TABLE[i] = crc;
+        }
+    }
+
+    private CharSequence sentence;
+    private int[] fieldStarts = new int[32];
+    private int[] fieldEnds = new int[32];
+    private int fieldCount;
+
+    // The result of the last scanned number: mantissa * 10^exponent
+    private long mantissa;
+    private int exponent;
+    private int significantDigits;
+    private boolean negative;
+
+    /**
+     * Converts a GPGGA NMEA sentence into a Position object.
+     *
+     * @param gpgga GPGGA NMEA sentence
+     * @return Position object
+     * @throws IOException if the sentence is not valid
+     */
+    public Position parseGPGGA(final CharSequence gpgga) throws IOException {
+        return this.parseGPGGA(gpgga, 0, gpgga.length());
+    }
+
+    /**
+     * Converts a GPGGA NMEA sentence, in the range [from, to) of a text, into
+     * a Position object.
+     *
+     * @param text The text containing the sentence
+     * @param from The start of the sentence
+     * @param to The end of the sentence
+     * @return Position object
+     * @throws IOException if the sentence is not valid
+     */
+    public Position parseGPGGA(final CharSequence text, final int from, final int to) throws IOException {
+        this.splitNMEA(text, from, to);
+
+        if (fieldCount <= GPGGA_GEN_COL.UNDULATION) {
+            throw new IOException("The GPGGA sentence has only " + fieldCount + " fields: " + this.sentence());
+        }
+
+        Position pos = new Position();
+        pos.setAltitude(this.getFloat(GPGGA_GEN_COL.ALTITUDE));
+        pos.setLatitude(this.getDegrees(GPGGA_GEN_COL.LAT) * (this.fieldEquals(GPGGA_GEN_COL.LAT_DIR, 'S') ? -1 : 1));
+        pos.setLongitude(this.getDegrees(GPGGA_GEN_COL.LONG) * (this.fieldEquals(GPGGA_GEN_COL.LONG_DIR, 'W') ? -1 :
+            1));
+
+        PositionExtraDetails posExtraDetails = new PositionExtraDetails();
+        posExtraDetails.setPositionSource(PositionSourceType.GNSS);
+        posExtraDetails.setFixQuality(this.isEmpty(GPGGA_GEN_COL.QUAL) ? null : this.getInt(GPGGA_GEN_COL.QUAL));
+        posExtraDetails.setHdop(this.isEmpty(GPGGA_GEN_COL.HDOP) ? null : this.getFloat(GPGGA_GEN_COL.HDOP));
+        posExtraDetails.setNumberOfSatellites(this.isEmpty(GPGGA_GEN_COL.SATS_IN_USE) ? null : this.getInt(
+            GPGGA_GEN_COL.SATS_IN_USE));
+        posExtraDetails.setUndulation(this.isEmpty(GPGGA_GEN_COL.UNDULATION) ? null : this.getFloat(
+            GPGGA_GEN_COL.UNDULATION));
+        posExtraDetails.setUtc(new Time(this.getUtcTimeOfToday(GPGGA_GEN_COL.UTC, System.currentTimeMillis())));
+
+        pos.setExtraDetails(posExtraDetails);
+        return pos;
+    }
+
+    /**
+     * Converts GPGSV NMEA sentences, one per line, into a SatelliteInfoList
+     * object.
+     *
+     * @param gpgsv GPGSV NMEA sentences
+     * @return SatelliteInfoList object
+     * @throws IOException if one of the sentences is not valid
+     */
+    public SatelliteInfoList parseGPGSV(final CharSequence gpgsv) throws IOException {
+        final SatelliteInfoList sats = new SatelliteInfoList();
+        final int length = gpgsv.length();
+        int lineStart = 0;
+
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && gpgsv.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+
+            if (!isBlank(gpgsv, lineStart, lineEnd)) {
+                this.parseGPGSV(gpgsv, lineStart, lineEnd, sats);
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        return sats;
+    }
+
+    private void parseGPGSV(final CharSequence text, final int from, final int to, final SatelliteInfoList sats)
+        throws IOException {
+        this.splitNMEA(text, from, to);
+
+        // The header, the 3 fields of the message and 4 fields per satellite
+        final int sentenceSatCount = (fieldCount - 4) / 4;
+        if (sentenceSatCount <= 0 || sentenceSatCount > 4) {
+            throw new IOException("Sentence [" + this.sentence() + "] has calculated [" + sentenceSatCount +
+                "] sat count");
+        }
+        final int expectedSize = sentenceSatCount * 4 + 4;
+        if (fieldCount != expectedSize) {
+            throw new IOException("Sentence [" + this.sentence() + "] has wrong GPS sentence size [" + fieldCount +
+                "], expected [" + expectedSize + "]");
+        }
+        if (!this.fieldEquals(GPGSV_COL.HEADER, "$GPGSV")) {
+            throw new IOException("Sentence [" + this.sentence() + "] has wrong header, expected [$GPGSV]");
+        }
+
+        for (int satOffset = 0, i = 0; i < sentenceSatCount; i++, satOffset += 4) {
+            final int prn = this.getInt(satOffset + GPGSV_COL.SAT_PRN);
+            final float elevation = this.getFloat(satOffset + GPGSV_COL.SAT_ELEV);
+            final float azimuth = this.getFloat(satOffset + GPGSV_COL.SAT_AZ);
+            Float snr;
+            try {
+                snr = this.getFloat(satOffset + GPGSV_COL.SAT_SNR);
+            } catch (IOException e) {
+                snr = null; // Workaround for OEM615 not sending SNR of some sats
+            }
+            if (prn > 0) {
+                sats.add(new SatelliteInfo(azimuth, elevation, prn, null, null, null, null, null, snr, null, null));
+            }
+        }
+    }
+
+    /**
+     * Parses a BESTXYZ log in the NovAtel ASCII format. The fields of the data
+     * section, as indexed by HelperGPS.BESTXYZ_FIELD, are then available with
+     * the get methods of the parser.
+     *
+     * @param bestXYZ BestXYZ message
+     * @throws IOException if the log is not valid
+     */
+    public void parseBestXYZ(final CharSequence bestXYZ) throws IOException {
+        this.splitNovAtel(bestXYZ, 0, bestXYZ.length());
+
+        if (fieldCount <= HelperGPS.BESTXYZ_FIELD.VZ_DEVIATION) {
+            throw new IOException("The BESTXYZ log has only " + fieldCount + " fields: " + this.sentence());
+        }
+    }
+
+    /**
+     * Splits a NMEA sentence, "$...*hh", in the range [from, to) of a text
+     * into its fields, the first one being the header with the '$'.
+     */
+    private void splitNMEA(final CharSequence text, int from, int to) throws IOException {
+        this.sentence = text;
+        from = skipLeadingBlanks(text, from, to);
+        to = skipTrailingBlanks(text, from, to);
+
+        if (from >= to || text.charAt(from) != '$') {
+            this.fieldCount = 0;
+            throw new IOException("Not a NMEA sentence: " + text.subSequence(from, to));
+        }
+
+        int checksum = 0;
+        int star = from + 1;
+        while (star < to && text.charAt(star) != '*') {
+            checksum ^= text.charAt(star);
+            star++;
+        }
+
+        if (star + 3 != to || checksum != parseHex(text, star + 1, to)) {
+            throw new IOException("Wrong checksum of the NMEA sentence: " + text.subSequence(from, to));
+        }
+
+        this.split(from, star);
+    }
+
+    /**
+     * Splits the data section of a NovAtel ASCII log, "#header;data*crc32",
+     * in the range [from, to) of a text into its fields.
+     */
+    private void splitNovAtel(final CharSequence text, final int start, int to) throws IOException {
+        this.sentence = text;
+        to = skipTrailingBlanks(text, start, to);
+
+        int from = start;
+        while (from < to && text.charAt(from) != '#') {
+            from++;
+        }
+
+        int crc = 0;
+        int semicolon = -1;
+        int star = from + 1;
+        while (star < to && text.charAt(star) != '*') {
+            final char c = text.charAt(star);
+            if (c == ';' && semicolon == -1) {
+                semicolon = star;
+            }
+            crc = CRC32_TABLE[(crc ^ c) & 0xFF] ^ (crc >>> 8);
+            star++;
+        }
+
+        final long expectedCrc = (star + 9 == to) ? parseHex(text, star + 1, to) : -1;
+        if (from >= to || semicolon == -1 || expectedCrc < 0 || crc != (int) expectedCrc) {
+            this.fieldCount = 0;
+            throw new IOException("Wrong CRC of the NovAtel log: " + text.subSequence(start, to));
+        }
+
+        this.split(semicolon + 1, star);
+    }
+
+    private void split(final int from, final int to) {
+        fieldCount = 0;
+        int start = from;
+
+        for (int i = from; i <= to; i++) {
+            if (i == to || sentence.charAt(i) == ',') {
+                if (fieldCount == fieldStarts.length) {
+                    fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+                    fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+                }
+                fieldStarts[fieldCount] = start;
+                fieldEnds[fieldCount] = i;
+                fieldCount++;
+                start = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of fields of the last parsed sentence.
+     *
+     * @return The number of fields
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Checks if a field of the last parsed sentence is empty.
+     *
+     * @param field The index of the field
+     * @return True if it is empty
+     */
+    public boolean isEmpty(final int field) {
+        return fieldStarts[field] == fieldEnds[field];
+    }
+
+    private boolean fieldEquals(final int field, final char value) {
+        return fieldEnds[field] - fieldStarts[field] == 1 && sentence.charAt(fieldStarts[field]) == value;
+    }
+
+    private boolean fieldEquals(final int field, final String value) {
+        if (fieldEnds[field] - fieldStarts[field] != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (sentence.charAt(fieldStarts[field] + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts a field of the last parsed sentence into a double. The result
+     * is the same as Double.parseDouble.
+     *
+     * @param field The index of the field
+     * @return The value
+     * @throws IOException if the field is not a number
+     */
+    public double getDouble(final int field) throws IOException {
+        this.checkField(field);
+        final int start = fieldStarts[field];
+        final int end = fieldEnds[field];
+
+        if (this.scanNumber(start, end) && significantDigits <= 15 && Math.abs(exponent) <= 22) {
+            // Both operands are exact, so the result is correctly rounded
+            final double value = (exponent < 0) ? mantissa / POWERS_OF_TEN[-exponent] : mantissa *
+                POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+
+        try {
+            return Double.parseDouble(sentence.subSequence(start, end).toString());
+        } catch (NumberFormatException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Converts a field of the last parsed sentence into a float. The result
+     * is the same as Float.parseFloat.
+     *
+     * @param field The index of the field
+     * @return The value
+     * @throws IOException if the field is not a number
+     */
+    public float getFloat(final int field) throws IOException {
+        this.checkField(field);
+        return this.parseFloat(fieldStarts[field], fieldEnds[field]);
+    }
+
+    private float parseFloat(final int start, final int end) throws IOException {
+        if (this.scanNumber(start, end) && significantDigits <= 7 && Math.abs(exponent) <= 10) {
+            // Both operands are exact, so the result is correctly rounded
+            final float value = (exponent < 0) ? mantissa / FLOAT_POWERS_OF_TEN[-exponent] : mantissa *
+                FLOAT_POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+
+        try {
+            return Float.parseFloat(sentence.subSequence(start, end).toString());
+        } catch (NumberFormatException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Converts a field of the last parsed sentence into an int.
+     *
+     * @param field The index of the field
+     * @return The value
+     * @throws IOException if the field is not an integer
+     */
+    public int getInt(final int field) throws IOException {
+        this.checkField(field);
+        int i = fieldStarts[field];
+        final int end = fieldEnds[field];
+        final boolean isNegative = (i < end && sentence.charAt(i) == '-');
+        if (i < end && (sentence.charAt(i) == '-' || sentence.charAt(i) == '+')) {
+            i++;
+        }
+        if (end - i > 9) { // Might not fit in an int
+            try {
+                return Integer.parseInt(sentence.subSequence(fieldStarts[field], end).toString());
+            } catch (NumberFormatException e) {
+                throw new IOException(e);
+            }
+        }
+        if (i == end) {
+            throw new IOException("Not an integer: " + sentence.subSequence(fieldStarts[field], end));
+        }
+
+        int value = 0;
+        for (; i < end; i++) {
+            final char c = sentence.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IOException("Not an integer: " + sentence.subSequence(fieldStarts[field], end));
+            }
+            value = value * 10 + (c - '0');
+        }
+        return isNegative ? -value : value;
+    }
+
+    private void checkField(final int field) throws IOException {
+        if (field >= fieldCount) {
+            throw new IOException("The sentence has no field " + field + ": " + this.sentence());
+        }
+    }
+
+    /**
+     * Scans a decimal number, with an optional sign, fraction and exponent.
+     *
+     * @return False if the number has another format, or too many digits to
+     * be kept in the mantissa
+     */
+    private boolean scanNumber(int i, final int end) {
+        mantissa = 0;
+        exponent = 0;
+        significantDigits = 0;
+        negative = false;
+
+        if (i < end && (sentence.charAt(i) == '-' || sentence.charAt(i) == '+')) {
+            negative = (sentence.charAt(i) == '-');
+            i++;
+        }
+
+        boolean digits = false;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            final char c = sentence.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+                if (mantissa != 0 || c != '0') {
+                    if (++significantDigits > 18) {
+                        return false;
+                    }
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction) {
+                    exponent--;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else if ((c == 'e' || c == 'E') && digits) {
+                return this.scanExponent(i + 1, end);
+            } else {
+                return false;
+            }
+        }
+
+        return digits;
+    }
+
+    private boolean scanExponent(int i, final int end) {
+        final boolean negativeExponent = (i < end && sentence.charAt(i) == '-');
+        if (i < end && (sentence.charAt(i) == '-' || sentence.charAt(i) == '+')) {
+            i++;
+        }
+        if (i == end || end - i > 3) {
+            return false;
+        }
+
+        int value = 0;
+        for (; i < end; i++) {
+            final char c = sentence.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            value = value * 10 + (c - '0');
+        }
+        exponent += negativeExponent ? -value : value;
+        return true;
+    }
+
+    /**
+     * Converts a field in the format (d)ddmm.mmmm into degrees, like
+     * HelperGPS.degMinutes2Degrees.
+     */
+    private float getDegrees(final int field) throws IOException {
+        this.checkField(field);
+        final int start = fieldStarts[field];
+        final int end = fieldEnds[field];
+        final int len = end - start;
+        if (len < 4 || len > 13) {
+            throw new IOException("Wrong string length for '" + sentence.subSequence(start, end) + "'");
+        }
+
+        int decimalAt = -1;
+        for (int i = start; i < end; i++) {
+            if (sentence.charAt(i) == '.') {
+                decimalAt = i;
+                break;
+            }
+        }
+        if (decimalAt == -1) {
+            throw new IOException("Did not find decimal in " + sentence.subSequence(start, end));
+        }
+        if (decimalAt - 2 <= start) {
+            throw new IOException("Failed to parse degrees and minutes: " + sentence.subSequence(start, end));
+        }
+
+        return this.parseFloat(start, decimalAt - 2) + this.parseFloat(decimalAt - 2, end) / 60;
+    }
+
+    /**
+     * Converts a field in the format hhmmss(.ss) into the time of the last
+     * occurrence of that UTC time of day, like the previous conversion with a
+     * Calendar: if that time of today is still to come, it was yesterday.
+     */
+    private long getUtcTimeOfToday(final int field, final long now) throws IOException {
+        this.checkField(field);
+        final int start = fieldStarts[field];
+        final int end = fieldEnds[field];
+
+        if (end - start < 6) {
+            throw new IOException("Not a valid UTC time: " + sentence.subSequence(start, end));
+        }
+
+        final int hours = this.twoDigits(start);
+        final int minutes = this.twoDigits(start + 2);
+        final int seconds = this.twoDigits(start + 4);
+        int milliSeconds = 0;
+        // Only the hundredths of second are considered
+        if (end - start >= 9 && sentence.charAt(start + 6) == '.') {
+            milliSeconds = this.twoDigits(start + 7) * 10;
+        }
+
+        long time = now - Math.floorMod(now, MILLIS_PER_DAY) + ((hours * 60L + minutes) * 60L + seconds) * 1000L +
+            milliSeconds;
+        if (time > now) {
+            time -= MILLIS_PER_DAY;
+        }
+        return time;
+    }
+
+    private int twoDigits(final int i) throws IOException {
+        final char tens = sentence.charAt(i);
+        final char units = sentence.charAt(i + 1);
+        if (tens < '0' || tens > '9' || units < '0' || units > '9') {
+            throw new IOException("Not a number: " + tens + units);
+        }
+        return (tens - '0') * 10 + (units - '0');
+    }
+
+    private String sentence() {
+        return (fieldCount == 0) ? "" : sentence.subSequence(fieldStarts[0], fieldEnds[fieldCount - 1]).toString();
+    }
+
+    private static long parseHex(final CharSequence text, final int from, final int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            final int digit = Character.digit(text.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private static boolean isBlank(final CharSequence text, final int from, final int to) {
+        return skipLeadingBlanks(text, from, to) == to;
+    }
+
+    private static int skipLeadingBlanks(final CharSequence text, int from, final int to) {
+        while (from < to && text.charAt(from) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int skipTrailingBlanks(final CharSequence text, final int from, int to) {
+        while (to > from && text.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+}
@@ -21,9 +21,6 @@
 package esa.mo.platform.impl.util;
 
 import java.io.IOException;
-import java.util.Calendar;
-import java.util.TimeZone;
-import org.ccsds.moims.mo.mal.structures.Time;
 import org.ccsds.moims.mo.platform.gps.structures.*;
 
 /**
@@ -31,6 +28,9 @@ import org.ccsds.moims.mo.platform.gps.structures.*;
  */
 public class HelperGPS {
 
+    // The sentences are parsed in place, with one reusable parser per thread
+    private static final ThreadLocal<GPSSentenceParser> PARSER = ThreadLocal.withInitial(GPSSentenceParser::new);
+
     public static class GPGGA_GEN_COL {
 
         public final static int HEADER = 0;
@@ -115,77 +115,7 @@ public class HelperGPS {
      * @throws java.io.IOException
      */
     public static Position gpgga2Position(String gpgga) throws IOException {
-        Position pos = new Position();
-        String[] items = gpgga.split(",");
-        try {
-            pos.setAltitude(Float.parseFloat(items[GPGGA_GEN_COL.ALTITUDE]));
-            pos.setLatitude(degMinutes2Degrees(items[GPGGA_GEN_COL.LAT]) * ((items[GPGGA_GEN_COL.LAT_DIR]).equals("S") ?
-                -1 : 1));
-            pos.setLongitude(degMinutes2Degrees(items[GPGGA_GEN_COL.LONG]) * ((items[GPGGA_GEN_COL.LONG_DIR]).equals(
-                "W") ? -1 : 1));
-
-            PositionExtraDetails posExtraDetails = new PositionExtraDetails();
-            posExtraDetails.setPositionSource(PositionSourceType.GNSS);
-            if (items[GPGGA_GEN_COL.QUAL].length() != 0)
-                posExtraDetails.setFixQuality(Integer.parseInt(items[GPGGA_GEN_COL.QUAL]));
-            else
-                posExtraDetails.setFixQuality(null);
-            if (items[GPGGA_GEN_COL.HDOP].length() != 0)
-                posExtraDetails.setHdop(Float.parseFloat(items[GPGGA_GEN_COL.HDOP]));
-            else
-                posExtraDetails.setHdop(null);
-            if (items[GPGGA_GEN_COL.SATS_IN_USE].length() != 0)
-                posExtraDetails.setNumberOfSatellites(Integer.parseInt(items[GPGGA_GEN_COL.SATS_IN_USE]));
-            else
-                posExtraDetails.setNumberOfSatellites(null);
-            if (items[GPGGA_GEN_COL.UNDULATION].length() != 0)
-                posExtraDetails.setUndulation(Float.parseFloat(items[GPGGA_GEN_COL.UNDULATION]));
-            else
-                posExtraDetails.setUndulation(null);
-
-            /*
-            * Time needs to be calculated, because GGA message only contains
-            * Hours, minutes and seconds but not day and year
-            * Format: hhmmss.ss
-            * with:
-            * hh = hour of day (24h format)
-            * mm = minute of hour
-            * ss.ss = second in Minute (with fractional second)
-            */
-            String time = items[GPGGA_GEN_COL.UTC];
-            int hours = Integer.parseInt(time.substring(0, 2));
-            int minutes = Integer.parseInt(time.substring(2, 4));
-            int seconds = Integer.parseInt(time.substring(4, 6));
-            // The GGALONG sentence also contains the fractions of second witch is not contained in the GGA sentence
-            int milliSeconds = (int) (Double.parseDouble(time.substring(6, 9)) * 1000); // convert fractional seconds to milliseconds
-
-            // Get current time
-            Calendar cal = (Calendar) Calendar.getInstance().clone();
-            Calendar cal2 = (Calendar) cal.clone();
-
-            // Set Timezone to utc
-            cal.setTimeZone(TimeZone.getTimeZone("UTC"));
-            cal2.setTimeZone(TimeZone.getTimeZone("UTC"));
-
-            // Set time values from GGA NMEA sentence
-            cal.set(Calendar.HOUR_OF_DAY, hours);
-            cal.set(Calendar.MINUTE, minutes);
-            cal.set(Calendar.SECOND, seconds);
-            cal.set(Calendar.MILLISECOND, milliSeconds);
-
-            // In case, the current time is shortly after midnight and the message was received before midnight
-            if (cal.after(cal2)) {
-                // Subtract one day, so that the timestamp isn't 24h off
-                cal.set(Calendar.DAY_OF_YEAR, cal.get(Calendar.DAY_OF_YEAR) - 1);
-            }
-
-            posExtraDetails.setUtc(new Time(cal.toInstant().toEpochMilli()));
-
-            pos.setExtraDetails(posExtraDetails);
-            return pos;
-        } catch (NumberFormatException e) {
-            throw new IOException(e);
-        }
+        return PARSER.get().parseGPGGA(gpgga);
     }
 
     /**
@@ -196,49 +126,22 @@ public class HelperGPS {
      * @throws java.io.IOException
      */
     public static SatelliteInfoList gpgsv2SatelliteInfoList(final String gpgsv) throws IOException {
-        try {
-            SatelliteInfoList sats = new SatelliteInfoList();
-            String[] sentences = gpgsv.split("\n");
-            for (String sentence : sentences) {
-                String[] words = sentence.split(",|\\*");
-                int count = words.length;
-                int sentenceSatCount = (count - 5) / 4;
-                if (sentenceSatCount <= 0 || sentenceSatCount > 4) {
-                    throw new IOException("Sentence [" + sentence + "] has calculated [" + sentenceSatCount +
-                        "] sat count");
-                }
-                int expectedSize = sentenceSatCount * 4 + 5;
-                if (count != expectedSize) {
-                    throw new IOException("Sentence [" + sentence + "] has wrong GPS sentence size [" + count +
-                        "], expected minimum [" + expectedSize + "]");
+        return PARSER.get().parseGPGSV(gpgsv);
+    }
 
-                }
-                if (!"$GPGSV".equals(words[GPGSV_COL.HEADER])) {
-                    throw new IOException("Sentence [" + sentence + "] has wrong header [" + words[GPGSV_COL.HEADER] +
-                        "], expected [$GPGSV]");
-                }
-                for (int satOffset = 0, i = 0; i < sentenceSatCount; i++, satOffset += 4) {
-                    float azimuth = 0, elevation = 0;
-                    Float snr;
-                    int prn;
-                    prn = Integer.parseInt(words[satOffset + GPGSV_COL.SAT_PRN]);
-                    elevation = Float.parseFloat(words[satOffset + GPGSV_COL.SAT_ELEV]);
-                    azimuth = Float.parseFloat(words[satOffset + GPGSV_COL.SAT_AZ]);
-                    try {
-                        snr = Float.parseFloat(words[satOffset + GPGSV_COL.SAT_SNR]);
-                    } catch (NumberFormatException e) {
-                        snr = null; // Workaround for OEM615 not sending SNR of some sats
-                    }
-                    if (prn > 0) {
-                        sats.add(new SatelliteInfo(azimuth, elevation, prn, null, null, null, null, null, snr, null,
-                            null));
-                    }
-                }
-            }
-            return sats;
-        } catch (NumberFormatException e) {
-            throw new IOException(e);
-        }
+    /**
+     * Parses a BestXYZ message with the parser of the calling thread. Its
+     * fields are then available with the get methods of the returned parser,
+     * until the thread parses another sentence.
+     *
+     * @param bestXYZ BestXYZ message String
+     * @return The parser
+     * @throws java.io.IOException if the message is not valid
+     */
+    public static GPSSentenceParser parseBestXYZ(final String bestXYZ) throws IOException {
+        final GPSSentenceParser parser = PARSER.get();
+        parser.parseBestXYZ(bestXYZ);
+        return parser;
     }
 
     public static float degMinutes2Degrees(String in) throws IOException {
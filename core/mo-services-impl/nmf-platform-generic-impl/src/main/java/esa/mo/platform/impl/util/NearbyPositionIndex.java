@@ -0,0 +1,253 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.platform.impl.util;
+
+import esa.mo.platform.impl.util.PositionsCalculator.ECEFVector;
+import java.util.HashSet;
+import java.util.List;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.platform.gps.structures.NearbyPositionDefinition;
+import org.ccsds.moims.mo.platform.gps.structures.Position;
+
+/**
+ * Spatial index of the Nearby Position definitions. The positions are
+ * converted to ECEF once and kept in a k-d tree on the x and y axes, where
+ * every node also holds the bounding box and the largest distance boundary of
+ * its subtree. A query only computes the distance to the definitions whose
+ * subtree can be reached from the current position.
+ *
+ * The subtrees are discarded with the distance on the x and y axes only, which
+ * is never larger than the distance calculated by the PositionsCalculator,
+ * whether the altitude is considered or not. The definitions that are reached
+ * are checked with exactly the same calculation as before.
+ */
+public final class NearbyPositionIndex {
+
+    private final long[] objIds;
+    private final ECEFVector[] positions;
+    private final boolean[] zeroAltitudes;
+    private final double[] boundaries;
+
+    // Bounding box and largest boundary of the subtree of each node
+    private final double[] minX;
+    private final double[] maxX;
+    private final double[] minY;
+    private final double[] maxY;
+    private final double[] maxBoundaries;
+
+    // The definitions that cannot be checked
+    private final HashSet<Long> invalidObjIds = new HashSet<>();
+
+    /**
+     * Creates the index of the given definitions.
+     *
+     * @param objIds The object instance identifiers of the definitions
+     * @param definitions The definitions, in the same order
+     */
+    public NearbyPositionIndex(final LongList objIds, final List<NearbyPositionDefinition> definitions) {
+        int size = 0;
+        for (int i = 0; i < objIds.size(); i++) {
+            if (isValid(definitions.get(i))) {
+                size++;
+            } else {
+                invalidObjIds.add(objIds.get(i));
+            }
+        }
+
+        this.objIds = new long[size];
+        this.positions = new ECEFVector[size];
+        this.zeroAltitudes = new boolean[size];
+        this.boundaries = new double[size];
+        this.minX = new double[size];
+        this.maxX = new double[size];
+        this.minY = new double[size];
+        this.maxY = new double[size];
+        this.maxBoundaries = new double[size];
+
+        int index = 0;
+        for (int i = 0; i < objIds.size(); i++) {
+            final NearbyPositionDefinition def = definitions.get(i);
+            if (isValid(def)) {
+                this.objIds[index] = objIds.get(i);
+                this.positions[index] = PositionsCalculator.LLA2ECEF(def.getPosition());
+                this.zeroAltitudes[index] = (def.getPosition().getAltitude() == 0);
+                this.boundaries[index] = def.getDistanceBoundary();
+                index++;
+            }
+        }
+
+        this.build(0, size, true);
+    }
+
+    private static boolean isValid(final NearbyPositionDefinition def) {
+        final Position p = (def == null) ? null : def.getPosition();
+        return p != null && p.getLatitude() != null && p.getLongitude() != null && p.getAltitude() != null && def
+            .getDistanceBoundary() != null;
+    }
+
+    /**
+     * Orders the range [from, to) as a subtree, with its root in the middle,
+     * and calculates the bounding boxes of its nodes.
+     */
+    private void build(final int from, final int to, final boolean xAxis) {
+        if (from >= to) {
+            return;
+        }
+
+        final int mid = (from + to) >>> 1;
+        this.select(from, to - 1, mid, xAxis);
+        this.build(from, mid, !xAxis);
+        this.build(mid + 1, to, !xAxis);
+
+        minX[mid] = maxX[mid] = positions[mid].x;
+        minY[mid] = maxY[mid] = positions[mid].y;
+        maxBoundaries[mid] = boundaries[mid];
+        this.mergeSubtree(mid, from, mid);
+        this.mergeSubtree(mid, mid + 1, to);
+    }
+
+    private void mergeSubtree(final int node, final int from, final int to) {
+        if (from >= to) {
+            return;
+        }
+
+        final int child = (from + to) >>> 1;
+        minX[node] = Math.min(minX[node], minX[child]);
+        maxX[node] = Math.max(maxX[node], maxX[child]);
+        minY[node] = Math.min(minY[node], minY[child]);
+        maxY[node] = Math.max(maxY[node], maxY[child]);
+        maxBoundaries[node] = Math.max(maxBoundaries[node], maxBoundaries[child]);
+    }
+
+    /**
+     * Moves the k-th smallest node of [left, right] on the given axis to the
+     * position k, with the smaller ones before it and the larger ones after.
+     */
+    private void select(int left, int right, final int k, final boolean xAxis) {
+        while (left < right) {
+            final double pivot = this.coordinate((left + right) >>> 1, xAxis);
+            int i = left;
+            int j = right;
+
+            while (i <= j) {
+                while (Double.compare(this.coordinate(i, xAxis), pivot) < 0) {
+                    i++;
+                }
+                while (Double.compare(this.coordinate(j, xAxis), pivot) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    this.swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private double coordinate(final int index, final boolean xAxis) {
+        return xAxis ? positions[index].x : positions[index].y;
+    }
+
+    private void swap(final int i, final int j) {
+        final long objId = objIds[i];
+        objIds[i] = objIds[j];
+        objIds[j] = objId;
+
+        final ECEFVector position = positions[i];
+        positions[i] = positions[j];
+        positions[j] = position;
+
+        final boolean zeroAltitude = zeroAltitudes[i];
+        zeroAltitudes[i] = zeroAltitudes[j];
+        zeroAltitudes[j] = zeroAltitude;
+
+        final double boundary = boundaries[i];
+        boundaries[i] = boundaries[j];
+        boundaries[j] = boundary;
+    }
+
+    /**
+     * Checks if a definition of the index cannot be checked, because its
+     * position or distance boundary are missing.
+     *
+     * @param objId The object instance identifier of the definition
+     * @return True if it is not part of the spatial index
+     */
+    public boolean isInvalid(final Long objId) {
+        return invalidObjIds.contains(objId);
+    }
+
+    /**
+     * Number of definitions in the spatial index.
+     *
+     * @return The size
+     */
+    public int size() {
+        return objIds.length;
+    }
+
+    /**
+     * Finds the definitions whose distance boundary contains the given
+     * position.
+     *
+     * @param position The current position
+     * @return The object instance identifiers of the definitions
+     */
+    public LongList getInside(final Position position) {
+        final LongList inside = new LongList();
+        final ECEFVector p = PositionsCalculator.LLA2ECEF(position);
+        this.query(0, objIds.length, p, position.getAltitude() == 0, inside);
+        return inside;
+    }
+
+    private void query(final int from, final int to, final ECEFVector p, final boolean zeroAltitude,
+        final LongList inside) {
+        if (from >= to) {
+            return;
+        }
+
+        final int mid = (from + to) >>> 1;
+        final double dx = (p.x < minX[mid]) ? minX[mid] - p.x : ((p.x > maxX[mid]) ? p.x - maxX[mid] : 0);
+        final double dy = (p.y < minY[mid]) ? minY[mid] - p.y : ((p.y > maxY[mid]) ? p.y - maxY[mid] : 0);
+
+        if (Math.sqrt(dx * dx + dy * dy) >= maxBoundaries[mid]) {
+            return; // None of the definitions in this subtree is close enough
+        }
+
+        final double distance = PositionsCalculator.deltaDistance(positions[mid], p, zeroAltitudes[mid] ||
+            zeroAltitude);
+        if (distance < boundaries[mid]) {
+            inside.add(objIds[mid]);
+        }
+
+        this.query(from, mid, p, zeroAltitude, inside);
+        this.query(mid + 1, to, p, zeroAltitude, inside);
+    }
+}
@@ -0,0 +1,154 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.platform.impl.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.hipparchus.util.FastMath;
+import org.orekit.frames.Frame;
+import org.orekit.propagation.analytical.tle.TLE;
+import org.orekit.propagation.analytical.tle.TLEPropagator;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.CartesianDerivativesFilter;
+import org.orekit.utils.TimeStampedPVCoordinates;
+
+/**
+ * Cache of the orbit propagated from a TLE. The orbit is propagated on a grid
+ * of fixed step, starting at the epoch of the TLE, and the intermediate dates
+ * are answered with a Hermite interpolation of the positions and velocities
+ * of the INTERPOLATION_POINTS closest samples. The samples are kept for one
+ * day of queries, so repeated queries and ground tracks over the next hours
+ * only propagate once per step.
+ *
+ * The interpolation error decreases with the eighth power of the step. For a
+ * LEO orbit and a step of up to 120 seconds, the interpolated positions are
+ * within 1 cm of the propagated ones. A step of 0 disables the cache and
+ * propagates every query.
+ *
+ * The samples are discarded when a different TLE is set.
+ */
+public final class OrbitPropagationCache {
+
+    /**
+     * Number of samples used for each interpolation.
+     */
+    public static final int INTERPOLATION_POINTS = 4;
+
+    private static final double SECONDS_IN_DAY = 86400;
+
+    private final double step;
+    private final Map<Long, TimeStampedPVCoordinates> samples;
+    private TLE tle;
+    private TLEPropagator propagator;
+
+    /**
+     * Creates the cache.
+     *
+     * @param step the step of the grid in seconds, 0 to propagate every query
+     */
+    public OrbitPropagationCache(final double step) {
+        if (step < 0 || Double.isNaN(step)) {
+            throw new IllegalArgumentException("The step must be positive or 0: " + step);
+        }
+        this.step = step;
+        final int capacity = (step == 0) ? 0 : (int) FastMath.ceil(SECONDS_IN_DAY / step) + INTERPOLATION_POINTS;
+        this.samples = new LinkedHashMap<Long, TimeStampedPVCoordinates>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, TimeStampedPVCoordinates> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Sets the TLE to be propagated. The samples are discarded if the TLE is
+     * different from the current one.
+     *
+     * @param tle the TLE
+     */
+    public synchronized void setTLE(final TLE tle) {
+        if (tle == null) {
+            throw new IllegalArgumentException("The TLE cannot be null");
+        }
+        if (this.tle != null && this.tle.getLine1().equals(tle.getLine1()) && this.tle.getLine2().equals(tle
+            .getLine2())) {
+            return;
+        }
+        this.tle = tle;
+        this.propagator = TLEPropagator.selectExtrapolator(tle);
+        this.samples.clear();
+    }
+
+    /**
+     * @return the frame of the propagated positions and velocities
+     */
+    public synchronized Frame getFrame() {
+        checkTLE();
+        return propagator.getFrame();
+    }
+
+    /**
+     * Gets the position and velocity of the spacecraft at a given date.
+     *
+     * @param date the date
+     * @return the position and velocity in the frame of the propagator
+     */
+    public synchronized TimeStampedPVCoordinates getPVCoordinates(final AbsoluteDate date) {
+        checkTLE();
+        if (step == 0) {
+            return propagator.propagate(date).getPVCoordinates();
+        }
+
+        // The date lies between the 2 samples in the middle
+        final long first = (long) FastMath.floor(date.durationFrom(tle.getDate()) / step) -
+            (INTERPOLATION_POINTS / 2 - 1);
+        final List<TimeStampedPVCoordinates> sample = new ArrayList<>(INTERPOLATION_POINTS);
+        for (int i = 0; i < INTERPOLATION_POINTS; i++) {
+            sample.add(getSample(first + i));
+        }
+
+        return TimeStampedPVCoordinates.interpolate(date, CartesianDerivativesFilter.USE_PV, sample);
+    }
+
+    /**
+     * @return the number of samples currently cached
+     */
+    public synchronized int size() {
+        return samples.size();
+    }
+
+    private TimeStampedPVCoordinates getSample(final long index) {
+        TimeStampedPVCoordinates pv = samples.get(index);
+        if (pv == null) {
+            pv = propagator.propagate(tle.getDate().shiftedBy(index * step)).getPVCoordinates();
+            samples.put(index, pv);
+        }
+        return pv;
+    }
+
+    private void checkTLE() {
+        if (tle == null) {
+            throw new IllegalStateException("No TLE was set");
+        }
+    }
+}
@@ -63,11 +63,24 @@ public class PositionsCalculator {
         ECEFVector p1ECEF = PositionsCalculator.LLA2ECEF(p1);
         ECEFVector p2ECEF = PositionsCalculator.LLA2ECEF(p2);
 
-        double dx = Math.abs(p1ECEF.x - p2ECEF.x);
-        double dy = Math.abs(p1ECEF.y - p2ECEF.y);
-        double dz = Math.abs(p1ECEF.z - p2ECEF.z);
+        return deltaDistance(p1ECEF, p2ECEF, p1.getAltitude() == 0 || p2.getAltitude() == 0);
+    }
+
+    /**
+     * Calculates the distance between 2 points already converted to ECEF.
+     *
+     * @param p1 Point 1
+     * @param p2 Point 2
+     * @param ignoreAltitude True if the z axis shall not be considered, which
+     * is the case when one of the Positions has a 0 altitude
+     * @return The distance
+     */
+    public static double deltaDistance(ECEFVector p1, ECEFVector p2, boolean ignoreAltitude) {
+        double dx = Math.abs(p1.x - p2.x);
+        double dy = Math.abs(p1.y - p2.y);
+        double dz = Math.abs(p1.z - p2.z);
 
-        if (p1.getAltitude() == 0 || p2.getAltitude() == 0) {
+        if (ignoreAltitude) {
             dz = 0;
         }
 
@@ -0,0 +1,232 @@
+package esa.nmf.test;
+
+import esa.mo.platform.impl.util.GPSSentenceParser;
+import esa.mo.platform.impl.util.HelperGPS;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.ccsds.moims.mo.platform.gps.structures.Position;
+import org.ccsds.moims.mo.platform.gps.structures.SatelliteInfoList;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+public class GPSSentenceParserTest {
+
+    public static final double EPSILON = 0.00001;
+    // Example of the NovAtel OEM7 documentation
+    public static final String BESTXYZA = "#BESTXYZA,COM1,0,55.0,FINESTEERING,1419,340033.000,00000040,d821,2724;" +
+        "SOL_COMPUTED,NARROW_INT,-1634531.5683,-3664618.0326,4942496.3270,0.0099,0.0219,0.0115,SOL_COMPUTED," +
+        "NARROW_INT,0.0011,-0.0049,-0.0001,0.0199,0.0439,0.0230,\"AAAA\",0.250,1.000,0.000,12,11,11,11,0,01,0,33" +
+        "*e9eafeca";
+    // As produced by the OPS-SAT spacecraft simulator
+    public static final String SIMULATOR_BESTXYZA = "#BESTXYZA,COM1,0,35.0,FINESTEERING,2235,312482.625,00100000," +
+        "97b7,2310;SOL_COMPUTED,NARROW_INT,4121763.5480953124,1073125.0170553583,4827301.946125063,0,0,0," +
+        "SOL_COMPUTED,NARROW_INT,-1531.7064921356393,-6838.941254617716,2190.3398167104815,0,0,0,\"AAAA\",0.250," +
+        "1.000,0.000,31,9,9,9,0,01,0,33*3292f105";
+    // As produced by the OPS-SAT spacecraft simulator with 6 satellites in view: the unused slots are 0
+    public static final String SIMULATOR_GPGSV = "$GPGSV,2,1,6,3,45,120,0,7,12,300,0,12,67,45,0,19,5,210,0*47\n" +
+        "$GPGSV,2,2,6,25,33,89,0,31,71,176,0,0,0,0,0,0,0,0,0*7D\n";
+    // Replays the recorded log given with this property, or a generated one
+    private static final String NMEA_LOG_PROPERTY = "esa.nmf.test.nmea.log";
+    private static final int GENERATED_SENTENCES = 200000;
+
+    @Test(expected = IOException.class)
+    public void testWrongChecksumGPGGA() throws IOException {
+        // The altitude of HelperGPSTest.GPGGA_1 was changed, but not its checksum
+        HelperGPS.gpgga2Position("$GPGGA,113839.00,4952.2895,N,00837.3559,E,1,09,0.9,943.85,M,48.10,M,,*61");
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingChecksumGPGGA() throws IOException {
+        HelperGPS.gpgga2Position("$GPGGA,113839.00,4952.2895,N,00837.3559,E,1,09,0.9,143.85,M,48.10,M,,");
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedGPGGA() throws IOException {
+        HelperGPS.gpgga2Position(withChecksum("GPGGA,113839.00,4952.2895,N,00837.3559,E,1,09"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testWrongChecksumGPGSV() throws IOException {
+        HelperGPS.gpgsv2SatelliteInfoList("$GPGSV,3,1,11,21,71,297,43,08,62,179,45,01,45,284,44,22,42,226,41*7C\n" +
+            "$GPGSV,3,2,11,32,39,094,49,27,33,154,40,10,29,054,43,14,20,313,45*78");
+    }
+
+    @Test
+    public void testSimulatorGPGSV() throws IOException {
+        final SatelliteInfoList sats = HelperGPS.gpgsv2SatelliteInfoList(SIMULATOR_GPGSV);
+
+        Assert.assertEquals(6, sats.size());
+        Assert.assertEquals(3, sats.get(0).getPrn().intValue());
+        Assert.assertEquals(120f, sats.get(0).getAzimuth().floatValue(), EPSILON);
+        Assert.assertEquals(25, sats.get(4).getPrn().intValue());
+        Assert.assertEquals(33f, sats.get(4).getElevation().floatValue(), EPSILON);
+        Assert.assertEquals(31, sats.get(5).getPrn().intValue());
+    }
+
+    @Test
+    public void testGPGGA() throws IOException {
+        final Position pos = HelperGPS.gpgga2Position(" " + withChecksum(
+            "GPGGA,113839.00,4952.2895,S,00837.3559,W,1,09,0.9,143.85,M,48.10,M,,") + "\r\n");
+
+        Assert.assertEquals(-HelperGPSTest.LAT_POS1, pos.getLatitude(), EPSILON);
+        Assert.assertEquals(-8.622598f, pos.getLongitude(), EPSILON);
+        Assert.assertEquals(HelperGPSTest.ALT_POS1, pos.getAltitude(), EPSILON);
+        Assert.assertEquals(1, pos.getExtraDetails().getFixQuality().intValue());
+        Assert.assertEquals(9, pos.getExtraDetails().getNumberOfSatellites().intValue());
+        Assert.assertEquals(0.9f, pos.getExtraDetails().getHdop(), EPSILON);
+        Assert.assertEquals(48.1f, pos.getExtraDetails().getUndulation(), EPSILON);
+
+        // 11:38:39 UTC of today, or yesterday
+        final long utc = pos.getExtraDetails().getUtc().getValue();
+        Assert.assertEquals((11 * 3600 + 38 * 60 + 39) * 1000L, utc % (24 * 3600 * 1000L));
+        Assert.assertTrue(utc <= System.currentTimeMillis());
+        Assert.assertTrue(utc > System.currentTimeMillis() - 24 * 3600 * 1000L);
+    }
+
+    @Test
+    public void testBestXYZ() throws IOException {
+        final GPSSentenceParser fields = HelperGPS.parseBestXYZ("<OK [COM1]" + BESTXYZA + "\r\n");
+
+        Assert.assertEquals(-1634531.5683, fields.getDouble(HelperGPS.BESTXYZ_FIELD.PX), 0);
+        Assert.assertEquals(4942496.3270, fields.getDouble(HelperGPS.BESTXYZ_FIELD.PZ), 0);
+        Assert.assertEquals(0.0219f, fields.getFloat(HelperGPS.BESTXYZ_FIELD.PY_DEVIATION), 0);
+        Assert.assertEquals(-0.0049, fields.getDouble(HelperGPS.BESTXYZ_FIELD.VY), 0);
+        Assert.assertEquals(0.0230f, fields.getFloat(HelperGPS.BESTXYZ_FIELD.VZ_DEVIATION), 0);
+        Assert.assertEquals(12, fields.getInt(HelperGPS.BESTXYZ_FIELD.NUM_SV));
+    }
+
+    @Test
+    public void testSimulatorBestXYZ() throws IOException {
+        final GPSSentenceParser fields = HelperGPS.parseBestXYZ(SIMULATOR_BESTXYZA);
+
+        Assert.assertEquals(4121763.5480953124, fields.getDouble(HelperGPS.BESTXYZ_FIELD.PX), EPSILON);
+        Assert.assertEquals(4827301.946125063, fields.getDouble(HelperGPS.BESTXYZ_FIELD.PZ), EPSILON);
+        Assert.assertEquals(-6838.941254617716, fields.getDouble(HelperGPS.BESTXYZ_FIELD.VY), EPSILON);
+        Assert.assertEquals(31, fields.getInt(HelperGPS.BESTXYZ_FIELD.NUM_SV));
+    }
+
+    @Test(expected = IOException.class)
+    public void testWrongCRCBestXYZ() throws IOException {
+        HelperGPS.parseBestXYZ(BESTXYZA.replace("-1634531.5683", "-1634531.5688"));
+    }
+
+    @Test
+    public void testNumbersAsJavaParsers() throws IOException {
+        final Random random = new Random(3);
+        final List<String> numbers = new ArrayList<>();
+        for (String number : new String[]{"0", "-0", "+1", "0.0", ".5", "5.", "-0.0060", "1.088781766e-09",
+                                          "-18.00000000000", "1E5", "123456789012345678901234", "3.4028235e38",
+                                          "1e-46", "0.1", "16777217", "9007199254740993"}) {
+            numbers.add(number);
+        }
+        for (int i = 0; i < 20000; i++) {
+            numbers.add(String.valueOf((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(20) - 8)));
+            numbers.add(String.valueOf((random.nextFloat() - 0.5f) * (float) Math.pow(10, random.nextInt(12) - 4)));
+            numbers.add(String.format(Locale.ROOT, "%.4f", random.nextDouble() * 1e7));
+        }
+
+        final GPSSentenceParser parser = new GPSSentenceParser();
+        for (String number : numbers) {
+            parser.parseGPGGA(withChecksum("GPGGA,113839.00,4952.2895,N,00837.3559,E,1,09," + number + "," + number +
+                ",M,48.10,M,,"));
+            Assert.assertEquals(number, Float.parseFloat(number), parser.getFloat(HelperGPS.GPGGA_GEN_COL.ALTITUDE),
+                0);
+            Assert.assertEquals(number, Double.parseDouble(number), parser.getDouble(HelperGPS.GPGGA_GEN_COL.HDOP),
+                0);
+        }
+    }
+
+    @Test
+    @Ignore("Manual test only")
+    public void testReplayNMEALog() throws IOException {
+        final String recordedLog = System.getProperty(NMEA_LOG_PROPERTY);
+        final File log = (recordedLog != null) ? new File(recordedLog) : generateLog();
+        final String text = new String(Files.readAllBytes(log.toPath()), StandardCharsets.US_ASCII);
+
+        final GPSSentenceParser parser = new GPSSentenceParser();
+        int positions = 0;
+        int rejected = 0;
+        float altitudes = 0;
+        long start = System.nanoTime();
+        for (int from = 0, to; from < text.length(); from = to + 1) {
+            to = text.indexOf('\n', from);
+            to = (to == -1) ? text.length() : to;
+            if (text.startsWith("$GPGGA", from)) {
+                try {
+                    altitudes += parser.parseGPGGA(text, from, to).getAltitude();
+                    positions++;
+                } catch (IOException ex) {
+                    rejected++;
+                }
+            }
+        }
+        final long parserTime = System.nanoTime() - start;
+
+        // The previous approach, splitting the sentences into Strings
+        start = System.nanoTime();
+        float splitAltitudes = 0;
+        for (String line : text.split("\n")) {
+            if (line.startsWith("$GPGGA")) {
+                try {
+                    splitAltitudes += Float.parseFloat(line.split(",")[HelperGPS.GPGGA_GEN_COL.ALTITUDE]);
+                    HelperGPS.degMinutes2Degrees(line.split(",")[HelperGPS.GPGGA_GEN_COL.LAT]);
+                    HelperGPS.degMinutes2Degrees(line.split(",")[HelperGPS.GPGGA_GEN_COL.LONG]);
+                } catch (NumberFormatException | IOException ex) {
+                    // Counted by the parser
+                }
+            }
+        }
+        final long splitTime = System.nanoTime() - start;
+
+        System.out.println("Replay of the NMEA log " + log + ":");
+        System.out.println("  Parser: " + positions + " positions, " + rejected + " rejected, in " + parserTime /
+            1000000 + " ms");
+        System.out.println("  Split (without checksums): " + splitTime / 1000000 + " ms");
+
+        Assert.assertTrue(positions > 0);
+        if (recordedLog == null) {
+            Assert.assertEquals(GENERATED_SENTENCES / 100, rejected); // The corrupted sentences
+            log.delete();
+        }
+        Assert.assertTrue(altitudes > 0 && splitAltitudes > 0);
+    }
+
+    private static File generateLog() throws IOException {
+        final Random random = new Random(11);
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < GENERATED_SENTENCES; i++) {
+            final String sentence = withChecksum(String.format(Locale.ROOT,
+                "GPGGA,%02d%02d%02d.00,%02d%07.4f,N,%03d%07.4f,E,1,%02d,0.9,%.3f,M,48.10,M,,", i / 3600 % 24, i / 60 %
+                    60, i % 60, random.nextInt(90), random.nextDouble() * 60, random.nextInt(180), random.nextDouble() *
+                    60, 4 + random.nextInt(8), 500000 + random.nextDouble() * 1000));
+            // Every 100th sentence is corrupted after its checksum was calculated
+            sb.append((i % 100 == 99) ? sentence.replace(",N,", ",S,") : sentence).append("\r\n");
+            if (i % 10 == 0) {
+                sb.append("$GPGSV,3,3,11,03,20,224,41,24,01,023,46,17,00,316,*4F\r\n");
+            }
+        }
+
+        final File log = File.createTempFile("nmea", ".log");
+        Files.write(log.toPath(), sb.toString().getBytes(StandardCharsets.US_ASCII));
+        return log;
+    }
+
+    private static String withChecksum(final String body) {
+        return "$" + body + "*" + checksum(body);
+    }
+
+    private static String checksum(final String body) {
+        int checksum = 0;
+        for (int i = 0; i < body.length(); i++) {
+            checksum ^= body.charAt(i);
+        }
+        return String.format("%02X", checksum);
+    }
+}
@@ -0,0 +1,152 @@
+package esa.nmf.test;
+
+import esa.mo.platform.impl.util.NearbyPositionIndex;
+import esa.mo.platform.impl.util.PositionsCalculator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.LongList;
+import org.ccsds.moims.mo.platform.gps.structures.NearbyPositionDefinition;
+import org.ccsds.moims.mo.platform.gps.structures.Position;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+public class NearbyPositionIndexTest {
+
+    private static final int TARGETS = 100000;
+    private static final int POLLS = 1000;
+
+    @Test
+    public void testSameResultAsLinearCheck() throws IOException {
+        final Random random = new Random(42);
+        final LongList objIds = new LongList();
+        final List<NearbyPositionDefinition> defs = new ArrayList<>();
+        addTargets(random, 5000, objIds, defs);
+
+        // A few targets that cannot be checked
+        objIds.add(0L);
+        defs.add(newDefinition(null, 100.0));
+        objIds.add(-1L);
+        defs.add(newDefinition(newPosition(1, 1, 0), null));
+
+        final NearbyPositionIndex index = new NearbyPositionIndex(objIds, defs);
+        Assert.assertEquals(5000, index.size());
+        Assert.assertTrue(index.isInvalid(0L));
+        Assert.assertTrue(index.isInvalid(-1L));
+        Assert.assertFalse(index.isInvalid(1L));
+
+        int insideTotal = 0;
+        for (int i = 0; i < 500; i++) {
+            final Position pos = randomPosition(random, i % 2 == 0 ? 0 : 500);
+            final List<Long> expected = getInsideLinear(pos, objIds, defs);
+            final List<Long> inside = new ArrayList<>(index.getInside(pos));
+            Collections.sort(inside);
+
+            Assert.assertEquals(expected, inside);
+            insideTotal += inside.size();
+        }
+        // Otherwise the comparison above proves little
+        Assert.assertTrue(insideTotal > 0);
+    }
+
+    @Test
+    public void testOnBoundary() {
+        final LongList objIds = new LongList();
+        final List<NearbyPositionDefinition> defs = new ArrayList<>();
+        final Position target = newPosition(0.5f, 0.5f, 0);
+        objIds.add(1L);
+        defs.add(newDefinition(target, 10.0));
+
+        final NearbyPositionIndex index = new NearbyPositionIndex(objIds, defs);
+        Assert.assertEquals(1, index.getInside(target).size());
+        Assert.assertEquals(0, new NearbyPositionIndex(new LongList(), new ArrayList<>()).getInside(target).size());
+    }
+
+    @Test
+    @Ignore("Manual test only")
+    public void testPollWithManyTargets() throws IOException {
+        final Random random = new Random(7);
+        final LongList objIds = new LongList();
+        final List<NearbyPositionDefinition> defs = new ArrayList<>();
+        addTargets(random, TARGETS, objIds, defs);
+        final Position[] positions = new Position[POLLS];
+        for (int i = 0; i < POLLS; i++) {
+            positions[i] = randomPosition(random, 500);
+        }
+
+        long start = System.nanoTime();
+        final NearbyPositionIndex index = new NearbyPositionIndex(objIds, defs);
+        final long buildTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int insideIndex = 0;
+        for (Position pos : positions) {
+            insideIndex += index.getInside(pos).size();
+        }
+        final long indexTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int insideLinear = 0;
+        for (int i = 0; i < POLLS / 10; i++) {
+            insideLinear += getInsideLinear(positions[i], objIds, defs).size();
+        }
+        final long linearTime = (System.nanoTime() - start) * 10;
+
+        System.out.println("Nearby positions of " + TARGETS + " targets, " + POLLS + " polls:");
+        System.out.println("  Index built in: " + buildTime / 1000000 + " ms");
+        System.out.println("  Spatial index: " + indexTime / 1000000 + " ms (" + insideIndex + " inside)");
+        System.out.println("  Linear check (extrapolated): " + linearTime / 1000000 + " ms (" + insideLinear +
+            " inside in the first " + POLLS / 10 + " polls)");
+    }
+
+    private static List<Long> getInsideLinear(final Position pos, final LongList objIds,
+        final List<NearbyPositionDefinition> defs) throws IOException {
+        final List<Long> inside = new ArrayList<>();
+        for (int i = 0; i < objIds.size(); i++) {
+            final NearbyPositionDefinition def = defs.get(i);
+            if (def.getPosition() == null || def.getDistanceBoundary() == null) {
+                continue;
+            }
+            final double distance = PositionsCalculator.deltaDistanceFrom2Points(def.getPosition(), pos);
+            if (distance < def.getDistanceBoundary()) {
+                inside.add(objIds.get(i));
+            }
+        }
+        Collections.sort(inside);
+        return inside;
+    }
+
+    private static void addTargets(final Random random, final int count, final LongList objIds,
+        final List<NearbyPositionDefinition> defs) {
+        for (int i = 1; i <= count; i++) {
+            objIds.add((long) i);
+            // Mostly small areas, with some large ones, on the ground or above it
+            final double boundary = (i % 100 == 0) ? 2000 : 20 + random.nextInt(300);
+            defs.add(newDefinition(randomPosition(random, (i % 3 == 0) ? 0 : random.nextInt(5)), boundary));
+        }
+    }
+
+    private static Position randomPosition(final Random random, final float altitude) {
+        return newPosition(random.nextFloat() * 180 - 90, random.nextFloat() * 360 - 180, altitude);
+    }
+
+    private static Position newPosition(final float latitude, final float longitude, final float altitude) {
+        final Position pos = new Position();
+        pos.setLatitude(latitude);
+        pos.setLongitude(longitude);
+        pos.setAltitude(altitude);
+        return pos;
+    }
+
+    private static NearbyPositionDefinition newDefinition(final Position pos, final Double boundary) {
+        final NearbyPositionDefinition def = new NearbyPositionDefinition();
+        def.setName(new Identifier("target"));
+        def.setPosition(pos);
+        def.setDistanceBoundary(boundary);
+        return def;
+    }
+}
@@ -0,0 +1,141 @@
+package esa.nmf.test;
+
+import esa.mo.nmf.sdk.OrekitResources;
+import esa.mo.platform.impl.util.OrbitPropagationCache;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.orekit.data.DataProvidersManager;
+import org.orekit.propagation.analytical.tle.TLE;
+import org.orekit.propagation.analytical.tle.TLEPropagator;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.TimeStampedPVCoordinates;
+
+public class OrbitPropagationCacheTest {
+
+    private static final String TLE_LINE1 = "1 44878U 19092F   20159.72929773  .00000725  00000-0  41750-4 0  9990";
+    private static final String TLE_LINE2 = "2 44878  97.4685 343.1680 0015119  36.0805 324.1445 15.15469997 26069";
+    // Same orbit, one day later
+    private static final String NEW_TLE_LINE1 = "1 44878U 19092F   20160.72929773  .00000725  00000-0  41750-4 0  9992";
+
+    private static final double STEP = 60; // seconds
+    private static final double MAX_POSITION_ERROR = 0.01; // meters
+    private static final double MAX_VELOCITY_ERROR = 0.001; // meters per second
+    private static final int QUERIES = 10000;
+    private static final double SECONDS_IN_DAY = 86400;
+
+    @BeforeClass
+    public static void setUpOrekit() {
+        DataProvidersManager manager = DataProvidersManager.getInstance();
+        if (manager.getProviders().isEmpty()) {
+            manager.addProvider(OrekitResources.getOrekitData());
+        }
+    }
+
+    @Test
+    public void testAccuracy() {
+        final TLE tle = new TLE(TLE_LINE1, TLE_LINE2);
+        final TLEPropagator propagator = TLEPropagator.selectExtrapolator(tle);
+        final OrbitPropagationCache cache = new OrbitPropagationCache(STEP);
+        cache.setTLE(tle);
+        Assert.assertEquals(propagator.getFrame(), cache.getFrame());
+
+        // Random dates over the day after the epoch of the TLE, and a few days later
+        final Random random = new Random(42);
+        double maxPositionError = 0;
+        double maxVelocityError = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            final double offset = random.nextDouble() * SECONDS_IN_DAY + ((i % 10 == 0) ? 3 * SECONDS_IN_DAY : 0);
+            final AbsoluteDate date = tle.getDate().shiftedBy(offset);
+            final TimeStampedPVCoordinates expected = propagator.propagate(date).getPVCoordinates();
+            final TimeStampedPVCoordinates pv = cache.getPVCoordinates(date);
+
+            Assert.assertEquals(0, pv.getDate().durationFrom(date), 0);
+            maxPositionError = Math.max(maxPositionError, pv.getPosition().distance(expected.getPosition()));
+            maxVelocityError = Math.max(maxVelocityError, pv.getVelocity().distance(expected.getVelocity()));
+        }
+
+        Assert.assertTrue("Position error of " + maxPositionError + " m", maxPositionError < MAX_POSITION_ERROR);
+        Assert.assertTrue("Velocity error of " + maxVelocityError + " m/s", maxVelocityError < MAX_VELOCITY_ERROR);
+    }
+
+    @Test
+    public void testNoCache() {
+        final TLE tle = new TLE(TLE_LINE1, TLE_LINE2);
+        final TLEPropagator propagator = TLEPropagator.selectExtrapolator(tle);
+        final OrbitPropagationCache cache = new OrbitPropagationCache(0);
+        cache.setTLE(tle);
+
+        final AbsoluteDate date = tle.getDate().shiftedBy(1234.5);
+        Assert.assertEquals(0, cache.getPVCoordinates(date).getPosition().distance(propagator.propagate(date)
+            .getPVCoordinates().getPosition()), 0);
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testNewTLEInvalidatesTheCache() {
+        final OrbitPropagationCache cache = new OrbitPropagationCache(STEP);
+        final TLE tle = new TLE(TLE_LINE1, TLE_LINE2);
+        cache.setTLE(tle);
+        final AbsoluteDate date = tle.getDate().shiftedBy(SECONDS_IN_DAY + 30.5);
+        final TimeStampedPVCoordinates oldPV = cache.getPVCoordinates(date);
+        Assert.assertEquals(OrbitPropagationCache.INTERPOLATION_POINTS, cache.size());
+
+        // The same TLE, parsed again, keeps the samples
+        cache.setTLE(new TLE(TLE_LINE1, TLE_LINE2));
+        Assert.assertEquals(OrbitPropagationCache.INTERPOLATION_POINTS, cache.size());
+
+        final TLE newTLE = new TLE(NEW_TLE_LINE1, TLE_LINE2);
+        cache.setTLE(newTLE);
+        Assert.assertEquals(0, cache.size());
+
+        final TimeStampedPVCoordinates newPV = cache.getPVCoordinates(date);
+        final TimeStampedPVCoordinates expected = TLEPropagator.selectExtrapolator(newTLE).propagate(date)
+            .getPVCoordinates();
+        Assert.assertTrue(newPV.getPosition().distance(oldPV.getPosition()) > 1000);
+        Assert.assertTrue(newPV.getPosition().distance(expected.getPosition()) < MAX_POSITION_ERROR);
+    }
+
+    @Test
+    @Ignore("Manual test only")
+    public void testLatency() {
+        final TLE tle = new TLE(TLE_LINE1, TLE_LINE2);
+        final TLEPropagator propagator = TLEPropagator.selectExtrapolator(tle);
+        final OrbitPropagationCache cache = new OrbitPropagationCache(STEP);
+        cache.setTLE(tle);
+
+        // A ground track over the day after the epoch of the TLE, one query per second
+        final AbsoluteDate[] dates = new AbsoluteDate[(int) SECONDS_IN_DAY];
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = tle.getDate().shiftedBy(i + 0.25);
+        }
+
+        long start = System.nanoTime();
+        double checksum = 0;
+        for (AbsoluteDate date : dates) {
+            checksum += propagator.propagate(date).getPVCoordinates().getPosition().getX();
+        }
+        final long directTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (AbsoluteDate date : dates) {
+            checksum -= cache.getPVCoordinates(date).getPosition().getX();
+        }
+        final long cachedTime = System.nanoTime() - start;
+
+        // The same ground track again, from the cached samples only
+        start = System.nanoTime();
+        for (AbsoluteDate date : dates) {
+            cache.getPVCoordinates(date);
+        }
+        final long warmTime = System.nanoTime() - start;
+
+        System.out.println("Ground track of " + dates.length + " positions:");
+        System.out.println("  Direct propagation: " + directTime / 1000000 + " ms");
+        System.out.println("  Cached propagation: " + cachedTime / 1000000 + " ms (" + cache.size() + " samples)");
+        System.out.println("  Cached propagation, again: " + warmTime / 1000000 + " ms");
+        Assert.assertTrue(Math.abs(checksum) / dates.length < MAX_POSITION_ERROR);
+    }
+}
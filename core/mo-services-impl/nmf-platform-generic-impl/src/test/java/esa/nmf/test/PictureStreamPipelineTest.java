@@ -0,0 +1,290 @@
+package esa.nmf.test;
+
+import esa.mo.platform.impl.provider.gen.CameraAdapterInterface;
+import esa.mo.platform.impl.provider.gen.FrameBuffers;
+import esa.mo.platform.impl.provider.gen.PictureStreamPipeline;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.ccsds.moims.mo.mal.MALException;
+import org.ccsds.moims.mo.mal.structures.Blob;
+import org.ccsds.moims.mo.mal.structures.Duration;
+import org.ccsds.moims.mo.mal.structures.Time;
+import org.ccsds.moims.mo.mal.structures.UInteger;
+import org.ccsds.moims.mo.platform.camera.structures.CameraSettings;
+import org.ccsds.moims.mo.platform.camera.structures.Picture;
+import org.ccsds.moims.mo.platform.camera.structures.PictureFormat;
+import org.ccsds.moims.mo.platform.camera.structures.PictureFormatList;
+import org.ccsds.moims.mo.platform.camera.structures.PixelResolution;
+import org.ccsds.moims.mo.platform.camera.structures.PixelResolutionList;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+public class PictureStreamPipelineTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+    private static final int FRAMES = 2;
+    private static final long SOAK_DURATION = 3000; // milliseconds
+    private static final long CAPTURE_PERIOD = 2; // milliseconds
+
+    @Test
+    public void testPicturesAreConvertedAndPublishedInOrder() throws InterruptedException {
+        final SyntheticCamera camera = new SyntheticCamera(0);
+        final List<Picture> published = new CopyOnWriteArrayList<>();
+        final PictureStreamPipeline pipeline = new PictureStreamPipeline(camera, new Object(), newSettings(), FRAMES,
+            published::add);
+
+        for (int i = 0; i < 10; i++) {
+            pipeline.capture();
+            waitForPublished(pipeline, i + 1);
+        }
+        close(pipeline);
+
+        Assert.assertEquals(10, pipeline.getPublishedPictures());
+        Assert.assertEquals(0, pipeline.getDroppedPictures());
+        for (int i = 0; i < 10; i++) {
+            Picture picture = published.get(i);
+            Assert.assertEquals(i, picture.getTimestamp().getValue());
+            Assert.assertEquals(PictureFormat.RGB24, picture.getSettings().getFormat());
+            Assert.assertEquals(WIDTH * HEIGHT * 3, getLength(picture));
+        }
+    }
+
+    @Test
+    public void testPicturesAreDroppedWhenTheEncoderIsBehind() throws InterruptedException {
+        final CountDownLatch encoderBlocked = new CountDownLatch(1);
+        final SyntheticCamera camera = new SyntheticCamera(0) {
+            @Override
+            public Picture convertStreamPicture(Picture picture, CameraSettings settings, FrameBuffers buffers)
+                throws IOException {
+                try {
+                    encoderBlocked.await();
+                } catch (InterruptedException ex) {
+                    throw new IOException(ex);
+                }
+                return super.convertStreamPicture(picture, settings, buffers);
+            }
+        };
+        final PictureStreamPipeline pipeline = new PictureStreamPipeline(camera, new Object(), newSettings(), FRAMES,
+            picture -> {
+            });
+
+        // Only FRAMES pictures can be in the pipeline, the rest are not even taken
+        for (int i = 0; i < 10; i++) {
+            pipeline.capture();
+        }
+        Assert.assertEquals(FRAMES, camera.taken.get());
+        Assert.assertEquals(10 - FRAMES, pipeline.getDroppedPictures());
+
+        encoderBlocked.countDown();
+        waitForPublished(pipeline, FRAMES);
+        pipeline.capture();
+        close(pipeline);
+
+        Assert.assertEquals(FRAMES + 1, pipeline.getPublishedPictures());
+        Assert.assertEquals(10 - FRAMES, pipeline.getDroppedPictures());
+    }
+
+    @Test
+    public void testFailedCapturesReleaseTheFrame() throws InterruptedException {
+        final SyntheticCamera camera = new SyntheticCamera(0) {
+            @Override
+            public Picture takeStreamPicture(CameraSettings settings) throws IOException {
+                throw new IOException("The camera failed");
+            }
+        };
+        final PictureStreamPipeline pipeline = new PictureStreamPipeline(camera, new Object(), newSettings(), FRAMES,
+            picture -> {
+            });
+
+        for (int i = 0; i < 10; i++) {
+            pipeline.capture();
+        }
+        close(pipeline);
+
+        Assert.assertEquals(0, pipeline.getPublishedPictures());
+        Assert.assertEquals(0, pipeline.getDroppedPictures());
+    }
+
+    @Test
+    @Ignore("Manual test only")
+    public void testSoak() throws InterruptedException {
+        // The encoder is slower than the stream
+        final SyntheticCamera camera = new SyntheticCamera(5);
+        final AtomicLong lastTimestamp = new AtomicLong(-1);
+        final AtomicInteger outOfOrder = new AtomicInteger();
+        final PictureStreamPipeline pipeline = new PictureStreamPipeline(camera, new Object(), newSettings(), FRAMES,
+            picture -> {
+                if (picture.getTimestamp().getValue() <= lastTimestamp.getAndSet(picture.getTimestamp().getValue())) {
+                    outOfOrder.incrementAndGet();
+                }
+            });
+
+        final AtomicInteger captures = new AtomicInteger();
+        final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+        timer.scheduleAtFixedRate(() -> {
+            captures.incrementAndGet();
+            pipeline.capture();
+        }, 0, CAPTURE_PERIOD, TimeUnit.MILLISECONDS);
+        Thread.sleep(SOAK_DURATION);
+        timer.shutdown();
+        Assert.assertTrue(timer.awaitTermination(1, TimeUnit.SECONDS));
+        close(pipeline);
+
+        System.out.println("Picture stream soak of " + SOAK_DURATION + " ms: " + captures.get() + " captures, " +
+            pipeline.getPublishedPictures() + " published, " + pipeline.getDroppedPictures() + " dropped, " +
+            camera.frameBuffers.size() + " frame buffers");
+        Assert.assertEquals(captures.get(), pipeline.getPublishedPictures() + pipeline.getDroppedPictures());
+        Assert.assertTrue(pipeline.getPublishedPictures() > 0);
+        Assert.assertTrue(pipeline.getDroppedPictures() > 0);
+        Assert.assertEquals(0, outOfOrder.get());
+        Assert.assertTrue(camera.frameBuffers.size() <= FRAMES);
+        Assert.assertTrue(camera.maxConverting.get() <= 1);
+    }
+
+    private static void waitForPublished(PictureStreamPipeline pipeline, long count) throws InterruptedException {
+        final long end = System.currentTimeMillis() + 5000;
+        while (pipeline.getPublishedPictures() < count && System.currentTimeMillis() < end) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(count, pipeline.getPublishedPictures());
+    }
+
+    private static void close(PictureStreamPipeline pipeline) throws InterruptedException {
+        pipeline.close();
+        Assert.assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private static int getLength(Picture picture) {
+        try {
+            return picture.getContent().getValue().length;
+        } catch (MALException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private static CameraSettings newSettings() {
+        CameraSettings settings = new CameraSettings();
+        settings.setResolution(new PixelResolution(new UInteger(WIDTH), new UInteger(HEIGHT)));
+        settings.setFormat(PictureFormat.RGB24);
+        settings.setExposureTime(new Duration(0.01));
+        return settings;
+    }
+
+    /**
+     * A camera taking RAW pictures, timestamped with their sequence number,
+     * and converting them to RGB24 in the frame buffers.
+     */
+    private static class SyntheticCamera implements CameraAdapterInterface {
+
+        private final long conversionTime;
+        final AtomicInteger taken = new AtomicInteger();
+        final AtomicInteger converting = new AtomicInteger();
+        final AtomicInteger maxConverting = new AtomicInteger();
+        final Set<FrameBuffers> frameBuffers = Collections.synchronizedSet(Collections.newSetFromMap(
+            new IdentityHashMap<>()));
+
+        SyntheticCamera(long conversionTime) {
+            this.conversionTime = conversionTime;
+        }
+
+        @Override
+        public Picture takeStreamPicture(CameraSettings settings) throws IOException {
+            final int sequence = taken.getAndIncrement();
+            final byte[] raw = new byte[WIDTH * HEIGHT * 2];
+            for (int i = 0; i < raw.length; i++) {
+                raw[i] = (byte) (sequence + i);
+            }
+            CameraSettings rawSettings = new CameraSettings();
+            rawSettings.setResolution(settings.getResolution());
+            rawSettings.setFormat(PictureFormat.RAW);
+            return new Picture(new Time(sequence), rawSettings, new Blob(raw));
+        }
+
+        @Override
+        public Picture convertStreamPicture(Picture picture, CameraSettings settings, FrameBuffers buffers)
+            throws IOException {
+            maxConverting.accumulateAndGet(converting.incrementAndGet(), Math::max);
+            frameBuffers.add(buffers);
+            try {
+                final byte[] raw = picture.getContent().getValue();
+                final int[] pixels = buffers.getPixels(WIDTH * HEIGHT);
+                for (int i = 0; i < pixels.length; i++) {
+                    final int value = (raw[i * 2] & 0xFF) | ((raw[i * 2 + 1] & 0xFF) << 8);
+                    pixels[i] = (value >> 8) * 0x010101;
+                }
+                final byte[] rgb = new byte[pixels.length * 3];
+                for (int i = 0; i < pixels.length; i++) {
+                    rgb[i * 3] = (byte) (pixels[i] >> 16);
+                    rgb[i * 3 + 1] = (byte) (pixels[i] >> 8);
+                    rgb[i * 3 + 2] = (byte) pixels[i];
+                }
+                if (conversionTime > 0) {
+                    Thread.sleep(conversionTime);
+                }
+                return new Picture(picture.getTimestamp(), settings, new Blob(rgb));
+            } catch (MALException | InterruptedException ex) {
+                throw new IOException(ex);
+            } finally {
+                converting.decrementAndGet();
+            }
+        }
+
+        @Override
+        public Picture takePicture(CameraSettings settings) throws IOException {
+            return convertStreamPicture(takeStreamPicture(settings), settings, new FrameBuffers());
+        }
+
+        @Override
+        public Picture takeAutoExposedPicture(CameraSettings settings) throws IOException {
+            return takePicture(settings);
+        }
+
+        @Override
+        public Picture getPicturePreview() throws IOException {
+            return takePicture(newSettings());
+        }
+
+        @Override
+        public boolean isUnitAvailable() {
+            return true;
+        }
+
+        @Override
+        public PixelResolutionList getAvailableResolutions() {
+            PixelResolutionList resolutions = new PixelResolutionList();
+            resolutions.add(new PixelResolution(new UInteger(WIDTH), new UInteger(HEIGHT)));
+            return resolutions;
+        }
+
+        @Override
+        public PictureFormatList getAvailableFormats() {
+            PictureFormatList formats = new PictureFormatList();
+            formats.add(PictureFormat.RAW);
+            formats.add(PictureFormat.RGB24);
+            return formats;
+        }
+
+        @Override
+        public Duration getMinimumPeriod() {
+            return new Duration(0);
+        }
+
+        @Override
+        public String getExtraInfo() {
+            return "Synthetic camera";
+        }
+    }
+}
@@ -23,7 +23,6 @@ package esa.mo.nmf;
 import esa.mo.com.impl.provider.ArchivePersistenceObject;
 import esa.mo.com.impl.provider.ArchiveProviderServiceImpl;
 import esa.mo.helpertools.helpers.HelperAttributes;
-import esa.mo.helpertools.helpers.HelperTime;
 import esa.mo.mc.impl.interfaces.ActionInvocationListener;
 import esa.mo.mc.impl.interfaces.ParameterStatusListener;
 import esa.mo.mc.impl.provider.ParameterProviderServiceImpl;
@@ -33,6 +32,9 @@ import esa.mo.nmf.annotations.Aggregation;
 import esa.mo.nmf.annotations.Aggregations;
 import esa.mo.nmf.annotations.Parameter;
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -41,8 +43,6 @@ import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.ccsds.moims.mo.com.archive.structures.ArchiveQuery;
-import org.ccsds.moims.mo.com.archive.structures.PaginationFilter;
 import org.ccsds.moims.mo.mal.MALException;
 import org.ccsds.moims.mo.mal.MALInteractionException;
 import org.ccsds.moims.mo.mal.provider.MALInteraction;
@@ -80,9 +80,10 @@ import org.ccsds.moims.mo.mc.structures.*;
 public abstract class MonitorAndControlNMFAdapter implements ActionInvocationListener, ParameterStatusListener {
 
     private static final Logger LOGGER = Logger.getLogger(MonitorAndControlNMFAdapter.class.getName());
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
     private final HashMap<Long, Field> parameterMapping = new HashMap<>();
-    private final HashMap<Long, Method> actionMapping = new HashMap<>();
-    private final HashMap<String, Long> actionNameMapping = new HashMap<>();
+    private final HashMap<Long, ParameterAccessor> parameterAccessors = new HashMap<>();
+    private final HashMap<String, ActionAccessor> actionAccessors = new HashMap<>();
 
     private ArchiveProviderServiceImpl archiveService;
     protected ParameterProviderServiceImpl parameterService;
@@ -194,6 +195,7 @@ public abstract class MonitorAndControlNMFAdapter implements ActionInvocationLis
             // save mapping (id -> Field) in map
             for (int i = 0; i < idList.size(); i++) {
                 parameterMapping.put(idList.get(i), parameters.get(i));
+                parameterAccessors.put(idList.get(i), bindParameter(parameters.get(i)));
                 for (String aggregation : parameters.get(i).getAnnotation(Parameter.class).aggregations()) {
                     if (!aggregationMapping.containsKey(aggregation)) {
                         aggregationMapping.put(aggregation, new LongList());
@@ -270,51 +272,76 @@ public abstract class MonitorAndControlNMFAdapter implements ActionInvocationLis
      */
     public void restoreParameterValuesFromArchive() {
         if (archiveService != null && parameterService != null) {
-            for (Map.Entry<Long, Field> entry : parameterMapping.entrySet()) {
-                Field field = entry.getValue();
-                String parameterName = null;
+            IdentifierList names = new IdentifierList();
+            List<Field> fields = new ArrayList<>();
+            for (Field field : parameterMapping.values()) {
                 Parameter annotation = field.getAnnotation(Parameter.class);
-                if (annotation != null) {
-                    if (!annotation.restored()) {
-                        continue;
+                if (annotation == null || !annotation.restored()) {
+                    continue;
+                }
+                field.setAccessible(true);
+                names.add(new Identifier(annotation.name().equals("") ? field.getName() : annotation.name()));
+                fields.add(field);
+            }
+
+            if (names.isEmpty()) {
+                return;
+            }
+
+            try {
+                // Resolve all the definitions, then fetch the newest value of each of them in one archive query
+                HashMap<Long, Field> fieldsByDefinition = new HashMap<>();
+                LongList definitionIds = new LongList(names.size());
+                try {
+                    ObjectInstancePairList ids = parameterService.listDefinition(names, null);
+                    for (int i = 0; i < ids.size(); i++) {
+                        fieldsByDefinition.put(ids.get(i).getObjDefInstanceId(), fields.get(i));
+                        definitionIds.add(ids.get(i).getObjDefInstanceId());
                     }
-                    field.setAccessible(true);
-                    if (annotation.name().equals("")) {
-                        parameterName = field.getName();
-                    } else {
-                        parameterName = annotation.name();
+                } catch (MALInteractionException e) {
+                    // One unknown name fails the whole list, resolve them one by one to restore the others
+                    for (int i = 0; i < names.size(); i++) {
+                        IdentifierList name = new IdentifierList(1);
+                        name.add(names.get(i));
+                        try {
+                            Long id = parameterService.listDefinition(name, null).get(0).getObjDefInstanceId();
+                            fieldsByDefinition.put(id, fields.get(i));
+                            definitionIds.add(id);
+                        } catch (MALInteractionException ex) {
+                            LOGGER.log(Level.SEVERE, "Error during restoring parameter value!", ex);
+                        }
                     }
                 }
 
-                if (parameterName != null) {
-                    IdentifierList names = new IdentifierList();
-                    names.add(new Identifier(parameterName));
+                List<ArchivePersistenceObject> result = archiveService.getArchiveManager()
+                    .getLatestPersistenceObjects(ParameterHelper.PARAMETERVALUEINSTANCE_OBJECT_TYPE, archiveService
+                        .getConnection().getConnectionDetails().getDomain(), definitionIds);
+                if (result == null) {
+                    return;
+                }
+
+                for (ArchivePersistenceObject newestParameter : result) {
+                    Field field = fieldsByDefinition.get(newestParameter.getArchiveDetails().getDetails().getRelated());
+                    if (field == null) {
+                        continue;
+                    }
+                    Attribute rawValue = ((ParameterValue) newestParameter.getObject()).getRawValue();
+                    Object value;
+                    if (field.getType() == double.class) {
+                        value = HelperAttributes.attribute2double(rawValue);
+                    } else if (field.getType() == String.class) {
+                        value = HelperAttributes.attribute2string(rawValue);
+                    } else {
+                        value = HelperAttributes.attribute2JavaType(rawValue);
+                    }
                     try {
-                        ObjectInstancePairList ids = parameterService.listDefinition(names, null);
-                        ObjectInstancePair id = ids.get(0);
-                        ArchiveQuery query = new ArchiveQuery(archiveService.getConnection().getConnectionDetails()
-                            .getDomain(), null, null, id.getObjDefInstanceId(), null, null, HelperTime.getTimestamp(),
-                            false, null);
-                        PaginationFilter filter = new PaginationFilter(new UInteger(1), new UInteger(0));
-                        List<ArchivePersistenceObject> result = archiveService.getArchiveManager().query(
-                            ParameterHelper.PARAMETERVALUEINSTANCE_OBJECT_TYPE, query, filter);
-                        if (!result.isEmpty()) {
-                            ArchivePersistenceObject newestParameter = result.get(0); // assume the first one is the newest because of the query sort order
-                            Attribute rawValue = ((ParameterValue) newestParameter.getObject()).getRawValue();
-                            Object value;
-                            if (field.getType() == double.class) {
-                                value = HelperAttributes.attribute2double(rawValue);
-                            } else if (field.getType() == String.class) {
-                                value = HelperAttributes.attribute2string(rawValue);
-                            } else {
-                                value = HelperAttributes.attribute2JavaType(rawValue);
-                            }
-                            field.set(this, value);
-                        }
-                    } catch (MALException | MALInteractionException | IllegalAccessException e) {
+                        field.set(this, value);
+                    } catch (IllegalArgumentException | IllegalAccessException e) {
                         LOGGER.log(Level.SEVERE, "Error during restoring parameter value!", e);
                     }
                 }
+            } catch (MALException | MALInteractionException e) {
+                LOGGER.log(Level.SEVERE, "Error during restoring parameter values!", e);
             }
         }
     }
@@ -426,18 +453,87 @@ public abstract class MonitorAndControlNMFAdapter implements ActionInvocationLis
         if (actionNames.size() > 0) {
             LongList idList = registration.registerActions(actionNames, actionDefs);
 
-            // save mapping (id -> Field) in map
+            // save mapping (name -> Method) in map
             for (int i = 0; i < idList.size(); i++) {
-                actionMapping.put(idList.get(i), actionFunctions.get(i));
-                actionNameMapping.put(actionNames.get(i).getValue(), idList.get(i));
+                actionAccessors.put(actionNames.get(i).getValue(), bindAction(actionFunctions.get(i)));
             }
         }
     }
 
+    /**
+     * Binds the accessors of a parameter field, and of its onGet function, to
+     * method handles. The field is accessed through reflection if it cannot
+     * be bound.
+     *
+     * @param field the annotated field
+     * @return the accessors
+     */
+    private ParameterAccessor bindParameter(final Field field) {
+        final Parameter annotation = field.getAnnotation(Parameter.class);
+        final boolean isStatic = Modifier.isStatic(field.getModifiers());
+        final boolean readOnly = annotation.readOnly() || Modifier.isFinal(field.getModifiers());
+        MethodHandle getter = null;
+        MethodHandle setter = null;
+        MethodHandle onGet = null;
+        boolean onGetMissing = false;
+
+        try {
+            getter = LOOKUP.unreflectGetter(field);
+            getter = (isStatic ? getter : getter.bindTo(this)).asType(MethodType.methodType(Object.class));
+
+            if (!readOnly) {
+                setter = LOOKUP.unreflectSetter(field);
+                setter = (isStatic ? setter : setter.bindTo(this)).asType(MethodType.methodType(void.class,
+                    Object.class));
+            }
+        } catch (IllegalAccessException ex) {
+            LOGGER.log(Level.FINE, "Parameter {0} is accessed through reflection", field.getName());
+        }
+
+        final String onGetFunction = annotation.onGetFunction();
+
+        if (!onGetFunction.equals("")) {
+            try {
+                Method onGetMethod = this.getClass().getMethod(onGetFunction);
+                onGetMethod.setAccessible(true);
+                onGet = LOOKUP.unreflect(onGetMethod).bindTo(this).asType(MethodType.methodType(void.class));
+            } catch (NoSuchMethodException | SecurityException | IllegalAccessException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+                onGetMissing = true;
+            }
+        }
+
+        return new ParameterAccessor(field, readOnly, getter, setter, onGet, onGetMissing);
+    }
+
+    /**
+     * Binds an action method to a method handle taking the arguments as an
+     * array. The method is invoked through reflection if it cannot be bound.
+     *
+     * @param method the annotated method
+     * @return the accessor
+     */
+    private ActionAccessor bindAction(final Method method) {
+        MethodHandle handle = null;
+
+        try {
+            handle = LOOKUP.unreflect(method).bindTo(this).asSpreader(Object[].class, method.getParameterCount())
+                .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException ex) {
+            LOGGER.log(Level.FINE, "Action {0} is invoked through reflection", method.getName());
+        }
+
+        return new ActionAccessor(method, handle);
+    }
+
     @Override
     public UInteger actionArrived(Identifier identifier, AttributeValueList attributeValues, Long actionInstanceObjId,
         boolean reportProgress, MALInteraction interaction) {
-        Method actionMethod = actionMapping.get(actionNameMapping.get(identifier.getValue()));
+        ActionAccessor action = actionAccessors.get(identifier.getValue());
+        if (action == null) {
+            LOGGER.log(Level.SEVERE, "no action with name {0} exists!", identifier);
+            return new UInteger(0);
+        }
         try {
             // add default arguments
             Object[] arguments = new Object[attributeValues.size() + 3];
@@ -448,7 +544,7 @@ public abstract class MonitorAndControlNMFAdapter implements ActionInvocationLis
             // add custom arguments
             int i = 3;
             for (AttributeValue attribute : attributeValues) {
-                Class type = actionMethod.getParameters()[i].getType();
+                Class type = action.types[i];
                 if (type == double.class) {
                     arguments[i] = HelperAttributes.attribute2double(attribute.getValue());
                 } else if (type == String.class) {
@@ -459,7 +555,8 @@ public abstract class MonitorAndControlNMFAdapter implements ActionInvocationLis
                 i++;
             }
 
-            Object result = actionMethod.invoke(this, arguments);
+            Object result = (action.handle != null) ? (Object) action.handle.invokeExact(arguments) : action.method
+                .invoke(this, arguments);
             if (result == null) {
                 return null;
             } else {
@@ -467,11 +564,15 @@ public abstract class MonitorAndControlNMFAdapter implements ActionInvocationLis
             }
         } catch (IllegalAccessException ex) {
             LOGGER.log(Level.SEVERE, "Cannot access Method! {0}", ex.getMessage());
-        } catch (IllegalArgumentException ex) {
+        } catch (IllegalArgumentException | ClassCastException ex) {
             LOGGER.log(Level.SEVERE, "Arguments for action are incorrect! {0}", ex.getMessage());
         } catch (InvocationTargetException ex) {
             LOGGER.log(Level.SEVERE, "The action Method threw an invocation exception! {0}", (ex.getMessage() != null ?
                 ex.getMessage() : ex.getTargetException().getMessage()));
+        } catch (Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            LOGGER.log(Level.SEVERE, "The action Method threw an exception! {0}", ex.getMessage());
         }
         return new UInteger(0);
     }
@@ -479,37 +580,34 @@ public abstract class MonitorAndControlNMFAdapter implements ActionInvocationLis
     @Override
     public Attribute onGetValue(Long parameterID) throws IOException {
 
-        Field field = parameterMapping.get(parameterID);
-        if (field == null) {
+        ParameterAccessor accessor = parameterAccessors.get(parameterID);
+        if (accessor == null) {
             LOGGER.log(Level.SEVERE, "no parameter with ID {0} exists!", parameterID);
             return null;
         }
-        Parameter param = field.getAnnotation(Parameter.class);
-        if (param == null) {
-            LOGGER.log(Level.SEVERE, "Parameter with ID {0} and name {1} is not Annotated!", new Object[]{parameterID,
-                                                                                                          field
-                                                                                                              .getName()});
-            return null;
-        } else {
-            try {
-                String onGet = param.onGetFunction();
-                if (!onGet.equals("")) {
-                    Method onGetMethod = this.getClass().getMethod(onGet);
-                    onGetMethod.setAccessible(true);
-                    onGetMethod.invoke(this);
-                }
-                return (Attribute) HelperAttributes.javaType2Attribute(field.get(this));
-            } catch (IllegalArgumentException | IllegalAccessException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-                throw new IOException("Unable to get Parameter Mapping");
-            } catch (NoSuchMethodException | SecurityException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-                throw new IOException("Unable to call onGet Method");
-            } catch (InvocationTargetException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
+        if (accessor.onGetMissing) {
+            throw new IOException("Unable to call onGet Method");
+        }
+        try {
+            if (accessor.onGet != null) {
+                accessor.onGet.invokeExact();
             }
+        } catch (Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+            return null;
+        }
+        try {
+            Object value = (accessor.getter != null) ? (Object) accessor.getter.invokeExact() : accessor.field.get(
+                this);
+            return (Attribute) HelperAttributes.javaType2Attribute(value);
+        } catch (Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+            throw new IOException("Unable to get Parameter Mapping");
         }
-        return null;
     }
 
     @Override
@@ -523,25 +621,29 @@ public abstract class MonitorAndControlNMFAdapter implements ActionInvocationLis
 
     public Boolean onSetValue(ParameterRawValue newRawValue) {
         Object value;
-        if (isReadOnly(newRawValue.getParamInstId())) {
-            return false;
-        }
-        Field param = parameterMapping.get(newRawValue.getParamInstId());
+        ParameterAccessor accessor = parameterAccessors.get(newRawValue.getParamInstId());
 
-        if (param == null) {
+        if (accessor == null || accessor.readOnly) {
             return false;
         }
 
-        if (param.getType() == double.class) {
+        Class<?> type = accessor.field.getType();
+        if (type == double.class) {
             value = HelperAttributes.attribute2double(newRawValue.getRawValue());
-        } else if (param.getType() == String.class) {
+        } else if (type == String.class) {
             value = HelperAttributes.attribute2string(newRawValue.getRawValue());
         } else {
             value = HelperAttributes.attribute2JavaType(newRawValue.getRawValue());
         }
         try {
-            param.set(this, value);
-        } catch (IllegalArgumentException | IllegalAccessException ex) {
+            if (accessor.setter != null) {
+                accessor.setter.invokeExact(value);
+            } else {
+                accessor.field.set(this, value);
+            }
+        } catch (Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
             LOGGER.log(Level.SEVERE, null, ex);
             return false;
         }
@@ -550,12 +652,8 @@ public abstract class MonitorAndControlNMFAdapter implements ActionInvocationLis
 
     @Override
     public boolean isReadOnly(Long parameterID) {
-        Field field = parameterMapping.get(parameterID);
-        if (field == null) {
-            return false;
-        }
-        return field.getAnnotation(Parameter.class).readOnly() || (field.getModifiers() & Modifier.FINAL) ==
-            Modifier.FINAL;
+        ParameterAccessor accessor = parameterAccessors.get(parameterID);
+        return accessor != null && accessor.readOnly;
     }
 
     @Override
@@ -594,4 +692,46 @@ public abstract class MonitorAndControlNMFAdapter implements ActionInvocationLis
         }
     }
 
+    /**
+     * The accessors of an annotated parameter field, bound once when the
+     * parameter is registered. The getter and setter are null if the field
+     * is accessed through reflection.
+     */
+    private static final class ParameterAccessor {
+
+        private final Field field;
+        private final boolean readOnly;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final MethodHandle onGet;
+        private final boolean onGetMissing;
+
+        private ParameterAccessor(final Field field, final boolean readOnly, final MethodHandle getter,
+            final MethodHandle setter, final MethodHandle onGet, final boolean onGetMissing) {
+            this.field = field;
+            this.readOnly = readOnly;
+            this.getter = getter;
+            this.setter = setter;
+            this.onGet = onGet;
+            this.onGetMissing = onGetMissing;
+        }
+    }
+
+    /**
+     * An annotated action method, bound once when the action is registered.
+     * The handle is null if the method is invoked through reflection.
+     */
+    private static final class ActionAccessor {
+
+        private final Method method;
+        private final Class<?>[] types;
+        private final MethodHandle handle;
+
+        private ActionAccessor(final Method method, final MethodHandle handle) {
+            this.method = method;
+            this.types = method.getParameterTypes();
+            this.handle = handle;
+        }
+    }
+
 }
@@ -196,6 +196,15 @@ public abstract class NMFProvider implements ReconfigurableProvider, NMFInterfac
         return this.getMCServices().getParameterService().pushMultipleParameterValues(parameters, storeIt);
     }
 
+    public Boolean queueParameterValues(final ArrayList<ParameterInstance> parameters, final boolean storeIt)
+        throws NMFException {
+        if (this.getMCServices() == null) {
+            throw new NMFException(MC_SERVICES_NOT_INITIALIZED);
+        }
+
+        return this.getMCServices().getParameterService().queueParameterValues(parameters, storeIt);
+    }
+
     public final void startMCServices(MonitorAndControlNMFAdapter mcAdapter) throws MALException {
         if (mcAdapter != null) {
             mcServices = new MCServicesProviderNMF();
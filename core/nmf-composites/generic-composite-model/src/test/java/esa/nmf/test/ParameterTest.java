@@ -100,6 +100,37 @@ public class ParameterTest {
 
     }
 
+    private static class readOnlyAdapterTester extends MonitorAndControlNMFAdapter {
+
+        @Parameter(name = "final Parameter")
+        public final long finalParameter = 7;
+
+        @Parameter(name = "read only Parameter", readOnly = true)
+        public long readOnlyParameter = 8;
+
+        @Parameter(name = "long Parameter")
+        public long longParameter = 9;
+
+    }
+
+    private static class sequentialRegistrationTester extends MCRegistration {
+
+        public sequentialRegistrationTester() {
+            super(null, null, null, null, null);
+        }
+
+        @Override
+        public LongList registerParameters(final IdentifierList names,
+            final ParameterDefinitionDetailsList definitions) {
+            LongList ids = new LongList(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                ids.add((long) i);
+            }
+            return ids;
+        }
+
+    }
+
     @Test
     public void test0() throws IOException {
         automationAdapterTester test = new automationAdapterTester();
@@ -129,4 +160,24 @@ public class ParameterTest {
         org.junit.Assert.assertTrue("'" + v5 + "' != '" + "new" + "'", v5.equals("new"));
 
     }
+
+    @Test
+    public void testReadOnly() throws IOException {
+        readOnlyAdapterTester test = new readOnlyAdapterTester();
+        test.initialRegistrations(new sequentialRegistrationTester());
+
+        for (long id = 0; id < 3; id++) {
+            Object before = HelperAttributes.attribute2JavaType(test.onGetValue(id));
+            boolean readOnly = test.isReadOnly(id);
+            boolean set = test.onSetValue(new ParameterRawValue(id, (Attribute) HelperAttributes.javaType2Attribute(
+                42L)));
+            Object after = HelperAttributes.attribute2JavaType(test.onGetValue(id));
+
+            org.junit.Assert.assertEquals(readOnly, !set);
+            org.junit.Assert.assertEquals(readOnly ? before : 42L, after);
+        }
+        org.junit.Assert.assertFalse(test.onSetValue(new ParameterRawValue(3L, (Attribute) HelperAttributes
+            .javaType2Attribute(42L))));
+        org.junit.Assert.assertNull(test.onGetValue(3L));
+    }
 }
@@ -25,8 +25,15 @@ import esa.mo.helpertools.misc.Const;
 import esa.mo.nmf.NMFConsumer;
 import java.net.MalformedURLException;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.ccsds.moims.mo.com.COMHelper;
 import org.ccsds.moims.mo.com.archive.ArchiveHelper;
+import org.ccsds.moims.mo.common.directory.body.PublishProviderResponse;
 import org.ccsds.moims.mo.common.directory.structures.AddressDetails;
 import org.ccsds.moims.mo.common.directory.structures.ProviderSummary;
 import org.ccsds.moims.mo.common.directory.structures.ProviderSummaryList;
@@ -48,6 +55,12 @@ import org.ccsds.moims.mo.mc.action.ActionHelper;
  */
 public class DirectoryProxyServiceImpl extends DirectoryProviderServiceImpl {
 
+    private static final Logger LOGGER = Logger.getLogger(DirectoryProxyServiceImpl.class.getName());
+
+    // The providers synchronized from the Central Directory service, by name
+    private final Map<String, Long> syncedIds = new HashMap<>();
+    private final Map<String, String> syncedSummaries = new HashMap<>();
+
     /**
      * Synchronizes the current list of providers existing in the remote Central
      * Directory service with the local one. Returns the list of remote
@@ -65,27 +78,92 @@ public class DirectoryProxyServiceImpl extends DirectoryProviderServiceImpl {
         final URI routedURI) throws MALException, MalformedURLException, MALInteractionException {
         ProviderSummaryList providers = NMFConsumer.retrieveProvidersFromDirectory(true, centralDirectoryServiceURI);
         addProxyPrefix(providers, routedURI.getValue());
+        this.syncLocalDirectoryService(providers);
 
-        // Clean the current list of provider that are available
-        // on the Local Directory service
-        this.withdrawAllProviders();
+        return providers;
+    }
 
-        for (ProviderSummary provider : providers) {
-            PublishDetails pub = new PublishDetails();
-            pub.setDomain(provider.getProviderKey().getDomain());
-            pub.setNetwork(new Identifier("not_available"));
-            pub.setProviderDetails(provider.getProviderDetails());
-            pub.setProviderId(provider.getProviderId());
-            pub.setServiceXML(null);
-            pub.setSessionType(SessionType.LIVE);
-            pub.setSourceSessionName(null);
-            this.publishProvider(pub, null);
+    /**
+     * Synchronizes a list of providers with the local Directory service. Only
+     * the providers that changed since the last synchronization are withdrawn,
+     * added or updated.
+     *
+     * @param providers The providers, with the proxy prefix already added
+     * @throws MALException
+     * @throws MALInteractionException
+     */
+    public void syncLocalDirectoryService(final ProviderSummaryList providers) throws MALException,
+        MALInteractionException {
+        synchronized (MUTEX) {
+            // Forget the synchronized providers that were withdrawn in the meantime
+            syncedIds.values().retainAll(providersAvailable.keySet());
+            syncedSummaries.keySet().retainAll(syncedIds.keySet());
+
+            // Withdraw the providers that were not synchronized from the Central Directory service
+            final Set<Long> synced = new HashSet<>(syncedIds.values());
+
+            for (Map.Entry<Long, PublishDetails> entry : new HashMap<>(providersAvailable).entrySet()) {
+                if (!synced.contains(entry.getKey()) && !Const.NANOSAT_MO_GROUND_PROXY_NAME.equals(entry.getValue()
+                    .getProviderId().getValue())) {
+                    this.withdrawProvider(entry.getKey(), null);
+                }
+            }
+
+            final ProviderSummaryDiff diff = ProviderSummaryDiff.compare(syncedSummaries, providers);
+
+            for (String name : diff.getRemoved()) {
+                this.withdrawProvider(syncedIds.remove(name), null);
+                syncedSummaries.remove(name);
+            }
+
+            // The provider with the same name is withdrawn when publishing the updated one
+            for (ProviderSummary provider : diff.getUpdated()) {
+                this.publish(provider);
+            }
+
+            for (ProviderSummary provider : diff.getAdded()) {
+                this.publish(provider);
+            }
+
+            if (!diff.isEmpty()) {
+                LOGGER.log(Level.INFO, "Directory synchronized: {0} added, {1} updated and {2} removed providers.",
+                    new Object[]{diff.getAdded().size(), diff.getUpdated().size(), diff.getRemoved().size()});
+            }
+
+            // Make the Ground MO Proxy (itself) also available in the list of providers
+            if (!isPublished(Const.NANOSAT_MO_GROUND_PROXY_NAME)) {
+                this.loadURIs(Const.NANOSAT_MO_GROUND_PROXY_NAME);
+            }
         }
+    }
 
-        // Make the Ground MO Proxy (itself) also available in the list of providers
-        this.loadURIs(Const.NANOSAT_MO_GROUND_PROXY_NAME);
+    private void publish(final ProviderSummary provider) throws MALException, MALInteractionException {
+        // The summary is taken before the provider details can be rerouted
+        final String summary = ProviderSummaryDiff.summarize(provider);
 
-        return providers;
+        PublishDetails pub = new PublishDetails();
+        pub.setDomain(provider.getProviderKey().getDomain());
+        pub.setNetwork(new Identifier("not_available"));
+        pub.setProviderDetails(provider.getProviderDetails());
+        pub.setProviderId(provider.getProviderId());
+        pub.setServiceXML(null);
+        pub.setSessionType(SessionType.LIVE);
+        pub.setSourceSessionName(null);
+        final PublishProviderResponse response = this.publishProvider(pub, null);
+
+        final String name = provider.getProviderId().getValue();
+        syncedIds.put(name, response.getBodyElement0());
+        syncedSummaries.put(name, summary);
+    }
+
+    private boolean isPublished(final String providerName) {
+        for (PublishDetails provider : providersAvailable.values()) {
+            if (providerName.equals(provider.getProviderId().getValue())) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
     /**
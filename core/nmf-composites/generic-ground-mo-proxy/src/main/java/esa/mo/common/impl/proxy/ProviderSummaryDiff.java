@@ -0,0 +1,137 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.common.impl.proxy;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.ccsds.moims.mo.common.directory.structures.AddressDetails;
+import org.ccsds.moims.mo.common.directory.structures.ProviderSummary;
+import org.ccsds.moims.mo.common.directory.structures.ProviderSummaryList;
+import org.ccsds.moims.mo.common.directory.structures.ServiceCapability;
+import org.ccsds.moims.mo.common.structures.ServiceKey;
+import org.ccsds.moims.mo.mal.structures.URI;
+
+/**
+ * The differences between the providers of the Central Directory service and
+ * the ones that were synchronized with the local Directory service. The
+ * providers are identified by their names, and compared with a summary of
+ * their domain, service keys and addresses.
+ */
+final class ProviderSummaryDiff {
+
+    private final List<ProviderSummary> added = new ArrayList<>();
+    private final List<ProviderSummary> updated = new ArrayList<>();
+    private final List<String> removed = new ArrayList<>();
+
+    private ProviderSummaryDiff() {
+    }
+
+    /**
+     * Compares the providers of the Central Directory service with the
+     * synchronized ones.
+     *
+     * @param synced The summaries of the synchronized providers, by name.
+     * @param providers The providers of the Central Directory service.
+     * @return The differences.
+     */
+    static ProviderSummaryDiff compare(final Map<String, String> synced, final ProviderSummaryList providers) {
+        final ProviderSummaryDiff diff = new ProviderSummaryDiff();
+        final Set<String> names = new HashSet<>();
+
+        for (ProviderSummary provider : providers) {
+            final String name = provider.getProviderId().getValue();
+
+            if (!names.add(name)) {
+                continue; // Same behaviour as publishProvider: one provider per name
+            }
+
+            final String summary = synced.get(name);
+
+            if (summary == null) {
+                diff.added.add(provider);
+            } else if (!summary.equals(summarize(provider))) {
+                diff.updated.add(provider);
+            }
+        }
+
+        for (String name : synced.keySet()) {
+            if (!names.contains(name)) {
+                diff.removed.add(name);
+            }
+        }
+
+        return diff;
+    }
+
+    /**
+     * Summarizes the domain, service keys and addresses of a provider.
+     *
+     * @param provider The provider.
+     * @return The summary.
+     */
+    static String summarize(final ProviderSummary provider) {
+        final StringBuilder summary = new StringBuilder(256);
+        summary.append(provider.getProviderKey().getDomain());
+
+        for (ServiceCapability capability : provider.getProviderDetails().getServiceCapabilities()) {
+            final ServiceKey key = capability.getServiceKey();
+            summary.append('|').append(key.getKeyArea()).append('.').append(key.getKeyService()).append('.').append(
+                key.getKeyAreaVersion()).append(capability.getSupportedCapabilitySets());
+
+            for (AddressDetails address : capability.getServiceAddresses()) {
+                summary.append(',').append(value(address.getServiceURI())).append(',').append(value(address
+                    .getBrokerURI()));
+            }
+        }
+
+        if (provider.getProviderDetails().getProviderAddresses() != null) {
+            for (AddressDetails address : provider.getProviderDetails().getProviderAddresses()) {
+                summary.append(';').append(value(address.getServiceURI())).append(',').append(value(address
+                    .getBrokerURI()));
+            }
+        }
+
+        return summary.toString();
+    }
+
+    private static String value(final URI uri) {
+        return (uri == null) ? null : uri.getValue();
+    }
+
+    List<ProviderSummary> getAdded() {
+        return added;
+    }
+
+    List<ProviderSummary> getUpdated() {
+        return updated;
+    }
+
+    List<String> getRemoved() {
+        return removed;
+    }
+
+    boolean isEmpty() {
+        return added.isEmpty() && updated.isEmpty() && removed.isEmpty();
+    }
+}
@@ -0,0 +1,154 @@
+/* ----------------------------------------------------------------------------
+ * Copyright (C) 2021      European Space Agency
+ *                         European Space Operations Centre
+ *                         Darmstadt
+ *                         Germany
+ * ----------------------------------------------------------------------------
+ * System                : ESA NanoSat MO Framework
+ * ----------------------------------------------------------------------------
+ * Licensed under European Space Agency Public License (ESA-PL) Weak Copyleft – v2.4
+ * You may not use this file except in compliance with the License.
+ *
+ * Except as expressly set forth in this License, the Software is provided to
+ * You on an "as is" basis and without warranties of any kind, including without
+ * limitation merchantability, fitness for a particular purpose, absence of
+ * defects or errors, accuracy or non-infringement of intellectual property rights.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ----------------------------------------------------------------------------
+ */
+package esa.mo.common.impl.proxy;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.ccsds.moims.mo.com.structures.ObjectKey;
+import org.ccsds.moims.mo.common.directory.structures.AddressDetails;
+import org.ccsds.moims.mo.common.directory.structures.AddressDetailsList;
+import org.ccsds.moims.mo.common.directory.structures.ProviderDetails;
+import org.ccsds.moims.mo.common.directory.structures.ProviderSummary;
+import org.ccsds.moims.mo.common.directory.structures.ProviderSummaryList;
+import org.ccsds.moims.mo.common.directory.structures.ServiceCapability;
+import org.ccsds.moims.mo.common.directory.structures.ServiceCapabilityList;
+import org.ccsds.moims.mo.common.structures.ServiceKey;
+import org.ccsds.moims.mo.mal.structures.Identifier;
+import org.ccsds.moims.mo.mal.structures.IdentifierList;
+import org.ccsds.moims.mo.mal.structures.UOctet;
+import org.ccsds.moims.mo.mal.structures.URI;
+import org.ccsds.moims.mo.mal.structures.UShort;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests the incremental synchronization against a stand-in Central Directory
+ * service with a few hundred providers.
+ */
+public class ProviderSummaryDiffTest {
+
+    private static final int PROVIDERS = 500;
+    private static final String PROXY_URI = "maltcp://proxy:1024/nanosat-mo-proxy";
+
+    @Test
+    public void testFirstSyncAddsAllProviders() {
+        ProviderSummaryDiff diff = ProviderSummaryDiff.compare(new HashMap<>(), central(PROVIDERS));
+
+        assertEquals(PROVIDERS, diff.getAdded().size());
+        assertTrue(diff.getUpdated().isEmpty());
+        assertTrue(diff.getRemoved().isEmpty());
+    }
+
+    @Test
+    public void testUnchangedDirectoryIsEmptyDiff() {
+        Map<String, String> synced = sync(central(PROVIDERS));
+
+        assertTrue(ProviderSummaryDiff.compare(synced, central(PROVIDERS)).isEmpty());
+    }
+
+    @Test
+    public void testSingleChanges() {
+        Map<String, String> synced = sync(central(PROVIDERS));
+
+        // One provider added
+        ProviderSummaryList providers = central(PROVIDERS + 1);
+        ProviderSummaryDiff diff = ProviderSummaryDiff.compare(synced, providers);
+        assertEquals(1, diff.getAdded().size());
+        assertEquals("provider" + PROVIDERS, diff.getAdded().get(0).getProviderId().getValue());
+        assertTrue(diff.getUpdated().isEmpty());
+        assertTrue(diff.getRemoved().isEmpty());
+
+        // One provider moved to another address
+        providers = central(PROVIDERS);
+        providers.get(42).getProviderDetails().getServiceCapabilities().get(0).getServiceAddresses().get(0)
+            .setServiceURI(new URI("maltcp://moved:1024/provider42"));
+        diff = ProviderSummaryDiff.compare(synced, providers);
+        assertTrue(diff.getAdded().isEmpty());
+        assertEquals(1, diff.getUpdated().size());
+        assertEquals("provider42", diff.getUpdated().get(0).getProviderId().getValue());
+        assertTrue(diff.getRemoved().isEmpty());
+
+        // One provider removed
+        providers = central(PROVIDERS);
+        providers.remove(7);
+        diff = ProviderSummaryDiff.compare(synced, providers);
+        assertTrue(diff.getAdded().isEmpty());
+        assertTrue(diff.getUpdated().isEmpty());
+        assertEquals(1, diff.getRemoved().size());
+        assertEquals("provider7", diff.getRemoved().get(0));
+    }
+
+    @Test
+    public void testProxyPrefixIsStable() {
+        ProviderSummaryList providers = central(PROVIDERS);
+        DirectoryProxyServiceImpl.addProxyPrefix(providers, PROXY_URI);
+        Map<String, String> synced = sync(providers);
+
+        providers = central(PROVIDERS);
+        DirectoryProxyServiceImpl.addProxyPrefix(providers, PROXY_URI);
+        assertTrue(ProviderSummaryDiff.compare(synced, providers).isEmpty());
+    }
+
+    private static Map<String, String> sync(final ProviderSummaryList providers) {
+        Map<String, String> synced = new HashMap<>();
+
+        for (ProviderSummary provider : providers) {
+            synced.put(provider.getProviderId().getValue(), ProviderSummaryDiff.summarize(provider));
+        }
+
+        return synced;
+    }
+
+    private static ProviderSummaryList central(final int size) {
+        ProviderSummaryList providers = new ProviderSummaryList();
+
+        for (int i = 0; i < size; i++) {
+            AddressDetails address = new AddressDetails();
+            address.setServiceURI(new URI("maltcp://host" + (i % 16) + ":1024/provider" + i));
+            address.setBrokerURI(new URI("maltcp://host" + (i % 16) + ":1025/provider" + i + "-Broker"));
+            AddressDetailsList addresses = new AddressDetailsList();
+            addresses.add(address);
+
+            ServiceCapability capability = new ServiceCapability();
+            capability.setServiceKey(new ServiceKey(new UShort(4), new UShort(1), new UOctet((short) 1)));
+            capability.setServiceAddresses(addresses);
+            ServiceCapabilityList capabilities = new ServiceCapabilityList();
+            capabilities.add(capability);
+
+            ProviderDetails details = new ProviderDetails();
+            details.setServiceCapabilities(capabilities);
+            details.setProviderAddresses(new AddressDetailsList());
+
+            IdentifierList domain = new IdentifierList();
+            domain.add(new Identifier("esa"));
+            domain.add(new Identifier("mission"));
+
+            ProviderSummary provider = new ProviderSummary();
+            provider.setProviderKey(new ObjectKey(domain, (long) i));
+            provider.setProviderId(new Identifier("provider" + i));
+            provider.setProviderDetails(details);
+            providers.add(provider);
+        }
+
+        return providers;
+    }
+}
@@ -63,8 +63,6 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.zip.CRC32;
-import java.util.zip.Checksum;
 import opssat.simulator.GPS;
 import opssat.simulator.Orbit;
 import opssat.simulator.celestia.CelestiaData;
@@ -230,6 +228,25 @@ public class SimulatorNode extends TaskNode {
         return String.format("*%02X", (int) result);
     }
 
+    /**
+     * Calculates the CRC-32 of a NovAtel ASCII log, "#header;data*", over the
+     * characters between the '#' and the '*', without the initial and final
+     * inversion of the zip CRC-32.
+     *
+     * @param log the log, from the '#' to the '*' included
+     * @return the 8 hex digits of the CRC, to be appended after the '*'
+     */
+    public static String calcNovAtelCRC(String log) {
+        int crc = 0;
+        for (char c : log.substring(1, log.length() - 1).toCharArray()) {
+            crc ^= c & 0xFF;
+            for (int i = 0; i < 8; i++) {
+                crc = ((crc & 1) != 0) ? (crc >>> 1) ^ 0xEDB88320 : crc >>> 1;
+            }
+        }
+        return String.format("%08x", crc);
+    }
+
     public static String handleResourcePath(String path, Logger logger, ClassLoader classLoader, boolean replace) {
         String resourcesFolder = SimulatorNode.getResourcesPath();
         File folder = new File(resourcesFolder);
@@ -3101,6 +3118,8 @@ public class SimulatorNode extends TaskNode {
                         LinkedList<GPSSatInView> tempResult = getSatsInView();
                         int numberInSet = tempResult.size();
                         for (int iSat = 1; iSat <= numberInSet; iSat++) {
+                            // The checksum of each message only covers that message
+                            int messageStart = result.length();
                             for (int i = PGPS.FirmwareReferenceOEM16.GLMLA_COL.HEADER;
                                  i <= PGPS.FirmwareReferenceOEM16.GLMLA_COL.CHECKSUM;
                                  i++) {
@@ -3137,7 +3156,7 @@ public class SimulatorNode extends TaskNode {
                                 } else if (i == PGPS.FirmwareReferenceOEM16.GLMLA_COL.CLK_SHIFT_COARSE) {
                                     result.append("0");
                                 } else if (i == PGPS.FirmwareReferenceOEM16.GLMLA_COL.CHECKSUM) {
-                                    result.append(calcNMEAChecksum(result.toString()));
+                                    result.append(calcNMEAChecksum(result.substring(messageStart)));
                                 }
                             }
                             result.append(separatorNewLine);
@@ -3224,6 +3243,8 @@ public class SimulatorNode extends TaskNode {
                                     tempAzimuth[j] = (int) tempResult.get(k++).getAzimuth();
                                 }
                             }
+                            // The checksum of each message only covers that message
+                            int messageStart = result.length();
                             for (int i = PGPS.FirmwareReferenceOEM16.GPGSV_COL.HEADER;
                                  i <= PGPS.FirmwareReferenceOEM16.GPGSV_COL.CHECKSUM;
                                  i++) {
@@ -3268,7 +3289,7 @@ public class SimulatorNode extends TaskNode {
                                 } else if (i == PGPS.FirmwareReferenceOEM16.GPGSV_COL.SAT4_SNR) {
                                     result.append("0");
                                 } else if (i == PGPS.FirmwareReferenceOEM16.GPGSV_COL.CHECKSUM) {
-                                    result.append(calcNMEAChecksum(result.toString()));
+                                    result.append(calcNMEAChecksum(result.substring(messageStart)));
                                 }
                             }
                             result.append("\n");
@@ -3648,10 +3669,7 @@ public class SimulatorNode extends TaskNode {
                     int satsInView = orekitCore.getSatsNoInView();
                     sb.append(this.orekitCore.getGpsConstellation().size()).append(",").append(satsInView);
                     sb.append(",").append(satsInView).append(",").append(satsInView).append(",0,01,0,33*");
-                    byte[] currentData = sb.toString().getBytes();
-                    Checksum cs = new CRC32();
-                    cs.update(currentData, 0, currentData.length);
-                    sb.append(String.format("%x", cs.getValue()));
+                    sb.append(calcNovAtelCRC(sb.toString()));
                     globalResult = sb.toString();
                     break;
                 }
@@ -3668,10 +3686,7 @@ public class SimulatorNode extends TaskNode {
                     sb.append(year).append(",").append(month).append(",");
                     sb.append(day).append(",").append(hour).append(",").append(minute).append(",");
                     sb.append(ms).append(",VALID*");
-                    byte[] currentData = sb.toString().getBytes();
-                    Checksum cs = new CRC32();
-                    cs.update(currentData, 0, currentData.length);
-                    sb.append(String.format("%x", cs.getValue()));
+                    sb.append(calcNovAtelCRC(sb.toString()));
                     globalResult = sb.toString();
                     break;
                 }
@@ -38,6 +38,7 @@ import org.ccsds.moims.mo.platform.camera.structures.PixelResolution;
 import org.ccsds.moims.mo.platform.camera.structures.PixelResolutionList;
 import esa.mo.helpertools.helpers.HelperTime;
 import esa.mo.platform.impl.provider.gen.CameraAdapterInterface;
+import esa.mo.platform.impl.provider.gen.FrameBuffers;
 import esa.opssat.camera.processing.OPSSATCameraDebayering;
 import opssat.simulator.main.ESASimulator;
 import org.ccsds.moims.mo.mal.MALException;
@@ -57,6 +58,7 @@ public class CameraSoftSimAdapter implements CameraAdapterInterface, SimulatorAd
     private final ESASimulator instrumentsSimulator;
     private final PictureFormatList supportedFormats = new PictureFormatList();
     private PowerControlAdapterInterface pcAdapter;
+    private final FrameBuffers buffers = new FrameBuffers(); // For takePicture
 
     public CameraSoftSimAdapter(ESASimulator instrumentsSimulator, PowerControlAdapterInterface pcAdapter) {
         supportedFormats.add(PictureFormat.RAW);
@@ -108,17 +110,48 @@ public class CameraSoftSimAdapter implements CameraAdapterInterface, SimulatorAd
             .getValue(), (int) settings.getResolution().getHeight().getValue());
 
         if (settings.getFormat() != PictureFormat.RAW) {
-            data = convertImage(data, settings.getFormat());
+            data = convertImage(data, settings.getFormat(), buffers);
         }
 
+        return new Picture(timestamp, getPictureSettings(settings, settings.getFormat()), new Blob(data));
+    }
+
+    @Override
+    public synchronized Picture takeStreamPicture(final CameraSettings settings) throws IOException {
+        // The picture is converted by convertStreamPicture, while the next one is taken
+        final Time timestamp = HelperTime.getTimestampMillis();
+        final byte[] data = instrumentsSimulator.getpCamera().takePicture((int) settings.getResolution().getWidth()
+            .getValue(), (int) settings.getResolution().getHeight().getValue());
+
+        return new Picture(timestamp, getPictureSettings(settings, PictureFormat.RAW), new Blob(data));
+    }
+
+    @Override
+    public Picture convertStreamPicture(final Picture picture, final CameraSettings settings,
+        final FrameBuffers buffers) throws IOException {
+        if (settings.getFormat() == PictureFormat.RAW) {
+            return picture;
+        }
+
+        final byte[] data;
+        try {
+            data = convertImage(picture.getContent().getValue(), settings.getFormat(), buffers);
+        } catch (MALException ex) {
+            throw new IOException(ex);
+        }
+        return new Picture(picture.getTimestamp(), getPictureSettings(settings, settings.getFormat()), new Blob(
+            data));
+    }
+
+    private static CameraSettings getPictureSettings(final CameraSettings settings, final PictureFormat format) {
         CameraSettings pictureSettings = new CameraSettings();
         pictureSettings.setResolution(settings.getResolution());
-        pictureSettings.setFormat(settings.getFormat());
+        pictureSettings.setFormat(format);
         pictureSettings.setExposureTime(settings.getExposureTime());
         pictureSettings.setGainRed(settings.getGainRed());
         pictureSettings.setGainGreen(settings.getGainGreen());
         pictureSettings.setGainBlue(settings.getGainBlue());
-        return new Picture(timestamp, pictureSettings, new Blob(data));
+        return pictureSettings;
     }
 
     @Override
@@ -131,16 +164,21 @@ public class CameraSoftSimAdapter implements CameraAdapterInterface, SimulatorAd
         return MINIMUM_DURATION;
     }
 
-    private byte[] convertImage(byte[] rawImage, final PictureFormat targetFormat) throws IOException {
+    /**
+     * Converts a RAW picture. The buffers are reused, but the returned array
+     * is new.
+     */
+    private byte[] convertImage(byte[] rawImage, final PictureFormat targetFormat, final FrameBuffers buffers)
+        throws IOException {
         BufferedImage image = OPSSATCameraDebayering.getDebayeredImage(rawImage);
         byte[] ret = null;
 
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ByteArrayOutputStream stream = buffers.getStream();
 
         if (targetFormat.equals(PictureFormat.RGB24)) {
             int w = image.getWidth();
             int h = image.getHeight();
-            int[] rgba = image.getRGB(0, 0, w, h, null, 0, w);
+            int[] rgba = image.getRGB(0, 0, w, h, buffers.getPixels(w * h), 0, w);
             ret = new byte[rgba.length * 3];
             for (int i = 0; i < rgba.length; ++i) {
                 final int pixelval = rgba[i];
@@ -152,15 +190,12 @@ public class CameraSoftSimAdapter implements CameraAdapterInterface, SimulatorAd
         } else if (targetFormat.equals(PictureFormat.BMP)) {
             ImageIO.write(image, "BMP", stream);
             ret = stream.toByteArray();
-            stream.close();
         } else if (targetFormat.equals(PictureFormat.PNG)) {
             ImageIO.write(image, "PNG", stream);
             ret = stream.toByteArray();
-            stream.close();
         } else if (targetFormat.equals(PictureFormat.JPG)) {
             ImageIO.write(image, "JPEG", stream);
             ret = stream.toByteArray();
-            stream.close();
         } else {
             throw new IOException("Something went wrong! The Image could not be converted into the selected format.");
         }